@@ -1,6 +1,7 @@
 plugins {
     id("java-library")
     alias(libs.plugins.vanniktech.maven.publish)
+    alias(libs.plugins.jmh)
 }
 
 group = "com.toxicstoxm"
@@ -29,6 +30,8 @@ dependencies {
 
     testImplementation(libs.jetbrains.annotations)
     testAnnotationProcessor(libs.jetbrains.annotations)
+
+    jmhImplementation(libs.jetbrains.annotations)
 }
 
 java {
@@ -40,12 +43,57 @@ java {
 tasks.test {
     useJUnitPlatform()
 
+    if (project.hasProperty("calibrateAllocationBudgets")) {
+        systemProperty("yajsi.allocationBudgets.calibrate", file("src/test/resources/allocation-budgets.properties").path)
+    }
+
     testLogging {
         showStandardStreams = true
         events("passed", "skipped", "failed")
     }
 }
 
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    fork = 2
+    warmupIterations = 3
+    iterations = 5
+}
+
+tasks.register<JavaExec>("scalingHarness") {
+    group = "benchmark"
+    description = "Runs the end-to-end scaling harness and writes a JSON report. Pass options with -PharnessArgs=\"...\""
+
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "com.toxicstoxm.YAJSI.benchmarks.ScalingHarness"
+    systemProperty("yajsi.version", version.toString())
+
+    args("--output", layout.buildDirectory.file("results/scaling/report.json").get().asFile.path)
+    (project.findProperty("harnessArgs") as String?)?.let { args(it.split(" ").filter(String::isNotBlank)) }
+}
+
+// The discovery index processor is opt-in, the main jar does not register it for implicit processor discovery
+val processorJar by tasks.registering(Jar::class) {
+    group = "build"
+    description = "Assembles the jar registering the discovery index processor, for the annotation processor path."
+
+    archiveClassifier = "processor"
+    from(sourceSets.main.get().output)
+    from("src/processor/resources")
+}
+
+tasks.assemble {
+    dependsOn(processorJar)
+}
+
+publishing {
+    publications.withType<MavenPublication>().configureEach {
+        artifact(processorJar)
+    }
+}
+
 mavenPublishing {
     publishToMavenCentral()
 
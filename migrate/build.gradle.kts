@@ -0,0 +1,36 @@
+plugins {
+    application
+}
+
+group = "com.toxicstoxm"
+version = rootProject.version
+
+repositories {
+    mavenCentral()
+    mavenLocal()
+}
+
+dependencies {
+    implementation(project(":"))
+
+    implementation(libs.jetbrains.annotations)
+    annotationProcessor(libs.jetbrains.annotations)
+
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly(libs.junit.platform.launcher)
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(25)
+    }
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+application {
+    mainClass = "com.toxicstoxm.YAJSI.migrate.BulkMigrator"
+    applicationName = "yajsi-migrate"
+}
@@ -0,0 +1,159 @@
+package com.toxicstoxm.YAJSI.migrate;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsBundleManager;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.upgrading.MigrationResult;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Offline tool that runs the upgrade and binding pipeline of a bundle class over every config file in a directory.
+ * Each worker thread uses its own {@link SettingsBundleManager}, nothing is registered with the {@link SettingsManager}.
+ */
+public class BulkMigrator {
+    private final MigrationOptions options;
+    private final Constructor<? extends SettingsBundle> constructor;
+    private final ThreadLocal<SettingsBundleManager> managers = ThreadLocal.withInitial(SettingsBundleManager::new);
+
+    public BulkMigrator(@NotNull MigrationOptions options) throws IllegalArgumentException {
+        this.options = options;
+        this.constructor = resolveConstructor(options);
+    }
+
+    public static void main(String[] args) {
+        MigrationOptions options;
+        BulkMigrator migrator;
+        try {
+            options = MigrationOptions.parse(args);
+            migrator = new BulkMigrator(options);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(MigrationOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        SettingsManager.configure()
+                .autoUpgrade(options.autoUpgrade())
+                .done();
+
+        MigrationReport report;
+        try {
+            report = migrator.run();
+        } catch (IOException e) {
+            System.err.println("Failed to list config files: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        report.print(System.out);
+        System.exit(report.failures().isEmpty() ? 0 : 1);
+    }
+
+    public @NotNull MigrationReport run() throws IOException {
+        List<Path> files = listFiles();
+
+        List<Callable<MigrationReport.FileResult>> tasks = new ArrayList<>(files.size());
+        for (Path file : files) {
+            tasks.add(() -> process(file));
+        }
+
+        ExecutorService pool = Executors.newWorkStealingPool(options.threads());
+        long start = System.nanoTime();
+        try {
+            List<MigrationReport.FileResult> results = new ArrayList<>(files.size());
+            for (Future<MigrationReport.FileResult> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return new MigrationReport(results, System.nanoTime() - start, options.inPlace());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Migration was interrupted!", e);
+        } catch (ExecutionException e) {
+            // process() never throws, anything arriving here is a bug
+            throw new IllegalStateException("Migration worker failed unexpectedly!", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private @NotNull List<Path> listFiles() throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + options.glob());
+        try (Stream<Path> s = Files.walk(options.directory())) {
+            return s.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(p.getFileName()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private @NotNull MigrationReport.FileResult process(@NotNull Path file) {
+        long bytes = 0;
+        try {
+            bytes = Files.size(file);
+
+            SettingsBundle bundle = constructor.newInstance(file.toFile());
+
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.load(file.toFile());
+
+            // Files without a version, e.g. empty ones, would be overwritten with defaults, which is rarely intended for a whole directory
+            boolean unversioned = !yaml.contains(SettingsManager.getSettings().getVersionKey());
+            if (unversioned && !options.initialize()) {
+                return new MigrationReport.FileResult(file, MigrationReport.Status.UNVERSIONED, bytes, null);
+            }
+
+            SettingsBundleManager manager = managers.get();
+            MigrationResult result = manager.migrate(bundle, yaml);
+
+            if (!result.upgraded() && !result.initial()) {
+                return new MigrationReport.FileResult(file, MigrationReport.Status.UP_TO_DATE, bytes, null);
+            }
+
+            if (options.inPlace()) {
+                manager.write(bundle, result);
+            }
+            return new MigrationReport.FileResult(file, unversioned ? MigrationReport.Status.INITIALIZED : MigrationReport.Status.UPGRADED, bytes, null);
+        } catch (InvocationTargetException e) {
+            return new MigrationReport.FileResult(file, MigrationReport.Status.FAILED, bytes, e.getCause());
+        } catch (Exception e) {
+            return new MigrationReport.FileResult(file, MigrationReport.Status.FAILED, bytes, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static @NotNull Constructor<? extends SettingsBundle> resolveConstructor(@NotNull MigrationOptions options) throws IllegalArgumentException {
+        Class<?> clazz;
+        try {
+            clazz = Class.forName(options.bundleClass(), true, options.classLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Bundle class not found: " + options.bundleClass(), e);
+        }
+
+        if (!SettingsBundle.class.isAssignableFrom(clazz)) {
+            throw new IllegalArgumentException(clazz.getName() + " is not a SettingsBundle!");
+        }
+
+        try {
+            Constructor<? extends SettingsBundle> constructor = (Constructor<? extends SettingsBundle>) clazz.getDeclaredConstructor(File.class);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(clazz.getName() + " needs a constructor taking the config File to be migrated in bulk!", e);
+        }
+    }
+}
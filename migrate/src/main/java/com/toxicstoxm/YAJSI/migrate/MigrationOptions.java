@@ -0,0 +1,103 @@
+package com.toxicstoxm.YAJSI.migrate;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public record MigrationOptions(
+        @NotNull String bundleClass,
+        @NotNull Path directory,
+        @NotNull String glob,
+        boolean inPlace,
+        boolean autoUpgrade,
+        boolean initialize,
+        int threads,
+        @NotNull List<Path> classpath
+) {
+    public static final String USAGE = """
+            Usage: yajsi-migrate <bundle-class> <directory> [options]
+              --dry-run             Run the upgrade and binding pipeline without writing (default)
+              --in-place            Write upgraded files back to disk
+              --auto-upgrade        Allow auto upgrading when no upgrader exists for a version
+              --initialize          Fill files without a version, e.g. empty ones, with defaults (skipped otherwise)
+              --glob <pattern>      File name pattern to process (default: *.{yml,yaml})
+              --threads <n>         Number of worker threads (default: available processors)
+              --classpath <paths>   Additional jars or directories containing the bundle class""";
+
+    @Contract("_ -> new")
+    public static @NotNull MigrationOptions parse(@NotNull String[] args) throws IllegalArgumentException {
+        List<String> positional = new ArrayList<>();
+        String glob = "*.{yml,yaml}";
+        boolean inPlace = false;
+        boolean autoUpgrade = false;
+        boolean initialize = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> classpath = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dry-run" -> inPlace = false;
+                case "--in-place" -> inPlace = true;
+                case "--auto-upgrade" -> autoUpgrade = true;
+                case "--initialize" -> initialize = true;
+                case "--glob" -> glob = value(args, ++i);
+                case "--threads" -> {
+                    try {
+                        threads = Integer.parseInt(value(args, i + 1));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid thread count: " + args[i + 1], e);
+                    }
+                    i++;
+                    if (threads < 1) throw new IllegalArgumentException("Thread count must be at least 1!");
+                }
+                case "--classpath" -> {
+                    for (String entry : value(args, ++i).split(File.pathSeparator)) {
+                        if (!entry.isBlank()) classpath.add(Path.of(entry));
+                    }
+                }
+                default -> {
+                    if (args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    positional.add(args[i]);
+                }
+            }
+        }
+
+        if (positional.size() != 2) {
+            throw new IllegalArgumentException("Expected a bundle class and a directory!");
+        }
+
+        Path directory = Path.of(positional.get(1));
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+
+        return new MigrationOptions(positional.get(0), directory, glob, inPlace, autoUpgrade, initialize, threads, List.copyOf(classpath));
+    }
+
+    private static @NotNull String value(@NotNull String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException("Missing value for option: " + args[i - 1]);
+        return args[i];
+    }
+
+    public @NotNull ClassLoader classLoader() {
+        if (classpath.isEmpty()) return MigrationOptions.class.getClassLoader();
+
+        URL[] urls = new URL[classpath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            try {
+                urls[i] = classpath.get(i).toUri().toURL();
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("Invalid classpath entry: " + classpath.get(i), e);
+            }
+        }
+        return new URLClassLoader(urls, MigrationOptions.class.getClassLoader());
+    }
+}
@@ -0,0 +1,62 @@
+package com.toxicstoxm.YAJSI.migrate;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+
+public record MigrationReport(@NotNull List<FileResult> results, long elapsedNanos, boolean inPlace) {
+
+    public record FileResult(@NotNull Path file, @NotNull Status status, long bytes, @Nullable Throwable error) {}
+
+    public enum Status {
+        UP_TO_DATE,
+        UPGRADED,
+        // Files without a version, only processed with --initialize
+        UNVERSIONED,
+        INITIALIZED,
+        FAILED
+    }
+
+    public @NotNull List<FileResult> failures() {
+        return results.stream().filter(r -> r.status() == Status.FAILED).toList();
+    }
+
+    public long count(@NotNull Status status) {
+        return results.stream().filter(r -> r.status() == status).count();
+    }
+
+    public void print(@NotNull PrintStream out) {
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000D;
+        long bytes = results.stream().mapToLong(FileResult::bytes).sum();
+
+        for (FileResult failure : failures()) {
+            out.println("FAILED " + failure.file() + ": " + describe(failure.error()));
+        }
+
+        out.println();
+        out.println("Mode:        " + (inPlace ? "in-place" : "dry-run"));
+        out.println("Files:       " + results.size());
+        out.println("Upgraded:    " + count(Status.UPGRADED) + (inPlace ? "" : " (not written)"));
+        out.println("Initialized: " + count(Status.INITIALIZED) + (inPlace ? "" : " (not written)"));
+        out.println("Unversioned: " + count(Status.UNVERSIONED) + " (skipped, see --initialize)");
+        out.println("Up to date:  " + count(Status.UP_TO_DATE));
+        out.println("Failed:      " + count(Status.FAILED));
+        out.printf("Elapsed:     %.3f s%n", seconds);
+        out.printf("Throughput:  %.1f files/s, %.2f MiB/s%n", results.size() / seconds, bytes / seconds / (1024 * 1024));
+    }
+
+    private static @NotNull String describe(@Nullable Throwable error) {
+        if (error == null) return "unknown error";
+
+        StringBuilder sb = new StringBuilder(String.valueOf(error.getMessage()));
+        Throwable cause = error.getCause();
+        while (cause != null && cause != cause.getCause()) {
+            sb.append(" <- ").append(cause.getClass().getSimpleName()).append(": ").append(cause.getMessage());
+            cause = cause.getCause();
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,165 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.migrate.BulkMigrator;
+import com.toxicstoxm.YAJSI.migrate.MigrationOptions;
+import com.toxicstoxm.YAJSI.migrate.MigrationReport;
+import com.toxicstoxm.YAJSI.migrate.MigrationReport.Status;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests running the bulk migration tool over a directory of config files.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class BulkMigratorTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-migrate-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class ServiceBundle extends SettingsBundle {
+        public ServiceBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public String name = "service";
+        public int count = 1;
+    }
+
+    private static final String CURRENT = """
+            Version: 1.0.0
+            name: current
+            count: 3
+            """;
+    private static final String OLD = """
+            Version: 0.9.0
+            name: old
+            count: 5
+            """;
+
+    private void write(String name, String text) throws Exception {
+        Files.writeString(tmp.resolve(name), text);
+    }
+
+    private MigrationReport run(String... options) throws Exception {
+        List<String> args = new ArrayList<>(List.of(ServiceBundle.class.getName(), tmp.toString(), "--threads", "2"));
+        args.addAll(List.of(options));
+        return new BulkMigrator(MigrationOptions.parse(args.toArray(String[]::new))).run();
+    }
+
+    private Map<String, Status> statuses(MigrationReport report) {
+        Map<String, Status> statuses = new TreeMap<>();
+        for (MigrationReport.FileResult result : report.results()) {
+            statuses.put(result.file().getFileName().toString(), result.status());
+        }
+        return statuses;
+    }
+
+    @Test
+    public void validatingDoesNotWrite() throws Exception {
+        SettingsManager.configure().autoUpgrade(true).done();
+        write("current.yaml", CURRENT);
+        write("old.yml", OLD);
+        write("ignored.txt", OLD);
+
+        MigrationReport report = run();
+
+        assertFalse(report.inPlace());
+        assertEquals(Map.of("current.yaml", Status.UP_TO_DATE, "old.yml", Status.UPGRADED), statuses(report));
+        assertEquals(OLD, Files.readString(tmp.resolve("old.yml")));
+        assertEquals(CURRENT, Files.readString(tmp.resolve("current.yaml")));
+    }
+
+    @Test
+    public void inPlaceWritesUpgradedFiles() throws Exception {
+        SettingsManager.configure().autoUpgrade(true).done();
+        write("current.yaml", CURRENT);
+        write("old.yaml", OLD);
+
+        MigrationReport report = run("--in-place");
+
+        assertEquals(Map.of("current.yaml", Status.UP_TO_DATE, "old.yaml", Status.UPGRADED), statuses(report));
+        YamlConfiguration upgraded = YamlConfiguration.loadConfiguration(tmp.resolve("old.yaml").toFile());
+        assertEquals("1.0.0", upgraded.getString("Version"));
+        assertEquals("old", upgraded.getString("name"));
+        assertEquals(5, upgraded.getInt("count"));
+        assertEquals(CURRENT, Files.readString(tmp.resolve("current.yaml")));
+    }
+
+    @Test
+    public void unversionedFilesAreOnlyInitializedOnRequest() throws Exception {
+        write("empty.yaml", "");
+        write("plain.yaml", "name: plain\n");
+
+        MigrationReport report = run("--in-place");
+
+        assertEquals(Map.of("empty.yaml", Status.UNVERSIONED, "plain.yaml", Status.UNVERSIONED), statuses(report));
+        assertTrue(report.failures().isEmpty());
+        assertEquals("", Files.readString(tmp.resolve("empty.yaml")));
+        assertEquals("name: plain\n", Files.readString(tmp.resolve("plain.yaml")));
+
+        report = run("--in-place", "--initialize");
+
+        assertEquals(Map.of("empty.yaml", Status.INITIALIZED, "plain.yaml", Status.INITIALIZED), statuses(report));
+        YamlConfiguration initialized = YamlConfiguration.loadConfiguration(tmp.resolve("plain.yaml").toFile());
+        assertEquals("1.0.0", initialized.getString("Version"));
+        assertEquals("plain", initialized.getString("name"));
+        assertEquals(1, initialized.getInt("count"));
+    }
+
+    @Test
+    public void failuresAreReportedPerFile() throws Exception {
+        write("current.yaml", CURRENT);
+        write("old.yaml", OLD);
+
+        MigrationReport report = run("--in-place");
+
+        assertEquals(Map.of("current.yaml", Status.UP_TO_DATE, "old.yaml", Status.FAILED), statuses(report));
+        assertEquals(1, report.failures().size());
+        MigrationReport.FileResult failure = report.failures().getFirst();
+        assertTrue(failure.error() instanceof IllegalStateException, String.valueOf(failure.error()));
+        assertEquals(OLD, Files.readString(tmp.resolve("old.yaml")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.print(new PrintStream(out, true, StandardCharsets.UTF_8));
+        String printed = out.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("FAILED " + tmp.resolve("old.yaml") + ": Unable to auto upgrade"), printed);
+        assertTrue(printed.contains("Failed:      1"), printed);
+    }
+
+    @Test
+    public void invalidBundleClassesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BulkMigrator(MigrationOptions.parse(new String[]{"com.example.Missing", tmp.toString()})));
+        assertThrows(IllegalArgumentException.class, () -> new BulkMigrator(MigrationOptions.parse(new String[]{String.class.getName(), tmp.toString()})));
+    }
+}
@@ -0,0 +1,75 @@
+import com.toxicstoxm.YAJSI.migrate.MigrationOptions;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests parsing the command line options of the bulk migration tool.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class MigrationOptionsTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-migrate-options-");
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void defaults() {
+        MigrationOptions options = MigrationOptions.parse(new String[]{"com.example.Bundle", tmp.toString()});
+
+        assertEquals("com.example.Bundle", options.bundleClass());
+        assertEquals(tmp, options.directory());
+        assertEquals("*.{yml,yaml}", options.glob());
+        assertFalse(options.inPlace());
+        assertFalse(options.autoUpgrade());
+        assertFalse(options.initialize());
+        assertEquals(Runtime.getRuntime().availableProcessors(), options.threads());
+        assertEquals(List.of(), options.classpath());
+    }
+
+    @Test
+    public void options() {
+        String classpath = "a.jar" + File.pathSeparator + File.pathSeparator + "classes";
+        MigrationOptions options = MigrationOptions.parse(new String[]{
+                "--in-place", "com.example.Bundle", "--auto-upgrade", "--initialize", tmp.toString(),
+                "--glob", "*.conf", "--threads", "3", "--classpath", classpath
+        });
+
+        assertTrue(options.inPlace());
+        assertTrue(options.autoUpgrade());
+        assertTrue(options.initialize());
+        assertEquals("*.conf", options.glob());
+        assertEquals(3, options.threads());
+        assertEquals(List.of(Path.of("a.jar"), Path.of("classes")), options.classpath());
+
+        assertFalse(MigrationOptions.parse(new String[]{"com.example.Bundle", tmp.toString(), "--in-place", "--dry-run"}).inPlace());
+    }
+
+    @Test
+    public void invalidArguments() {
+        String dir = tmp.toString();
+        assertThrows(IllegalArgumentException.class, () -> MigrationOptions.parse(new String[]{"com.example.Bundle"}));
+        assertThrows(IllegalArgumentException.class, () -> MigrationOptions.parse(new String[]{"com.example.Bundle", dir, "extra"}));
+        assertThrows(IllegalArgumentException.class, () -> MigrationOptions.parse(new String[]{"com.example.Bundle", dir, "--force"}));
+        assertThrows(IllegalArgumentException.class, () -> MigrationOptions.parse(new String[]{"com.example.Bundle", dir, "--glob"}));
+        assertThrows(IllegalArgumentException.class, () -> MigrationOptions.parse(new String[]{"com.example.Bundle", dir, "--threads", "many"}));
+        assertThrows(IllegalArgumentException.class, () -> MigrationOptions.parse(new String[]{"com.example.Bundle", dir, "--threads", "0"}));
+        assertThrows(IllegalArgumentException.class, () -> MigrationOptions.parse(new String[]{"com.example.Bundle", tmp.resolve("missing").toString()}));
+    }
+}
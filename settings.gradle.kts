@@ -1 +1,3 @@
 rootProject.name = "YAJSI"
+
+include("migrate")
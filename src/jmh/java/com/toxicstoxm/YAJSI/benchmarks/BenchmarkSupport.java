@@ -0,0 +1,63 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.YAJSI.ConfigType;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class BenchmarkSupport {
+
+    /**
+     * Drops the {@link SettingsManager} singleton, including every registered bundle.
+     */
+    public static void resetSettingsManager() {
+        try {
+            Field f = SettingsManager.class.getDeclaredField("instance");
+            f.setAccessible(true);
+            f.set(null, null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to reset SettingsManager!", e);
+        }
+    }
+
+    public static @NotNull SettingsBundle newBundle(@NotNull Class<? extends SettingsBundle> clazz, @NotNull File file, @NotNull ConfigType type) {
+        try {
+            return clazz.getConstructor(File.class, ConfigType.class).newInstance(file, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to instantiate " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Registers a fresh instance of the bundle once, so the file exists with all defaults written.
+     */
+    public static void materialize(@NotNull Class<? extends SettingsBundle> clazz, @NotNull File file) {
+        resetSettingsManager();
+        SettingsManager.configure().done();
+        SettingsManager.getInstance().registerConfig(newBundle(clazz, file, ConfigType.SETTINGS));
+        resetSettingsManager();
+    }
+
+    public static @NotNull Path tempDir() {
+        try {
+            return Files.createTempDirectory("yajsi-bench-");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void delete(@NotNull Path dir) {
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,46 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding between an already parsed tree and the bundle fields, without file I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BindingBenchmark {
+    @Param({"10", "100", "1000"})
+    public int fieldCount;
+
+    @Param({"1", "8", "32"})
+    public int nestingDepth;
+
+    @Param({"0", "100"})
+    public int listSize;
+
+    private BindingFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new BindingFixture(new SyntheticBundles.Shape(fieldCount, nestingDepth, listSize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public SettingsBundle loadValues() {
+        return fixture.load();
+    }
+
+    @Benchmark
+    public YamlConfiguration saveValues() {
+        return fixture.save();
+    }
+}
@@ -0,0 +1,56 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.ConfigType;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsBundleManager;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A materialized synthetic bundle with its parsed tree, for benchmarking {@link SettingsBundleManager#loadValues}
+ * and {@link SettingsBundleManager#saveValues} without file I/O.
+ */
+public class BindingFixture {
+    public final Path dir;
+    public final File file;
+    public final Class<? extends SettingsBundle> bundleClass;
+    public final SettingsBundleManager manager = new SettingsBundleManager();
+    public final YamlConfiguration yaml;
+    public final List<String> keys;
+    public final SettingsBundle bound;
+
+    public BindingFixture(@NotNull SyntheticBundles.Shape shape) {
+        this.dir = BenchmarkSupport.tempDir();
+        this.file = dir.resolve("config.yaml").toFile();
+        this.bundleClass = SyntheticBundles.generate(shape);
+
+        BenchmarkSupport.materialize(bundleClass, file);
+        SettingsManager.configure().done();
+
+        this.yaml = YamlConfiguration.loadConfiguration(file);
+        this.keys = List.copyOf(yaml.getKeys(true));
+        this.bound = load();
+    }
+
+    public @NotNull SettingsBundle load() {
+        SettingsBundle bundle = BenchmarkSupport.newBundle(bundleClass, file, ConfigType.SETTINGS);
+        manager.loadValues(new ArrayList<>(keys), new ArrayList<>(), bundle, yaml);
+        return bundle;
+    }
+
+    public @NotNull YamlConfiguration save() {
+        manager.saveValues(new ArrayList<>(), bound, yaml);
+        return yaml;
+    }
+
+    public void close() {
+        BenchmarkSupport.resetSettingsManager();
+        BenchmarkSupport.delete(dir);
+    }
+}
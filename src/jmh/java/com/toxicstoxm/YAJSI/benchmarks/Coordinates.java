@@ -0,0 +1,40 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import com.toxicstoxm.YAJSI.serializing.ExternalYAMLSerializer;
+import com.toxicstoxm.YAJSI.serializing.SerializableWith;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Value type bound through an {@link ExternalYAMLSerializer}, used by the serializer benchmarks.
+ */
+@SerializableWith(serializer = Coordinates.Serializer.class)
+public class Coordinates {
+    public double x;
+    public double y;
+    public double z;
+
+    public Coordinates() {}
+
+    public Coordinates(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public static class Serializer implements ExternalYAMLSerializer<Coordinates> {
+        @Override
+        public Coordinates deserialize(@NotNull ConfigurationSection yaml) {
+            return new Coordinates(yaml.getDouble("x"), yaml.getDouble("y"), yaml.getDouble("z"));
+        }
+
+        @Override
+        public @NotNull ConfigurationSection serialize(Coordinates o) {
+            ConfigurationSection section = emptyConfigSection();
+            section.set("x", o.x);
+            section.set("y", o.y);
+            section.set("z", o.z);
+            return section;
+        }
+    }
+}
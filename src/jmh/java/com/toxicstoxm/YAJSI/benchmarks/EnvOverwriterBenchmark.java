@@ -0,0 +1,74 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.YAJSI.ConfigType;
+import com.toxicstoxm.YAJSI.Overwriter;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.utils.EnvUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overwriter resolution through {@link EnvUtils} for every scalar field of a bundle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnvOverwriterBenchmark {
+    @Param({"10", "100", "1000"})
+    public int fieldCount;
+
+    @Param({"1", "4"})
+    public int overwriterCount;
+
+    @Param({"true", "false"})
+    public boolean hit;
+
+    private final List<Field> fields = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws IllegalAccessException {
+        Class<? extends SettingsBundle> bundleClass = SyntheticBundles.generate(new SyntheticBundles.Shape(fieldCount, 0, 0));
+
+        List<Overwriter> overwriters = new ArrayList<>();
+        for (int i = 1; i < overwriterCount; i++) {
+            overwriters.add(_ -> null);
+        }
+        // Only int fields can take the replacement, all other types fall back to their value
+        overwriters.add(key -> hit ? "42" : null);
+
+        BenchmarkSupport.resetSettingsManager();
+        SettingsManager.configure()
+                .enableOverwriters(true)
+                .overwriters(overwriters)
+                .done();
+
+        SettingsBundle bundle = BenchmarkSupport.newBundle(bundleClass, new File("unused.yaml"), ConfigType.READONLY);
+        for (Field field : bundleClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) continue;
+            field.setAccessible(true);
+            fields.add(field);
+            values.add(field.get(bundle));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.resetSettingsManager();
+    }
+
+    @Benchmark
+    public void checkForEnvPrimitive(Blackhole bh) {
+        for (int i = 0; i < fields.size(); i++) {
+            bh.consume(EnvUtils.checkForEnvPrimitive(fields.get(i), values.get(i)));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding of fields whose type declares an external serializer, see {@link Coordinates}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExternalSerializerBenchmark {
+    @Param({"1", "10", "100"})
+    public int serializedFields;
+
+    private BindingFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new BindingFixture(new SyntheticBundles.Shape(0, 0, 0, serializedFields));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public SettingsBundle loadValues() {
+        return fixture.load();
+    }
+
+    @Benchmark
+    public YamlConfiguration saveValues() {
+        return fixture.save();
+    }
+}
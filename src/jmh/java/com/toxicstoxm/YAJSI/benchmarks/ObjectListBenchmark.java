@@ -0,0 +1,40 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding of object lists and primitive lists in isolation, scaled by list size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ObjectListBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int listSize;
+
+    private BindingFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new BindingFixture(new SyntheticBundles.Shape(0, 0, listSize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public SettingsBundle loadValues() {
+        return fixture.load();
+    }
+
+    @Benchmark
+    public YamlConfiguration saveValues() {
+        return fixture.save();
+    }
+}
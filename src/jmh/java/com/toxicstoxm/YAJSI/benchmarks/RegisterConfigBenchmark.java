@@ -0,0 +1,62 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.YAJSI.ConfigType;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@link SettingsManager#registerConfig(SettingsBundle)} path: file read, parse, upgrade check, binding and (for settings) write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegisterConfigBenchmark {
+    @Param({"10", "100", "1000"})
+    public int fieldCount;
+
+    @Param({"1", "8"})
+    public int nestingDepth;
+
+    @Param({"0", "1000"})
+    public int listSize;
+
+    @Param({"READONLY", "SETTINGS"})
+    public ConfigType type;
+
+    private Path dir;
+    private File file;
+    private Class<? extends SettingsBundle> bundleClass;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bundleClass = SyntheticBundles.generate(new SyntheticBundles.Shape(fieldCount, nestingDepth, listSize));
+        dir = BenchmarkSupport.tempDir();
+        file = dir.resolve("config.yaml").toFile();
+        BenchmarkSupport.materialize(bundleClass, file);
+    }
+
+    @Setup(Level.Invocation)
+    public void freshManager() {
+        // Registered bundles are retained, a fresh manager keeps the heap flat across invocations
+        BenchmarkSupport.resetSettingsManager();
+        SettingsManager.configure().done();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.resetSettingsManager();
+        BenchmarkSupport.delete(dir);
+    }
+
+    @Benchmark
+    public SettingsBundle registerConfig() {
+        SettingsBundle bundle = BenchmarkSupport.newBundle(bundleClass, file, type);
+        SettingsManager.getInstance().registerConfig(bundle);
+        return bundle;
+    }
+}
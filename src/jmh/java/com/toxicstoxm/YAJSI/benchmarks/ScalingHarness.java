@@ -0,0 +1,200 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.YAJSI.ConfigType;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * End-to-end scaling harness. Generates synthetic bundles and matching files, then measures registering, saving
+ * and reloading all instances in place on the local disk. The retained heap is measured right after registration. Every combination of the given parameters is run and written
+ * to a JSON report, so runs can be compared across versions.
+ * <pre>
+ * --fields 10,100,1000 --depth 1,8 --list 0,1000 --instances 100,1000 --output report.json
+ * </pre>
+ */
+public class ScalingHarness {
+
+    public record Scenario(SyntheticBundles.Shape shape, int instances) {}
+
+    public record Result(
+            Scenario scenario,
+            long fileBytes,
+            Phase register,
+            Phase save,
+            Phase reload,
+            long retainedHeapBytes
+    ) {}
+
+    public record Phase(long nanos, long peakHeapBytes, int files) {
+        public double filesPerSecond() {
+            return files / Math.max(nanos / 1_000_000_000D, 1e-9);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Integer> fields = List.of(10, 100, 1000);
+        List<Integer> depths = List.of(1, 8);
+        List<Integer> lists = List.of(0, 1000);
+        List<Integer> instances = List.of(100, 1000);
+        Path output = Path.of("scaling-report.json");
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--fields" -> fields = ints(args[++i]);
+                case "--depth" -> depths = ints(args[++i]);
+                case "--list" -> lists = ints(args[++i]);
+                case "--instances" -> instances = ints(args[++i]);
+                case "--output" -> output = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (int f : fields) {
+            for (int d : depths) {
+                for (int l : lists) {
+                    for (int n : instances) {
+                        Scenario scenario = new Scenario(new SyntheticBundles.Shape(f, d, l), n);
+                        Result result = run(scenario);
+                        results.add(result);
+                        System.out.printf(Locale.ROOT, "%s x%d: register %.1f files/s, save %.1f files/s, reload %.1f files/s, peak heap %d MiB%n",
+                                scenario.shape().className(), n,
+                                result.register().filesPerSecond(), result.save().filesPerSecond(), result.reload().filesPerSecond(),
+                                Math.max(result.register().peakHeapBytes(), result.reload().peakHeapBytes()) >> 20);
+                    }
+                }
+            }
+        }
+
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.writeString(output, toJson(results));
+        System.out.println("Report written to " + output.toAbsolutePath());
+    }
+
+    public static @NotNull Result run(@NotNull Scenario scenario) throws IOException {
+        Class<? extends SettingsBundle> bundleClass = SyntheticBundles.generate(scenario.shape());
+        Path dir = BenchmarkSupport.tempDir();
+        try {
+            List<File> files = createFiles(bundleClass, dir, scenario.instances());
+            long fileBytes = Files.size(files.getFirst().toPath()) * files.size();
+
+            BenchmarkSupport.resetSettingsManager();
+            SettingsManager.configure().done();
+            List<SettingsBundle> bundles = new ArrayList<>(files.size());
+            long before = usedHeap();
+            Phase register = measure(files.size(), () -> registerAll(bundleClass, files, bundles));
+            long retained = usedHeap() - before;
+
+            Phase save = measure(files.size(), () -> SettingsManager.getInstance().save());
+            Phase reload = measure(files.size(), () -> bundles.forEach(SettingsManager.getInstance()::reload));
+
+            BenchmarkSupport.resetSettingsManager();
+            return new Result(scenario, fileBytes, register, save, reload, retained);
+        } finally {
+            BenchmarkSupport.delete(dir);
+        }
+    }
+
+    private static @NotNull List<File> createFiles(@NotNull Class<? extends SettingsBundle> bundleClass, @NotNull Path dir, int instances) throws IOException {
+        Path template = dir.resolve("template.yaml");
+        BenchmarkSupport.materialize(bundleClass, template.toFile());
+
+        List<File> files = new ArrayList<>(instances);
+        for (int i = 0; i < instances; i++) {
+            Path file = dir.resolve("instances").resolve("tenant-" + i + ".yaml");
+            Files.createDirectories(file.getParent());
+            Files.copy(template, file, StandardCopyOption.REPLACE_EXISTING);
+            files.add(file.toFile());
+        }
+        return files;
+    }
+
+    private static void registerAll(@NotNull Class<? extends SettingsBundle> bundleClass, @NotNull List<File> files, @NotNull List<SettingsBundle> bundles) {
+        for (File file : files) {
+            SettingsBundle bundle = BenchmarkSupport.newBundle(bundleClass, file, ConfigType.SETTINGS);
+            SettingsManager.getInstance().registerConfig(bundle);
+            bundles.add(bundle);
+        }
+    }
+
+    private static @NotNull Phase measure(int files, @NotNull Runnable phase) {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP)
+                .toList();
+
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        phase.run();
+        long nanos = System.nanoTime() - start;
+
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return new Phase(nanos, peak, files);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static @NotNull List<Integer> ints(@NotNull String csv) {
+        List<Integer> values = new ArrayList<>();
+        for (String s : csv.split(",")) {
+            values.add(Integer.parseInt(s.trim()));
+        }
+        return values;
+    }
+
+    private static @NotNull String toJson(@NotNull List<Result> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n")
+                .append("  \"yajsiVersion\": \"").append(System.getProperty("yajsi.version", "unknown")).append("\",\n")
+                .append("  \"javaVersion\": \"").append(System.getProperty("java.version")).append("\",\n")
+                .append("  \"availableProcessors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n")
+                .append("  \"maxHeapBytes\": ").append(Runtime.getRuntime().maxMemory()).append(",\n")
+                .append("  \"timestamp\": \"").append(Instant.now()).append("\",\n")
+                .append("  \"results\": [");
+
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            SyntheticBundles.Shape shape = r.scenario().shape();
+            sb.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\n")
+                    .append("      \"fieldCount\": ").append(shape.fieldCount()).append(",\n")
+                    .append("      \"nestingDepth\": ").append(shape.nestingDepth()).append(",\n")
+                    .append("      \"listSize\": ").append(shape.listSize()).append(",\n")
+                    .append("      \"instances\": ").append(r.scenario().instances()).append(",\n")
+                    .append("      \"fileBytes\": ").append(r.fileBytes()).append(",\n")
+                    .append("      \"retainedHeapBytes\": ").append(r.retainedHeapBytes()).append(",\n")
+                    .append("      \"register\": ").append(toJson(r.register())).append(",\n")
+                    .append("      \"save\": ").append(toJson(r.save())).append(",\n")
+                    .append("      \"reload\": ").append(toJson(r.reload())).append("\n")
+                    .append("    }");
+        }
+        return sb.append("\n  ]\n}\n").toString();
+    }
+
+    private static @NotNull String toJson(@NotNull Phase phase) {
+        return String.format(Locale.ROOT, "{\"nanos\": %d, \"peakHeapBytes\": %d, \"filesPerSecond\": %.3f}",
+                phase.nanos(), phase.peakHeapBytes(), phase.filesPerSecond());
+    }
+}
@@ -0,0 +1,159 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import org.jetbrains.annotations.NotNull;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generates and compiles {@link SettingsBundle} subclasses of a given shape, so benchmarks can scale field count,
+ * nesting depth and list sizes without hand written fixtures.
+ * <p>
+ * Generated bundles have the constructors {@code (File, ConfigType)}, {@code (File)} and {@code (InputStream)}.
+ */
+public class SyntheticBundles {
+    public static final String PACKAGE = "yajsi.synthetic";
+
+    /**
+     * @param fieldCount number of scalar fields on the bundle itself
+     * @param nestingDepth number of nested section levels below the bundle
+     * @param listSize number of default elements in the object list and the primitive list
+     * @param serializedFields number of fields using an external serializer
+     */
+    public record Shape(int fieldCount, int nestingDepth, int listSize, int serializedFields) {
+        public Shape(int fieldCount, int nestingDepth, int listSize) {
+            this(fieldCount, nestingDepth, listSize, 0);
+        }
+
+        public @NotNull String className() {
+            return "Bundle_F" + fieldCount + "_D" + nestingDepth + "_L" + listSize + "_S" + serializedFields;
+        }
+    }
+
+    private static final ConcurrentHashMap<Shape, Class<? extends SettingsBundle>> GENERATED = new ConcurrentHashMap<>();
+
+    public static @NotNull Class<? extends SettingsBundle> generate(@NotNull Shape shape) {
+        return GENERATED.computeIfAbsent(shape, SyntheticBundles::compile);
+    }
+
+    public static @NotNull String source(@NotNull Shape shape) {
+        String name = shape.className();
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("package ").append(PACKAGE).append(";\n\n")
+                .append("import com.toxicstoxm.YAJSI.ConfigType;\n")
+                .append("import com.toxicstoxm.YAJSI.SettingsBundle;\n")
+                .append("import com.toxicstoxm.YAJSI.YAMLSetting;\n")
+                .append("import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;\n")
+                .append("import com.toxicstoxm.YAJSI.benchmarks.Coordinates;\n")
+                .append("import java.io.File;\n")
+                .append("import java.io.InputStream;\n")
+                .append("import java.util.ArrayList;\n")
+                .append("import java.util.List;\n\n")
+                .append("public class ").append(name).append(" extends SettingsBundle {\n")
+                .append("    public ").append(name).append("(File f, ConfigType type) { super(new ConfigVersion(1, 0, 0), f, type); init(); }\n")
+                .append("    public ").append(name).append("(File f) { this(f, ConfigType.SETTINGS); }\n")
+                .append("    public ").append(name).append("(InputStream is) { super(new ConfigVersion(1, 0, 0), is); init(); }\n\n");
+
+        for (int i = 0; i < shape.fieldCount(); i++) {
+            sb.append("    @YAMLSetting(name = \"field-").append(i).append("\", comments = {\"Synthetic field ").append(i).append("\"})\n");
+            sb.append("    public ").append(scalar(i, "" + i)).append(";\n");
+        }
+        for (int i = 0; i < shape.serializedFields(); i++) {
+            sb.append("    public Coordinates coordinates").append(i).append(" = new Coordinates(").append(i).append(", ").append(i + 1).append(", ").append(i + 2).append(");\n");
+        }
+        if (shape.nestingDepth() > 0) {
+            sb.append("    public Level1 nested = new Level1();\n");
+        }
+        if (shape.listSize() > 0) {
+            sb.append("    public List<Item> items = new ArrayList<>();\n");
+            sb.append("    public List<Integer> numbers = new ArrayList<>();\n");
+        }
+
+        sb.append("\n    private void init() {\n");
+        if (shape.listSize() > 0) {
+            sb.append("        for (int i = 0; i < ").append(shape.listSize()).append("; i++) {\n")
+                    .append("            items.add(new Item(i));\n")
+                    .append("            numbers.add(i);\n")
+                    .append("        }\n");
+        }
+        sb.append("    }\n");
+
+        for (int level = 1; level <= shape.nestingDepth(); level++) {
+            sb.append("\n    public static class Level").append(level).append(" {\n")
+                    .append("        public int value = ").append(level).append(";\n")
+                    .append("        public String name = \"level").append(level).append("\";\n")
+                    .append("        public double ratio = ").append(level).append(".5;\n")
+                    .append("        public boolean enabled = true;\n");
+            if (level < shape.nestingDepth()) {
+                sb.append("        public Level").append(level + 1).append(" child = new Level").append(level + 1).append("();\n");
+            }
+            sb.append("    }\n");
+        }
+
+        sb.append("""
+
+                    public static class Item {
+                        public int id;
+                        public String name = "";
+                        public double weight;
+
+                        public Item() {}
+
+                        public Item(int i) {
+                            this.id = i;
+                            this.name = "item-" + i;
+                            this.weight = i * 0.25;
+                        }
+                    }
+                }
+                """);
+        return sb.toString();
+    }
+
+    private static @NotNull String scalar(int i, @NotNull String suffix) {
+        return switch (i % 4) {
+            case 0 -> "int field" + suffix + " = " + i;
+            case 1 -> "String field" + suffix + " = \"value-" + i + "\"";
+            case 2 -> "double field" + suffix + " = " + i + ".5";
+            default -> "boolean field" + suffix + " = " + (i % 8 == 3);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static @NotNull Class<? extends SettingsBundle> compile(@NotNull Shape shape) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Generating synthetic bundles requires a JDK!");
+        }
+
+        try {
+            Path dir = Files.createTempDirectory("yajsi-synthetic-");
+            Path source = dir.resolve(PACKAGE.replace('.', '/')).resolve(shape.className() + ".java");
+            Files.createDirectories(source.getParent());
+            Files.writeString(source, source(shape));
+
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            int result = compiler.run(null, null, errors,
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-proc:none",
+                    "-d", dir.toString(),
+                    source.toString());
+            if (result != 0) {
+                throw new IllegalStateException("Failed to compile synthetic bundle " + shape + ":\n" + errors);
+            }
+
+            URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, SyntheticBundles.class.getClassLoader());
+            return (Class<? extends SettingsBundle>) loader.loadClass(PACKAGE + "." + shape.className());
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to generate synthetic bundle " + shape, e);
+        }
+    }
+}
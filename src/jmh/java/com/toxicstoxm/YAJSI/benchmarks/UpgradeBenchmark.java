@@ -0,0 +1,77 @@
+package com.toxicstoxm.YAJSI.benchmarks;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.StormYAML.yaml.InvalidConfigurationException;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsBundleManager;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import com.toxicstoxm.YAJSI.upgrading.UpgradedYamlConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upgrade chains of varying length, each step copying the tree into a new {@link YamlConfiguration} like typical upgraders do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UpgradeBenchmark {
+    @Param({"1", "8", "32"})
+    public int chainLength;
+
+    @Param({"10", "100", "1000"})
+    public int fieldCount;
+
+    public static class UpgradeTarget extends SettingsBundle {
+        public UpgradeTarget(int chainLength) {
+            super(new ConfigVersion(0, 0, chainLength), new ByteArrayInputStream(new byte[0]));
+        }
+    }
+
+    private SettingsBundleManager manager;
+    private UpgradeTarget bundle;
+    private YamlConfiguration source;
+
+    @Setup(Level.Trial)
+    public void setup() throws InvalidConfigurationException {
+        BenchmarkSupport.resetSettingsManager();
+        SettingsManager.configure().done();
+        String versionKey = SettingsManager.getSettings().getVersionKey();
+
+        manager = new SettingsBundleManager();
+        bundle = new UpgradeTarget(chainLength);
+
+        for (int i = 0; i < chainLength; i++) {
+            String next = new ConfigVersion(0, 0, i + 1).toString();
+            manager.registerUpgradeCallback((old, _) -> {
+                YamlConfiguration updated = new YamlConfiguration();
+                for (String key : old.getKeys(false)) {
+                    updated.set(key, old.get(key));
+                }
+                updated.set(versionKey, next);
+                return updated;
+            }, new ConfigVersion(0, 0, i));
+        }
+
+        StringBuilder yaml = new StringBuilder(versionKey).append(": 0.0.0\n");
+        for (int i = 0; i < fieldCount; i++) {
+            yaml.append("field-").append(i).append(": value-").append(i).append('\n');
+        }
+        source = new YamlConfiguration();
+        source.loadFromString(yaml.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.resetSettingsManager();
+    }
+
+    @Benchmark
+    public UpgradedYamlConfiguration upgrade() {
+        // The callbacks copy instead of mutating, so the source tree can be reused
+        return manager.upgrade(bundle, source);
+    }
+}
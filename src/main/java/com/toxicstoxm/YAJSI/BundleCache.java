@@ -0,0 +1,200 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.YAJSI.metrics.Counter;
+import com.toxicstoxm.YAJSI.metrics.Metrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Bundles registered through {@link SettingsManager#registerCached}. Bundles exceeding the configured budget or idle for too long
+ * are saved and unregistered, the next access through their id registers a new instance with the same id from the factory.
+ */
+public final class BundleCache {
+    /**
+     * @param loaded number of currently loaded bundles
+     * @param loadedBytes summed file size of the loaded bundles
+     */
+    public record Stats(long hits, long misses, long evictions, int loaded, long loadedBytes) {}
+
+    private static final class Entry {
+        private final UUID id;
+        private final Supplier<? extends SettingsBundle> factory;
+        private @Nullable SettingsBundle bundle;
+        private long bytes;
+        private long lastAccess;
+
+        private Entry(@NotNull UUID id, @NotNull Supplier<? extends SettingsBundle> factory) {
+            this.id = id;
+            this.factory = factory;
+        }
+    }
+
+    // Number of least recently used bundles compared by frequency when evicting with TinyLFU
+    private static final int SAMPLE = 5;
+
+    private final SettingsManager manager;
+    private final HashMap<UUID, Entry> entries = new HashMap<>();
+    // Loaded entries, least recently used first
+    private final LinkedHashMap<UUID, Entry> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch = new FrequencySketch();
+    private long loadedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    BundleCache(@NotNull SettingsManager manager) {
+        this.manager = manager;
+    }
+
+    synchronized @NotNull UUID add(@NotNull Supplier<? extends SettingsBundle> factory, @NotNull SettingsManagerConfig settings) throws IllegalStateException, UnsupportedOperationException {
+        evictIdle(settings);
+        SettingsBundle bundle = factory.get();
+        manager.registerConfig(bundle);
+
+        Entry entry = new Entry(bundle.getId(), factory);
+        entries.put(entry.id, entry);
+        sketch.increment(entry.id);
+        load(entry, bundle);
+        trim(settings, entry);
+        return entry.id;
+    }
+
+    /**
+     * @return the bundle or {@code null} if it was not registered through the cache
+     */
+    synchronized @Nullable SettingsBundle get(@NotNull UUID id, @NotNull SettingsManagerConfig settings) throws IllegalStateException, UnsupportedOperationException {
+        Entry entry = entries.get(id);
+        if (entry == null) return null;
+
+        sketch.increment(id);
+        if (entry.bundle != null) {
+            loaded.get(id);
+            entry.lastAccess = System.nanoTime();
+            hits++;
+            Metrics.count(Counter.CACHE_HITS, entry.bundle, 1);
+            evictIdle(settings);
+            return entry.bundle;
+        }
+
+        evictIdle(settings);
+        SettingsBundle bundle = entry.factory.get();
+        bundle.restoreId(id);
+        manager.registerConfig(bundle);
+        misses++;
+        Metrics.count(Counter.CACHE_MISSES, bundle, 1);
+
+        load(entry, bundle);
+        trim(settings, entry);
+        return bundle;
+    }
+
+    synchronized int evictIdle(@NotNull SettingsManagerConfig settings) {
+        Duration timeout = settings.getBundleIdleTimeout();
+        if (timeout == null) return 0;
+
+        long cutoff = System.nanoTime() - timeout.toNanos();
+        int evicted = 0;
+        Iterator<Entry> it = loaded.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.lastAccess - cutoff >= 0) break;
+            it.remove();
+            unload(entry);
+            evicted++;
+        }
+        return evicted;
+    }
+
+    synchronized @NotNull Stats stats() {
+        return new Stats(hits, misses, evictions, loaded.size(), loadedBytes);
+    }
+
+    private void load(@NotNull Entry entry, @NotNull SettingsBundle bundle) {
+        entry.bundle = bundle;
+        entry.bytes = bundle.getFile() == null ? 0 : bundle.getFile().length();
+        entry.lastAccess = System.nanoTime();
+        loaded.put(entry.id, entry);
+        loadedBytes += entry.bytes;
+    }
+
+    private void trim(@NotNull SettingsManagerConfig settings, @NotNull Entry keep) {
+        while (isOverBudget(settings)) {
+            Entry victim = victim(settings.getEvictionPolicy(), keep);
+            if (victim == null) return;
+            loaded.remove(victim.id);
+            unload(victim);
+        }
+    }
+
+    private boolean isOverBudget(@NotNull SettingsManagerConfig settings) {
+        return settings.getMaxCachedBundles() > 0 && loaded.size() > settings.getMaxCachedBundles()
+                || settings.getMaxCachedBytes() > 0 && loadedBytes > settings.getMaxCachedBytes();
+    }
+
+    private @Nullable Entry victim(@NotNull EvictionPolicy policy, @NotNull Entry keep) {
+        int sample = policy == EvictionPolicy.TINY_LFU ? SAMPLE : 1;
+        Entry victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (Entry entry : loaded.values()) {
+            // The bundle being accessed is never evicted by its own access
+            if (entry == keep) continue;
+            int frequency = sketch.frequency(entry.id);
+            if (frequency < victimFrequency) {
+                victim = entry;
+                victimFrequency = frequency;
+            }
+            if (--sample == 0) break;
+        }
+        return victim;
+    }
+
+    private void unload(@NotNull Entry entry) {
+        SettingsBundle bundle = Objects.requireNonNull(entry.bundle);
+        manager.unload(bundle);
+        loadedBytes -= entry.bytes;
+        entry.bundle = null;
+        evictions++;
+        Metrics.count(Counter.CACHE_EVICTIONS, bundle, 1);
+    }
+
+    /**
+     * Count-min sketch of recent access frequencies, halved periodically so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int WIDTH = 1 << 12;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final int[][] counts = new int[SEEDS.length][WIDTH];
+        private int additions;
+
+        private void increment(@NotNull UUID id) {
+            for (int i = 0; i < SEEDS.length; i++) {
+                counts[i][index(id, i)]++;
+            }
+            if (++additions >= WIDTH * 10) {
+                for (int[] row : counts) {
+                    for (int j = 0; j < row.length; j++) row[j] >>>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int frequency(@NotNull UUID id) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, counts[i][index(id, i)]);
+            }
+            return frequency;
+        }
+
+        private static int index(@NotNull UUID id, int row) {
+            long bits = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+            int hash = (int) (bits ^ bits >>> 32) * SEEDS[row];
+            return (hash ^ hash >>> 16) & (WIDTH - 1);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Retained form of a registered tree in low-memory mode. The paths and comments are kept in a {@link Shape} shared by all
+ * trees of a bundle class with the same layout, only the values are kept per tree.
+ */
+final class CompactTree {
+    private static final Object SECTION = new Object();
+
+    /**
+     * Paths in tree order with their comments, {@code null} if a path has none.
+     */
+    record Shape(@NotNull String[] paths, @Nullable List<String>[] comments, @Nullable List<String>[] inlineComments) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Shape that
+                    && Arrays.equals(paths, that.paths)
+                    && Arrays.equals(comments, that.comments)
+                    && Arrays.equals(inlineComments, that.inlineComments);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(Arrays.hashCode(paths), Arrays.hashCode(comments), Arrays.hashCode(inlineComments));
+        }
+    }
+
+    private final Shape shape;
+    private final Object[] values;
+
+    private CompactTree(@NotNull Shape shape, @NotNull Object[] values) {
+        this.shape = shape;
+        this.values = values;
+    }
+
+    /**
+     * @param yaml the tree to compact
+     * @param shapes the shapes of the bundle class, the shape of {@code yaml} is added if it is new
+     */
+    @SuppressWarnings("unchecked")
+    static @NotNull CompactTree of(@NotNull YamlConfiguration yaml, @NotNull Map<Shape, Shape> shapes) {
+        Set<String> keys = yaml.getKeys(true);
+        String[] paths = keys.toArray(String[]::new);
+        List<String>[] comments = new List[paths.length];
+        List<String>[] inlineComments = new List[paths.length];
+        Object[] values = new Object[paths.length];
+
+        for (int i = 0; i < paths.length; i++) {
+            String path = paths[i];
+            comments[i] = nullIfEmpty(yaml.getComments(path));
+            inlineComments[i] = nullIfEmpty(yaml.getInlineComments(path));
+            values[i] = yaml.isConfigurationSection(path) ? SECTION : yaml.get(path);
+        }
+
+        Shape shape = shapes.computeIfAbsent(new Shape(paths, comments, inlineComments), s -> s);
+        return new CompactTree(shape, values);
+    }
+
+    /**
+     * @return a new tree with the retained values and comments
+     */
+    @NotNull YamlConfiguration expand() {
+        YamlConfiguration yaml = new YamlConfiguration();
+        String[] paths = shape.paths();
+        for (int i = 0; i < paths.length; i++) {
+            // Parents come before their children, so sections are created before their values are set
+            if (values[i] == SECTION) {
+                yaml.createSection(paths[i]);
+            } else {
+                yaml.set(paths[i], values[i]);
+            }
+            if (shape.comments()[i] != null) yaml.setComments(paths[i], shape.comments()[i]);
+            if (shape.inlineComments()[i] != null) yaml.setInlineComments(paths[i], shape.inlineComments()[i]);
+        }
+        return yaml;
+    }
+
+    private static @Nullable List<String> nullIfEmpty(@Nullable List<String> comments) {
+        return comments == null || comments.isEmpty() ? null : comments;
+    }
+}
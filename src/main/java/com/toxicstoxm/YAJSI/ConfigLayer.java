@@ -0,0 +1,33 @@
+package com.toxicstoxm.YAJSI;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * A read-only source below the own file or stream of a {@link SettingsBundle}, e.g. a shared base config or a profile.
+ * @param name the name reported by {@link SettingsBundle#getOrigin(String)}
+ * @param file the file of the layer, or {@code null} if the layer is backed by a stream
+ * @param stream the stream of the layer, or {@code null} if the layer is backed by a file
+ * @see SettingsBundle#addLayer(ConfigLayer)
+ */
+public record ConfigLayer(@NotNull String name, @Nullable File file, @Nullable InputStream stream) {
+
+    @Contract("_ -> new")
+    public static @NotNull ConfigLayer of(@NotNull File file) {
+        return new ConfigLayer(file.getName(), file, null);
+    }
+
+    @Contract("_, _ -> new")
+    public static @NotNull ConfigLayer of(@NotNull String name, @NotNull File file) {
+        return new ConfigLayer(name, file, null);
+    }
+
+    @Contract("_, _ -> new")
+    public static @NotNull ConfigLayer of(@NotNull String name, @NotNull InputStream stream) {
+        return new ConfigLayer(name, null, stream);
+    }
+}
@@ -0,0 +1,152 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.YAJSI.serializing.SerializerRegistry;
+import com.toxicstoxm.YAJSI.serializing.YAMLSerializable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Describes how to bind an immutable type, a record or a class with a {@link YAMLSetting.Constructor} annotated constructor.
+ * Instances are created with a single constructor call, components are read back through the record accessors or,
+ * for classes, through the field named like the constructor parameter.
+ */
+final class ConstructorPlan {
+    private static final ConcurrentHashMap<Class<?>, Optional<ConstructorPlan>> PLANS = new ConcurrentHashMap<>();
+
+    record Component(@NotNull String name, @NotNull String key, @NotNull Type type, @NotNull Class<?> rawType,
+                     @Nullable Field field, @NotNull AccessibleObject accessor) {
+
+        @Nullable Object read(@NotNull Object instance) throws IllegalAccessException, InvocationTargetException {
+            return accessor instanceof Method m ? m.invoke(instance) : ((Field) accessor).get(instance);
+        }
+    }
+
+    private final Class<?> type;
+    private final Constructor<?> constructor;
+    private final List<Component> components;
+
+    private ConstructorPlan(@NotNull Class<?> type, @NotNull Constructor<?> constructor, @NotNull List<Component> components) {
+        this.type = type;
+        this.constructor = constructor;
+        this.components = components;
+    }
+
+    /**
+     * @param type the type to bind
+     * @return the plan of the type or {@code null} if it is neither a record nor has an annotated constructor,
+     * or if it brings its own serializer
+     * @throws UnsupportedOperationException if the type declares an annotated constructor that cannot be used
+     */
+    static @Nullable ConstructorPlan of(@NotNull Class<?> type) throws UnsupportedOperationException {
+        if (YAMLSerializable.class.isAssignableFrom(type) || SerializerRegistry.hasSerializer(type)) return null;
+
+        Optional<ConstructorPlan> plan = PLANS.get(type);
+        if (plan == null) {
+            plan = PLANS.computeIfAbsent(type, t -> Optional.ofNullable(create(t)));
+        }
+        return plan.orElse(null);
+    }
+
+    @NotNull List<Component> components() {
+        return components;
+    }
+
+    @NotNull Object construct(@NotNull Object[] args) throws IllegalStateException {
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] == null && parameterTypes[i].isPrimitive()) {
+                args[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+            }
+        }
+
+        try {
+            return constructor.newInstance(args);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Failed to construct " + type.getName() + "!", e.getCause());
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new IllegalStateException("Failed to construct " + type.getName() + "!", e);
+        }
+    }
+
+    private static @Nullable ConstructorPlan create(@NotNull Class<?> type) {
+        if (type.isRecord()) return forRecord(type);
+
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.isAnnotationPresent(YAMLSetting.Constructor.class)) {
+                return forConstructor(type, constructor);
+            }
+        }
+        return null;
+    }
+
+    private static @NotNull ConstructorPlan forRecord(@NotNull Class<?> type) throws UnsupportedOperationException {
+        RecordComponent[] recordComponents = type.getRecordComponents();
+        Class<?>[] parameterTypes = new Class<?>[recordComponents.length];
+        List<Component> components = new ArrayList<>(recordComponents.length);
+
+        try {
+            for (int i = 0; i < recordComponents.length; i++) {
+                RecordComponent rc = recordComponents[i];
+                parameterTypes[i] = rc.getType();
+
+                Field field = type.getDeclaredField(rc.getName());
+                field.setAccessible(true);
+                Method accessor = rc.getAccessor();
+                accessor.setAccessible(true);
+
+                // Annotations on record components are propagated to the private field
+                components.add(new Component(rc.getName(), key(rc.getName(), field.getAnnotation(YAMLSetting.class)), rc.getGenericType(), rc.getType(), field, accessor));
+            }
+
+            Constructor<?> canonical = type.getDeclaredConstructor(parameterTypes);
+            canonical.setAccessible(true);
+            return new ConstructorPlan(type, canonical, List.copyOf(components));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new UnsupportedOperationException("Record " + type.getName() + " is not eligible for binding!", e);
+        }
+    }
+
+    private static @NotNull ConstructorPlan forConstructor(@NotNull Class<?> type, @NotNull Constructor<?> constructor) throws UnsupportedOperationException {
+        Parameter[] parameters = constructor.getParameters();
+        List<Component> components = new ArrayList<>(parameters.length);
+
+        for (Parameter parameter : parameters) {
+            YAMLSetting setting = parameter.getAnnotation(YAMLSetting.class);
+            if (!parameter.isNamePresent() && (setting == null || setting.name().isBlank())) {
+                throw new UnsupportedOperationException("Constructor parameters of " + type.getName() + " need a @YAMLSetting name or the class must be compiled with -parameters!");
+            }
+            String key = key(parameter.getName(), setting);
+
+            Field field = findField(type, parameter.getName());
+            if (field == null) field = findField(type, key);
+            if (field == null) {
+                throw new UnsupportedOperationException("Constructor parameter " + key + " of " + type.getName() + " has no matching field to read it back from!");
+            }
+            field.setAccessible(true);
+
+            components.add(new Component(field.getName(), key, parameter.getParameterizedType(), parameter.getType(), field, field));
+        }
+
+        constructor.setAccessible(true);
+        return new ConstructorPlan(type, constructor, List.copyOf(components));
+    }
+
+    private static @Nullable Field findField(@NotNull Class<?> type, @NotNull String name) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredField(name);
+            } catch (NoSuchFieldException ignored) {}
+        }
+        return null;
+    }
+
+    private static @NotNull String key(@NotNull String name, @Nullable YAMLSetting setting) {
+        return setting == null || setting.name().isBlank() ? name : setting.name();
+    }
+}
@@ -0,0 +1,11 @@
+package com.toxicstoxm.YAJSI;
+
+/**
+ * Selects the bundle unloaded when the bundle cache exceeds its budget.
+ */
+public enum EvictionPolicy {
+    /** The least recently used bundle. */
+    LRU,
+    /** The least frequently used of the least recently used bundles, frequencies are estimated TinyLFU style. */
+    TINY_LFU
+}
@@ -0,0 +1,202 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Hash tree over a retained tree, with a hash per section, list element and value. Equal trees have equal root hashes
+ * across JVMs, regardless of key order and of the number type a value was bound from. Nodes of unchanged subtrees are
+ * reused when a fingerprint is rebuilt from the previous one, so diffing two versions of a bundle skips them by identity.
+ */
+public final class Fingerprint {
+    public enum Kind {
+        VALUE,
+        SECTION,
+        LIST
+    }
+
+    private static final long VALUE_SEED = 0x5851F42D4C957F2DL;
+    private static final long SECTION_SEED = 0x14057B7EF767814FL;
+    private static final long LIST_SEED = 0x9E3779B97F4A7C15L;
+
+    private final Kind kind;
+    private final long hash;
+    // Keyed by the section key or the list index, empty for values
+    private final Map<String, Fingerprint> children;
+
+    private Fingerprint(@NotNull Kind kind, long hash, @NotNull Map<String, Fingerprint> children) {
+        this.kind = kind;
+        this.hash = hash;
+        this.children = children;
+    }
+
+    public @NotNull Kind getKind() {
+        return kind;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public @NotNull Map<String, Fingerprint> getChildren() {
+        return children;
+    }
+
+    public @Nullable Fingerprint child(@NotNull String path) {
+        Fingerprint node = this;
+        for (String key : path.split("\\.")) {
+            node = node.children.get(key);
+            if (node == null) return null;
+        }
+        return node;
+    }
+
+    /**
+     * @param tree the tree to fingerprint
+     * @param previous the fingerprint of an earlier version of the tree, its unchanged nodes are reused
+     * @return the fingerprint, {@code previous} itself if nothing changed
+     */
+    static @NotNull Fingerprint of(@NotNull ConfigurationSection tree, @Nullable Fingerprint previous) {
+        return node(tree, previous);
+    }
+
+    private static @NotNull Fingerprint node(@Nullable Object value, @Nullable Fingerprint previous) {
+        return switch (value) {
+            case ConfigurationSection section -> {
+                Map<String, Object> values = new LinkedHashMap<>();
+                for (String key : section.getKeys(false)) values.put(key, section.get(key));
+                yield section(values, previous);
+            }
+            case Map<?, ?> map -> {
+                Map<String, Object> values = new LinkedHashMap<>();
+                map.forEach((key, v) -> values.put(String.valueOf(key), v));
+                yield section(values, previous);
+            }
+            case List<?> list -> list(list, previous);
+            case null, default -> {
+                long hash = mix(VALUE_SEED ^ hash(canonical(value)));
+                yield previous != null && previous.kind == Kind.VALUE && previous.hash == hash
+                        ? previous
+                        : new Fingerprint(Kind.VALUE, hash, Map.of());
+            }
+        };
+    }
+
+    private static @NotNull Fingerprint section(@NotNull Map<String, Object> values, @Nullable Fingerprint previous) {
+        Map<String, Fingerprint> old = previous != null && previous.kind == Kind.SECTION ? previous.children : Map.of();
+        Map<String, Fingerprint> children = new LinkedHashMap<>(values.size());
+        boolean reused = old.size() == values.size();
+        // Summed, so the hash does not depend on the key order
+        long hash = 0;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Fingerprint before = old.get(entry.getKey());
+            Fingerprint child = node(entry.getValue(), before);
+            reused &= child == before;
+            children.put(entry.getKey(), child);
+            hash += mix(hash(entry.getKey()) * 31 + child.hash);
+        }
+        if (reused && previous != null) return previous;
+        return new Fingerprint(Kind.SECTION, mix(SECTION_SEED ^ hash ^ values.size()), Collections.unmodifiableMap(children));
+    }
+
+    private static @NotNull Fingerprint list(@NotNull List<?> values, @Nullable Fingerprint previous) {
+        Map<String, Fingerprint> old = previous != null && previous.kind == Kind.LIST ? previous.children : Map.of();
+        Map<String, Fingerprint> children = new LinkedHashMap<>(values.size());
+        boolean reused = old.size() == values.size();
+        long hash = LIST_SEED;
+        for (int i = 0; i < values.size(); i++) {
+            String key = String.valueOf(i);
+            Fingerprint before = old.get(key);
+            Fingerprint child = node(values.get(i), before);
+            reused &= child == before;
+            children.put(key, child);
+            hash = mix(hash * 31 + child.hash);
+        }
+        if (reused && previous != null) return previous;
+        return new Fingerprint(Kind.LIST, mix(hash ^ values.size()), Collections.unmodifiableMap(children));
+    }
+
+    /**
+     * Compares two fingerprints, descending only into subtrees whose hashes differ.
+     * @return the dotted paths of the changed values and of the keys present in only one of the trees, in tree order
+     */
+    public static @NotNull List<String> diff(@NotNull Fingerprint a, @NotNull Fingerprint b) {
+        List<String> paths = new ArrayList<>();
+        diff(a, b, "", paths);
+        return paths;
+    }
+
+    private static void diff(@NotNull Fingerprint a, @NotNull Fingerprint b, @NotNull String base, @NotNull List<String> paths) {
+        if (a == b || a.kind == b.kind && a.hash == b.hash) return;
+        if (a.kind != b.kind || a.kind == Kind.VALUE) {
+            paths.add(base);
+            return;
+        }
+
+        String prefix = base.isEmpty() ? "" : base + ".";
+        for (Map.Entry<String, Fingerprint> entry : a.children.entrySet()) {
+            Fingerprint other = b.children.get(entry.getKey());
+            if (other == null) {
+                paths.add(prefix + entry.getKey());
+            } else {
+                diff(entry.getValue(), other, prefix + entry.getKey(), paths);
+            }
+        }
+        for (String key : b.children.keySet()) {
+            if (!a.children.containsKey(key)) paths.add(prefix + key);
+        }
+    }
+
+    /**
+     * Values of the same kind are hashed equally, no matter the type they were bound from, e.g. an int and a long.
+     */
+    private static @NotNull String canonical(@Nullable Object value) {
+        return switch (value) {
+            case null -> "n";
+            case Boolean b -> "b" + b;
+            case Integer i -> "i" + i;
+            case Long l -> "i" + l;
+            case Short sh -> "i" + sh;
+            case Byte b -> "i" + b;
+            case Float f -> "d" + f;
+            case Double d -> "d" + d;
+            case Enum<?> e -> "s" + e.name();
+            default -> "s" + value;
+        };
+    }
+
+    // 64-bit FNV-1a, unlike String#hashCode wide enough for comparing whole trees
+    private static long hash(@NotNull String s) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Fingerprint that && kind == that.kind && hash == that.hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return String.format("%016x", hash);
+    }
+}
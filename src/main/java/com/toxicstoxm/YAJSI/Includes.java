@@ -0,0 +1,192 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the include directive of a config tree. The directive is a root key listing files or globs, relative to the including file.
+ * Plain entries are mounted at the root, map entries below the specified key:
+ * <pre>
+ * $include:
+ *   - common.yaml
+ *   - fragments/*.yaml
+ *   - servers: servers/**.yaml
+ * </pre>
+ * Fragments are mounted as read-only {@link SettingsBundleManager.Layer layers} below the including tree, later fragments
+ * take precedence over earlier ones. Fragments may include other fragments, they are parsed concurrently and cached until
+ * their modification time or size changes.
+ */
+class Includes {
+    private record Mount(@NotNull String prefix, @NotNull String pattern) {}
+
+    private record Cached(long modified, long size, @NotNull YamlConfiguration tree) {}
+
+    private final ConcurrentHashMap<Path, Cached> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param bundle the bundle the tree belongs to
+     * @param tree the including tree
+     * @param file the file of the tree, or {@code null} if it was read from a stream
+     * @return the layers of all included fragments, highest priority first
+     * @throws IllegalStateException if a fragment cannot be read or the includes form a cycle
+     */
+    @NotNull List<SettingsBundleManager.Layer> resolve(@NotNull SettingsBundle bundle, @NotNull ConfigurationSection tree, @Nullable Path file) throws IllegalStateException {
+        String key = SettingsManager.getSettings().getIncludeKey();
+        if (key == null || !tree.contains(key)) return List.of();
+
+        Path real = file == null ? null : realPath(file);
+        Path dir = real == null ? Path.of("").toAbsolutePath() : real.getParent();
+        return resolve(bundle, key, tree, dir, dir, "", real == null ? List.of() : List.of(real));
+    }
+
+    private @NotNull List<SettingsBundleManager.Layer> resolve(@NotNull SettingsBundle bundle, @NotNull String key, @NotNull ConfigurationSection tree,
+                                                               @NotNull Path base, @NotNull Path dir, @NotNull String prefix, @NotNull List<Path> chain) {
+        List<Mount> mounts = new ArrayList<>();
+        mounts(tree.get(key), "", mounts);
+
+        List<Mount> files = new ArrayList<>();
+        List<Path> paths = new ArrayList<>();
+        for (Mount mount : mounts) {
+            for (Path path : expand(dir, mount.pattern())) {
+                Path real = realPath(path);
+                if (chain.contains(real)) {
+                    throw new IllegalStateException("Include cycle: " + chain.stream().map(p -> base.relativize(p).toString()).toList() + " -> " + base.relativize(real));
+                }
+                files.add(mount);
+                paths.add(real);
+            }
+        }
+
+        // Every fragment, including its own includes, is loaded on its own worker
+        List<List<SettingsBundleManager.Layer>> loaded = IntStream.range(0, paths.size()).parallel().mapToObj(i -> {
+            Path path = paths.get(i);
+            String mountPrefix = join(prefix, files.get(i).prefix());
+            YamlConfiguration fragment = load(bundle, path);
+
+            List<SettingsBundleManager.Layer> layers = new ArrayList<>();
+            layers.add(new SettingsBundleManager.Layer(base.relativize(path).toString(), mount(fragment, mountPrefix)));
+            if (fragment.contains(key)) {
+                List<Path> next = new ArrayList<>(chain);
+                next.add(path);
+                layers.addAll(resolve(bundle, key, fragment, base, path.getParent(), mountPrefix, next));
+            }
+            return layers;
+        }).toList();
+
+        List<SettingsBundleManager.Layer> result = new ArrayList<>();
+        for (int i = loaded.size() - 1; i >= 0; i--) {
+            result.addAll(loaded.get(i));
+        }
+        return result;
+    }
+
+    private @NotNull YamlConfiguration load(@NotNull SettingsBundle bundle, @NotNull Path path) throws IllegalStateException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read included file: " + path, e);
+        }
+
+        long modified = attributes.lastModifiedTime().toMillis();
+        Cached cached = cache.get(path);
+        if (cached != null && cached.modified() == modified && cached.size() == attributes.size()) {
+            return cached.tree();
+        }
+
+        YamlConfiguration tree = SettingsManager.parse(bundle, SettingsManager.readFile(bundle, path.toFile()));
+        cache.put(path, new Cached(modified, attributes.size(), tree));
+        return tree;
+    }
+
+    private static void mounts(@Nullable Object directive, @NotNull String prefix, @NotNull List<Mount> mounts) throws IllegalStateException {
+        switch (directive) {
+            case null -> {}
+            case String pattern -> mounts.add(new Mount(prefix, pattern));
+            case List<?> list -> list.forEach(entry -> mounts(entry, prefix, mounts));
+            case ConfigurationSection section -> {
+                for (String key : section.getKeys(false)) mounts(section.get(key), join(prefix, key), mounts);
+            }
+            case Map<?, ?> map -> map.forEach((key, value) -> mounts(value, join(prefix, String.valueOf(key)), mounts));
+            default -> throw new IllegalStateException("Invalid include directive: " + directive);
+        }
+    }
+
+    /**
+     * Copies the cached fragment below the prefix. Lists and maps are copied as well, values bound from a layer are handed
+     * to the bundle as they are, changes made to them must not reach the cache shared by all bundles and reloads.
+     */
+    private static @NotNull ConfigurationSection mount(@NotNull YamlConfiguration fragment, @NotNull String prefix) {
+        YamlConfiguration mounted = new YamlConfiguration();
+        for (String key : fragment.getKeys(true)) {
+            if (!fragment.isConfigurationSection(key)) {
+                mounted.set(join(prefix, key), SettingsBundleManager.snapshot(fragment.get(key)));
+            } else if (fragment.getConfigurationSection(key).getKeys(false).isEmpty()) {
+                mounted.createSection(join(prefix, key));
+            }
+        }
+        return mounted;
+    }
+
+    private static @NotNull List<Path> expand(@NotNull Path dir, @NotNull String pattern) throws IllegalStateException {
+        String normalized = pattern.replace('\\', '/');
+        int glob = indexOfGlob(normalized);
+        if (glob < 0) {
+            Path path = dir.resolve(normalized).normalize();
+            if (!Files.isRegularFile(path)) {
+                throw new IllegalStateException("Included file not found: " + path);
+            }
+            return List.of(path);
+        }
+
+        int slash = normalized.lastIndexOf('/', glob);
+        Path root = slash < 0 ? dir : dir.resolve(normalized.substring(0, slash)).normalize();
+        String rest = normalized.substring(slash + 1);
+        if (!Files.isDirectory(root)) return List.of();
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + rest);
+        int depth = rest.contains("**") ? Integer.MAX_VALUE : (int) rest.chars().filter(c -> c == '/').count() + 1;
+        try (Stream<Path> s = Files.walk(root, depth)) {
+            return s.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(root.relativize(p)))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to list included files: " + pattern, e);
+        }
+    }
+
+    private static int indexOfGlob(@NotNull String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            switch (pattern.charAt(i)) {
+                case '*', '?', '[', '{' -> {
+                    return i;
+                }
+                default -> {}
+            }
+        }
+        return -1;
+    }
+
+    private static @NotNull Path realPath(@NotNull Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    private static @NotNull String join(@NotNull String prefix, @NotNull String key) {
+        return prefix.isEmpty() ? key : key.isEmpty() ? prefix : prefix + "." + key;
+    }
+}
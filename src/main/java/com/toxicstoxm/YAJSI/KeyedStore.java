@@ -0,0 +1,554 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.metrics.Counter;
+import com.toxicstoxm.YAJSI.metrics.Metrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Stores many instances of one bundle class under caller supplied keys, instead of one file per instance.
+ * Instances are bound and serialized like registered bundles, including version upgrades, but are never registered themselves.
+ * <p>
+ * Values are appended to segment files in a directory, every record is checksummed. The key index is kept in memory and
+ * checkpointed to disk on close and after compaction, records written after the last checkpoint are replayed on open and a
+ * torn record at the end of a segment, e.g. after a crash, is truncated. Overwritten and deleted records are compacted in the
+ * background once they make up enough of the store.
+ * @param <T> the bundle class
+ */
+public final class KeyedStore<T extends SettingsBundle> implements Closeable {
+    /**
+     * @param segmentSize size after which a new segment is started
+     * @param compactionRatio share of overwritten and deleted bytes that triggers a background compaction
+     * @param compactionThreshold minimum size of the store before it is compacted in the background
+     * @param sync whether to force every write to disk
+     */
+    public record Options(long segmentSize, double compactionRatio, long compactionThreshold, boolean sync) {
+        public static final Options DEFAULT = new Options(64L << 20, 0.5, 4L << 20, false);
+    }
+
+    private record Location(long segment, long offset, int length) {}
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int INDEX_MAGIC = 0x59534B31;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final String INDEX_FILE = "index";
+
+    private final Path directory;
+    private final Class<T> type;
+    private final Function<String, T> factory;
+    private final Options options;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Held for the whole compaction, the segments it copies from must stay open
+    private final ReentrantLock compaction = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final HashMap<String, Location> index = new HashMap<>();
+    private final TreeMap<Long, FileChannel> segments = new TreeMap<>();
+    private long active;
+    private long activeSize;
+    private long totalBytes;
+    private long liveBytes;
+    private boolean closed;
+    private ExecutorService compactor;
+
+    private KeyedStore(@NotNull Path directory, @NotNull Class<T> type, @NotNull Function<String, T> factory, @NotNull Options options) {
+        this.directory = directory;
+        this.type = type;
+        this.factory = factory;
+        this.options = options;
+    }
+
+    /**
+     * Opens the store in the specified directory, creating it if it does not exist.
+     * @param directory the directory of the store, must not be used by anything else
+     * @param type the bundle class
+     * @param factory creates an empty instance for a key, the file of the instance is never used
+     * @return the store
+     */
+    public static <T extends SettingsBundle> @NotNull KeyedStore<T> open(@NotNull Path directory, @NotNull Class<T> type, @NotNull Function<String, T> factory) {
+        return open(directory, type, factory, Options.DEFAULT);
+    }
+
+    public static <T extends SettingsBundle> @NotNull KeyedStore<T> open(@NotNull Path directory, @NotNull Class<T> type, @NotNull Function<String, T> factory,
+                                                                         @NotNull Options options) {
+        KeyedStore<T> store = new KeyedStore<>(directory, type, factory, options);
+        try {
+            store.load();
+        } catch (IOException e) {
+            store.closeChannels();
+            throw new RuntimeException("Failed to open keyed store: " + directory, e);
+        }
+        return store;
+    }
+
+    /**
+     * @param key the key
+     * @return a new instance bound to the values stored under the key, or {@code null} if there are none
+     */
+    public @Nullable T get(@NotNull String key) {
+        byte[] value;
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Location location = index.get(key);
+            if (location == null) return null;
+            value = read(location, key);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read '" + key + "' from keyed store: " + directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        T bundle = factory.apply(key);
+        Metrics.count(Counter.BYTES_READ, bundle, value.length);
+        YamlConfiguration yaml = SettingsManager.parse(bundle, value);
+        SettingsBundleManager manager = SettingsManager.getInstance().getBundleManager(type);
+        synchronized (manager) {
+            manager.migrate(bundle, yaml);
+        }
+        return bundle;
+    }
+
+    /**
+     * Stores the values of the specified instance under the key, replacing the values stored before.
+     * @param key the key
+     * @param bundle the instance
+     */
+    public void put(@NotNull String key, @NotNull T bundle) {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set(SettingsManager.getSettings().getVersionKey(), bundle.getVersion().toString());
+        SettingsBundleManager manager = SettingsManager.getInstance().getBundleManager(type);
+        synchronized (manager) {
+            manager.saveValues(new ArrayList<>(), bundle, yaml);
+        }
+
+        byte[] value = yaml.saveToString().getBytes(StandardCharsets.UTF_8);
+        append(PUT, key, value);
+        Metrics.count(Counter.BYTES_WRITTEN, bundle, value.length);
+    }
+
+    /**
+     * @param key the key
+     * @return {@code true} if values were stored under the key
+     */
+    public boolean delete(@NotNull String key) {
+        return append(DELETE, key, new byte[0]);
+    }
+
+    public boolean contains(@NotNull String key) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a snapshot of the stored keys
+     */
+    public @NotNull Set<String> keys() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return new HashSet<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the size of all segments in bytes, including overwritten and deleted records
+     */
+    public long diskSize() {
+        lock.readLock().lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies all current records into a new segment and deletes the segments they were copied from.
+     * Writes are not blocked while records are copied.
+     */
+    public void compact() {
+        try {
+            compactSegments();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact keyed store: " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        compaction.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                if (closed) return;
+                closed = true;
+                for (FileChannel channel : segments.values()) channel.force(true);
+                writeIndex();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to close keyed store: " + directory, e);
+            } finally {
+                closeChannels();
+                if (compactor != null) compactor.shutdown();
+                lock.writeLock().unlock();
+            }
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> s = Files.list(directory)) {
+            for (Path path : s.toList()) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    // Left behind by an interrupted compaction or checkpoint
+                    Files.deleteIfExists(path);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(id, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                }
+            }
+        }
+
+        if (segments.isEmpty()) {
+            roll(1);
+        }
+        active = segments.lastKey();
+
+        if (!loadIndex()) {
+            index.clear();
+            for (Map.Entry<Long, FileChannel> segment : segments.entrySet()) {
+                replay(segment.getKey(), segment.getValue(), 0);
+            }
+        }
+
+        activeSize = segments.get(active).size();
+        totalBytes = 0;
+        for (FileChannel channel : segments.values()) totalBytes += channel.size();
+        liveBytes = 0;
+        for (Location location : index.values()) liveBytes += location.length();
+    }
+
+    /**
+     * Loads the last checkpoint and replays the records written after it.
+     * @return {@code false} if there is no usable checkpoint
+     */
+    private boolean loadIndex() {
+        Path file = directory.resolve(INDEX_FILE);
+        if (!Files.exists(file)) return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != INDEX_MAGIC) return false;
+            long coveredSegment = in.readLong();
+            long coveredOffset = in.readLong();
+            FileChannel covered = segments.get(coveredSegment);
+            if (covered == null || covered.size() < coveredOffset) return false;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[in.readInt()];
+                in.readFully(key);
+                Location location = new Location(in.readLong(), in.readLong(), in.readInt());
+                FileChannel channel = segments.get(location.segment());
+                if (channel == null || location.offset() + location.length() > channel.size()) return false;
+                index.put(new String(key, StandardCharsets.UTF_8), location);
+            }
+
+            replay(coveredSegment, covered, coveredOffset);
+            for (Map.Entry<Long, FileChannel> segment : segments.tailMap(coveredSegment, false).entrySet()) {
+                replay(segment.getKey(), segment.getValue(), 0);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void replay(long id, @NotNull FileChannel channel, long from) throws IOException {
+        long size = channel.size();
+        long position = from;
+        ByteBuffer head = ByteBuffer.allocate(4);
+        while (position + 4 <= size) {
+            head.clear();
+            readFully(channel, head, position);
+            int body = head.getInt(0);
+            if (body < 5 || position + 8 + body > size) break;
+
+            ByteBuffer record = ByteBuffer.allocate(body + 4);
+            readFully(channel, record, position + 4);
+            if (!isIntact(record, body)) break;
+
+            byte type = record.get(0);
+            int keyLength = record.getInt(1);
+            if (keyLength < 0 || keyLength > body - 5) break;
+            String key = new String(record.array(), 5, keyLength, StandardCharsets.UTF_8);
+
+            int length = body + 8;
+            if (type == PUT) {
+                index.put(key, new Location(id, position, length));
+            } else if (type == DELETE) {
+                index.remove(key);
+            } else {
+                break;
+            }
+            position += length;
+        }
+
+        // Everything after the last intact record was torn by a crash
+        if (position < size) channel.truncate(position);
+    }
+
+    private @NotNull byte[] read(@NotNull Location location, @NotNull String key) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(location.length());
+        readFully(segments.get(location.segment()), record, location.offset());
+
+        int body = location.length() - 8;
+        int keyLength = record.getInt(5);
+        if (record.getInt(0) != body || keyLength < 0 || keyLength > body - 5 || !isIntact(record.slice(4, body + 4), body)
+                || !key.equals(new String(record.array(), 9, keyLength, StandardCharsets.UTF_8))) {
+            throw new IOException("Corrupt record for '" + key + "' in segment " + location.segment() + " at " + location.offset());
+        }
+        return Arrays.copyOfRange(record.array(), 9 + keyLength, 4 + body);
+    }
+
+    private static boolean isIntact(@NotNull ByteBuffer record, int body) {
+        CRC32 crc = new CRC32();
+        crc.update(record.slice(0, body));
+        return (int) crc.getValue() == record.getInt(body);
+    }
+
+    private static @NotNull ByteBuffer encode(byte type, @NotNull String key, @NotNull byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int body = 1 + 4 + keyBytes.length + value.length;
+        ByteBuffer record = ByteBuffer.allocate(body + 8);
+        record.putInt(body).put(type).putInt(keyBytes.length).put(keyBytes).put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, body);
+        record.putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * @return {@code false} if a delete did not find the key
+     */
+    private boolean append(byte type, @NotNull String key, @NotNull byte[] value) {
+        ByteBuffer record = encode(type, key, value);
+        boolean compact;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (type == DELETE && !index.containsKey(key)) return false;
+
+            int length = record.remaining();
+            if (activeSize > 0 && activeSize + length > options.segmentSize()) {
+                segments.get(active).force(false);
+                roll(active + 1);
+            }
+
+            FileChannel channel = segments.get(active);
+            long offset = activeSize;
+            writeFully(channel, record, offset);
+            if (options.sync()) channel.force(false);
+            activeSize += length;
+            totalBytes += length;
+
+            Location old;
+            if (type == PUT) {
+                old = index.put(key, new Location(active, offset, length));
+                liveBytes += length;
+            } else {
+                old = index.remove(key);
+            }
+            if (old != null) liveBytes -= old.length();
+
+            compact = totalBytes >= options.compactionThreshold() && totalBytes - liveBytes > totalBytes * options.compactionRatio();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write '" + key + "' to keyed store: " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (compact && compactionScheduled.compareAndSet(false, true)) {
+            compactor().execute(() -> {
+                compactionScheduled.set(false);
+                try {
+                    compact();
+                } catch (IllegalStateException e) {
+                    // Closed while the compaction was queued
+                    if (!closed) throw e;
+                }
+            });
+        }
+        return true;
+    }
+
+    private void compactSegments() throws IOException {
+        compaction.lock();
+        try {
+            long target;
+            NavigableMap<Long, FileChannel> sealed;
+            List<Map.Entry<String, Location>> live = new ArrayList<>();
+
+            lock.writeLock().lock();
+            try {
+                ensureOpen();
+                // Everything written so far is copied into the reserved segment, writes continue in the one after it
+                target = active + 1;
+                segments.get(active).force(false);
+                roll(active + 2);
+
+                sealed = new TreeMap<>(segments.headMap(target, false));
+                for (Map.Entry<String, Location> entry : index.entrySet()) {
+                    if (entry.getValue().segment() < target) live.add(Map.entry(entry.getKey(), entry.getValue()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            live.sort(Comparator.comparingLong((Map.Entry<String, Location> e) -> e.getValue().segment()).thenComparingLong(e -> e.getValue().offset()));
+            Path tmp = directory.resolve(segmentName(target) + TMP_SUFFIX);
+            List<Location> moved = new ArrayList<>(live.size());
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long position = 0;
+                for (Map.Entry<String, Location> entry : live) {
+                    Location location = entry.getValue();
+                    ByteBuffer record = ByteBuffer.allocate(location.length());
+                    readFully(sealed.get(location.segment()), record, location.offset());
+                    writeFully(out, record, position);
+                    moved.add(new Location(target, position, location.length()));
+                    position += location.length();
+                }
+                out.force(true);
+            }
+            // Until the old segments are deleted, replaying them before the compacted one yields the same index
+            Files.move(tmp, directory.resolve(segmentName(target)), StandardCopyOption.ATOMIC_MOVE);
+
+            lock.writeLock().lock();
+            try {
+                segments.put(target, FileChannel.open(directory.resolve(segmentName(target)), StandardOpenOption.READ, StandardOpenOption.WRITE));
+                for (int i = 0; i < live.size(); i++) {
+                    Map.Entry<String, Location> entry = live.get(i);
+                    // Keys written again during the copy keep their newer record
+                    if (entry.getValue().equals(index.get(entry.getKey()))) index.put(entry.getKey(), moved.get(i));
+                }
+                writeIndex();
+
+                for (Long id : sealed.keySet()) {
+                    segments.remove(id).close();
+                    Files.deleteIfExists(directory.resolve(segmentName(id)));
+                }
+                totalBytes = 0;
+                for (FileChannel channel : segments.values()) totalBytes += channel.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path tmp = directory.resolve(INDEX_FILE + TMP_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeLong(active);
+            out.writeLong(activeSize);
+            out.writeInt(index.size());
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeLong(entry.getValue().segment());
+                out.writeLong(entry.getValue().offset());
+                out.writeInt(entry.getValue().length());
+            }
+        }
+        Files.move(tmp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void roll(long id) throws IOException {
+        segments.put(id, FileChannel.open(directory.resolve(segmentName(id)), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        active = id;
+        activeSize = 0;
+    }
+
+    private synchronized @NotNull ExecutorService compactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "YAJSI keyed store compaction: " + directory.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactor;
+    }
+
+    private void closeChannels() {
+        for (FileChannel channel : segments.values()) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to flush, the store is unusable either way
+            }
+        }
+    }
+
+    private void ensureOpen() throws IllegalStateException {
+        if (closed) throw new IllegalStateException("Keyed store is closed: " + directory);
+    }
+
+    private static @NotNull String segmentName(long id) {
+        return String.format("%016d", id) + SEGMENT_SUFFIX;
+    }
+
+    private static void readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+        }
+    }
+
+    private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position() - start);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Byte positions of the scalars in the file last written for a bundle. If a save only changed plain scalars to values that
+ * fit the space of the old ones, the values are overwritten in place, shorter ones padded with trailing spaces, which are not
+ * part of a plain scalar. Everything else (comments, formatting and untouched values) stays as it is on disk.
+ * Any other change, e.g. a longer value, a new key or a changed list, falls back to the atomic full rewrite,
+ * since moving the rest of the file in place could leave it corrupted if the process dies halfway through.
+ */
+final class PatchIndex {
+    private enum Kind {
+        SECTION,
+        SCALAR,
+        // Lists, flow collections, block and multi line scalars, only compared as a whole
+        OPAQUE
+    }
+
+    private static final class Entry {
+        private final Kind kind;
+        private final boolean plain;
+        private final long offset;
+        // Bytes reserved for the value in the file, shorter values are padded
+        private final int length;
+        private Object value;
+
+        private Entry(@NotNull Kind kind, boolean plain, long offset, int length) {
+            this.kind = kind;
+            this.plain = plain;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private record Change(@NotNull Entry entry, @NotNull byte[] bytes, @Nullable Object value) {}
+
+    private record Frame(int indent, @NotNull String path) {}
+
+    private static final Pattern RESERVED = Pattern.compile("(?i)y|n|yes|no|on|off|true|false|null|~|<<|=");
+
+    private final Map<String, Entry> entries;
+    private long size;
+    private long modified;
+
+    private PatchIndex(@NotNull Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Indexes the scalars of a file that was just written.
+     * @param yaml the tree that was written
+     * @param data the written text
+     * @param file the written file
+     * @return the index or {@code null} if the text cannot be indexed
+     */
+    static @Nullable PatchIndex build(@NotNull ConfigurationSection yaml, @NotNull String data, @NotNull Path file) {
+        Map<String, Entry> entries = new HashMap<>();
+        ArrayDeque<Frame> frames = new ArrayDeque<>();
+
+        long lineOffset = 0;
+        int skipIndent = -1;
+        boolean skipList = false;
+        Entry skipped = null;
+        Frame pending = null;
+
+        int pos = 0;
+        while (pos < data.length()) {
+            int end = data.indexOf('\n', pos);
+            if (end < 0) end = data.length();
+            int contentEnd = end > pos && data.charAt(end - 1) == '\r' ? end - 1 : end;
+            String line = data.substring(pos, contentEnd);
+            long nextOffset = lineOffset + utf8Length(data, pos, Math.min(end + 1, data.length()));
+            pos = end + 1;
+
+            int indent = 0;
+            while (indent < line.length() && line.charAt(indent) == ' ') indent++;
+            String rest = line.substring(indent);
+
+            if (rest.isEmpty() || rest.startsWith("#")) {
+                lineOffset = nextOffset;
+                continue;
+            }
+
+            if (skipIndent >= 0) {
+                if (indent > skipIndent || skipList && indent == skipIndent && rest.startsWith("-")) {
+                    // A scalar continued on the next line cannot be patched
+                    if (skipped != null && !skipList) skipped = opaque(entries, skipped);
+                    lineOffset = nextOffset;
+                    continue;
+                }
+                skipIndent = -1;
+                skipped = null;
+            }
+
+            if (rest.startsWith("-")) {
+                // Block list of the key on the previous line
+                if (pending == null || indent < pending.indent()) return null;
+                opaque(entries, entries.get(pending.path()));
+                frames.removeLast();
+                skipIndent = pending.indent();
+                skipList = true;
+                pending = null;
+                lineOffset = nextOffset;
+                continue;
+            }
+            pending = null;
+
+            if (indent == 0 && (rest.equals("---") || rest.equals("..."))) {
+                lineOffset = nextOffset;
+                continue;
+            }
+
+            int keyEnd;
+            String key;
+            if (rest.charAt(0) == '\'' || rest.charAt(0) == '"') {
+                int close = rest.indexOf(rest.charAt(0), 1);
+                if (close < 0 || rest.indexOf('\\') >= 0) return null;
+                key = rest.substring(1, close);
+                keyEnd = close + 1;
+                if (keyEnd >= rest.length() || rest.charAt(keyEnd) != ':') return null;
+            } else {
+                keyEnd = rest.indexOf(": ");
+                if (keyEnd < 0) {
+                    if (!rest.endsWith(":")) return null;
+                    keyEnd = rest.length() - 1;
+                }
+                key = rest.substring(0, keyEnd);
+            }
+            if (key.indexOf('.') >= 0) return null;
+
+            while (!frames.isEmpty() && frames.getLast().indent() >= indent) frames.removeLast();
+            String path = frames.isEmpty() ? key : frames.getLast().path() + "." + key;
+
+            int valueStart = keyEnd + 1;
+            while (valueStart < rest.length() && rest.charAt(valueStart) == ' ') valueStart++;
+            String value = rest.substring(valueStart);
+
+            if (value.isEmpty() || value.startsWith("#")) {
+                entries.put(path, new Entry(Kind.SECTION, false, 0, 0));
+                pending = new Frame(indent, path);
+                frames.addLast(pending);
+                lineOffset = nextOffset;
+                continue;
+            }
+
+            long offset = lineOffset + utf8Length(line, 0, indent + valueStart);
+            Entry entry;
+            char first = value.charAt(0);
+            if (first == '\'' || first == '"') {
+                int close = value.indexOf(first, 1);
+                entry = close < 0 ? new Entry(Kind.OPAQUE, false, offset, 0) : new Entry(Kind.SCALAR, false, offset, utf8Length(value, 0, close + 1));
+            } else if ("|>[{&*!".indexOf(first) >= 0) {
+                entry = new Entry(Kind.OPAQUE, false, offset, 0);
+            } else {
+                int comment = value.indexOf(" #");
+                String token = (comment < 0 ? value : value.substring(0, comment)).stripTrailing();
+                entry = new Entry(Kind.SCALAR, true, offset, utf8Length(token, 0, token.length()));
+            }
+            entry.value = yaml.get(path);
+            entries.put(path, entry);
+
+            skipIndent = indent;
+            skipList = false;
+            skipped = entry;
+            lineOffset = nextOffset;
+        }
+
+        // The tree and the text have to agree on every key, otherwise the text was not understood
+        Set<String> keys = yaml.getKeys(true);
+        if (keys.size() != entries.size()) return null;
+        for (String key : keys) {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (entry.kind == Kind.SECTION) {
+                if (!yaml.isConfigurationSection(key)) return null;
+            } else {
+                entry.value = yaml.get(key);
+            }
+        }
+
+        PatchIndex index = new PatchIndex(entries);
+        try {
+            index.size = Files.size(file);
+            index.modified = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+        return index;
+    }
+
+    private static @NotNull Entry opaque(@NotNull Map<String, Entry> entries, @NotNull Entry entry) {
+        Entry opaque = new Entry(Kind.OPAQUE, false, entry.offset, 0);
+        entries.replaceAll((k, e) -> e == entry ? opaque : e);
+        return opaque;
+    }
+
+    /**
+     * Patches the changed scalars of the tree into the file.
+     * @param yaml the tree to save
+     * @param file the file the index was built for
+     * @return the number of bytes written or {@code -1} if the file has to be rewritten in full
+     */
+    long patch(@NotNull ConfigurationSection yaml, @NotNull Path file) {
+        try {
+            if (Files.size(file) != size || Files.getLastModifiedTime(file).toMillis() != modified) return -1;
+        } catch (IOException e) {
+            return -1;
+        }
+
+        Set<String> keys = yaml.getKeys(true);
+        if (keys.size() != entries.size()) return -1;
+
+        List<Change> changes = new ArrayList<>();
+        for (String key : keys) {
+            Entry entry = entries.get(key);
+            if (entry == null) return -1;
+
+            Object value = yaml.get(key);
+            switch (entry.kind) {
+                case SECTION -> {
+                    if (!(value instanceof ConfigurationSection)) return -1;
+                }
+                case OPAQUE -> {
+                    if (!Objects.equals(value, entry.value) && !(isEmptySection(value) && isEmptySection(entry.value))) return -1;
+                }
+                case SCALAR -> {
+                    if (Objects.equals(value, entry.value)) continue;
+
+                    String text = represent(value);
+                    if (text == null || !entry.plain) return -1;
+                    if (text.equals(represent(entry.value))) {
+                        entry.value = value;
+                        continue;
+                    }
+                    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > entry.length) return -1;
+                    changes.add(new Change(entry, bytes, value));
+                }
+            }
+        }
+        if (changes.isEmpty()) return 0;
+
+        changes.sort(Comparator.comparingLong(c -> c.entry().offset));
+        try {
+            long written = write(file, changes);
+            size = Files.size(file);
+            modified = Files.getLastModifiedTime(file).toMillis();
+            return written;
+        } catch (IOException e) {
+            // The full rewrite also repairs a partially patched file
+            return -1;
+        }
+    }
+
+    private long write(@NotNull Path file, @NotNull List<Change> changes) throws IOException {
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Size and modification time may match after an edit by someone else, the old values have to be where they were written
+            for (Change change : changes) {
+                String old = represent(change.entry().value);
+                if (old == null) return -1;
+                byte[] oldBytes = old.getBytes(StandardCharsets.UTF_8);
+                if (oldBytes.length > change.entry().length) return -1;
+                ByteBuffer expected = ByteBuffer.wrap(padded(oldBytes, change.entry().length));
+                ByteBuffer actual = ByteBuffer.allocate(change.entry().length);
+                while (actual.hasRemaining()) {
+                    if (channel.read(actual, change.entry().offset + actual.position()) < 0) return -1;
+                }
+                if (!actual.flip().equals(expected)) return -1;
+            }
+
+            for (Change change : changes) {
+                written += writeFully(channel, ByteBuffer.wrap(padded(change.bytes(), change.entry().length)), change.entry().offset);
+            }
+        }
+
+        for (Change change : changes) {
+            change.entry().value = change.value();
+        }
+        return written;
+    }
+
+    private static @NotNull byte[] padded(@NotNull byte[] bytes, int length) {
+        if (bytes.length == length) return bytes;
+        byte[] padded = Arrays.copyOf(bytes, length);
+        Arrays.fill(padded, bytes.length, length, (byte) ' ');
+        return padded;
+    }
+
+    private static long writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static boolean isEmptySection(@Nullable Object value) {
+        return value instanceof ConfigurationSection section && section.getKeys(false).isEmpty();
+    }
+
+    /**
+     * @return the plain scalar the value is written as, {@code null} if it needs quoting or is not a scalar
+     */
+    private static @Nullable String represent(@Nullable Object value) {
+        return switch (value) {
+            case Integer i -> i.toString();
+            case Long l -> l.toString();
+            case Short s -> s.toString();
+            case Byte b -> b.toString();
+            case BigInteger b -> b.toString();
+            case Double d -> d.isNaN() || d.isInfinite() ? null : d.toString();
+            case Float f -> f.isNaN() || f.isInfinite() ? null : f.toString();
+            case Boolean b -> b.toString();
+            case String s -> isPlain(s) ? s : null;
+            case null, default -> null;
+        };
+    }
+
+    static boolean isPlain(@NotNull String s) {
+        if (s.isEmpty() || s.charAt(0) == ' ' || s.charAt(s.length() - 1) == ' ' || s.endsWith(":")) return false;
+        if ("-?:,[]{}#&*!|>'\"%@`.+0123456789".indexOf(s.charAt(0)) >= 0) return false;
+        if (s.contains(": ") || s.contains(" #") || RESERVED.matcher(s).matches()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x20 || c > 0x7E) return false;
+        }
+        return true;
+    }
+
+    private static int utf8Length(@NotNull CharSequence s, int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,38 @@
+package com.toxicstoxm.YAJSI;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Precompiled handle for reading a single setting through a {@link SettingsIndex}.
+ * Obtain handles once through {@link SettingsIndex#key(String, Class)} and keep them, reads through a handle
+ * skip the path lookup entirely.
+ * @param <T> the (boxed) type of the setting
+ */
+public final class SettingKey<T> {
+    final SettingsIndex index;
+    final SettingsIndex.Layout layout;
+    final SettingsIndex.Slot slot;
+    private final String path;
+    private final Class<T> type;
+
+    SettingKey(@NotNull SettingsIndex index, @NotNull SettingsIndex.Layout layout, @NotNull SettingsIndex.Slot slot, @NotNull String path, @NotNull Class<T> type) {
+        this.index = index;
+        this.layout = layout;
+        this.slot = slot;
+        this.path = path;
+        this.type = type;
+    }
+
+    public @NotNull String path() {
+        return path;
+    }
+
+    public @NotNull Class<T> type() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "SettingKey{" + path + ": " + type.getSimpleName() + "}";
+    }
+}
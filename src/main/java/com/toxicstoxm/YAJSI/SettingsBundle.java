@@ -2,24 +2,36 @@ package com.toxicstoxm.YAJSI;
 
 import com.toxicstoxm.YAJSI.upgrading.UpgradeCallback;
 import com.toxicstoxm.YAJSI.upgrading.Version;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Getter
 public class SettingsBundle {
-    private final UUID id = UUID.randomUUID();
+    /**
+     * Origin of values read from the own file or stream of a layered bundle.
+     */
+    public static final String TOP_LAYER = "top";
+
+    private UUID id = UUID.randomUUID();
     private final Version version;
     private final File file;
     private final InputStream configStream;
     private final ConfigType type;
-    private final List<String> envSubstituted = new ArrayList<>();
+    // Written from several threads while object lists are bound in parallel
+    private final List<String> envSubstituted = new CopyOnWriteArrayList<>();
+    private final List<ConfigLayer> layers = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<String, String> origins = new HashMap<>();
+    // Stream layers can only be read once, reloads parse the bytes read on registration again
+    @Getter(AccessLevel.NONE)
+    private final Map<ConfigLayer, byte[]> layerSources = new IdentityHashMap<>();
 
     public SettingsBundle(@NotNull Version version, @NotNull File f, @NotNull ConfigType type) {
         this.version = version;
@@ -47,6 +59,14 @@ public class SettingsBundle {
         SettingsManager.getInstance().registerConfig(this);
     }
 
+    public void reload() throws IllegalStateException, UnsupportedOperationException {
+        SettingsManager.getInstance().reload(this);
+    }
+
+    public @NotNull SettingsIndex index() throws IllegalStateException {
+        return SettingsManager.getInstance().index(this);
+    }
+
     public void registerUpgradeCallback(@NotNull UpgradeCallback cb, @NotNull Version base) throws UnsupportedOperationException {
         SettingsManager.getInstance().registerUpgradeCallback(getClass(), cb, base);
     }
@@ -63,6 +83,47 @@ public class SettingsBundle {
         envSubstituted.add(variable);
     }
 
+    /**
+     * Adds a read-only layer below the own file or stream of this bundle. Values missing in the own source are looked up
+     * in the layers in the order they were added, saves only ever write to the own source.
+     * Layers backed by a stream are read once on registration, their content is kept for reloads.
+     * Must be called before the bundle is registered.
+     * @param layer the layer
+     * @return this bundle
+     */
+    public @NotNull SettingsBundle addLayer(@NotNull ConfigLayer layer) {
+        layers.add(layer);
+        return this;
+    }
+
+    /**
+     * Returns the layer the value at the specified path was bound from. Only tracked for bundles with layers.
+     * @param path the full YAML path of the value
+     * @return the name of the layer, {@link #TOP_LAYER} for the own source or {@code null} if the default value of the field was used
+     */
+    public @Nullable String getOrigin(@NotNull String path) {
+        return origins.get(path);
+    }
+
+    void setOrigin(@NotNull String path, @NotNull String layer) {
+        origins.put(path, layer);
+    }
+
+    @Nullable byte[] getLayerSource(@NotNull ConfigLayer layer) {
+        return layerSources.get(layer);
+    }
+
+    void setLayerSource(@NotNull ConfigLayer layer, @NotNull byte[] source) {
+        layerSources.put(layer, source);
+    }
+
+    /**
+     * Gives an instance created to reload an unloaded bundle the id of the unloaded one, must be called before registering.
+     */
+    void restoreId(@NotNull UUID id) {
+        this.id = id;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
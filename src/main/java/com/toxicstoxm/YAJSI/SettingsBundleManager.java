@@ -2,8 +2,11 @@ package com.toxicstoxm.YAJSI;
 
 import com.toxicstoxm.StormYAML.file.YamlConfiguration;
 import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import com.toxicstoxm.YAJSI.codecs.Codecs;
+import com.toxicstoxm.YAJSI.codecs.ScalarCodec;
+import com.toxicstoxm.YAJSI.metrics.*;
 import com.toxicstoxm.YAJSI.serializing.ExternalYAMLSerializer;
-import com.toxicstoxm.YAJSI.serializing.SerializableWith;
+import com.toxicstoxm.YAJSI.serializing.SerializerRegistry;
 import com.toxicstoxm.YAJSI.serializing.YAMLSerializable;
 import com.toxicstoxm.YAJSI.upgrading.*;
 import com.toxicstoxm.YAJSI.utils.EnvUtils;
@@ -12,16 +15,44 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import static com.toxicstoxm.YAJSI.utils.TypeUtils.DEFAULT_SUPPLIERS;
 
 public class SettingsBundleManager {
+    /**
+     * A parsed {@link ConfigLayer}.
+     */
+    public record Layer(@NotNull String name, @NotNull ConfigurationSection tree) {}
+
+
     private final HashMap<Version, UpgradeCallback> upgradeCallbacks = new HashMap<>();
     protected final HashMap<SettingsBundle, YamlConfiguration> registeredConfigs = new HashMap<>();
-    private static final HashMap<Class<?>, ExternalYAMLSerializer<Object>> EXTERNAL_SERIALIZER_CACHE = new HashMap<>();
+    private final HashMap<SettingsBundle, SettingsIndex> indexes = new HashMap<>();
+    // Copies of the values bound from lower layers, unchanged values are not copied to the own source on save
+    private final HashMap<SettingsBundle, Map<String, Object>> inherited = new HashMap<>();
+    private final HashMap<SettingsBundle, PatchIndex> patchIndexes = new HashMap<>();
+    // Retained trees in low-memory mode, registeredConfigs maps compacted and dropped trees to null
+    private final HashMap<SettingsBundle, CompactTree> compacted = new HashMap<>();
+    private final HashMap<CompactTree.Shape, CompactTree.Shape> shapes = new HashMap<>();
+    // Only kept up to date for bundles whose fingerprint was requested once
+    private final HashMap<SettingsBundle, Fingerprint> fingerprints = new HashMap<>();
+    private boolean upgradersRegistered = false;
+    // Set while reloading, binding then updates the instances currently bound instead of replacing them
+    private boolean reconciling = false;
 
     public @NotNull UpgradedYamlConfiguration upgrade(@NotNull SettingsBundle bundle, @NotNull YamlConfiguration yaml) throws IllegalStateException, UnsupportedOperationException {
         Version old = bundle.getVersion().fromString(yaml.getString(SettingsManager.getSettings().getVersionKey()));
@@ -35,7 +66,14 @@ public class SettingsBundleManager {
                     throw new IllegalStateException("Unable to find upgradeCallback for Version " + old + " bundle " + bundle.getClass().getName());
                 }
             }
-            UpgradedYamlConfiguration upgraded = upgrade(bundle, cb.process(yaml, bundle.getId()));
+            UpgradeEvent event = new UpgradeEvent();
+            event.begin();
+            long start = Metrics.start();
+            YamlConfiguration processed = cb.process(yaml, bundle.getId());
+            event.end();
+            recordUpgradeStep(bundle, old, processed, start, event);
+
+            UpgradedYamlConfiguration upgraded = upgrade(bundle, processed);
             return new UpgradedYamlConfiguration(upgraded.yaml(), upgraded.upToDate(), true);
         } else if (cmp == 0) {
             return new UpgradedYamlConfiguration(yaml, true, false);
@@ -44,6 +82,27 @@ public class SettingsBundleManager {
         }
     }
 
+    private void recordUpgradeStep(@NotNull SettingsBundle bundle, @NotNull Version from, @Nullable YamlConfiguration processed, long start, @NotNull UpgradeEvent event) {
+        Instrumentation instrumentation = SettingsManager.getInstrumentation();
+        if (!instrumentation.isEnabled() && !event.shouldCommit()) return;
+
+        long nanos = System.nanoTime() - start;
+        String to = processed == null ? null : processed.getString(SettingsManager.getSettings().getVersionKey());
+
+        if (event.shouldCommit()) {
+            event.setBundle(bundle);
+            event.versionFrom = from.toString();
+            event.versionTo = to;
+            event.commit();
+        }
+
+        if (!instrumentation.isEnabled()) return;
+        instrumentation.recordTiming(Phase.UPGRADE_STEP, bundle.getClass(), bundle.getId(), nanos);
+        if (to != null) {
+            instrumentation.recordUpgradeStep(bundle.getClass(), bundle.getId(), from, bundle.getVersion().fromString(to), nanos);
+        }
+    }
+
     public void registerUpgradeCallback(@NotNull UpgradeCallback cb, @NotNull Version base) throws UnsupportedOperationException {
         if (upgradeCallbacks.containsKey(base)) {
             throw new UnsupportedOperationException("Only one callback per base Version is allowed!");
@@ -88,21 +147,161 @@ public class SettingsBundleManager {
         }
     }
 
+    /**
+     * Registers the upgrade callbacks of the upgrader bundle declared by {@link UpgraderBundle} on the specified bundle class.
+     * Does nothing if the upgrade callbacks of this manager were already registered.
+     * @param clazz the bundle class annotated with {@link UpgraderBundle}
+     */
+    public void registerUpgraderBundle(@NotNull Class<? extends SettingsBundle> clazz) throws UnsupportedOperationException {
+        if (upgradersRegistered) return;
+
+        UpgraderBundle bundle = clazz.getAnnotation(UpgraderBundle.class);
+        if (bundle == null) {
+            throw new UnsupportedOperationException(clazz.getName() + " is not annotated with @UpgraderBundle!");
+        }
+        upgradersRegistered = true;
+        registerUpgradeCallbacks(bundle.upgraderBundle());
+    }
+
     public void registerConfig(SettingsBundle config, @NotNull YamlConfiguration yaml) throws IllegalStateException, UnsupportedOperationException {
+        registerConfig(config, yaml, List.of());
+    }
+
+    /**
+     * Registers a layered bundle.
+     * @param config the bundle
+     * @param yaml the own source of the bundle, the only one written to
+     * @param layers the parsed layers below the own source, highest priority first
+     */
+    public void registerConfig(SettingsBundle config, @NotNull YamlConfiguration yaml, @NotNull List<Layer> layers) throws IllegalStateException, UnsupportedOperationException {
+        RegisterEvent event = reconciling ? new ReloadEvent() : new RegisterEvent();
+        event.begin();
+        String from = yaml.getString(SettingsManager.getSettings().getVersionKey());
+
+        MigrationResult result = migrate(config, yaml, layers);
+        long written = 0;
+
+        if ((result.initial()
+                || config.isReadonly()
+                   && result.upgraded()
+                   && SettingsManager.getSettings().isSaveReadOnlyConfigOnVersionUpgrade()
+                || !config.isReadonly()
+        ) && !config.isSourceUnwritable()) {
+            written = write(config, result, !config.isReadonly());
+        }
+
+        retain(config, result.yaml());
+        refreshIndex(config);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setBundle(config);
+            event.versionFrom = from;
+            event.versionTo = config.getVersion().toString();
+            event.keyCount = result.keyCount();
+            event.unusedKeyCount = result.unusedKeys().size();
+            event.bytesWritten = written;
+            event.commit();
+        }
+    }
+
+    /**
+     * Registers a read-only bundle by binding its source while parsing it, without building a tree.
+     * See {@link SettingsManagerConfig#isStreamingBind()}.
+     * @param config the bundle, without layers
+     * @param source the own source of the bundle
+     * @return {@code false} if the source has to be bound through its tree, the bundle is not registered then
+     */
+    boolean bind(@NotNull SettingsBundle config, @NotNull byte[] source) throws IllegalStateException, UnsupportedOperationException {
+        SettingsManagerConfig settings = SettingsManager.getSettings();
+        String text = new String(source, StandardCharsets.UTF_8);
+        // Older files are upgraded through their tree, new ones are written from it
+        String from = YamlReader.rootScalar(text, settings.getVersionKey());
+        if (from == null || config.getVersion().compareTo(config.getVersion().fromString(from)) != 0) return false;
+
+        registerUpgraders(config);
+        RegisterEvent event = new RegisterEvent();
+        event.begin();
+
+        long start = Metrics.start();
+        YamlReader reader = new YamlReader(text);
+        YamlBinder binder = new YamlBinder(this, reader);
+        try {
+            binder.bundle(config, settings.getVersionKey(), settings.getIncludeKey());
+        } catch (RuntimeException | ReflectiveOperationException e) {
+            // Values bound so far are bound again from the tree, which also reports values that cannot be bound
+            return false;
+        }
+        Metrics.stop(Phase.BINDING, config, start);
+
+        int keyCount = reader.getKeyCount() - 1;
+        Metrics.count(Counter.KEYS, config, keyCount);
+        Metrics.count(Counter.UNUSED_KEYS, config, binder.getUnusedKeyCount());
+        inherited.remove(config);
+        patchIndexes.remove(config);
+        registeredConfigs.put(config, null);
+        compacted.remove(config);
+        if (fingerprints.containsKey(config)) {
+            fingerprints.put(config, Fingerprint.of(retained(config), fingerprints.get(config)));
+        }
+        refreshIndex(config);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setBundle(config);
+            event.versionFrom = from;
+            event.versionTo = config.getVersion().toString();
+            event.keyCount = keyCount;
+            event.unusedKeyCount = binder.getUnusedKeyCount();
+            event.bytesWritten = 0;
+            event.commit();
+        }
+        return true;
+    }
+
+    /**
+     * Binds a new tree to a registered bundle. Nested objects, list elements, lists, maps and arrays currently bound are
+     * updated in place where possible, so references to them held elsewhere stay valid and unchanged values are not reallocated.
+     * @param config the registered bundle
+     * @param yaml the own source of the bundle
+     * @param layers the parsed layers below the own source, highest priority first
+     * @throws IllegalStateException if the bundle is not registered
+     */
+    public void reload(@NotNull SettingsBundle config, @NotNull YamlConfiguration yaml, @NotNull List<Layer> layers) throws IllegalStateException, UnsupportedOperationException {
+        if (!registeredConfigs.containsKey(config)) {
+            throw new IllegalStateException("Bundle " + config.getClass().getName() + " is not registered!");
+        }
+
+        reconciling = true;
+        try {
+            registerConfig(config, yaml, layers);
+        } finally {
+            reconciling = false;
+        }
+    }
+
+    /**
+     * Runs the upgrade and binding pipeline for the specified bundle without registering or persisting it.
+     * @param config the bundle to bind the values to
+     * @param yaml the raw source tree
+     * @return the upgraded tree and the keys not used by the bundle
+     */
+    public @NotNull MigrationResult migrate(@NotNull SettingsBundle config, @NotNull YamlConfiguration yaml) throws IllegalStateException, UnsupportedOperationException {
+        return migrate(config, yaml, List.of());
+    }
+
+    /**
+     * Same as {@link #migrate(SettingsBundle, YamlConfiguration)}, values missing in {@code yaml} are looked up in the specified layers.
+     * Only {@code yaml} is upgraded, layers have to match the current version of the bundle.
+     */
+    public @NotNull MigrationResult migrate(@NotNull SettingsBundle config, @NotNull YamlConfiguration yaml, @NotNull List<Layer> layers) throws IllegalStateException, UnsupportedOperationException {
         boolean initial = !yaml.contains(SettingsManager.getSettings().getVersionKey());
         if (initial) {
             yaml.set(SettingsManager.getSettings().getVersionKey(), config.getVersion().toString());
         }
 
         Class<? extends SettingsBundle> clazz = config.getClass();
-        if (registeredConfigs.isEmpty()) {
-            if (clazz.isAnnotationPresent(UpgraderBundle.class)) {
-                UpgraderBundle bundle = clazz.getAnnotation(UpgraderBundle.class);
-                registerUpgradeCallbacks(bundle.upgraderBundle());
-            } else {
-                registerUpgradeCallbacks(config);
-            }
-        }
+        registerUpgraders(config);
 
         UpgradedYamlConfiguration upgradedYaml = upgrade(config, yaml);
         YamlConfiguration upgraded = upgradedYaml.yaml();
@@ -122,31 +321,96 @@ public class SettingsBundleManager {
 
         List<String> keys = new ArrayList<>(upgraded.getKeys(true));
         keys.remove(SettingsManager.getSettings().getVersionKey());
+        String includeKey = SettingsManager.getSettings().getIncludeKey();
+        if (includeKey != null && upgraded.contains(includeKey)) {
+            String prefix = includeKey + ".";
+            keys.removeIf(k -> k.equals(includeKey) || k.startsWith(prefix));
+        }
+        int keyCount = keys.size();
 
-        loadValues(keys, processedObjects, config, upgraded);
+        Metrics.count(Counter.KEYS, config, keyCount);
+        if (layers.isEmpty()) {
+            inherited.remove(config);
+        } else {
+            inherited.put(config, new HashMap<>());
+        }
 
-        if ((initial
-                || config.isReadonly()
-                   && (autoUpgraded || upgradedYaml.cbUpgraded())
-                   && SettingsManager.getSettings().isSaveReadOnlyConfigOnVersionUpgrade()
-                || !config.isReadonly()
-        ) && !config.isSourceUnwritable()) {
-            for (String unused : keys) {
-                if (!upgraded.contains(unused)) continue;
-                switch (SettingsManager.getSettings().getAutoUpgradeBehaviour()) {
-                    case REMOVE -> yaml.set(unused, null);
-                    case MARK_UNUSED -> yaml.setComments(unused, List.of(SettingsManager.getSettings().getUnusedWarning()));
-                }
-            }
+        long start = Metrics.start();
+        loadValues(keys, processedObjects, config, upgraded, "", layers);
+        Metrics.stop(Phase.BINDING, config, start);
+        Metrics.count(Counter.UNUSED_KEYS, config, keys.size());
 
-            try {
-                upgraded.save(config.getFile());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+        return new MigrationResult(upgraded, keys, keyCount, initial, autoUpgraded || upgradedYaml.cbUpgraded());
+    }
+
+    /**
+     * Registers the upgrade callbacks declared by the bundle or its {@link UpgraderBundle}, only once per manager.
+     */
+    private void registerUpgraders(@NotNull SettingsBundle config) {
+        if (upgradersRegistered) return;
+        if (config.getClass().isAnnotationPresent(UpgraderBundle.class)) {
+            registerUpgraderBundle(config.getClass());
+        } else {
+            upgradersRegistered = true;
+            registerUpgradeCallbacks(config);
+        }
+    }
+
+    /**
+     * Applies the configured unused key behaviour and writes the migrated tree to the file of the bundle.
+     * @param config the bundle the tree was migrated for
+     * @param result the result of {@link #migrate(SettingsBundle, YamlConfiguration)}
+     * @return the number of bytes written
+     */
+    public long write(@NotNull SettingsBundle config, @NotNull MigrationResult result) {
+        return write(config, result, false);
+    }
+
+    private long write(@NotNull SettingsBundle config, @NotNull MigrationResult result, boolean index) {
+        YamlConfiguration upgraded = result.yaml();
+        for (String unused : result.unusedKeys()) {
+            if (!upgraded.contains(unused)) continue;
+            switch (SettingsManager.getSettings().getAutoUpgradeBehaviour()) {
+                case REMOVE -> upgraded.set(unused, null);
+                case MARK_UNUSED -> upgraded.setComments(unused, List.of(SettingsManager.getSettings().getUnusedWarning()));
             }
         }
 
-        registeredConfigs.put(config, upgraded);
+        return writeFile(config, upgraded, index);
+    }
+
+    /**
+     * @param index whether to index the written scalars for incremental saves
+     */
+    private long writeFile(@NotNull SettingsBundle bundle, @NotNull YamlConfiguration yaml, boolean index) {
+        long start = Metrics.start();
+        String data = yaml.saveToString();
+        Metrics.stop(Phase.SERIALIZATION, bundle, start);
+
+        start = Metrics.start();
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        Path path = bundle.getFile().toPath();
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            // Replaced as a whole, a crash while writing leaves the previous file intact
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        SettingsManagerConfig settings = SettingsManager.getSettings();
+        PatchIndex patchIndex = index && settings.isIncrementalSave() && !settings.isLowMemory() ? PatchIndex.build(yaml, data, path) : null;
+        if (patchIndex == null) {
+            patchIndexes.remove(bundle);
+        } else {
+            patchIndexes.put(bundle, patchIndex);
+        }
+        Metrics.stop(Phase.FILE_WRITE, bundle, start);
+        Metrics.count(Counter.BYTES_WRITTEN, bundle, bytes.length);
+        return bytes.length;
     }
 
     public void loadValues(@NotNull List<String> keys, @NotNull List<Object> processedObjects, @NotNull Object config, ConfigurationSection yaml) throws IllegalStateException {
@@ -154,6 +418,15 @@ public class SettingsBundleManager {
     }
 
     public void loadValues(@NotNull List<String> keys, @NotNull List<Object> processedObjects, @NotNull Object config, ConfigurationSection yaml, String base) throws IllegalStateException {
+        loadValues(keys, processedObjects, config, yaml, base, List.of());
+    }
+
+    /**
+     * Binds the values of {@code yaml}, falling back to the first of the {@code layers} containing a key if {@code yaml} does not.
+     * Nested objects are resolved key by key, any other value is taken as a whole from the layer defining it.
+     */
+    private void loadValues(@NotNull List<String> keys, @NotNull List<Object> processedObjects, @NotNull Object config, ConfigurationSection yaml, String base,
+                            @NotNull List<Layer> layers) throws IllegalStateException {
         if (processedObjects.contains(config)) {
             return;
         }
@@ -161,232 +434,373 @@ public class SettingsBundleManager {
 
         for (Field field : config.getClass().getDeclaredFields()) {
             if (isNotEligibleForConfig(field)) continue;
+            loadField(keys, processedObjects, config, field, yaml, base, layers);
+        }
+    }
 
-            try {
-                field.setAccessible(true);
+    /**
+     * Binds a single eligible field of {@code config}, see {@link #loadValues(List, List, Object, ConfigurationSection, String, List)}.
+     */
+    void loadField(@NotNull List<String> keys, @NotNull List<Object> processedObjects, @NotNull Object config, @NotNull Field field, ConfigurationSection yaml,
+                   String base, @NotNull List<Layer> layers) throws IllegalStateException {
+        field.setAccessible(true);
 
-                String fullKey = getYAMLPath(field, base);
-                keys.remove(fullKey);
-                Object fieldValue = getFieldValue(config, field);
+        String fullKey = getYAMLPath(field, base);
+        keys.remove(fullKey);
 
-                boolean yamlHasKey = yaml.contains(fullKey);
-                boolean checkEnv = SettingsManager.getSettings().isEnableOverwriters();
+        Layer layer = null;
+        boolean inTop = false;
+        try {
+            ConfigurationSection source = yaml;
+            if (!layers.isEmpty()) {
+                inTop = yaml.contains(fullKey);
+                if (!inTop) layer = findLayer(layers, fullKey);
+                if (layer != null) source = layer.tree();
+            }
 
-                if (fieldValue instanceof YAMLSerializable serializer) {
-                    ConfigurationSection section = yaml.getConfigurationSection(fullKey);
-                    Object o = null;
-                    if (section != null) {
-                        o = serializer.deserialize(section);
-                        keys.removeAll(section.getKeys(true).stream().map(s -> fullKey + "." + s).toList());
+            ScalarCodec<Object> codec = Codecs.get(field.getType());
+            if (codec != null) {
+                Object value = field.get(config);
+                Object raw = source.get(fullKey);
+                if (raw != null) {
+                    try {
+                        value = codec.parse(raw instanceof Date date ? date.toInstant().toString() : raw.toString());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalStateException("Invalid value for '" + fullKey + "': " + raw, e);
                     }
+                } else if (value != null) {
+                    yaml.set(fullKey, codec.format(value));
+                    updateComments(field, fullKey, yaml);
+                }
 
-                    fieldValue = o == null ? fieldValue : o;
-
-                    if (!yamlHasKey) {
-                        yaml.set(fullKey, ((YAMLSerializable) fieldValue).serializeSelf());
-                        updateComments(field, fullKey, yaml);
+                if (SettingsManager.getSettings().isEnableOverwriters()) {
+                    long start = Metrics.start();
+                    Object finalObject = EnvUtils.checkForEnvPrimitive(field, value);
+                    Metrics.stop(Phase.OVERWRITER_LOOKUP, root(processedObjects), start);
+                    if (!Objects.equals(finalObject, value) && processedObjects.getFirst() instanceof SettingsBundle bundle) {
+                        bundle.setEnvSubstituted(field.getName());
+                        Metrics.count(Counter.OVERWRITER_HITS, bundle, 1);
+                        value = finalObject;
                     }
+                }
+                field.set(config, reconcile(field.get(config), value));
+                return;
+            }
 
-                    field.set(config, fieldValue);
-                    continue;
+            ConstructorPlan plan = ConstructorPlan.of(field.getType());
+            if (plan != null) {
+                Object current = field.get(config);
+                field.set(config, reconcile(current, loadPlanned(keys, processedObjects, field, plan, current, source, fullKey)));
+                return;
+            }
+
+            Object fieldValue = getFieldValue(config, field);
+
+            boolean yamlHasKey = source.contains(fullKey);
+            boolean checkEnv = SettingsManager.getSettings().isEnableOverwriters();
+
+            if (fieldValue instanceof YAMLSerializable serializer) {
+                ConfigurationSection section = source.getConfigurationSection(fullKey);
+                Object o = null;
+                if (section != null) {
+                    long start = Metrics.start();
+                    o = serializer.deserialize(section);
+                    Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
+                    keys.removeAll(section.getKeys(true).stream().map(s -> fullKey + "." + s).toList());
                 }
 
-                if (hasExternalSerializer(field)) {
-                    ExternalYAMLSerializer<Object> serializer = getExternalSerializer(field);
-                    if (serializer != null) {
-                        ConfigurationSection section = yaml.getConfigurationSection(fullKey);
-                        Object o = null;
-                        if (section != null) {
-                            o = serializer.deserialize(section);
-                            keys.removeAll(section.getKeys(true).stream().map(s -> fullKey + "." + s).toList());
-                        }
+                fieldValue = o == null ? fieldValue : o;
+
+                if (!yamlHasKey) {
+                    long start = Metrics.start();
+                    ConfigurationSection serialized = ((YAMLSerializable) fieldValue).serializeSelf();
+                    Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
+                    yaml.set(fullKey, serialized);
+                    updateComments(field, fullKey, yaml);
+                }
+
+                field.set(config, fieldValue);
+                return;
+            }
 
-                        fieldValue = o == null ? fieldValue : o;
+            ExternalYAMLSerializer<Object> serializer = SerializerRegistry.resolve(field.getType());
+            if (serializer != null) {
+                ConfigurationSection section = source.getConfigurationSection(fullKey);
+                Object o = null;
+                if (section != null) {
+                    long start = Metrics.start();
+                    o = serializer.deserialize(section);
+                    Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
+                    keys.removeAll(section.getKeys(true).stream().map(s -> fullKey + "." + s).toList());
+                }
 
-                        if (!yamlHasKey) {
-                            yaml.set(fullKey, serializer.serialize(fieldValue));
-                            updateComments(field, fullKey, yaml);
-                        }
+                fieldValue = o == null ? fieldValue : o;
 
-                        field.set(config, fieldValue);
-                        continue;
-                    }
+                if (!yamlHasKey) {
+                    long start = Metrics.start();
+                    ConfigurationSection serialized = serializer.serialize(fieldValue);
+                    Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
+                    yaml.set(fullKey, serialized);
+                    updateComments(field, fullKey, yaml);
                 }
 
-                if (TypeUtils.isListOfPrimitives(field, fieldValue)) {
-                    List<?> value = yaml.getList(fullKey, (List<?>) fieldValue);
+                field.set(config, fieldValue);
+                return;
+            }
 
-                    // Ensure all list elements are of the expected type
-                    if (!TypeUtils.isListOfType(field, value)) {
-                        throw new IllegalStateException("Type mismatch in YAML for field '" + field.getName() +
-                                "': expected list of " + ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0]);
-                    }
+            if (fieldValue instanceof Map<?, ?> map) {
+                field.set(config, reconcile(map, loadMap(keys, processedObjects, field, map, source, fullKey, yamlHasKey, checkEnv)));
+                return;
+            }
 
-                    if (!yamlHasKey) {
-                        yaml.set(fullKey, fieldValue);
-                        updateComments(field, fullKey, yaml);
+            if (TypeUtils.isListOfPrimitives(field, fieldValue)) {
+                List<?> value = source.getList(fullKey, (List<?>) fieldValue);
 
-                        // Ensure value is not default immutable list
-                        Supplier<?> supplier = DEFAULT_SUPPLIERS.get(field.getType());
-                        if (supplier != null) {
-                            List<?> tmp = (List<?>) supplier.get();
-                            tmp.addAll((Collection) value);
-                            value = tmp;
-                        }
-                    }
-                    if (checkEnv) {
-                        List<?> finalObject = EnvUtils.checkForEnvPrimitiveList(field, value);
-                        if (!finalObject.equals(value) && processedObjects.getFirst() instanceof SettingsBundle bundle) {
-                            bundle.setEnvSubstituted(field.getName());
-                            value = finalObject;
-                        }
+                // Ensure all list elements are of the expected type
+                if (!TypeUtils.isListOfType(field, value)) {
+                    throw new IllegalStateException("Type mismatch in YAML for field '" + field.getName() +
+                            "': expected list of " + ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0]);
+                }
+
+                if (!yamlHasKey) {
+                    yaml.set(fullKey, fieldValue);
+                    updateComments(field, fullKey, yaml);
+
+                    // Ensure value is not default immutable list
+                    Supplier<?> supplier = DEFAULT_SUPPLIERS.get(field.getType());
+                    if (supplier != null) {
+                        List<?> tmp = (List<?>) supplier.get();
+                        tmp.addAll((Collection) value);
+                        value = tmp;
                     }
-                    field.set(config, value);
-                    continue;
-                } else if (fieldValue instanceof List<?> list) {
-
-                    // Can maybe be replaced with yaml.getMapList because
-                    // test:
-                    // - hello: "something"
-                    // - hello: "something2"
-                    // - hello: "something5"
-                    // list of custom objects will always produce map
-
-                    // load list from YAML (unknown type)
-                    List<?> loaded = yaml.getList(fullKey);
-
-                    // List from fieldValue
-                    // Suppressed because if isPrimitiveList fails, it must be List<Object>
-                    @SuppressWarnings("unchecked")
-                    List<Object> value = (List<Object>) list;
-
-                    // If loaded list is not null (so it exists)
-                    if (loaded != null && field.getGenericType() instanceof ParameterizedType pt) {
-                        // clear existing list from field value
-                        value = (List<Object>) DEFAULT_SUPPLIERS.get(field.getType()).get();
-
-                        // Get Type parameter type
-                        Class<?> type = (Class<?>) pt.getActualTypeArguments()[0];
-                        if (type.equals(ConfigurationSection.class)) {
-                            // First try by assuming list of config sections
-                            for (ConfigurationSection section : (List<ConfigurationSection>) loaded) {
-                                // Instantiate new value by using the type param type
-                                Object o = getFieldValue(type);
-                                // use existing load function
-                                loadValues(keys, processedObjects, o, section);
-                                value.add(o);
-                            }
-                        } else {
-                            // Assume List of linked hash maps
-                            List<LinkedHashMap<String, String>> mapList = (List<LinkedHashMap<String, String>>) loaded;
-                            for (LinkedHashMap<String, String> map : mapList) {
-                                // Convert hashmaps back into config sections to be able to use existing load function
-                                // This could be prevented by writing a wrapper which under the hood can be a YAML config or a hashmap
-                                // Since inner workings are similar enough (maybe)
-                                ConfigurationSection section = new YamlConfiguration();
-                                for (Map.Entry<String, String> entry : map.entrySet()) {
-                                    section.set(entry.getKey(), entry.getValue());
-                                }
-                                // Instantiate new object vie type param type
-                                Object o = getFieldValue(type);
-                                // load using existing function
-                                loadValues(keys, processedObjects, o, section);
-                                value.add(o);
-                            }
-                        }
+                }
+                if (checkEnv) {
+                    long start = Metrics.start();
+                    List<?> finalObject = EnvUtils.checkForEnvPrimitiveList(field, value);
+                    Metrics.stop(Phase.OVERWRITER_LOOKUP, root(processedObjects), start);
+                    if (!finalObject.equals(value) && processedObjects.getFirst() instanceof SettingsBundle bundle) {
+                        bundle.setEnvSubstituted(field.getName());
+                        Metrics.count(Counter.OVERWRITER_HITS, bundle, 1);
+                        value = finalObject;
                     }
+                }
+                field.set(config, reconcile(fieldValue, value));
+                return;
+            } else if (fieldValue instanceof List<?> list) {
+
+                // Can maybe be replaced with yaml.getMapList because
+                // test:
+                // - hello: "something"
+                // - hello: "something2"
+                // - hello: "something5"
+                // list of custom objects will always produce map
+
+                // load list from YAML (unknown type)
+                List<?> loaded = source.getList(fullKey);
+
+                // List from fieldValue
+                // Suppressed because if isPrimitiveList fails, it must be List<Object>
+                @SuppressWarnings("unchecked")
+                List<Object> value = (List<Object>) list;
+
+                // If loaded list is not null (so it exists)
+                if (loaded != null && field.getGenericType() instanceof ParameterizedType pt) {
+                    // clear existing list from field value
+                    value = (List<Object>) DEFAULT_SUPPLIERS.get(field.getType()).get();
+
+                    // Get Type parameter type
+                    Class<?> type = (Class<?>) pt.getActualTypeArguments()[0];
+                    // Either a list of config sections or, for lists of custom objects, a list of linked hash maps.
+                    // Hashmaps are converted back into config sections to be able to use the existing load function
+                    boolean sections = type.equals(ConfigurationSection.class);
+                    value.addAll(elements(field, loaded, processedObjects, (elementKeys, elementObjects, index, element) ->
+                            loadElement(elementKeys, elementObjects, type, sections ? (ConfigurationSection) element : toSection(element), elementAt(list, index, type))));
+                }
 
-                    // Ensure all list elements are of the expected type
-                    if (!TypeUtils.isListOfType(field, value)) {
-                        throw new IllegalStateException("Type mismatch in YAML for field '" + field.getName() +
-                                "': expected list of " + ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0]);
-                    }
+                // Ensure all list elements are of the expected type
+                if (!TypeUtils.isListOfType(field, value)) {
+                    throw new IllegalStateException("Type mismatch in YAML for field '" + field.getName() +
+                            "': expected list of " + ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0]);
+                }
 
-                    // if YAML doesn't have key yet
-                    if (!yamlHasKey) {
-                        // serialize objects loaded from list (field value)
-                        // By using the same loading function
-                        List<ConfigurationSection> serialized = new ArrayList<>();
-                        for (Object listObject : list) {
-                            ConfigurationSection section = new YamlConfiguration();
+                // if YAML doesn't have key yet
+                if (!yamlHasKey) {
+                    // serialize objects loaded from list (field value)
+                    // By using the same loading function
+                    List<ConfigurationSection> serialized = new ArrayList<>();
+                    for (Object listObject : list) {
+                        ConfigurationSection section = new YamlConfiguration();
+                        ConstructorPlan elementPlan = ConstructorPlan.of(listObject.getClass());
+                        if (elementPlan != null) {
+                            savePlanned(processedObjects, elementPlan, listObject, section, Set.of());
+                        } else {
                             loadValues(keys, processedObjects, listObject, section);
-                            serialized.add(section);
-                        }
-                        yaml.set(fullKey, serialized);
-                        updateComments(field, fullKey, yaml);
-
-                        Supplier<?> supplier = DEFAULT_SUPPLIERS.get(field.getType());
-                        if (supplier != null) {
-                            List<Object> tmp = (List<Object>) DEFAULT_SUPPLIERS.get(field.getType()).get();
-                            tmp.addAll(value);
-                            value = tmp;
                         }
+                        serialized.add(section);
                     }
+                    yaml.set(fullKey, serialized);
+                    updateComments(field, fullKey, yaml);
 
-                    field.set(config, value);
-                    continue;
+                    Supplier<?> supplier = DEFAULT_SUPPLIERS.get(field.getType());
+                    if (supplier != null) {
+                        List<Object> tmp = (List<Object>) DEFAULT_SUPPLIERS.get(field.getType()).get();
+                        tmp.addAll(value);
+                        value = tmp;
+                    }
                 }
 
-                if (TypeUtils.isArrayOfPrimitives(fieldValue)) {
-                    Object value = yaml.get(fullKey, fieldValue);
-
-                    // If YAML returned a List, convert to array
-                    if (value instanceof List<?> listValue) {
-                        Class<?> componentType = fieldValue.getClass().getComponentType();
-                        Object array = java.lang.reflect.Array.newInstance(componentType, listValue.size());
-                        for (int i = 0; i < listValue.size(); i++) {
-                            java.lang.reflect.Array.set(array, i, listValue.get(i));
-                        }
-                        value = array;
-                    }
+                field.set(config, reconcile(list, value));
+                return;
+            }
 
-                    if (!yamlHasKey) {
-                        yaml.set(fullKey, fieldValue);
-                        updateComments(field, fullKey, yaml);
-                    }
+            if (TypeUtils.isArrayOfPrimitives(fieldValue)) {
+                Object value = source.get(fullKey, fieldValue);
 
-                    if (checkEnv) {
-                        Object finalArray = EnvUtils.checkForEnvPrimitiveArray(field, value);
-                        if (!finalArray.equals(value) && processedObjects.getFirst() instanceof SettingsBundle bundle) {
-                            bundle.setEnvSubstituted(field.getName());
-                            value = finalArray;
-                        }
+                // If YAML returned a List, convert to array
+                if (value instanceof List<?> listValue) {
+                    Class<?> componentType = fieldValue.getClass().getComponentType();
+                    Object array = java.lang.reflect.Array.newInstance(componentType, listValue.size());
+                    for (int i = 0; i < listValue.size(); i++) {
+                        java.lang.reflect.Array.set(array, i, listValue.get(i));
                     }
-                    field.set(config, value);
-                    continue;
-                }
-
-                if (TypeUtils.isCustomObject(fieldValue)) {
-                    loadValues(keys, processedObjects, fieldValue, yaml, fullKey);
-                    continue;
+                    value = array;
                 }
 
-                Object value = getValue(field.getType(), yaml.get(fullKey, fieldValue));
-
                 if (!yamlHasKey) {
                     yaml.set(fullKey, fieldValue);
                     updateComments(field, fullKey, yaml);
                 }
 
                 if (checkEnv) {
-                    Object finalObject = EnvUtils.checkForEnvPrimitive(field, value);
-                    if (!finalObject.equals(value) && processedObjects.getFirst() instanceof SettingsBundle bundle) {
+                    long start = Metrics.start();
+                    Object finalArray = EnvUtils.checkForEnvPrimitiveArray(field, value);
+                    Metrics.stop(Phase.OVERWRITER_LOOKUP, root(processedObjects), start);
+                    if (!finalArray.equals(value) && processedObjects.getFirst() instanceof SettingsBundle bundle) {
                         bundle.setEnvSubstituted(field.getName());
-                        value = finalObject;
+                        Metrics.count(Counter.OVERWRITER_HITS, bundle, 1);
+                        value = finalArray;
                     }
                 }
-                field.set(config, value);
+                field.set(config, reconcile(fieldValue, value));
+                return;
+            }
 
-            } catch (InvocationTargetException | IllegalAccessException |
-                     InstantiationException | NullPointerException | IllegalStateException e) {
-                if (processedObjects.getFirst() instanceof SettingsBundle bundle) {
-                    throw new IllegalStateException("Failed to register config! File: '" + bundle.getFile() + "' ID: '" + bundle.getId() + "' Version: '" + bundle.getVersion() + "'", e);
+            if (TypeUtils.isCustomObject(fieldValue)) {
+                // Nested objects are resolved key by key, so the object itself is not inherited
+                layer = null;
+                loadValues(keys, processedObjects, fieldValue, yaml, fullKey, layers);
+                return;
+            }
+
+            Object value = getValue(field.getType(), source.get(fullKey, fieldValue));
+
+            if (!yamlHasKey) {
+                yaml.set(fullKey, fieldValue);
+                updateComments(field, fullKey, yaml);
+            }
+
+            if (checkEnv) {
+                long start = Metrics.start();
+                Object finalObject = EnvUtils.checkForEnvPrimitive(field, value);
+                Metrics.stop(Phase.OVERWRITER_LOOKUP, root(processedObjects), start);
+                if (!finalObject.equals(value) && processedObjects.getFirst() instanceof SettingsBundle bundle) {
+                    bundle.setEnvSubstituted(field.getName());
+                    Metrics.count(Counter.OVERWRITER_HITS, bundle, 1);
+                    value = finalObject;
+                }
+            }
+            field.set(config, reconcile(fieldValue, value));
+
+        } catch (InvocationTargetException | IllegalAccessException |
+                 InstantiationException | NullPointerException | IllegalStateException e) {
+            if (processedObjects.getFirst() instanceof SettingsBundle bundle) {
+                throw new IllegalStateException("Failed to register config! File: '" + bundle.getFile() + "' ID: '" + bundle.getId() + "' Version: '" + bundle.getVersion() + "'", e);
+            }
+            throw new IllegalStateException("Failed to register config: " + config.getClass().getName() + "!", e);
+        } finally {
+            // Runs after every branch, including the ones ending with continue
+            if (root(processedObjects) instanceof SettingsBundle bundle) {
+                if (layer != null) {
+                    inherit(bundle, layer, fullKey, config, field);
+                } else if (inTop) {
+                    bundle.setOrigin(fullKey, SettingsBundle.TOP_LAYER);
+                }
+            }
+        }
+    }
+
+    private static @Nullable Layer findLayer(@NotNull List<Layer> layers, @NotNull String fullKey) {
+        for (Layer layer : layers) {
+            if (layer.tree().contains(fullKey)) return layer;
+        }
+        return null;
+    }
+
+    private void inherit(@NotNull SettingsBundle bundle, @NotNull Layer layer, @NotNull String fullKey, @NotNull Object config, @NotNull Field field) {
+        bundle.setOrigin(fullKey, layer.name());
+        Map<String, Object> values = inherited.get(bundle);
+        if (values == null) return;
+        try {
+            values.put(fullKey, snapshot(field.get(config)));
+        } catch (IllegalAccessException ignored) {
+            // The field was made accessible before binding, nothing to remember if it failed anyway
+        }
+    }
+
+    /**
+     * Copies lists, sets, maps and arrays, so changes made to them in place are detected. Other values are kept as is.
+     */
+    static @Nullable Object snapshot(@Nullable Object value) {
+        switch (value) {
+            case List<?> list -> {
+                List<Object> copy = new ArrayList<>(list.size());
+                for (Object element : list) {
+                    copy.add(snapshot(element));
+                }
+                return copy;
+            }
+            case Set<?> set -> {
+                Set<Object> copy = new LinkedHashSet<>();
+                for (Object element : set) {
+                    copy.add(snapshot(element));
+                }
+                return copy;
+            }
+            case Map<?, ?> map -> {
+                Map<Object, Object> copy = new LinkedHashMap<>();
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    copy.put(entry.getKey(), snapshot(entry.getValue()));
+                }
+                return copy;
+            }
+            case null -> {
+                return null;
+            }
+            default -> {
+                if (!value.getClass().isArray()) return value;
+                int length = Array.getLength(value);
+                Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+                for (int i = 0; i < length; i++) {
+                    Array.set(copy, i, snapshot(Array.get(value, i)));
                 }
-                throw new IllegalStateException("Failed to register config: " + config.getClass().getName() + "!", e);
+                return copy;
             }
         }
     }
 
+    /**
+     * @return {@code true} if the value was bound from a lower layer and did not change since
+     */
+    private boolean isInherited(@NotNull List<Object> processedObjects, @NotNull ConfigurationSection yaml, @NotNull String fullKey, @NotNull Object config, @NotNull Field field)
+            throws IllegalAccessException {
+        if (inherited.isEmpty() || !(root(processedObjects) instanceof SettingsBundle bundle)) return false;
+        Map<String, Object> values = inherited.get(bundle);
+        // Paths are only known for the own source, not for sections of list elements or map values
+        if (values == null || yaml != registeredConfigs.get(bundle) || yaml.contains(fullKey)) return false;
+
+        return values.containsKey(fullKey) && Objects.deepEquals(values.get(fullKey), field.get(config));
+    }
+
     public void saveValues(@NotNull List<Object> processedObjects, @NotNull Object config, ConfigurationSection yaml) throws IllegalStateException {
         saveValues(processedObjects, config, yaml, "");
     }
@@ -404,42 +818,69 @@ public class SettingsBundleManager {
                 field.setAccessible(true);
 
                 String fullKey = getYAMLPath(field, base);
+                if (isInherited(processedObjects, yaml, fullKey, config, field)) continue;
+
+                ScalarCodec<Object> codec = Codecs.get(field.getType());
+                if (codec != null) {
+                    Object value = field.get(config);
+                    boolean checkEnv = SettingsManager.getSettings().isEnableOverwriters();
+                    if (!checkEnv || root(processedObjects) instanceof SettingsBundle bundle && !bundle.isEnvSubstituted(field.getName())) {
+                        yaml.set(fullKey, value == null ? null : codec.format(value));
+                    }
+                    continue;
+                }
+
+                ConstructorPlan plan = ConstructorPlan.of(field.getType());
+                if (plan != null) {
+                    Object value = field.get(config);
+                    if (value == null) {
+                        yaml.set(fullKey, null);
+                    } else {
+                        ConfigurationSection section = yaml.getConfigurationSection(fullKey);
+                        savePlanned(processedObjects, plan, value, section == null ? yaml.createSection(fullKey) : section, substituted(processedObjects, field));
+                    }
+                    continue;
+                }
+
                 Object fieldValue = getFieldValue(config, field);
 
                 if (fieldValue instanceof YAMLSerializable serializable) {
+                    long start = Metrics.start();
                     ConfigurationSection serialized = serializable.serializeSelf();
+                    Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
                     yaml.set(fullKey, serialized);
-                    return;
+                    continue;
                 }
 
-                if (hasExternalSerializer(field)) {
-                    ExternalYAMLSerializer<Object> serializer = getExternalSerializer(field);
-                    if (serializer != null) {
-                        ConfigurationSection serialized = serializer.serialize(fieldValue);
-                        yaml.set(fullKey, serialized);
-                        return;
-                    }
+                ExternalYAMLSerializer<Object> serializer = SerializerRegistry.resolve(field.getType());
+                if (serializer != null) {
+                    long start = Metrics.start();
+                    ConfigurationSection serialized = serializer.serialize(fieldValue);
+                    Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
+                    yaml.set(fullKey, serialized);
+                    continue;
+                }
+
+                if (fieldValue instanceof Map<?, ?> map) {
+                    saveMap(processedObjects, yaml, fullKey, map, mapValueType(field), substituted(processedObjects, field));
+                    continue;
                 }
 
                 if (fieldValue instanceof List<?> list && !TypeUtils.isListOfPrimitives(field, fieldValue)) {
-                    List<ConfigurationSection> serialized = new ArrayList<>();
-                    for (Object listObject : list) {
-                        ConfigurationSection section = new YamlConfiguration();
-                        saveValues(processedObjects, listObject, section);
-                        serialized.add(section);
-                    }
+                    List<ConfigurationSection> serialized = elements(field, list, processedObjects,
+                            (elementKeys, elementObjects, index, element) -> saveElement(elementObjects, element));
                     yaml.set(fullKey, serialized);
-                    return;
+                    continue;
                 }
 
                 if (TypeUtils.isCustomObject(fieldValue) && !TypeUtils.isListOfPrimitives(field, fieldValue)) {
                     saveValues(processedObjects, fieldValue, yaml, fullKey);
-                    return;
+                    continue;
                 }
 
                 boolean checkEnv = SettingsManager.getSettings().isEnableOverwriters();
 
-                if (!checkEnv || config instanceof SettingsBundle bundle && !bundle.isEnvSubstituted(field.getName())) {
+                if (!checkEnv || root(processedObjects) instanceof SettingsBundle bundle && !bundle.isEnvSubstituted(field.getName())) {
                     yaml.set(fullKey, fieldValue);
                 }
 
@@ -453,7 +894,607 @@ public class SettingsBundleManager {
         }
     }
 
-    private @NotNull Object getFieldValue(Object config, @NotNull Field field)
+    private @NotNull Map<?, ?> loadMap(@NotNull List<String> keys, @NotNull List<Object> processedObjects, @NotNull Field field, @NotNull Map<?, ?> current,
+                                       @NotNull ConfigurationSection yaml, @NotNull String fullKey, boolean yamlHasKey, boolean checkEnv)
+            throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException {
+        Type valueType = mapValueType(field);
+        ConfigurationSection section = yaml.getConfigurationSection(fullKey);
+
+        Map<String, Object> map;
+        if (section != null) {
+            Set<String> entryKeys = section.getKeys(false);
+            map = newMap(field.getType(), entryKeys.size());
+            for (String key : entryKeys) {
+                map.put(key, loadEntry(keys, processedObjects, valueType, section, key));
+            }
+            String prefix = fullKey + ".";
+            keys.removeIf(k -> k.startsWith(prefix));
+        } else {
+            map = newMap(field.getType(), current.size());
+            for (Map.Entry<?, ?> entry : current.entrySet()) {
+                map.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            if (!yamlHasKey) {
+                saveMap(processedObjects, yaml, fullKey, map, valueType, Set.of());
+                updateComments(field, fullKey, yaml);
+            }
+        }
+
+        Class<?> valueClass = TypeUtils.rawClass(valueType);
+        if (checkEnv && TypeUtils.isScalar(valueClass) && root(processedObjects) instanceof SettingsBundle bundle) {
+            long start = Metrics.start();
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                Object value = EnvUtils.checkForEnvMapEntry(field, entry.getKey(), valueClass, entry.getValue());
+                if (!Objects.equals(value, entry.getValue())) {
+                    bundle.setEnvSubstituted(field.getName() + "." + entry.getKey());
+                    Metrics.count(Counter.OVERWRITER_HITS, bundle, 1);
+                    entry.setValue(value);
+                }
+            }
+            Metrics.stop(Phase.OVERWRITER_LOOKUP, bundle, start);
+        }
+
+        if (!field.isAnnotationPresent(YAMLSetting.Immutable.class)) return map;
+
+        Map<?, ?> immutable = map instanceof SortedMap<String, Object> sorted ? Collections.unmodifiableSortedMap(sorted) : Collections.unmodifiableMap(map);
+        if (!field.getType().isInstance(immutable)) {
+            throw new IllegalStateException("Immutable map field '" + field.getName() + "' must be declared as Map or SortedMap!");
+        }
+        return immutable;
+    }
+
+    private @Nullable Object loadEntry(@NotNull List<String> keys, @NotNull List<Object> processedObjects, @NotNull Type valueType,
+                                       @NotNull ConfigurationSection section, @NotNull String key)
+            throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException {
+        Class<?> valueClass = TypeUtils.rawClass(valueType);
+        ConfigurationSection child = section.getConfigurationSection(key);
+
+        if (Map.class.isAssignableFrom(valueClass) || valueClass == Object.class && child != null) {
+            if (child == null) return null;
+            Type nestedType = valueType instanceof ParameterizedType pt && pt.getActualTypeArguments().length == 2 ? pt.getActualTypeArguments()[1] : Object.class;
+            Set<String> entryKeys = child.getKeys(false);
+            Map<String, Object> map = newMap(valueClass == Object.class ? Map.class : valueClass, entryKeys.size());
+            for (String entryKey : entryKeys) {
+                map.put(entryKey, loadEntry(keys, processedObjects, nestedType, child, entryKey));
+            }
+            return map;
+        }
+
+        if (valueClass == Object.class || TypeUtils.isScalar(valueClass)) {
+            try {
+                return TypeUtils.convert(valueClass, section.get(key));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid value for map entry '" + key + "': " + section.get(key), e);
+            }
+        }
+
+        if (List.class.isAssignableFrom(valueClass)) {
+            List<?> list = section.getList(key);
+            if (list == null) return null;
+
+            Type elementType = valueType instanceof ParameterizedType pt ? pt.getActualTypeArguments()[0] : Object.class;
+            Class<?> elementClass = TypeUtils.rawClass(elementType);
+            List<Object> elements = new ArrayList<>(list.size());
+            if (elementClass != Object.class && TypeUtils.isScalar(elementClass)) {
+                // e.g. Integers loaded for a List<Long>
+                for (Object element : list) {
+                    try {
+                        elements.add(TypeUtils.convert(elementClass, element));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalStateException("Invalid element for map entry '" + key + "': " + element, e);
+                    }
+                }
+                return elements;
+            }
+
+            ConstructorPlan elementPlan = ConstructorPlan.of(elementClass);
+            if (elementPlan == null) return new ArrayList<>(list);
+
+            for (Object element : list) {
+                elements.add(element == null ? null : construct(keys, processedObjects, elementPlan, null, toSection(element)));
+            }
+            return elements;
+        }
+
+        if (child == null) return null;
+
+        ConstructorPlan plan = ConstructorPlan.of(valueClass);
+        if (plan != null) return construct(keys, processedObjects, plan, null, child);
+
+        ExternalYAMLSerializer<Object> serializer = SerializerRegistry.resolve(valueClass);
+        if (serializer != null) {
+            long start = Metrics.start();
+            Object o = serializer.deserialize(child);
+            Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
+            return o;
+        }
+
+        Object o = getFieldValue(valueClass);
+        if (o instanceof YAMLSerializable serializable) {
+            long start = Metrics.start();
+            o = serializable.deserialize(child);
+            Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
+            return o;
+        }
+
+        loadValues(keys, processedObjects, o, child);
+        return o;
+    }
+
+    private void saveMap(@NotNull List<Object> processedObjects, @NotNull ConfigurationSection yaml, @NotNull String fullKey,
+                         @NotNull Map<?, ?> map, @NotNull Type valueType, @NotNull Set<String> substituted)
+            throws IllegalAccessException, InvocationTargetException {
+        ConfigurationSection old = substituted.isEmpty() ? null : yaml.getConfigurationSection(fullKey);
+
+        // Recreating the section keeps the entries in the order of the map
+        ConfigurationSection section = yaml.createSection(fullKey);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            if (old != null && substituted.contains(key)) {
+                section.set(key, old.get(key));
+            } else {
+                saveEntry(processedObjects, section, key, entry.getValue(), valueType);
+            }
+        }
+    }
+
+    private void saveEntry(@NotNull List<Object> processedObjects, @NotNull ConfigurationSection section, @NotNull String key,
+                           @Nullable Object value, @NotNull Type valueType) throws IllegalAccessException, InvocationTargetException {
+        if (value == null) {
+            section.set(key, null);
+            return;
+        }
+
+        if (value instanceof Map<?, ?> nested) {
+            Type nestedType = valueType instanceof ParameterizedType pt && pt.getActualTypeArguments().length == 2 ? pt.getActualTypeArguments()[1] : Object.class;
+            saveMap(processedObjects, section, key, nested, nestedType, Set.of());
+            return;
+        }
+
+        ScalarCodec<Object> codec = Codecs.get(value.getClass());
+        if (codec != null) {
+            section.set(key, codec.format(value));
+            return;
+        }
+
+        ConstructorPlan plan = ConstructorPlan.of(value.getClass());
+        if (plan != null) {
+            savePlanned(processedObjects, plan, value, section.createSection(key), Set.of());
+            return;
+        }
+
+        if (value instanceof List<?> list) {
+            List<Object> elements = new ArrayList<>(list.size());
+            for (Object element : list) {
+                elements.add(element != null && ConstructorPlan.of(element.getClass()) != null ? saveElement(processedObjects, element) : element);
+            }
+            section.set(key, elements);
+            return;
+        }
+
+        if (!TypeUtils.isCustomObject(value)) {
+            section.set(key, value);
+            return;
+        }
+
+        ExternalYAMLSerializer<Object> serializer = SerializerRegistry.resolve(value.getClass());
+        if (serializer != null) {
+            long start = Metrics.start();
+            ConfigurationSection serialized = serializer.serialize(value);
+            Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
+            section.set(key, serialized);
+            return;
+        }
+
+        if (value instanceof YAMLSerializable serializable) {
+            long start = Metrics.start();
+            ConfigurationSection serialized = serializable.serializeSelf();
+            Metrics.stop(Phase.SERIALIZER_CALL, root(processedObjects), start);
+            section.set(key, serialized);
+            return;
+        }
+
+        saveValues(processedObjects, value, section, key);
+    }
+
+    /**
+     * Loads a field bound through a {@link ConstructorPlan}. Scalar components can be overwritten by environment variables
+     * named after the field followed by the component, e.g. {@code SERVER_PORT} for the component {@code port} of {@code server}.
+     */
+    private @Nullable Object loadPlanned(@NotNull List<String> keys, @NotNull List<Object> processedObjects, @NotNull Field field, @NotNull ConstructorPlan plan,
+                                         @Nullable Object current, @NotNull ConfigurationSection yaml, @NotNull String fullKey)
+            throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException {
+        ConfigurationSection section = yaml.getConfigurationSection(fullKey);
+
+        Object value = current;
+        if (section != null) {
+            value = construct(keys, processedObjects, plan, current, section);
+            String prefix = fullKey + ".";
+            keys.removeIf(k -> k.startsWith(prefix));
+        } else if (current != null && !yaml.contains(fullKey)) {
+            savePlanned(processedObjects, plan, current, yaml.createSection(fullKey), Set.of());
+            updateComments(field, fullKey, yaml);
+        }
+
+        if (value == null || !SettingsManager.getSettings().isEnableOverwriters() || !(root(processedObjects) instanceof SettingsBundle bundle)) {
+            return value;
+        }
+
+        List<ConstructorPlan.Component> components = plan.components();
+        Object[] args = null;
+        long start = Metrics.start();
+        for (int i = 0; i < components.size(); i++) {
+            ConstructorPlan.Component component = components.get(i);
+            if (!TypeUtils.isScalar(component.rawType())) continue;
+
+            Object old = component.read(value);
+            Object replaced = EnvUtils.checkForEnvMapEntry(field, component.name(), component.rawType(), old);
+            if (Objects.equals(old, replaced)) continue;
+
+            if (args == null) {
+                args = new Object[components.size()];
+                for (int j = 0; j < args.length; j++) {
+                    args[j] = components.get(j).read(value);
+                }
+            }
+            args[i] = replaced;
+            bundle.setEnvSubstituted(field.getName() + "." + component.name());
+            Metrics.count(Counter.OVERWRITER_HITS, bundle, 1);
+        }
+        Metrics.stop(Phase.OVERWRITER_LOOKUP, bundle, start);
+
+        return args == null ? value : plan.construct(args);
+    }
+
+    /**
+     * Creates an instance in a single constructor call. Components missing in the section fall back to the ones of {@code current}
+     * and are written to the section.
+     */
+    private @NotNull Object construct(@NotNull List<String> keys, @NotNull List<Object> processedObjects, @NotNull ConstructorPlan plan,
+                                      @Nullable Object current, @NotNull ConfigurationSection section)
+            throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException {
+        List<ConstructorPlan.Component> components = plan.components();
+        Object[] args = new Object[components.size()];
+        for (int i = 0; i < args.length; i++) {
+            ConstructorPlan.Component component = components.get(i);
+            if (section.contains(component.key())) {
+                args[i] = loadEntry(keys, processedObjects, component.type(), section, component.key());
+            } else if (current != null) {
+                args[i] = component.read(current);
+                saveEntry(processedObjects, section, component.key(), args[i], component.type());
+            }
+        }
+        return plan.construct(args);
+    }
+
+    private void savePlanned(@NotNull List<Object> processedObjects, @NotNull ConstructorPlan plan, @NotNull Object value,
+                             @NotNull ConfigurationSection section, @NotNull Set<String> substituted)
+            throws IllegalAccessException, InvocationTargetException {
+        for (ConstructorPlan.Component component : plan.components()) {
+            if (substituted.contains(component.name())) continue;
+            saveEntry(processedObjects, section, component.key(), component.read(value), component.type());
+        }
+    }
+
+    /**
+     * @param current the element currently bound at the same index, bound to in place while reloading
+     */
+    private @NotNull Object loadElement(@NotNull List<String> keys, @NotNull List<Object> processedObjects, @NotNull Class<?> type, @NotNull ConfigurationSection section,
+                                        @Nullable Object current)
+            throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException {
+        ConstructorPlan plan = ConstructorPlan.of(type);
+        if (plan != null) return reconcile(current, construct(keys, processedObjects, plan, null, section));
+
+        Object o = reconciling && current != null ? current : getFieldValue(type);
+        loadValues(keys, processedObjects, o, section);
+        return o;
+    }
+
+    @FunctionalInterface
+    private interface ElementFunction<E, R> {
+        R apply(@NotNull List<String> keys, @NotNull List<Object> processedObjects, int index, E element)
+                throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException;
+    }
+
+    /**
+     * Objects processed by the elements of a parallel list. The objects processed before are only read while the chunks run,
+     * the objects processed by the chunks are tracked by identity together with the chunk that processed them first.
+     */
+    private static final class ProcessedElements {
+        private final Set<Object> before = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Map<Object, ChunkObjects> processed = Collections.synchronizedMap(new IdentityHashMap<>());
+        // Set once an object was reached from elements of different chunks
+        private volatile boolean shared;
+    }
+
+    /**
+     * Processed objects as seen by one chunk, only supports {@code getFirst}, {@code contains} and {@code add}.
+     * The first element is the root bundle, as for the list of the calling thread.
+     */
+    private static final class ChunkObjects extends AbstractList<Object> {
+        private final Object root;
+        private final ProcessedElements elements;
+
+        private ChunkObjects(@NotNull Object root, @NotNull ProcessedElements elements) {
+            this.root = root;
+            this.elements = elements;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index != 0) throw new IndexOutOfBoundsException(index);
+            return root;
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (elements.before.contains(o)) return true;
+            ChunkObjects owner = elements.processed.get(o);
+            if (owner != null && owner != this) elements.shared = true;
+            return owner != null;
+        }
+
+        @Override
+        public boolean add(Object o) {
+            ChunkObjects owner = elements.processed.putIfAbsent(o, this);
+            if (owner != null && owner != this) elements.shared = true;
+            return owner == null;
+        }
+    }
+
+    /**
+     * Elements of one parallel chunk, bound or saved with their own keys and the processed objects shared by all chunks.
+     */
+    private static final class Chunk<E, R> extends RecursiveAction {
+        private final List<? extends E> elements;
+        private final int from;
+        private final int to;
+        private final List<String> keys = new ArrayList<>();
+        private final ChunkObjects processedObjects;
+        private final ElementFunction<E, R> function;
+        private final AtomicInteger firstFailure;
+        private final List<R> results;
+        private Exception failure;
+
+        private Chunk(@NotNull List<? extends E> elements, int from, int to, @NotNull ChunkObjects processedObjects,
+                      @NotNull ElementFunction<E, R> function, @NotNull AtomicInteger firstFailure) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.processedObjects = processedObjects;
+            this.function = function;
+            this.firstFailure = firstFailure;
+            this.results = new ArrayList<>(to - from);
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                // Elements after a failed one are not processed without parallelism either
+                if (i > firstFailure.get()) return;
+                try {
+                    results.add(function.apply(keys, processedObjects, i, elements.get(i)));
+                } catch (Exception e) {
+                    failure = e;
+                    firstFailure.accumulateAndGet(i, Math::min);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the function to every element of an object list, in parallel chunks in the common {@link ForkJoinPool}
+     * if the list is large enough, see {@link SettingsManagerConfig#getParallelListThreshold()}. The results and the objects
+     * processed are merged back in element order, the exception of the first failing element is rethrown.
+     * Elements are bound from detached sections, their relative keys are never among the keys of the bundle, so every
+     * chunk only tracks its own keys.
+     * @return the results in element order
+     */
+    private <E, R> @NotNull List<R> elements(@NotNull Field field, @NotNull List<? extends E> elements, @NotNull List<Object> processedObjects,
+                                            @NotNull ElementFunction<E, R> function)
+            throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException {
+        int chunkSize = chunkSize(field, elements.size());
+        if (chunkSize == 0) return elements(elements, processedObjects, function);
+
+        ProcessedElements processed = new ProcessedElements();
+        processed.before.addAll(processedObjects);
+        AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+        List<Chunk<E, R>> chunks = new ArrayList<>();
+        for (int from = 0; from < elements.size(); from += chunkSize) {
+            ChunkObjects objects = new ChunkObjects(root(processedObjects), processed);
+            chunks.add(new Chunk<>(elements, from, Math.min(from + chunkSize, elements.size()), objects, function, firstFailure));
+        }
+        ForkJoinTask.invokeAll(chunks);
+
+        // Without parallelism, an object reached from several elements is only processed for the first of them
+        if (processed.shared) return elements(elements, processedObjects, function);
+
+        List<R> results = new ArrayList<>(elements.size());
+        for (Chunk<E, R> chunk : chunks) {
+            switch (chunk.failure) {
+                case null -> {}
+                case IllegalAccessException e -> throw e;
+                case InvocationTargetException e -> throw e;
+                case InstantiationException e -> throw e;
+                case RuntimeException e -> throw e;
+                default -> throw new IllegalStateException(chunk.failure);
+            }
+            results.addAll(chunk.results);
+        }
+        processedObjects.addAll(processed.processed.keySet());
+        return results;
+    }
+
+    private static <E, R> @NotNull List<R> elements(@NotNull List<? extends E> elements, @NotNull List<Object> processedObjects, @NotNull ElementFunction<E, R> function)
+            throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException {
+        List<String> keys = new ArrayList<>();
+        List<R> results = new ArrayList<>(elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            results.add(function.apply(keys, processedObjects, i, elements.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of elements per parallel chunk, {@code 0} to process the list on the calling thread
+     */
+    private static int chunkSize(@NotNull Field field, int size) {
+        YAMLSetting.Parallel parallel = field.getAnnotation(YAMLSetting.Parallel.class);
+        int threshold = parallel != null ? parallel.threshold() : SettingsManager.getSettings().getParallelListThreshold();
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (threshold <= 0 || size < threshold || size < 2 || parallelism < 2) return 0;
+        // A few chunks per worker, so chunks of slower elements are balanced out
+        return Math.ceilDiv(size, parallelism * 4);
+    }
+
+    private static @Nullable Object elementAt(@NotNull List<?> list, int index, @NotNull Class<?> type) {
+        if (index >= list.size()) return null;
+        Object element = list.get(index);
+        return element != null && element.getClass() == type ? element : null;
+    }
+
+    /**
+     * Returns the instance currently bound if it can take the reloaded value, updating lists, maps and arrays in place.
+     * Outside of reloads, and for values that cannot be updated in place, returns the reloaded value.
+     */
+    @SuppressWarnings("unchecked")
+    private @Nullable Object reconcile(@Nullable Object current, @Nullable Object value) {
+        if (!reconciling || current == null || value == null || current == value) return value;
+
+        try {
+            if (current instanceof List<?> list && value instanceof List<?> reloaded) {
+                reconcileList((List<Object>) list, reloaded);
+                return current;
+            }
+            if (current instanceof Map<?, ?> map && value instanceof Map<?, ?> reloaded) {
+                reconcileMap((Map<Object, Object>) map, reloaded);
+                return current;
+            }
+        } catch (UnsupportedOperationException e) {
+            // Immutable collections are replaced, they are rejected before anything is changed
+            return value;
+        }
+
+        if (current.getClass().isArray()) {
+            int length = Array.getLength(current);
+            if (current.getClass() != value.getClass() || length != Array.getLength(value)) return value;
+            System.arraycopy(value, 0, current, 0, length);
+            return current;
+        }
+        return current.equals(value) ? current : value;
+    }
+
+    private void reconcileList(@NotNull List<Object> current, @NotNull List<?> reloaded) {
+        if (current.size() != reloaded.size()) {
+            current.clear();
+            current.addAll(reloaded);
+            return;
+        }
+        for (int i = 0; i < reloaded.size(); i++) {
+            Object element = current.get(i);
+            Object reconciled = reconcile(element, reloaded.get(i));
+            if (reconciled != element) current.set(i, reconciled);
+        }
+    }
+
+    private void reconcileMap(@NotNull Map<Object, Object> current, @NotNull Map<?, ?> reloaded) {
+        current.keySet().retainAll(reloaded.keySet());
+        for (Map.Entry<?, ?> entry : reloaded.entrySet()) {
+            Object value = current.get(entry.getKey());
+            Object reconciled = reconcile(value, entry.getValue());
+            if (reconciled != value || !current.containsKey(entry.getKey())) current.put(entry.getKey(), reconciled);
+        }
+    }
+
+    private @NotNull ConfigurationSection saveElement(@NotNull List<Object> processedObjects, @NotNull Object element)
+            throws IllegalAccessException, InvocationTargetException {
+        ConfigurationSection section = new YamlConfiguration();
+        ConstructorPlan plan = ConstructorPlan.of(element.getClass());
+        if (plan != null) {
+            savePlanned(processedObjects, plan, element, section, Set.of());
+        } else {
+            saveValues(processedObjects, element, section);
+        }
+        return section;
+    }
+
+    /**
+     * Converts a list element loaded from YAML back into a section, list elements are loaded as plain maps.
+     */
+    private static @NotNull ConfigurationSection toSection(@NotNull Object element) throws IllegalStateException {
+        if (element instanceof ConfigurationSection section) return section;
+        if (!(element instanceof Map<?, ?> map)) {
+            throw new IllegalStateException("Expected a section but found: " + element);
+        }
+
+        ConfigurationSection section = new YamlConfiguration();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            if (entry.getValue() instanceof Map<?, ?> nested) {
+                section.createSection(key, nested);
+            } else {
+                section.set(key, entry.getValue());
+            }
+        }
+        return section;
+    }
+
+    /**
+     * @return the names of the entries or components of the specified field that were overwritten by environment variables
+     */
+    private static @NotNull Set<String> substituted(@NotNull List<Object> processedObjects, @NotNull Field field) {
+        if (!SettingsManager.getSettings().isEnableOverwriters() || !(root(processedObjects) instanceof SettingsBundle bundle)) {
+            return Set.of();
+        }
+
+        Set<String> substituted = new HashSet<>();
+        String prefix = field.getName() + ".";
+        for (String variable : bundle.getEnvSubstituted()) {
+            if (variable.startsWith(prefix)) substituted.add(variable.substring(prefix.length()));
+        }
+        return substituted;
+    }
+
+    static @NotNull Type mapValueType(@NotNull Field field) throws IllegalStateException {
+        if (!(field.getGenericType() instanceof ParameterizedType pt)) return Object.class;
+
+        Type[] args = pt.getActualTypeArguments();
+        if (args.length != 2) return Object.class;
+        if (!String.class.equals(TypeUtils.rawClass(args[0]))) {
+            throw new IllegalStateException("Map field '" + field.getName() + "' must have String keys!");
+        }
+        return args[1];
+    }
+
+    /**
+     * Creates the backing map for the declared map type. Sorted types are backed by a {@link TreeMap},
+     * everything else by a presized {@link LinkedHashMap} to keep the key order of the file.
+     */
+    private static @NotNull Map<String, Object> newMap(@NotNull Class<?> declared, int size) throws IllegalStateException {
+        Map<String, Object> map;
+        if (declared.isAssignableFrom(TreeMap.class) && SortedMap.class.isAssignableFrom(declared)) {
+            map = new TreeMap<>();
+        } else if (declared.isAssignableFrom(ConcurrentHashMap.class) && ConcurrentMap.class.isAssignableFrom(declared)) {
+            map = new ConcurrentHashMap<>(Math.max(size, 16));
+        } else if (declared.isAssignableFrom(LinkedHashMap.class)) {
+            map = LinkedHashMap.newLinkedHashMap(size);
+        } else {
+            throw new IllegalStateException("Unsupported map type: " + declared.getName() + "!");
+        }
+        return map;
+    }
+
+    private static @NotNull Object root(@NotNull List<Object> processedObjects) {
+        return processedObjects.getFirst();
+    }
+
+    @NotNull Object getFieldValue(Object config, @NotNull Field field)
             throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException {
         Object value = field.get(config);
         if (value != null) return value;
@@ -463,7 +1504,7 @@ public class SettingsBundleManager {
         return instance;
     }
 
-    private @NotNull Object getFieldValue(@NotNull Class<?> type)
+    @NotNull Object getFieldValue(@NotNull Class<?> type)
             throws IllegalAccessException, InvocationTargetException, InstantiationException, IllegalStateException {
         // Try direct match
         Supplier<?> supplier = DEFAULT_SUPPLIERS.get(type);
@@ -511,7 +1552,7 @@ public class SettingsBundleManager {
         }
     }
 
-    private @NotNull String getYAMLPath(@NotNull Field field, String base) {
+    static @NotNull String getYAMLPath(@NotNull Field field, String base) {
         String declaredName = "";
         if (field.isAnnotationPresent(YAMLSetting.class)) {
             declaredName = field.getAnnotation(YAMLSetting.class).name();
@@ -519,7 +1560,7 @@ public class SettingsBundleManager {
         return base + (base.isBlank() ? "" : ".") + (declaredName.isBlank() ? field.getName() : declaredName);
     }
 
-    private boolean isNotEligibleForConfig(@NotNull Field field) {
+    static boolean isNotEligibleForConfig(@NotNull Field field) {
         int modifiers = field.getModifiers();
         return field.isAnnotationPresent(YAMLSetting.Ignore.class)
                 || Modifier.isFinal(modifiers)
@@ -532,56 +1573,239 @@ public class SettingsBundleManager {
      * @param current the current object, that may be converted if necessary
      * @return the final object
      */
-    private @NotNull Object getValue(@NotNull Type desired, @NotNull Object current) {
+    @NotNull Object getValue(@NotNull Type desired, @NotNull Object current) {
         if (!current.getClass().equals(Float.class) && (desired.equals(float.class) || desired.equals(Float.class))) {
             return ((Double) current).floatValue();
         }
         return current;
     }
 
-    private boolean hasExternalSerializer(@NotNull Field field) {
-        Class<?> typeClazz = field.getType();
-        return EXTERNAL_SERIALIZER_CACHE.containsKey(typeClazz) || typeClazz.isAnnotationPresent(SerializableWith.class);
+    public void save() {
+        registeredConfigs.keySet().forEach(this::save);
     }
 
-    private @Nullable ExternalYAMLSerializer<Object> getExternalSerializer(@NotNull Field field) {
-        Class<?> typeClazz = field.getType();
-        if (!EXTERNAL_SERIALIZER_CACHE.containsKey(typeClazz)) {
-            Class<? extends ExternalYAMLSerializer<Object>> serializerClazz = (Class<? extends ExternalYAMLSerializer<Object>>) typeClazz.getAnnotation(SerializableWith.class).serializer();
+    public boolean save(SettingsBundle bundle) {
+        if (bundle == null || bundle.isReadonly() || !registeredConfigs.containsKey(bundle) || bundle.isSourceUnwritable()) {
+            return false;
+        }
 
-            try {
-                Constructor<? extends ExternalYAMLSerializer<Object>> constructor = serializerClazz.getConstructor();
-                constructor.setAccessible(true);
+        SaveEvent event = new SaveEvent();
+        event.begin();
+
+        if (isStreamable(bundle)) {
+            long start = Metrics.start();
+            YamlWriter writer = stream(bundle);
+            if (writer != null) {
+                Metrics.stop(Phase.SERIALIZATION, bundle, start);
+                long written = bundle.getFile().length();
+                Metrics.count(Counter.BYTES_WRITTEN, bundle, written);
+                registeredConfigs.put(bundle, null);
+                compacted.remove(bundle);
+                patchIndexes.remove(bundle);
+                if (fingerprints.containsKey(bundle)) {
+                    fingerprints.put(bundle, Fingerprint.of(retained(bundle), fingerprints.get(bundle)));
+                }
+                refreshIndex(bundle);
+
+                event.end();
+                if (event.shouldCommit()) {
+                    event.setBundle(bundle);
+                    event.version = bundle.getVersion().toString();
+                    event.keyCount = writer.getKeyCount();
+                    event.bytesWritten = written;
+                    event.commit();
+                }
+                return true;
+            }
+        }
 
-                EXTERNAL_SERIALIZER_CACHE.put(typeClazz, constructor.newInstance());
-            } catch (InvocationTargetException | NoSuchMethodException | InstantiationException |
-                     IllegalAccessException | IllegalArgumentException e) {
-                return null;
+        List<Object> processedObjects = new ArrayList<>();
+        YamlConfiguration yaml = retained(bundle);
+        registeredConfigs.put(bundle, yaml);
+
+        long start = Metrics.start();
+        try {
+            saveValues(processedObjects, bundle, yaml);
+        } finally {
+            retain(bundle, yaml);
+        }
+        Metrics.stop(Phase.SERIALIZATION, bundle, start);
+
+        long written = -1;
+        PatchIndex patchIndex = SettingsManager.getSettings().isIncrementalSave() ? patchIndexes.get(bundle) : null;
+        if (patchIndex != null) {
+            start = Metrics.start();
+            written = patchIndex.patch(yaml, bundle.getFile().toPath());
+            if (written >= 0) {
+                Metrics.stop(Phase.FILE_WRITE, bundle, start);
+                Metrics.count(Counter.BYTES_WRITTEN, bundle, written);
             }
         }
-        return EXTERNAL_SERIALIZER_CACHE.get(typeClazz);
+        if (written < 0) {
+            written = writeFile(bundle, yaml, true);
+        }
+        refreshIndex(bundle);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setBundle(bundle);
+            event.version = bundle.getVersion().toString();
+            event.keyCount = yaml.getKeys(true).size();
+            event.bytesWritten = written;
+            event.commit();
+        }
+        return true;
     }
 
-    public void save() {
-        registeredConfigs.keySet().forEach(this::save);
+    /**
+     * Saves a bundle only if its bound values differ from its retained tree, which holds the values last written or read.
+     * An untouched file is left as it is.
+     * @return whether the bundle was written
+     */
+    boolean saveIfChanged(@NotNull SettingsBundle bundle) {
+        if (bundle.isReadonly() || !registeredConfigs.containsKey(bundle) || bundle.isSourceUnwritable()) {
+            return false;
+        }
+        if (bundle.getFile() == null || !bundle.getFile().exists()) return save(bundle);
+
+        YamlConfiguration yaml = retained(bundle);
+        Fingerprint written = Fingerprint.of(yaml, null);
+        saveValues(new ArrayList<>(), bundle, yaml);
+        // Unchanged trees keep their fingerprint, regardless of the number type a value was bound from
+        if (Fingerprint.of(yaml, written) == written) return false;
+        return save(bundle);
     }
 
-    public boolean save(SettingsBundle bundle) {
-        if (bundle == null || bundle.isReadonly() || !registeredConfigs.containsKey(bundle) || bundle.isSourceUnwritable()) {
-            return false;
+    /**
+     * Returns the compiled key index of the specified bundle, compiling it on first use.
+     * @param bundle a bundle registered with this manager
+     * @return the index
+     * @throws IllegalStateException if the bundle is not registered
+     */
+    public @NotNull SettingsIndex index(@NotNull SettingsBundle bundle) throws IllegalStateException {
+        if (!registeredConfigs.containsKey(bundle)) {
+            throw new IllegalStateException("Bundle " + bundle.getClass().getName() + " is not registered!");
+        }
+        return indexes.computeIfAbsent(bundle, SettingsIndex::new);
+    }
+
+    /**
+     * Returns the tree of a registered bundle, expanding compacted trees and rebuilding dropped ones. Dropped trees of
+     * streamed bundles are parsed from their file, so comments and unused keys survive a save through the tree, dropped
+     * trees of read-only bundles are rebuilt from the bound values.
+     * Changes to an expanded or rebuilt tree are not retained.
+     * @param bundle a bundle registered with this manager
+     * @return the tree
+     * @throws IllegalStateException if the bundle is not registered
+     */
+    public @NotNull YamlConfiguration retained(@NotNull SettingsBundle bundle) throws IllegalStateException {
+        if (!registeredConfigs.containsKey(bundle)) {
+            throw new IllegalStateException("Bundle " + bundle.getClass().getName() + " is not registered!");
         }
 
-        List<Object> processedObjects = new ArrayList<>();
         YamlConfiguration yaml = registeredConfigs.get(bundle);
-        saveValues(processedObjects, bundle, yaml);
+        if (yaml != null) return yaml;
+
+        CompactTree tree = compacted.get(bundle);
+        if (tree != null) return tree.expand();
+
+        if (!bundle.isReadonly() && bundle.getFile() != null) {
+            Path path = bundle.getFile().toPath();
+            try {
+                if (Files.exists(path)) return SettingsManager.parse(bundle, Files.readAllBytes(path));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read configuration file: " + path, e);
+            }
+        }
 
+        yaml = new YamlConfiguration();
+        yaml.set(SettingsManager.getSettings().getVersionKey(), bundle.getVersion().toString());
+        saveValues(new ArrayList<>(), bundle, yaml);
+        return yaml;
+    }
+
+    /**
+     * Returns the fingerprint of the retained tree of a registered bundle, computing it on first use. Afterward it is
+     * updated whenever the bundle is saved or registered again, changed fields are not reflected until then.
+     * @param bundle a bundle registered with this manager
+     * @return the fingerprint
+     * @throws IllegalStateException if the bundle is not registered
+     */
+    public @NotNull Fingerprint fingerprint(@NotNull SettingsBundle bundle) throws IllegalStateException {
+        Fingerprint fingerprint = fingerprints.get(bundle);
+        if (fingerprint == null) {
+            fingerprint = Fingerprint.of(retained(bundle), null);
+            fingerprints.put(bundle, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return whether the bundle can be saved without its tree, see {@link SettingsManagerConfig#isStreamingSave()}
+     */
+    private boolean isStreamable(@NotNull SettingsBundle bundle) {
+        return SettingsManager.getSettings().isStreamingSave()
+                && bundle.getFile() != null
+                && !inherited.containsKey(bundle)
+                && bundle.getEnvSubstituted().isEmpty();
+    }
+
+    /**
+     * Renders the bound values of a bundle straight to its file, replacing the file once everything was written.
+     * @return the writer used or {@code null} if the values cannot be streamed and have to be saved through the tree
+     */
+    private @Nullable YamlWriter stream(@NotNull SettingsBundle bundle) {
+        Path path = bundle.getFile().toPath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
         try {
-            yaml.save(bundle.getFile());
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+
+            YamlWriter writer;
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer = new YamlWriter(this, out);
+                writer.bundle(bundle, SettingsManager.getSettings().getVersionKey());
+            } catch (YamlWriter.UnsupportedValueException e) {
+                Files.deleteIfExists(tmp);
+                return null;
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return writer;
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new RuntimeException("Failed to write configuration file: " + path, e);
         }
+    }
 
-        return true;
+    void unregister(@NotNull SettingsBundle bundle) {
+        registeredConfigs.remove(bundle);
+        indexes.remove(bundle);
+        patchIndexes.remove(bundle);
+        compacted.remove(bundle);
+        inherited.remove(bundle);
+        fingerprints.remove(bundle);
+    }
+
+    private void retain(@NotNull SettingsBundle bundle, @NotNull YamlConfiguration yaml) {
+        SettingsManagerConfig settings = SettingsManager.getSettings();
+        Fingerprint fingerprint = fingerprints.get(bundle);
+        if (fingerprint != null) fingerprints.put(bundle, Fingerprint.of(yaml, fingerprint));
+
+        // Streamed saves do not update the tree, it is parsed from the written file when needed
+        if (bundle.isReadonly() && !settings.isRetainReadOnlyTrees() || !bundle.isReadonly() && isStreamable(bundle)) {
+            registeredConfigs.put(bundle, null);
+            compacted.remove(bundle);
+        } else if (settings.isLowMemory()) {
+            registeredConfigs.put(bundle, null);
+            compacted.put(bundle, CompactTree.of(yaml, shapes));
+        } else {
+            registeredConfigs.put(bundle, yaml);
+            compacted.remove(bundle);
+        }
+    }
+
+    private void refreshIndex(@NotNull SettingsBundle bundle) {
+        SettingsIndex index = indexes.get(bundle);
+        if (index != null) index.refresh();
     }
 
     public @Nullable SettingsBundle getSettingsBundleInstance(UUID id) {
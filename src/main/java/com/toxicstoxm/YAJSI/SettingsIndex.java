@@ -0,0 +1,346 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.YAJSI.serializing.SerializerRegistry;
+import com.toxicstoxm.YAJSI.serializing.YAMLSerializable;
+import com.toxicstoxm.YAJSI.utils.TypeUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * Compiled key index of a registered bundle. Every dotted path of the bound values, including map keys and list and array
+ * indices (e.g. {@code servers.2.port}), is mapped to a slot in one of the primitive slot arrays, so reads through
+ * a {@link SettingKey} are O(1) and do not box.
+ * <p>
+ * The index is a snapshot of the bound field values. It is refreshed when the bundle is saved or registered again,
+ * after changing fields directly call {@link #refresh()}. Handles stay valid across refreshes as long as the path
+ * still exists.
+ */
+public class SettingsIndex {
+    enum Kind {
+        LONG,
+        DOUBLE,
+        BOOLEAN,
+        OBJECT
+    }
+
+    record Slot(@NotNull Kind kind, int index, @NotNull Class<?> type) {}
+
+    record Layout(@NotNull Map<String, Slot> slots) {}
+
+    private record Snapshot(@NotNull Layout layout, long[] longs, double[] doubles, boolean[] booleans, Object[] objects) {}
+
+    private final SettingsBundle bundle;
+    private volatile Snapshot snapshot;
+
+    SettingsIndex(@NotNull SettingsBundle bundle) {
+        this.bundle = bundle;
+        refresh();
+    }
+
+    public @NotNull SettingsBundle getBundle() {
+        return bundle;
+    }
+
+    /**
+     * Re-reads the field values of the bundle. The layout is kept if the set of paths did not change.
+     */
+    public synchronized void refresh() {
+        Builder builder = new Builder();
+        builder.fields(bundle, "");
+
+        Snapshot old = snapshot;
+        Layout layout = builder.layout();
+        if (old != null && old.layout().equals(layout)) {
+            layout = old.layout();
+        }
+        snapshot = new Snapshot(layout, builder.longs.toArray(), builder.doubles.toArray(), builder.booleans.toArray(), builder.objects.toArray());
+    }
+
+    /**
+     * Compiles a handle for the specified path.
+     * @param path the dotted path, list and array elements are addressed by their index
+     * @param type the type of the setting, primitive types are treated as their wrapper
+     * @return the handle
+     * @throws IllegalArgumentException if the path does not exist or holds an incompatible type
+     */
+    public <T> @NotNull SettingKey<T> key(@NotNull String path, @NotNull Class<T> type) throws IllegalArgumentException {
+        Layout layout = snapshot.layout();
+        Slot slot = layout.slots().get(path);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown setting '" + path + "' in " + bundle.getClass().getName() + "!");
+        }
+
+        Class<?> requested = wrap(type);
+        if (slot.kind() == Kind.OBJECT ? !requested.isAssignableFrom(slot.type()) : !requested.equals(slot.type())) {
+            throw new IllegalArgumentException("Setting '" + path + "' is of type " + slot.type().getName() + ", not " + type.getName() + "!");
+        }
+        return new SettingKey<>(this, layout, slot, path, type);
+    }
+
+    public boolean contains(@NotNull String path) {
+        return snapshot.layout().slots().containsKey(path);
+    }
+
+    public @NotNull Set<String> getPaths() {
+        return Collections.unmodifiableSet(snapshot.layout().slots().keySet());
+    }
+
+    public int getInt(@NotNull SettingKey<Integer> key) {
+        Snapshot s = snapshot;
+        return (int) s.longs()[slot(s, key, Kind.LONG)];
+    }
+
+    public long getLong(@NotNull SettingKey<Long> key) {
+        Snapshot s = snapshot;
+        return s.longs()[slot(s, key, Kind.LONG)];
+    }
+
+    public short getShort(@NotNull SettingKey<Short> key) {
+        Snapshot s = snapshot;
+        return (short) s.longs()[slot(s, key, Kind.LONG)];
+    }
+
+    public byte getByte(@NotNull SettingKey<Byte> key) {
+        Snapshot s = snapshot;
+        return (byte) s.longs()[slot(s, key, Kind.LONG)];
+    }
+
+    public char getChar(@NotNull SettingKey<Character> key) {
+        Snapshot s = snapshot;
+        return (char) s.longs()[slot(s, key, Kind.LONG)];
+    }
+
+    public double getDouble(@NotNull SettingKey<Double> key) {
+        Snapshot s = snapshot;
+        return s.doubles()[slot(s, key, Kind.DOUBLE)];
+    }
+
+    public float getFloat(@NotNull SettingKey<Float> key) {
+        Snapshot s = snapshot;
+        return (float) s.doubles()[slot(s, key, Kind.DOUBLE)];
+    }
+
+    public boolean getBoolean(@NotNull SettingKey<Boolean> key) {
+        Snapshot s = snapshot;
+        return s.booleans()[slot(s, key, Kind.BOOLEAN)];
+    }
+
+    /**
+     * Reads any setting, primitive settings are boxed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable T get(@NotNull SettingKey<T> key) {
+        Snapshot s = snapshot;
+        Slot slot = resolve(s, key);
+        Object value = switch (slot.kind()) {
+            case LONG -> unboxLong(slot.type(), s.longs()[slot.index()]);
+            case DOUBLE -> slot.type() == Float.class ? (Object) (float) s.doubles()[slot.index()] : (Object) s.doubles()[slot.index()];
+            case BOOLEAN -> s.booleans()[slot.index()];
+            case OBJECT -> s.objects()[slot.index()];
+        };
+        return wrap(key.type()).isInstance(value) ? (T) value : null;
+    }
+
+    private int slot(@NotNull Snapshot s, @NotNull SettingKey<?> key, @NotNull Kind kind) {
+        Slot slot = resolve(s, key);
+        if (slot.kind() != kind) {
+            throw new IllegalArgumentException("Setting '" + key.path() + "' is of type " + slot.type().getName() + "!");
+        }
+        return slot.index();
+    }
+
+    private @NotNull Slot resolve(@NotNull Snapshot s, @NotNull SettingKey<?> key) {
+        if (key.index != this) {
+            throw new IllegalArgumentException(key + " belongs to a different index!");
+        }
+        if (key.layout == s.layout()) return key.slot;
+
+        // The layout changed since the handle was compiled (e.g. a list changed size), fall back to the path
+        Slot slot = s.layout().slots().get(key.path());
+        if (slot == null || slot.kind() != key.slot.kind()) {
+            throw new IllegalStateException("Setting '" + key.path() + "' no longer exists in " + bundle.getClass().getName() + "!");
+        }
+        return slot;
+    }
+
+    private static @NotNull Object unboxLong(@NotNull Class<?> type, long value) {
+        if (type == Integer.class) return (int) value;
+        if (type == Short.class) return (short) value;
+        if (type == Byte.class) return (byte) value;
+        if (type == Character.class) return (char) value;
+        return value;
+    }
+
+    private static @NotNull Class<?> wrap(@NotNull Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == char.class) return Character.class;
+        return type;
+    }
+
+    /**
+     * Walks the bound values the same way {@link SettingsBundleManager#saveValues} does and assigns slots.
+     */
+    private static class Builder {
+        private final Map<String, Slot> slots = new LinkedHashMap<>();
+        private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final LongList longs = new LongList();
+        private final DoubleList doubles = new DoubleList();
+        private final BooleanList booleans = new BooleanList();
+        private final List<Object> objects = new ArrayList<>();
+
+        @NotNull Layout layout() {
+            return new Layout(Map.copyOf(slots));
+        }
+
+        void fields(@NotNull Object o, @NotNull String base) {
+            if (!visited.add(o)) return;
+
+            for (Field field : o.getClass().getDeclaredFields()) {
+                if (SettingsBundleManager.isNotEligibleForConfig(field)) continue;
+
+                Object value;
+                try {
+                    field.setAccessible(true);
+                    value = field.get(o);
+                } catch (IllegalAccessException | RuntimeException e) {
+                    throw new IllegalStateException("Failed to index field: " + field.getName() + " of " + o.getClass().getName(), e);
+                }
+                value(SettingsBundleManager.getYAMLPath(field, base), field.getType(), value);
+            }
+        }
+
+        void value(@NotNull String path, @NotNull Class<?> declared, @Nullable Object value) {
+            if (value == null) {
+                object(path, wrap(declared), null);
+                return;
+            }
+
+            switch (value) {
+                case Integer i -> longs.add(slot(path, Kind.LONG, Integer.class, longs.size), i);
+                case Long l -> longs.add(slot(path, Kind.LONG, Long.class, longs.size), l);
+                case Short s -> longs.add(slot(path, Kind.LONG, Short.class, longs.size), s);
+                case Byte b -> longs.add(slot(path, Kind.LONG, Byte.class, longs.size), b);
+                case Character c -> longs.add(slot(path, Kind.LONG, Character.class, longs.size), c);
+                case Double d -> doubles.add(slot(path, Kind.DOUBLE, Double.class, doubles.size), d);
+                case Float f -> doubles.add(slot(path, Kind.DOUBLE, Float.class, doubles.size), f);
+                case Boolean b -> booleans.add(slot(path, Kind.BOOLEAN, Boolean.class, booleans.size), b);
+                case List<?> list -> {
+                    object(path, value.getClass(), value);
+                    for (int i = 0; i < list.size(); i++) {
+                        Object element = list.get(i);
+                        value(path + "." + i, element == null ? Object.class : element.getClass(), element);
+                    }
+                }
+                case Map<?, ?> map -> {
+                    object(path, value.getClass(), value);
+                    for (Map.Entry<?, ?> entry : map.entrySet()) {
+                        Object element = entry.getValue();
+                        value(path + "." + entry.getKey(), element == null ? Object.class : element.getClass(), element);
+                    }
+                }
+                default -> {
+                    object(path, value.getClass(), value);
+                    if (TypeUtils.isArrayOfPrimitives(value)) {
+                        for (int i = 0; i < Array.getLength(value); i++) {
+                            value(path + "." + i, value.getClass().getComponentType(), Array.get(value, i));
+                        }
+                    } else if (ConstructorPlan.of(value.getClass()) instanceof ConstructorPlan plan) {
+                        components(plan, value, path);
+                    } else if (isStructured(value)) {
+                        fields(value, path);
+                    }
+                }
+            }
+        }
+
+        void components(@NotNull ConstructorPlan plan, @NotNull Object o, @NotNull String base) {
+            for (ConstructorPlan.Component component : plan.components()) {
+                Object value;
+                try {
+                    value = component.read(o);
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    throw new IllegalStateException("Failed to index component: " + component.name() + " of " + o.getClass().getName(), e);
+                }
+                value(base + "." + component.key(), component.rawType(), value);
+            }
+        }
+
+        private static boolean isStructured(@NotNull Object value) {
+            Class<?> type = value.getClass();
+            return TypeUtils.isCustomObject(value)
+                    && !type.isArray()
+                    && !type.isEnum()
+                    && !(value instanceof Map<?, ?>)
+                    && !(value instanceof Collection<?>)
+                    && !(value instanceof YAMLSerializable)
+                    && !SerializerRegistry.hasSerializer(type)
+                    && !type.getName().startsWith("java.");
+        }
+
+        private int slot(@NotNull String path, @NotNull Kind kind, @NotNull Class<?> type, int index) {
+            slots.put(path, new Slot(kind, index, type));
+            return index;
+        }
+
+        private void object(@NotNull String path, @NotNull Class<?> type, @Nullable Object value) {
+            slots.put(path, new Slot(Kind.OBJECT, objects.size(), type));
+            objects.add(value);
+        }
+    }
+
+    private static class LongList {
+        long[] values = new long[16];
+        int size;
+
+        void add(int index, long value) {
+            if (index == values.length) values = Arrays.copyOf(values, index * 2);
+            values[index] = value;
+            size = index + 1;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class DoubleList {
+        double[] values = new double[16];
+        int size;
+
+        void add(int index, double value) {
+            if (index == values.length) values = Arrays.copyOf(values, index * 2);
+            values[index] = value;
+            size = index + 1;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class BooleanList {
+        boolean[] values = new boolean[16];
+        int size;
+
+        void add(int index, boolean value) {
+            if (index == values.length) values = Arrays.copyOf(values, index * 2);
+            values[index] = value;
+            size = index + 1;
+        }
+
+        boolean[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
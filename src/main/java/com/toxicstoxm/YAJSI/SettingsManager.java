@@ -1,6 +1,14 @@
 package com.toxicstoxm.YAJSI;
 
 import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.discovery.DiscoveredTypes;
+import com.toxicstoxm.YAJSI.discovery.Discovery;
+import com.toxicstoxm.YAJSI.metrics.Counter;
+import com.toxicstoxm.YAJSI.metrics.Instrumentation;
+import com.toxicstoxm.YAJSI.metrics.Metrics;
+import com.toxicstoxm.YAJSI.metrics.Phase;
+import com.toxicstoxm.YAJSI.serializing.SerializerRegistry;
+import com.toxicstoxm.YAJSI.upgrading.UpgradeCache;
 import com.toxicstoxm.YAJSI.upgrading.UpgradeCallback;
 import com.toxicstoxm.YAJSI.upgrading.Version;
 import lombok.AccessLevel;
@@ -9,9 +17,13 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.function.Supplier;
 
@@ -31,6 +43,14 @@ public class SettingsManager {
         return getInstance().settings.toBuilder().done();
     }
 
+    /**
+     * Shortcut for the configured {@link Instrumentation}, without copying the settings.
+     */
+    public static @NotNull Instrumentation getInstrumentation() {
+        Instrumentation instrumentation = getInstance().settings.getInstrumentation();
+        return instrumentation == null ? Instrumentation.NOOP : instrumentation;
+    }
+
     @Contract(" -> new")
     public static @NotNull SettingsManagerBlueprint configure() {
         if (instance != null) {
@@ -57,6 +77,22 @@ public class SettingsManager {
             autoUpgrade(existingConfig.isAutoUpgrade());
             autoUpgradeBehaviour(existingConfig.getAutoUpgradeBehaviour());
             unusedWarning(existingConfig.getUnusedWarning());
+            upgradeCacheDirectory(existingConfig.getUpgradeCacheDirectory());
+            includeKey(existingConfig.getIncludeKey());
+            incrementalSave(existingConfig.isIncrementalSave());
+            lowMemory(existingConfig.isLowMemory());
+            retainReadOnlyTrees(existingConfig.isRetainReadOnlyTrees());
+            streamingSave(existingConfig.isStreamingSave());
+            streamingBind(existingConfig.isStreamingBind());
+            parallelListThreshold(existingConfig.getParallelListThreshold());
+            maxCachedBundles(existingConfig.getMaxCachedBundles());
+            maxCachedBytes(existingConfig.getMaxCachedBytes());
+            bundleIdleTimeout(existingConfig.getBundleIdleTimeout());
+            evictionPolicy(existingConfig.getEvictionPolicy());
+            autoDiscovery(existingConfig.isAutoDiscovery());
+            discoveryPackages(existingConfig.getDiscoveryPackages());
+            discoveryIndexOnly(existingConfig.isDiscoveryIndexOnly());
+            instrumentation(existingConfig.getInstrumentation());
         }
 
         @Override
@@ -68,6 +104,9 @@ public class SettingsManager {
                 instance.setSettings(conf);
             }
             DEFAULT_SUPPLIERS = defaultSuppliers;
+            if (conf.isAutoDiscovery()) {
+                instance.discover(Thread.currentThread().getContextClassLoader(), conf.getDiscoveryPackages().toArray(String[]::new));
+            }
             return conf;
         }
 
@@ -86,6 +125,8 @@ public class SettingsManager {
     private SettingsManagerConfig settings;
 
     private final HashMap<String, SettingsBundleManager> registeredBundles = new HashMap<>();
+    private final Includes includes = new Includes();
+    private final BundleCache cache = new BundleCache(this);
 
     private SettingsManager(SettingsManagerConfig settings) {
         this.settings = settings;
@@ -103,14 +144,91 @@ public class SettingsManager {
         getBundleManager(bundle).registerUpgradeCallbacks(o);
     }
 
+    /**
+     * Discovers bundles, upgrader bundles and externally serialized types and registers them ahead of the first config registration.
+     * Uses the build time index for the packages it covers, the others are scanned on the classpath, see {@link SettingsManagerConfig#isDiscoveryIndexOnly()}.
+     * @param loader the class loader to search
+     * @param packages the packages to limit discovery to, all packages if none are specified
+     * @return the discovered types
+     */
+    public @NotNull DiscoveredTypes discover(@NotNull ClassLoader loader, @NotNull String... packages) {
+        DiscoveredTypes types = Discovery.discover(loader, settings.isDiscoveryIndexOnly(), packages);
+
+        for (Class<? extends SettingsBundle> bundle : types.bundles()) {
+            getBundleManager(bundle);
+        }
+        for (Class<? extends SettingsBundle> bundle : types.upgraderBundles()) {
+            getBundleManager(bundle).registerUpgraderBundle(bundle);
+        }
+        for (Class<?> type : types.serializables()) {
+            SerializerRegistry.resolve(type);
+        }
+
+        return types;
+    }
+
     public UUID registerConfig(@NotNull SettingsBundle config) throws IllegalStateException, UnsupportedOperationException {
-        getBundleManager(config.getClass()).registerConfig(config, getFile(config));
+        if (config.isSourceUnwritable() && settings.getUpgradeCacheDirectory() != null) {
+            registerCachedStream(config, new UpgradeCache(settings.getUpgradeCacheDirectory()));
+        } else {
+            byte[] source = readSource(config);
+            SettingsBundleManager manager = getBundleManager(config.getClass());
+            if (!isStreamBindable(config, source) || !manager.bind(config, source)) {
+                YamlConfiguration yaml = parse(config, source);
+                manager.registerConfig(config, yaml, getLayers(config, yaml));
+            }
+        }
         return config.getId();
     }
 
+    /**
+     * Reads the file of a registered bundle again and binds it to the existing instance, updating nested objects, lists, maps
+     * and arrays in place where possible.
+     * @param config the registered bundle
+     * @throws IllegalStateException if the bundle is not registered
+     * @throws UnsupportedOperationException if the bundle is read from a stream
+     */
+    public void reload(@NotNull SettingsBundle config) throws IllegalStateException, UnsupportedOperationException {
+        if (config.isSourceUnwritable()) {
+            throw new UnsupportedOperationException("Bundle " + config.getClass().getName() + " is read from a stream and cannot be reloaded!");
+        }
+        YamlConfiguration yaml = getFile(config);
+        getBundleManager(config.getClass()).reload(config, yaml, getLayers(config, yaml));
+    }
+
+    private void registerCachedStream(@NotNull SettingsBundle config, @NotNull UpgradeCache cache) {
+        byte[] source = readStream(config);
+
+        String key = cache.key(source, config.getClass(), config.getVersion());
+        SettingsBundleManager manager = getBundleManager(config.getClass());
+
+        YamlConfiguration cached = cache.load(key);
+        if (cached != null) {
+            manager.registerConfig(config, cached, getLayers(config, cached));
+            return;
+        }
+
+        YamlConfiguration yaml = parse(config, source);
+        String sourceVersion = yaml.getString(settings.getVersionKey());
+        manager.registerConfig(config, yaml, getLayers(config, yaml));
+
+        // Only trees that actually went through an upgrade are worth caching
+        if (sourceVersion != null && !sourceVersion.equals(config.getVersion().toString())) {
+            cache.store(key, manager.retained(config));
+        }
+    }
+
+    private boolean isStreamBindable(@NotNull SettingsBundle config, @NotNull byte[] source) {
+        return settings.isStreamingBind() && config.isReadonly() && config.getLayers().isEmpty() && source.length > 0;
+    }
+
     private @NotNull YamlConfiguration getFile(@NotNull SettingsBundle config) {
+        return parse(config, readSource(config));
+    }
+
+    private @NotNull byte[] readSource(@NotNull SettingsBundle config) {
         if (config.isSourceUnwritable()) {
-            return YamlConfiguration.loadConfiguration(new InputStreamReader(config.getConfigStream()));
+            return readStream(config);
         }
 
         File configFile = config.getFile();
@@ -121,27 +239,124 @@ public class SettingsManager {
             throw new RuntimeException("Failed to create parent directory for configuration file: " + configFile);
         }
 
-        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(configFile);
+        // A missing file is created by the first write after binding
+        return configFile.exists() ? readFile(config, configFile) : new byte[0];
+    }
 
-        if (!configFile.exists()) {
-            try {
-                yaml.save(configFile);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to create configuration file: " + configFile, e);
+    /**
+     * Parses the layers of the specified bundle and the fragments included by the bundle and its layers, missing layer files are skipped.
+     * @param config the bundle
+     * @param yaml the own source of the bundle
+     * @return the layers, highest priority first
+     */
+    private @NotNull List<SettingsBundleManager.Layer> getLayers(@NotNull SettingsBundle config, @NotNull YamlConfiguration yaml) {
+        List<SettingsBundleManager.Layer> included = includes.resolve(config, yaml, config.getFile() == null ? null : config.getFile().toPath());
+        if (config.getLayers().isEmpty()) return included;
+
+        List<SettingsBundleManager.Layer> layers = new ArrayList<>(included);
+        for (ConfigLayer layer : config.getLayers()) {
+            byte[] source;
+            if (layer.stream() != null) {
+                source = config.getLayerSource(layer);
+                if (source == null) {
+                    source = readStream(config, layer.stream());
+                    config.setLayerSource(layer, source);
+                }
+            } else if (layer.file() != null && layer.file().exists()) {
+                source = readFile(config, layer.file());
+            } else {
+                continue;
             }
+            YamlConfiguration tree = parse(config, source);
+            layers.add(new SettingsBundleManager.Layer(layer.name(), tree));
+            layers.addAll(includes.resolve(config, tree, layer.file() == null ? null : layer.file().toPath()));
+        }
+        return layers;
+    }
+
+    static @NotNull byte[] readFile(@NotNull SettingsBundle config, @NotNull File file) {
+        long start = Metrics.start();
+        byte[] source;
+        try {
+            source = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read configuration file: " + file, e);
+        }
+        Metrics.stop(Phase.FILE_READ, config, start);
+        Metrics.count(Counter.BYTES_READ, config, source.length);
+        return source;
+    }
+
+    private static @NotNull byte[] readStream(@NotNull SettingsBundle config) {
+        return readStream(config, config.getConfigStream());
+    }
+
+    private static @NotNull byte[] readStream(@NotNull SettingsBundle config, @NotNull InputStream stream) {
+        long start = Metrics.start();
+        byte[] source;
+        try (InputStream is = stream) {
+            source = is.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read configuration stream of: " + config.getClass().getName(), e);
         }
+        Metrics.stop(Phase.FILE_READ, config, start);
+        Metrics.count(Counter.BYTES_READ, config, source.length);
+        return source;
+    }
 
+    static @NotNull YamlConfiguration parse(@NotNull SettingsBundle config, @NotNull byte[] source) {
+        long start = Metrics.start();
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(new InputStreamReader(new ByteArrayInputStream(source), StandardCharsets.UTF_8));
+        Metrics.stop(Phase.PARSE, config, start);
         return yaml;
     }
 
-    private SettingsBundleManager getBundleManager(@NotNull Class<? extends SettingsBundle> bundle) {
+    SettingsBundleManager getBundleManager(@NotNull Class<? extends SettingsBundle> bundle) {
         if (!registeredBundles.containsKey(bundle.getTypeName())) {
             registeredBundles.put(bundle.getTypeName(), new SettingsBundleManager());
         }
         return registeredBundles.get(bundle.getTypeName());
     }
 
+    /**
+     * Returns the compiled key index of a registered bundle, for O(1) reads through precompiled {@link SettingKey} handles.
+     * @param bundle the registered bundle
+     * @return the index
+     * @throws IllegalStateException if the bundle is not registered
+     */
+    public @NotNull SettingsIndex index(@NotNull SettingsBundle bundle) throws IllegalStateException {
+        if (!registeredBundles.containsKey(bundle.getClass().getTypeName())) {
+            throw new IllegalStateException("Bundle " + bundle.getClass().getName() + " is not registered!");
+        }
+        return registeredBundles.get(bundle.getClass().getTypeName()).index(bundle);
+    }
+
+    /**
+     * Returns the fingerprint of a registered bundle as of its last save or registration. Bundles with equal
+     * {@link Fingerprint#getHash() root hashes} hold the same values, also across processes.
+     * @param bundle the registered bundle
+     * @return the fingerprint
+     * @throws IllegalStateException if the bundle is not registered
+     */
+    public @NotNull Fingerprint fingerprint(@NotNull SettingsBundle bundle) throws IllegalStateException {
+        if (!registeredBundles.containsKey(bundle.getClass().getTypeName())) {
+            throw new IllegalStateException("Bundle " + bundle.getClass().getName() + " is not registered!");
+        }
+        return registeredBundles.get(bundle.getClass().getTypeName()).fingerprint(bundle);
+    }
+
+    /**
+     * Compares the fingerprints of two registered bundles, see {@link Fingerprint#diff(Fingerprint, Fingerprint)}.
+     * @return the dotted paths that differ, empty if the bundles hold the same values
+     * @throws IllegalStateException if one of the bundles is not registered
+     */
+    public @NotNull List<String> diff(@NotNull SettingsBundle a, @NotNull SettingsBundle b) throws IllegalStateException {
+        return Fingerprint.diff(fingerprint(a), fingerprint(b));
+    }
+
     public <T> @Nullable T getSettingsBundleInstance(@NotNull Class<T> bundle, UUID id) {
+        SettingsBundle cached = cache.get(id, settings);
+        if (cached != null) return bundle.cast(cached);
         return bundle.cast(registeredBundles.get(bundle.getTypeName()).getSettingsBundleInstance(id));
     }
 
@@ -158,4 +373,35 @@ public class SettingsManager {
         if (!registeredBundles.containsKey(bundle.getTypeName())) return false;
         return registeredBundles.get(bundle.getTypeName()).save(id);
     }
+
+    /**
+     * Registers a bundle created by the factory in the bundle cache. The bundle has to be accessed through
+     * {@link #getSettingsBundleInstance(Class, UUID)}, references to it must not be kept, since it may be unloaded in between.
+     * @param factory creates the bundle, called again with every reload after the bundle was unloaded
+     * @return the id of the bundle, stays the same across reloads
+     */
+    public @NotNull UUID registerCached(@NotNull Supplier<? extends SettingsBundle> factory) throws IllegalStateException, UnsupportedOperationException {
+        return cache.add(factory, settings);
+    }
+
+    /**
+     * Unloads all cached bundles idle for longer than the configured timeout.
+     * @return the number of unloaded bundles
+     */
+    public int evictIdle() {
+        return cache.evictIdle(settings);
+    }
+
+    public @NotNull BundleCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Saves and unregisters a bundle evicted from the bundle cache. Bundles whose values were not changed are not written.
+     */
+    void unload(@NotNull SettingsBundle bundle) {
+        SettingsBundleManager manager = getBundleManager(bundle.getClass());
+        manager.saveIfChanged(bundle);
+        manager.unregister(bundle);
+    }
 }
@@ -1,5 +1,6 @@
 package com.toxicstoxm.YAJSI;
 
+import com.toxicstoxm.YAJSI.metrics.Instrumentation;
 import com.toxicstoxm.YAJSI.upgrading.AutoUpgradingBehaviour;
 import lombok.Builder;
 import lombok.Getter;
@@ -8,6 +9,8 @@ import lombok.Singular;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
+import java.time.Duration;
 import java.util.*;
 import java.util.function.Supplier;
 
@@ -40,4 +43,95 @@ public class SettingsManagerConfig {
 
     @Builder.Default
     private String unusedWarning = "Deprecated. No longer used";
+
+    @Builder.Default
+    private File upgradeCacheDirectory = null;
+
+    /**
+     * Root key of the include directive, {@code null} disables includes.
+     */
+    @Builder.Default
+    private String includeKey = "$include";
+
+    /**
+     * Overwrites changed scalar values in the saved file in place instead of rewriting it, if nothing else changed and the new values have the same length.
+     */
+    @Builder.Default
+    private boolean incrementalSave = false;
+
+    /**
+     * Retains the trees of registered bundles in a compact form, sharing paths and comments between bundles of the same class.
+     * Saves expand the tree first and are never incremental.
+     */
+    @Builder.Default
+    private boolean lowMemory = false;
+
+    /**
+     * If disabled, the trees of read-only bundles are dropped after registration and rebuilt from the bound values when needed.
+     */
+    @Builder.Default
+    private boolean retainReadOnlyTrees = true;
+
+    /**
+     * Saves bundles by rendering their fields straight to the file instead of updating and rendering their tree.
+     * Unused keys and comments not declared through {@link YAMLSetting} are dropped on the first save.
+     * Bundles with layers or overwritten values are always saved through their tree.
+     */
+    @Builder.Default
+    private boolean streamingSave = false;
+
+    /**
+     * Binds the files of read-only bundles while parsing them, assigning values to the fields as they are read instead of
+     * building a tree first. The tree is rebuilt from the bound values when needed, as if {@link #retainReadOnlyTrees} was disabled.
+     * Files of another version, bundles with layers or includes and YAML features beyond plain block mappings and sequences
+     * are bound through the tree.
+     */
+    @Builder.Default
+    private boolean streamingBind = false;
+
+    /**
+     * Object lists with at least this many elements are bound and saved in parallel chunks in the common
+     * {@link java.util.concurrent.ForkJoinPool}, {@code 0} processes all lists on the calling thread. Element types must
+     * not share mutable state, see {@link YAMLSetting.Parallel} for single fields. Lists are still processed on one
+     * thread by streaming saves and binds.
+     */
+    @Builder.Default
+    private int parallelListThreshold = 0;
+
+    /**
+     * Maximum number of loaded bundles registered through {@link SettingsManager#registerCached}, {@code 0} for no limit.
+     */
+    @Builder.Default
+    private int maxCachedBundles = 0;
+
+    /**
+     * Maximum summed file size of the loaded cached bundles, {@code 0} for no limit.
+     */
+    @Builder.Default
+    private long maxCachedBytes = 0;
+
+    /**
+     * Cached bundles not accessed for this long are unloaded, {@code null} to keep idle bundles loaded.
+     */
+    @Builder.Default
+    private Duration bundleIdleTimeout = null;
+
+    @Builder.Default
+    private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+
+    @Builder.Default
+    private boolean autoDiscovery = false;
+
+    @Builder.Default
+    private List<String> discoveryPackages = new ArrayList<>();
+
+    /**
+     * Trusts the discovery index for all packages if one exists. Otherwise, requested packages the index does not list,
+     * or all packages if none are requested, are scanned on the classpath.
+     */
+    @Builder.Default
+    private boolean discoveryIndexOnly = false;
+
+    @Builder.Default
+    private Instrumentation instrumentation = Instrumentation.NOOP;
 }
@@ -6,7 +6,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 @Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.FIELD)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
 public @interface YAMLSetting {
     String name() default "";
     String env() default "";
@@ -15,4 +15,31 @@ public @interface YAMLSetting {
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.FIELD)
     @interface Ignore {}
+
+    /**
+     * Binds a map field to an unmodifiable map. The field must be declared as {@link java.util.Map} or {@link java.util.SortedMap}.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.FIELD)
+    @interface Immutable {}
+
+    /**
+     * Marks the constructor used to create instances of an immutable setting type. Every parameter is bound to the
+     * field of the same name, which is also used to read the value back when saving. Records use their canonical constructor
+     * and do not need this annotation.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.CONSTRUCTOR)
+    @interface Constructor {}
+
+    /**
+     * Overrides {@link SettingsManagerConfig#getParallelListThreshold()} for an object list field. The elements are bound
+     * and saved in parallel once the list holds at least {@code threshold} elements, {@code 0} always processes them on
+     * the calling thread.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.FIELD)
+    @interface Parallel {
+        int threshold() default 1;
+    }
 }
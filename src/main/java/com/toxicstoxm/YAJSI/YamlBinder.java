@@ -0,0 +1,249 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import com.toxicstoxm.YAJSI.YamlReader.Event;
+import com.toxicstoxm.YAJSI.YamlReader.UnsupportedYamlException;
+import com.toxicstoxm.YAJSI.codecs.Codecs;
+import com.toxicstoxm.YAJSI.codecs.ScalarCodec;
+import com.toxicstoxm.YAJSI.metrics.Counter;
+import com.toxicstoxm.YAJSI.metrics.Metrics;
+import com.toxicstoxm.YAJSI.metrics.Phase;
+import com.toxicstoxm.YAJSI.serializing.SerializerRegistry;
+import com.toxicstoxm.YAJSI.serializing.YAMLSerializable;
+import com.toxicstoxm.YAJSI.utils.EnvUtils;
+import com.toxicstoxm.YAJSI.utils.TypeUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import static com.toxicstoxm.YAJSI.utils.TypeUtils.DEFAULT_SUPPLIERS;
+
+/**
+ * Binds a source to a bundle while it is parsed by a {@link YamlReader}, without building a tree. Scalars, lists, arrays,
+ * nested objects and lists of them are assigned as they are read. Any other value, e.g. a map or a record, is read into
+ * a tree holding only that value and bound through {@link SettingsBundleManager#loadField}, as are the fields missing
+ * in the source, so defaults and overwriters are applied the same way.
+ */
+final class YamlBinder {
+    private record Fields(@NotNull Field[] fields, @NotNull Map<String, Integer> keys, boolean ambiguous) {}
+
+    // Eligible fields per class and their index by YAML key
+    private static final ClassValue<Fields> FIELDS = new ClassValue<>() {
+        @Override
+        protected Fields computeValue(@NotNull Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            Map<String, Integer> keys = new HashMap<>();
+            boolean ambiguous = false;
+            for (Field field : type.getDeclaredFields()) {
+                if (SettingsBundleManager.isNotEligibleForConfig(field)) continue;
+                ambiguous |= keys.put(SettingsBundleManager.getYAMLPath(field, ""), fields.size()) != null;
+                fields.add(field);
+            }
+            return new Fields(fields.toArray(Field[]::new), keys, ambiguous);
+        }
+    };
+
+    private final SettingsBundleManager manager;
+    private final YamlReader reader;
+    private final boolean checkEnv;
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Holds the single value bound through the tree at a time
+    private final YamlConfiguration scratch = new YamlConfiguration();
+    private final List<String> keys = new ArrayList<>();
+    private final List<Object> processedObjects = new ArrayList<>();
+    private SettingsBundle root;
+    private @Nullable String includeKey;
+    private int unusedKeys;
+
+    YamlBinder(@NotNull SettingsBundleManager manager, @NotNull YamlReader reader) {
+        this.manager = manager;
+        this.reader = reader;
+        this.checkEnv = SettingsManager.getSettings().isEnableOverwriters();
+    }
+
+    int getUnusedKeyCount() {
+        return unusedKeys;
+    }
+
+    /**
+     * @param versionKey the root key of the version, checked by the caller
+     * @param includeKey the root key of includes, bundles including fragments are only bound through the tree
+     */
+    void bundle(@NotNull SettingsBundle bundle, @NotNull String versionKey, @Nullable String includeKey)
+            throws ReflectiveOperationException, IllegalStateException, UnsupportedYamlException {
+        root = bundle;
+        this.includeKey = includeKey;
+        processedObjects.add(bundle);
+        if (reader.next() != Event.MAPPING_START) throw new UnsupportedYamlException("The root is not a mapping");
+        object(bundle, versionKey);
+        if (reader.next() != Event.DOCUMENT_END) throw new UnsupportedYamlException("Expected the end of the document");
+    }
+
+    /**
+     * Binds the mapping the reader just started to the fields of the object, up to and including the end of the mapping.
+     * @param versionKey the version key if the object is the bundle itself
+     */
+    private void object(@NotNull Object target, @Nullable String versionKey) throws ReflectiveOperationException, UnsupportedYamlException {
+        visited.add(target);
+        Fields fields = FIELDS.get(target.getClass());
+        if (fields.ambiguous) throw new UnsupportedYamlException("Fields sharing a key in " + target.getClass().getName());
+
+        BitSet bound = new BitSet(fields.fields.length);
+        while (true) {
+            int before = reader.getKeyCount();
+            if (reader.next() == Event.END) break;
+
+            String key = (String) reader.value();
+            Integer index = fields.keys.get(key);
+            if (index == null) {
+                if (target == root && key.equals(includeKey)) throw new UnsupportedYamlException("Includes");
+                reader.skip();
+                if (!key.equals(versionKey)) unusedKeys += reader.getKeyCount() - before;
+                continue;
+            }
+            Field field = fields.fields[index];
+            field.setAccessible(true);
+            bound.set(index);
+            if (!bind(target, field)) {
+                Object value = reader.capture();
+                if (value instanceof Map<?, ?> map) {
+                    scratch.createSection(key, map);
+                } else {
+                    scratch.set(key, value);
+                }
+                loadField(target, field, key);
+            }
+        }
+
+        // Defaults of missing values are bound the way the tree binds them, including overwriters
+        for (int i = bound.nextClearBit(0); i < fields.fields.length; i = bound.nextClearBit(i + 1)) {
+            loadField(target, fields.fields[i], SettingsBundleManager.getYAMLPath(fields.fields[i], ""));
+        }
+    }
+
+    private void loadField(@NotNull Object target, @NotNull Field field, @NotNull String key) {
+        manager.loadField(keys, processedObjects, target, field, scratch, "", List.of());
+        scratch.set(key, null);
+        keys.clear();
+    }
+
+    /**
+     * Binds the next value to the field if it can be assigned while reading it.
+     * @return {@code false} if the value was not read and has to be bound through the tree
+     */
+    private boolean bind(@NotNull Object target, @NotNull Field field) throws ReflectiveOperationException, UnsupportedYamlException {
+        Event next = reader.peek();
+
+        ScalarCodec<Object> codec = Codecs.get(field.getType());
+        if (codec != null) {
+            if (next != Event.SCALAR) return false;
+            reader.next();
+            Object raw = reader.value();
+            Object value = raw == null ? field.get(target) : codec.parse(raw.toString());
+            if (checkEnv) value = overwrite(field, value, EnvUtils::checkForEnvPrimitive);
+            field.set(target, value);
+            return true;
+        }
+
+        if (ConstructorPlan.of(field.getType()) != null) return false;
+
+        Object fieldValue = manager.getFieldValue(target, field);
+        if (fieldValue instanceof YAMLSerializable || SerializerRegistry.resolve(field.getType()) != null || fieldValue instanceof Map<?, ?>) {
+            return false;
+        }
+
+        if (TypeUtils.isListOfPrimitives(field, fieldValue)) {
+            if (next != Event.SEQUENCE_START) return false;
+            List<Object> value = new ArrayList<>();
+            scalars(value);
+            if (!TypeUtils.isListOfType(field, value)) throw new UnsupportedYamlException("Type mismatch in " + field.getName());
+            List<?> list = value;
+            if (checkEnv) list = (List<?>) overwrite(field, value, (f, v) -> EnvUtils.checkForEnvPrimitiveList(f, (List<?>) v));
+            field.set(target, list);
+            return true;
+        }
+
+        if (fieldValue instanceof List<?>) {
+            if (next != Event.SEQUENCE_START || !(field.getGenericType() instanceof ParameterizedType pt)
+                    || !(pt.getActualTypeArguments()[0] instanceof Class<?> type)
+                    || type.equals(ConfigurationSection.class) || ConstructorPlan.of(type) != null) {
+                return false;
+            }
+            Supplier<?> supplier = DEFAULT_SUPPLIERS.get(field.getType());
+            if (supplier == null) return false;
+
+            @SuppressWarnings("unchecked")
+            List<Object> value = (List<Object>) supplier.get();
+            reader.next();
+            for (Event event = reader.next(); event != Event.END; event = reader.next()) {
+                if (event != Event.MAPPING_START) throw new UnsupportedYamlException("Expected a mapping in " + field.getName());
+                Object element = manager.getFieldValue(type);
+                object(element, null);
+                value.add(element);
+            }
+            if (!TypeUtils.isListOfType(field, value)) throw new UnsupportedYamlException("Type mismatch in " + field.getName());
+            field.set(target, value);
+            return true;
+        }
+
+        if (TypeUtils.isArrayOfPrimitives(fieldValue)) {
+            if (next != Event.SEQUENCE_START) return false;
+            List<Object> values = new ArrayList<>();
+            scalars(values);
+            Object value = Array.newInstance(fieldValue.getClass().getComponentType(), values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(value, i, values.get(i));
+            }
+            if (checkEnv) value = overwrite(field, value, EnvUtils::checkForEnvPrimitiveArray);
+            field.set(target, value);
+            return true;
+        }
+
+        if (TypeUtils.isCustomObject(fieldValue)) {
+            if (next != Event.MAPPING_START) return false;
+            // Objects referenced twice are only bound the first time, like through the tree
+            if (visited.contains(fieldValue)) {
+                reader.skip();
+            } else {
+                reader.next();
+                object(fieldValue, null);
+            }
+            return true;
+        }
+
+        if (next != Event.SCALAR) return false;
+        reader.next();
+        Object raw = reader.value();
+        Object value = raw == null ? fieldValue : manager.getValue(field.getType(), raw);
+        if (checkEnv) value = overwrite(field, value, EnvUtils::checkForEnvPrimitive);
+        field.set(target, value);
+        return true;
+    }
+
+    /**
+     * Reads a sequence of scalars, anything nested in it is unsupported.
+     */
+    private void scalars(@NotNull List<Object> values) throws UnsupportedYamlException {
+        reader.next();
+        for (Event event = reader.next(); event != Event.END; event = reader.next()) {
+            if (event != Event.SCALAR) throw new UnsupportedYamlException("Expected a scalar");
+            values.add(reader.value());
+        }
+    }
+
+    private @Nullable Object overwrite(@NotNull Field field, @Nullable Object value, @NotNull BiFunction<Field, Object, Object> lookup) {
+        long start = Metrics.start();
+        Object overwritten = lookup.apply(field, value);
+        Metrics.stop(Phase.OVERWRITER_LOOKUP, root, start);
+        if (Objects.equals(overwritten, value)) return value;
+
+        root.setEnvSubstituted(field.getName());
+        Metrics.count(Counter.OVERWRITER_HITS, root, 1);
+        return overwritten;
+    }
+}
@@ -0,0 +1,510 @@
+package com.toxicstoxm.YAJSI;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Pull parser for the block style YAML written by this library and by StormYAML: block mappings and sequences, single line
+ * plain and quoted scalars and single line flow sequences of scalars. Plain scalars are resolved to the types the parsed
+ * tree would hold, scalars the YAML 1.1 and 1.2 schemas resolve differently (e.g. {@code yes} or {@code 012}) are reported
+ * as unsupported instead of guessing the schema.
+ */
+final class YamlReader {
+    enum Event {
+        MAPPING_START,
+        KEY,
+        SEQUENCE_START,
+        SCALAR,
+        // Ends the innermost mapping or sequence
+        END,
+        DOCUMENT_END
+    }
+
+    /**
+     * Thrown for input outside the supported subset, e.g. anchors, block scalars or multi line flow collections.
+     * Everything read so far is still valid, the caller falls back to parsing the whole source into a tree.
+     */
+    static final class UnsupportedYamlException extends RuntimeException {
+        UnsupportedYamlException(@NotNull String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private record Block(boolean sequence, int indent) {}
+
+    // Counted keys are the ones the parsed tree lists in getKeys(true), keys of mappings nested in sequences are not
+    private record Token(@NotNull Event event, @Nullable Object value, boolean counted) {}
+
+    private static final Set<String> NULLS = Set.of("", "~", "null", "Null", "NULL");
+    private static final Set<String> TRUES = Set.of("true", "True", "TRUE");
+    private static final Set<String> FALSES = Set.of("false", "False", "FALSE");
+    private static final Pattern INT = Pattern.compile("[-+]?(?:0|[1-9][0-9]*)");
+    private static final Pattern FLOAT = Pattern.compile("[-+]?(?:[0-9]+\\.[0-9]*|\\.[0-9]+)");
+    private static final Pattern INF = Pattern.compile("[-+]?\\.(?:inf|Inf|INF)");
+    private static final Pattern NAN = Pattern.compile("\\.(?:nan|NaN|NAN)");
+    // Booleans, octals, hexadecimals, sexagesimals, underscores, exponents and timestamps of only one of the schemas
+    private static final Pattern AMBIGUOUS = Pattern.compile("(?i)y|n|yes|no|on|off|<<|="
+            + "|[-+]?0[0-9_]+|[-+]?0[xob][0-9a-f_]+|[-+]?[0-9][0-9_]*(?::[0-5]?[0-9])+(?:\\.[0-9_]*)?"
+            + "|[-+]?(?:[0-9][0-9_]*(?:\\.[0-9_]*)?|\\.[0-9_]+)(?:e[-+]?[0-9]+)?|[0-9]{4}-[0-9]{1,2}-[0-9]{1,2}.*|[-+]?\\.[a-z]+");
+
+    private final String text;
+    private final ArrayDeque<Block> blocks = new ArrayDeque<>();
+    private final ArrayDeque<Token> tokens = new ArrayDeque<>();
+    // Start of the next unread line
+    private int pos;
+    private int sequences;
+    private boolean rooted;
+    private boolean finished;
+    // A key or item marker without a value on its line, the value is the block on the following lines
+    private boolean pending;
+    private int pendingIndent;
+    private boolean pendingInSequence;
+    // End of the last quoted scalar, right after the closing quote
+    private int quoteEnd;
+    private @Nullable Token current;
+    private @Nullable Token peeked;
+    private int keyCount;
+
+    YamlReader(@NotNull String text) {
+        this.text = text;
+        this.pos = text.startsWith("\uFEFF") ? 1 : 0;
+    }
+
+    /**
+     * @return the number of counted keys read so far
+     */
+    int getKeyCount() {
+        return keyCount;
+    }
+
+    @NotNull Event next() throws UnsupportedYamlException {
+        Token token = peeked != null ? peeked : poll();
+        peeked = null;
+        current = token;
+        if (token.counted) keyCount++;
+        return token.event;
+    }
+
+    @NotNull Event peek() throws UnsupportedYamlException {
+        if (peeked == null) peeked = poll();
+        return peeked.event;
+    }
+
+    /**
+     * @return the key of the current {@link Event#KEY} or the resolved value of the current {@link Event#SCALAR}
+     */
+    @Nullable Object value() {
+        return current == null ? null : current.value;
+    }
+
+    /**
+     * Skips the next node, including everything nested in it.
+     */
+    void skip() throws UnsupportedYamlException {
+        int depth = 0;
+        do {
+            switch (next()) {
+                case MAPPING_START, SEQUENCE_START -> depth++;
+                case END -> depth--;
+                case DOCUMENT_END -> throw new UnsupportedYamlException("Unexpected end of document");
+                default -> {}
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Reads the next node the way the parsed tree holds nested values, mappings as maps and sequences as lists.
+     */
+    @Nullable Object capture() throws UnsupportedYamlException {
+        return switch (next()) {
+            case SCALAR -> value();
+            case MAPPING_START -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (next() == Event.KEY) {
+                    String key = (String) value();
+                    map.put(key, capture());
+                }
+                yield map;
+            }
+            case SEQUENCE_START -> {
+                List<Object> list = new ArrayList<>();
+                while (peek() != Event.END) list.add(capture());
+                next();
+                yield list;
+            }
+            default -> throw new UnsupportedYamlException("Expected a value");
+        };
+    }
+
+    /**
+     * Looks up a scalar of the root mapping without parsing the document, e.g. the version of a file before binding it.
+     * @return the unquoted value or {@code null} if the key is missing or its value is not a scalar on the same line
+     */
+    static @Nullable String rootScalar(@NotNull String text, @NotNull String key) {
+        int start = text.startsWith("\uFEFF") ? 1 : 0;
+        while (start < text.length()) {
+            int end = lineEnd(text, start);
+            if (text.startsWith(key, start) && start + key.length() < end && text.charAt(start + key.length()) == ':') {
+                String value = text.substring(start + key.length() + 1, end).strip();
+                int comment = value.indexOf(" #");
+                if (comment >= 0) value = value.substring(0, comment).strip();
+                if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'') && value.endsWith(value.substring(0, 1))) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value.isEmpty() ? null : value;
+            }
+            start = nextLine(text, start);
+        }
+        return null;
+    }
+
+    private @NotNull Token poll() throws UnsupportedYamlException {
+        while (tokens.isEmpty()) readLine();
+        return tokens.poll();
+    }
+
+    private void emit(@NotNull Event event, @Nullable Object value) {
+        tokens.add(new Token(event, value, event == Event.KEY && sequences == 0));
+    }
+
+    private void readLine() throws UnsupportedYamlException {
+        if (finished) {
+            emit(Event.DOCUMENT_END, null);
+            return;
+        }
+        if (pos >= text.length()) {
+            if (pending) emit(Event.SCALAR, null);
+            pending = false;
+            while (!blocks.isEmpty()) close();
+            finished = true;
+            emit(Event.DOCUMENT_END, null);
+            return;
+        }
+
+        int start = pos;
+        int end = lineEnd(text, start);
+        pos = nextLine(text, start);
+
+        int content = start;
+        while (content < end && text.charAt(content) == ' ') content++;
+        if (content == end || text.charAt(content) == '#') return;
+        if (text.charAt(content) == '\t') throw new UnsupportedYamlException("Tabs in indentation");
+
+        if (content == start && (text.startsWith("---", start) || text.startsWith("...", start))
+                && (start + 3 == end || text.charAt(start + 3) == ' ')) {
+            if (rooted || text.charAt(start) == '.' || !isBlank(start + 3, end)) {
+                throw new UnsupportedYamlException("Multiple documents");
+            }
+            return;
+        }
+        if (content == start && text.charAt(start) == '%') throw new UnsupportedYamlException("Directives");
+
+        line(content - start, content, end);
+    }
+
+    private void line(int indent, int content, int end) throws UnsupportedYamlException {
+        boolean dash = isDash(content, end);
+        if (pending) {
+            pending = false;
+            if (indent > pendingIndent || !pendingInSequence && indent == pendingIndent && dash) {
+                open(dash, indent);
+            } else {
+                emit(Event.SCALAR, null);
+            }
+        }
+
+        while (!blocks.isEmpty()) {
+            Block top = blocks.peek();
+            if (top.indent <= indent && !(top.sequence && top.indent == indent && !dash)) break;
+            close();
+        }
+        if (blocks.isEmpty()) {
+            if (rooted) throw new UnsupportedYamlException("More than one root node");
+            rooted = true;
+            open(dash, indent);
+        }
+
+        Block top = blocks.peek();
+        if (top.indent != indent) throw new UnsupportedYamlException("Multi line scalars");
+        if (top.sequence) {
+            item(indent, content, end);
+        } else {
+            entry(indent, content, end);
+        }
+    }
+
+    private void open(boolean sequence, int indent) {
+        blocks.push(new Block(sequence, indent));
+        if (sequence) sequences++;
+        emit(sequence ? Event.SEQUENCE_START : Event.MAPPING_START, null);
+    }
+
+    private void close() {
+        if (blocks.pop().sequence) sequences--;
+        emit(Event.END, null);
+    }
+
+    private void item(int indent, int content, int end) throws UnsupportedYamlException {
+        int p = skipSpaces(content + 1, end);
+        if (p == end || text.charAt(p) == '#') {
+            pending = true;
+            pendingIndent = indent;
+            pendingInSequence = true;
+            return;
+        }
+        if (isDash(p, end)) throw new UnsupportedYamlException("Nested sequences on one line");
+
+        int column = indent + p - content;
+        if (keyEnd(p, end) >= 0) {
+            open(false, column);
+            entry(column, p, end);
+        } else {
+            value(p, end);
+        }
+    }
+
+    private void entry(int indent, int content, int end) throws UnsupportedYamlException {
+        int colon = keyEnd(content, end);
+        if (colon < 0) throw new UnsupportedYamlException("Expected a key");
+        emit(Event.KEY, key(content, colon));
+
+        int p = skipSpaces(colon + 1, end);
+        if (p == end || text.charAt(p) == '#') {
+            pending = true;
+            pendingIndent = indent;
+            pendingInSequence = false;
+            return;
+        }
+        value(p, end);
+    }
+
+    /**
+     * @return the position of the colon ending the key starting at {@code p}, {@code -1} if the line holds no key
+     */
+    private int keyEnd(int p, int end) throws UnsupportedYamlException {
+        char c = text.charAt(p);
+        if (c == '?' && (p + 1 == end || text.charAt(p + 1) == ' ')) throw new UnsupportedYamlException("Complex keys");
+        if (c == '[' || c == '{') return -1;
+
+        int i = p;
+        if (c == '"' || c == '\'') {
+            quoted(p, end);
+            i = quoteEnd;
+            if (i < end && text.charAt(i) == ':' && (i + 1 == end || text.charAt(i + 1) == ' ')) return i;
+            return -1;
+        }
+        for (; i < end; i++) {
+            c = text.charAt(i);
+            if (c == ':' && (i + 1 == end || text.charAt(i + 1) == ' ')) return i;
+            if (c == '#' && text.charAt(i - 1) == ' ') return -1;
+        }
+        return -1;
+    }
+
+    private @NotNull String key(int p, int colon) throws UnsupportedYamlException {
+        char c = text.charAt(p);
+        String key;
+        if (c == '"' || c == '\'') {
+            key = quoted(p, colon);
+        } else {
+            key = text.substring(p, colon).strip();
+            if (key.isEmpty() || "&*!|>%@`".indexOf(c) >= 0) throw new UnsupportedYamlException("Unsupported key: " + key);
+            // Keys are resolved like values, the tree holds their string form
+            Object resolved = resolve(key);
+            if (resolved == null || !key.equals(resolved.toString())) throw new UnsupportedYamlException("Unsupported key: " + key);
+        }
+        // Dotted keys are split into nested sections by the tree
+        if (key.indexOf('.') >= 0) throw new UnsupportedYamlException("Dotted key: " + key);
+        return key;
+    }
+
+    private void value(int p, int end) throws UnsupportedYamlException {
+        char c = text.charAt(p);
+        switch (c) {
+            case '"', '\'' -> {
+                String value = quoted(p, end);
+                if (!isBlank(quoteEnd, end)) throw new UnsupportedYamlException("Text after a quoted scalar");
+                emit(Event.SCALAR, value);
+            }
+            case '[' -> flow(p, end);
+            case '{' -> {
+                int close = skipSpaces(p + 1, end);
+                if (close == end || text.charAt(close) != '}' || !isBlank(close + 1, end)) {
+                    throw new UnsupportedYamlException("Flow mappings");
+                }
+                emit(Event.MAPPING_START, null);
+                emit(Event.END, null);
+            }
+            case '|', '>', '&', '*', '!', '%', '@', '`' -> throw new UnsupportedYamlException("Unsupported node: " + text.substring(p, end));
+            default -> {
+                if ((c == '-' || c == '?' || c == ':') && (p + 1 == end || text.charAt(p + 1) == ' ')) {
+                    throw new UnsupportedYamlException("Unsupported node: " + text.substring(p, end));
+                }
+                int i = p;
+                for (; i < end; i++) {
+                    char ch = text.charAt(i);
+                    if (ch == '#' && text.charAt(i - 1) == ' ') break;
+                    if (ch == ':' && (i + 1 == end || text.charAt(i + 1) == ' ')) throw new UnsupportedYamlException("Nested mapping on one line");
+                }
+                emit(Event.SCALAR, resolve(text.substring(p, i).strip()));
+            }
+        }
+    }
+
+    private void flow(int p, int end) throws UnsupportedYamlException {
+        emit(Event.SEQUENCE_START, null);
+        int i = skipSpaces(p + 1, end);
+        if (i < end && text.charAt(i) == ']') {
+            i++;
+        } else {
+            while (true) {
+                if (i == end) throw new UnsupportedYamlException("Multi line flow sequences");
+                char c = text.charAt(i);
+                if (c == '"' || c == '\'') {
+                    emit(Event.SCALAR, quoted(i, end));
+                    i = skipSpaces(quoteEnd, end);
+                } else {
+                    int start = i;
+                    while (i < end && text.charAt(i) != ',' && text.charAt(i) != ']') {
+                        char ch = text.charAt(i);
+                        if (ch == '[' || ch == '{' || ch == '}' || ch == '#' || ch == ':' && (i + 1 == end || text.charAt(i + 1) == ' ')) {
+                            throw new UnsupportedYamlException("Nested flow collections");
+                        }
+                        i++;
+                    }
+                    String item = text.substring(start, i).strip();
+                    if (item.isEmpty() || "&*!|>%@`".indexOf(item.charAt(0)) >= 0) throw new UnsupportedYamlException("Unsupported flow item: " + item);
+                    emit(Event.SCALAR, resolve(item));
+                }
+                if (i == end) throw new UnsupportedYamlException("Multi line flow sequences");
+                if (text.charAt(i++) == ']') break;
+                i = skipSpaces(i, end);
+            }
+        }
+        if (!isBlank(i, end)) throw new UnsupportedYamlException("Text after a flow sequence");
+        emit(Event.END, null);
+    }
+
+    /**
+     * Reads the single line quoted scalar starting at {@code p} and sets {@link #quoteEnd}.
+     */
+    private @NotNull String quoted(int p, int end) throws UnsupportedYamlException {
+        char quote = text.charAt(p);
+        StringBuilder sb = new StringBuilder();
+        int i = p + 1;
+        while (i < end) {
+            char c = text.charAt(i++);
+            if (c == quote) {
+                if (quote == '\'' && i < end && text.charAt(i) == '\'') {
+                    sb.append('\'');
+                    i++;
+                    continue;
+                }
+                quoteEnd = i;
+                return sb.toString();
+            }
+            if (c == '\\' && quote == '"') {
+                if (i == end) break;
+                i = escape(sb, i, end);
+            } else {
+                sb.append(c);
+            }
+        }
+        throw new UnsupportedYamlException("Multi line quoted scalars");
+    }
+
+    private int escape(@NotNull StringBuilder sb, int i, int end) throws UnsupportedYamlException {
+        char c = text.charAt(i++);
+        int digits = switch (c) {
+            case 'x' -> 2;
+            case 'u' -> 4;
+            case 'U' -> 8;
+            default -> 0;
+        };
+        if (digits > 0) {
+            if (i + digits > end) throw new UnsupportedYamlException("Invalid escape");
+            try {
+                sb.appendCodePoint(Integer.parseInt(text, i, i + digits, 16));
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedYamlException("Invalid escape");
+            }
+            return i + digits;
+        }
+        sb.append(switch (c) {
+            case '0' -> '\0';
+            case 'a' -> '\u0007';
+            case 'b' -> '\b';
+            case 't', '\t' -> '\t';
+            case 'n' -> '\n';
+            case 'v' -> '\u000B';
+            case 'f' -> '\f';
+            case 'r' -> '\r';
+            case 'e' -> '\u001B';
+            case ' ' -> ' ';
+            case '"' -> '"';
+            case '/' -> '/';
+            case '\\' -> '\\';
+            case 'N' -> '\u0085';
+            case '_' -> '\u00A0';
+            case 'L' -> '\u2028';
+            case 'P' -> '\u2029';
+            default -> throw new UnsupportedYamlException("Invalid escape: \\" + c);
+        });
+        return i;
+    }
+
+    /**
+     * Resolves a plain scalar to the type the parsed tree holds.
+     */
+    static @Nullable Object resolve(@NotNull String s) throws UnsupportedYamlException {
+        if (NULLS.contains(s)) return null;
+        if (TRUES.contains(s)) return Boolean.TRUE;
+        if (FALSES.contains(s)) return Boolean.FALSE;
+
+        char c = s.charAt(0);
+        if (c != '-' && c != '+' && c != '.' && (c < '0' || c > '9') && s.length() > 3) return s;
+
+        if (INT.matcher(s).matches()) {
+            // Like the tree, the narrowest of Integer, Long and BigInteger holding the value
+            if (s.length() < 10) return Integer.parseInt(s);
+            BigInteger value = new BigInteger(s);
+            if (value.bitLength() < 32) return value.intValue();
+            if (value.bitLength() < 64) return value.longValue();
+            return value;
+        }
+        if (FLOAT.matcher(s).matches()) return Double.valueOf(s);
+        if (INF.matcher(s).matches()) return s.charAt(0) == '-' ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        if (NAN.matcher(s).matches()) return Double.NaN;
+        if (AMBIGUOUS.matcher(s).matches()) throw new UnsupportedYamlException("Ambiguous scalar: " + s);
+        return s;
+    }
+
+    private boolean isDash(int p, int end) {
+        return text.charAt(p) == '-' && (p + 1 == end || text.charAt(p + 1) == ' ');
+    }
+
+    private boolean isBlank(int p, int end) {
+        p = skipSpaces(p, end);
+        return p == end || text.charAt(p) == '#';
+    }
+
+    private int skipSpaces(int p, int end) {
+        while (p < end && text.charAt(p) == ' ') p++;
+        return p;
+    }
+
+    private static int lineEnd(@NotNull String text, int start) {
+        int end = text.indexOf('\n', start);
+        if (end < 0) end = text.length();
+        return end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    private static int nextLine(@NotNull String text, int start) {
+        int end = text.indexOf('\n', start);
+        return end < 0 ? text.length() : end + 1;
+    }
+}
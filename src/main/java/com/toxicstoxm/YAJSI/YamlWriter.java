@@ -0,0 +1,455 @@
+package com.toxicstoxm.YAJSI;
+
+import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import com.toxicstoxm.YAJSI.codecs.Codecs;
+import com.toxicstoxm.YAJSI.codecs.ScalarCodec;
+import com.toxicstoxm.YAJSI.metrics.Metrics;
+import com.toxicstoxm.YAJSI.metrics.Phase;
+import com.toxicstoxm.YAJSI.serializing.ExternalYAMLSerializer;
+import com.toxicstoxm.YAJSI.serializing.SerializerRegistry;
+import com.toxicstoxm.YAJSI.serializing.YAMLSerializable;
+import com.toxicstoxm.YAJSI.utils.TypeUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.*;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Renders a bundle straight from its fields to a writer, walking the values the same way
+ * {@link SettingsBundleManager#saveValues} does but without building a tree. Comments are taken from the
+ * {@link YAMLSetting} annotations of the fields.
+ */
+final class YamlWriter {
+    /**
+     * Thrown for values that are not rendered the same way as through a tree, e.g. cyclic references or nested lists.
+     * Nothing written so far is usable, the caller falls back to rendering the tree.
+     */
+    static final class UnsupportedValueException extends RuntimeException {
+        UnsupportedValueException(@NotNull String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final String SPACES = " ".repeat(64);
+
+    // Eligible fields per class, getDeclaredFields copies the fields with every call
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(@NotNull Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Field field : type.getDeclaredFields()) {
+                if (SettingsBundleManager.isNotEligibleForConfig(field)) continue;
+                try {
+                    field.setAccessible(true);
+                } catch (RuntimeException ignored) {
+                    // Reported when the field is read
+                }
+                fields.add(field);
+            }
+            return fields.toArray(Field[]::new);
+        }
+    };
+
+    private final SettingsBundleManager manager;
+    private final Writer out;
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private SettingsBundle root;
+    // A mapping was opened on the current line, the line is ended by its first key or closed with {} if there is none
+    private boolean open;
+    // The next key starts a list item and is written after the item marker
+    private boolean item;
+    private int keyCount;
+
+    YamlWriter(@NotNull SettingsBundleManager manager, @NotNull Writer out) {
+        this.manager = manager;
+        this.out = out;
+    }
+
+    int getKeyCount() {
+        return keyCount;
+    }
+
+    void bundle(@NotNull SettingsBundle bundle, @NotNull String versionKey)
+            throws IOException, IllegalStateException, UnsupportedValueException {
+        root = bundle;
+        key(versionKey, 0);
+        scalar(bundle.getVersion().toString());
+        fields(bundle, 0, true);
+    }
+
+    private void fields(@NotNull Object o, int indent, boolean comments) throws IOException, IllegalStateException {
+        visited.add(o);
+        for (Field field : FIELDS.get(o.getClass())) {
+            try {
+                String key = SettingsBundleManager.getYAMLPath(field, "");
+
+                ScalarCodec<Object> codec = Codecs.get(field.getType());
+                if (codec != null) {
+                    Object value = field.get(o);
+                    if (value == null) continue;
+                    key(field, key, indent, comments);
+                    scalar(codec.format(value));
+                    continue;
+                }
+
+                ConstructorPlan plan = ConstructorPlan.of(field.getType());
+                if (plan != null) {
+                    Object value = field.get(o);
+                    if (value == null) continue;
+                    key(field, key, indent, comments);
+                    components(plan, value, indent + 2);
+                    continue;
+                }
+
+                Object value = manager.getFieldValue(o, field);
+                checkVisited(value);
+
+                if (value instanceof YAMLSerializable serializable) {
+                    key(field, key, indent, comments);
+                    long start = Metrics.start();
+                    ConfigurationSection serialized = serializable.serializeSelf();
+                    Metrics.stop(Phase.SERIALIZER_CALL, root, start);
+                    raw(serialized, indent + 2);
+                    continue;
+                }
+
+                ExternalYAMLSerializer<Object> serializer = SerializerRegistry.resolve(field.getType());
+                if (serializer != null) {
+                    key(field, key, indent, comments);
+                    long start = Metrics.start();
+                    ConfigurationSection serialized = serializer.serialize(value);
+                    Metrics.stop(Phase.SERIALIZER_CALL, root, start);
+                    raw(serialized, indent + 2);
+                    continue;
+                }
+
+                if (value instanceof Map<?, ?> map) {
+                    key(field, key, indent, comments);
+                    entries(map, SettingsBundleManager.mapValueType(field), indent + 2);
+                    continue;
+                }
+
+                if (value instanceof List<?> list && !TypeUtils.isListOfPrimitives(field, value)) {
+                    key(field, key, indent, comments);
+                    elements(list, indent, true);
+                    continue;
+                }
+
+                // Written as a list, the same way the tree renders a bound array
+                if (TypeUtils.isArrayOfPrimitives(value)) {
+                    key(field, key, indent, comments);
+                    raw(value, indent + 2);
+                    continue;
+                }
+
+                if (TypeUtils.isCustomObject(value) && !TypeUtils.isListOfPrimitives(field, value)) {
+                    key(field, key, indent, comments);
+                    mapping(value, indent + 2, comments);
+                    continue;
+                }
+
+                key(field, key, indent, comments);
+                raw(value, indent + 2);
+            } catch (InvocationTargetException | IllegalAccessException | InstantiationException e) {
+                throw new IllegalStateException("Failed to save field: " + field.getName() + " of " + o.getClass().getName(), e);
+            }
+        }
+    }
+
+    private void components(@NotNull ConstructorPlan plan, @NotNull Object value, int indent)
+            throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        begin();
+        for (ConstructorPlan.Component component : plan.components()) {
+            entry(component.key(), component.read(value), component.type(), indent);
+        }
+        close();
+    }
+
+    private void entries(@NotNull Map<?, ?> map, @NotNull Type valueType, int indent)
+            throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        begin();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            entry(String.valueOf(entry.getKey()), entry.getValue(), valueType, indent);
+        }
+        close();
+    }
+
+    /**
+     * Same as {@link SettingsBundleManager#saveEntry}.
+     */
+    private void entry(@NotNull String key, @Nullable Object value, @NotNull Type valueType, int indent)
+            throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        if (value == null) return;
+        checkVisited(value);
+        key(key, indent);
+
+        if (value instanceof Map<?, ?> nested) {
+            Type nestedType = valueType instanceof ParameterizedType pt && pt.getActualTypeArguments().length == 2 ? pt.getActualTypeArguments()[1] : Object.class;
+            entries(nested, nestedType, indent + 2);
+            return;
+        }
+
+        ScalarCodec<Object> codec = Codecs.get(value.getClass());
+        if (codec != null) {
+            scalar(codec.format(value));
+            return;
+        }
+
+        ConstructorPlan plan = ConstructorPlan.of(value.getClass());
+        if (plan != null) {
+            components(plan, value, indent + 2);
+            return;
+        }
+
+        if (value instanceof List<?> list) {
+            elements(list, indent, false);
+            return;
+        }
+
+        if (!TypeUtils.isCustomObject(value)) {
+            raw(value, indent + 2);
+            return;
+        }
+
+        ExternalYAMLSerializer<Object> serializer = SerializerRegistry.resolve(value.getClass());
+        if (serializer != null) {
+            long start = Metrics.start();
+            ConfigurationSection serialized = serializer.serialize(value);
+            Metrics.stop(Phase.SERIALIZER_CALL, root, start);
+            raw(serialized, indent + 2);
+            return;
+        }
+
+        if (value instanceof YAMLSerializable serializable) {
+            long start = Metrics.start();
+            ConfigurationSection serialized = serializable.serializeSelf();
+            Metrics.stop(Phase.SERIALIZER_CALL, root, start);
+            raw(serialized, indent + 2);
+            return;
+        }
+
+        mapping(value, indent + 2, false);
+    }
+
+    /**
+     * Writes a list of objects. Elements with a {@link ConstructorPlan} are written as mappings, so are other objects
+     * if {@code fields} is set, anything else is written as is.
+     */
+    private void elements(@NotNull List<?> list, int indent, boolean fields)
+            throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        if (list.isEmpty()) {
+            out.write(" []\n");
+            return;
+        }
+        out.write('\n');
+        for (Object element : list) {
+            if (element == null || element instanceof List<?> || element.getClass().isArray()) {
+                throw new UnsupportedValueException("Unsupported list element: " + element);
+            }
+            checkVisited(element);
+
+            ConstructorPlan plan = ConstructorPlan.of(element.getClass());
+            if (plan != null) {
+                item = true;
+                components(plan, element, indent + 2);
+            } else if (fields && TypeUtils.isCustomObject(element) && !(element instanceof Map<?, ?>) && !(element instanceof ConfigurationSection)) {
+                item = true;
+                mapping(element, indent + 2, false);
+            } else {
+                item(element, indent);
+            }
+        }
+    }
+
+    private void mapping(@NotNull Object value, int indent, boolean comments) throws IOException {
+        begin();
+        fields(value, indent, comments);
+        close();
+    }
+
+    /**
+     * Writes a value as stored in a tree, i.e. a section, map, list, array or scalar.
+     */
+    private void raw(@Nullable Object value, int indent) throws IOException {
+        switch (value) {
+            case ConfigurationSection section -> {
+                begin();
+                for (String key : section.getKeys(false)) {
+                    Object child = section.get(key);
+                    if (child == null) continue;
+                    key(key, indent);
+                    raw(child, indent + 2);
+                }
+                close();
+            }
+            case Map<?, ?> map -> {
+                begin();
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    if (entry.getValue() == null) continue;
+                    key(String.valueOf(entry.getKey()), indent);
+                    raw(entry.getValue(), indent + 2);
+                }
+                close();
+            }
+            case List<?> list -> {
+                if (list.isEmpty()) {
+                    out.write(" []\n");
+                    return;
+                }
+                out.write('\n');
+                for (Object element : list) item(element, indent - 2);
+            }
+            case Object array when array.getClass().isArray() -> {
+                int length = Array.getLength(array);
+                if (length == 0) {
+                    out.write(" []\n");
+                    return;
+                }
+                out.write('\n');
+                for (int i = 0; i < length; i++) item(Array.get(array, i), indent - 2);
+            }
+            case null, default -> scalar(value);
+        }
+    }
+
+    private void item(@Nullable Object element, int indent) throws IOException {
+        if (element instanceof ConfigurationSection || element instanceof Map<?, ?>) {
+            item = true;
+            raw(element, indent + 2);
+        } else if (element instanceof List<?> || element != null && element.getClass().isArray()) {
+            throw new UnsupportedValueException("Nested lists are not supported");
+        } else {
+            indent(indent);
+            out.write("- ");
+            out.write(represent(element));
+            out.write('\n');
+        }
+    }
+
+    private void key(@NotNull Field field, @NotNull String key, int indent, boolean comments) throws IOException {
+        YAMLSetting setting = comments ? field.getAnnotation(YAMLSetting.class) : null;
+        if (setting != null && setting.comments().length > 0) {
+            endLine();
+            for (String comment : setting.comments()) {
+                indent(indent);
+                out.write(comment.isEmpty() ? "#" : "# " + comment);
+                out.write('\n');
+            }
+        }
+        key(key, indent);
+    }
+
+    private void key(@NotNull String key, int indent) throws IOException {
+        endLine();
+        if (item) {
+            indent(indent - 2);
+            out.write("- ");
+            item = false;
+        } else {
+            indent(indent);
+        }
+        out.write(string(key));
+        out.write(':');
+        keyCount++;
+    }
+
+    private void scalar(@Nullable Object value) throws IOException {
+        out.write(' ');
+        out.write(represent(value));
+        out.write('\n');
+    }
+
+    private void begin() {
+        // List items continue on the line of their marker
+        open = !item;
+    }
+
+    private void endLine() throws IOException {
+        if (open) {
+            out.write('\n');
+            open = false;
+        }
+    }
+
+    /**
+     * Ends a mapping, writing it as {@code {}} if it had no keys.
+     */
+    private void close() throws IOException {
+        if (item) {
+            // The marker of an empty list item was not written yet, its indentation is not known here
+            throw new UnsupportedValueException("Empty list item");
+        }
+        if (open) {
+            out.write(" {}\n");
+            open = false;
+        }
+    }
+
+    private void indent(int indent) throws IOException {
+        while (indent > SPACES.length()) {
+            out.write(SPACES);
+            indent -= SPACES.length();
+        }
+        out.write(SPACES, 0, indent);
+    }
+
+    private void checkVisited(@NotNull Object value) {
+        if (visited.contains(value)) {
+            throw new UnsupportedValueException("Object referenced more than once: " + value.getClass().getName());
+        }
+    }
+
+    private static @NotNull String represent(@Nullable Object value) {
+        return switch (value) {
+            case null -> "null";
+            case String s -> string(s);
+            case Character c -> string(c.toString());
+            case Boolean b -> b.toString();
+            case Integer i -> i.toString();
+            case Long l -> l.toString();
+            case Short s -> s.toString();
+            case Byte b -> b.toString();
+            case BigInteger b -> b.toString();
+            case Double d -> floating(d.isNaN(), d.isInfinite(), d > 0, d.toString());
+            case Float f -> floating(f.isNaN(), f.isInfinite(), f > 0, f.toString());
+            default -> throw new UnsupportedValueException("Unsupported scalar: " + value.getClass().getName());
+        };
+    }
+
+    private static @NotNull String floating(boolean nan, boolean infinite, boolean positive, @NotNull String text) {
+        if (nan) return ".NaN";
+        if (infinite) return positive ? ".inf" : "-.inf";
+        // Exponents without a sign are not resolved as floats
+        if (text.indexOf('E') >= 0) throw new UnsupportedValueException("Unsupported float: " + text);
+        return text;
+    }
+
+    private static @NotNull String string(@NotNull String s) {
+        if (PatchIndex.isPlain(s)) return s;
+
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    // Control characters and the characters YAML treats as line breaks
+                    if (c < 0x20 || c == 0x7F || c == 0x85 || c == 0x2028 || c == 0x2029 || c == 0xFEFF) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.toxicstoxm.YAJSI.codecs;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * A number of bytes, written with an optional binary unit, e.g. {@code 512}, {@code 64KB}, {@code 10MiB} or {@code 2 GB}.
+ * Units are powers of 1024, {@code KB} and {@code KiB} are equivalent.
+ */
+public record ByteSize(long bytes) implements Comparable<ByteSize> {
+    private static final String[] UNITS = {"B", "KB", "MB", "GB", "TB", "PB"};
+
+    public ByteSize {
+        if (bytes < 0) throw new IllegalArgumentException("Byte size must not be negative!");
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull ByteSize ofKilobytes(long kilobytes) {
+        return new ByteSize(Math.multiplyExact(kilobytes, 1024L));
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull ByteSize ofMegabytes(long megabytes) {
+        return new ByteSize(Math.multiplyExact(megabytes, 1024L * 1024L));
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull ByteSize parse(@NotNull String value) throws IllegalArgumentException {
+        String s = value.trim().toUpperCase(Locale.ROOT);
+        int split = 0;
+        while (split < s.length() && Character.isDigit(s.charAt(split))) split++;
+        if (split == 0) throw new IllegalArgumentException("Invalid byte size: " + value);
+
+        long amount = Long.parseLong(s.substring(0, split));
+        String unit = s.substring(split).trim().replace("IB", "B");
+        if (unit.length() == 1 && !unit.equals("B")) unit = unit + "B";
+
+        for (int i = 0; i < UNITS.length; i++) {
+            if (UNITS[i].equals(unit) || (i == 0 && unit.isEmpty())) {
+                return new ByteSize(Math.multiplyExact(amount, 1L << (10 * i)));
+            }
+        }
+        throw new IllegalArgumentException("Invalid byte size unit: " + value);
+    }
+
+    @Override
+    public int compareTo(@NotNull ByteSize o) {
+        return Long.compare(bytes, o.bytes);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        int unit = 0;
+        long amount = bytes;
+        while (amount != 0 && unit < UNITS.length - 1 && amount % 1024 == 0) {
+            amount /= 1024;
+            unit++;
+        }
+        return amount + UNITS[unit];
+    }
+}
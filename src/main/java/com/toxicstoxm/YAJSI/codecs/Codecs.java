@@ -0,0 +1,208 @@
+package com.toxicstoxm.YAJSI.codecs;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Scalar codecs for common value types. Fields of these types are bound from and written to plain YAML values
+ * and can be overwritten from environment variables like primitives.
+ * <p>
+ * Built in are enums, {@link Duration}, {@link Instant}, {@link UUID}, {@link Path}, {@link URI}, {@link BigDecimal},
+ * {@link BigInteger}, {@link InetSocketAddress}, {@link Pattern} and {@link ByteSize}. Additional codecs can be registered with {@link #register}.
+ */
+public class Codecs {
+    private static final ConcurrentHashMap<Class<?>, ScalarCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(Duration.class, new DurationCodec());
+        register(Instant.class, new SimpleCodec<>(Instant::parse));
+        register(UUID.class, new SimpleCodec<>(UUID::fromString));
+        register(Path.class, new SimpleCodec<>(Path::of));
+        register(URI.class, new SimpleCodec<>(URI::create));
+        register(BigDecimal.class, new SimpleCodec<>(BigDecimal::new, BigDecimal::toPlainString));
+        register(BigInteger.class, new SimpleCodec<>(BigInteger::new));
+        register(InetSocketAddress.class, new SocketAddressCodec());
+        register(Pattern.class, new PatternCodec());
+        register(ByteSize.class, new SimpleCodec<>(ByteSize::parse));
+    }
+
+    public static <T> void register(@NotNull Class<T> type, @NotNull ScalarCodec<T> codec) {
+        CODECS.put(type, codec);
+    }
+
+    public static boolean has(@NotNull Class<?> type) {
+        return get(type) != null;
+    }
+
+    /**
+     * @param type the value type
+     * @return the codec of the type or {@code null} if there is none
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static @Nullable ScalarCodec<Object> get(@NotNull Class<?> type) {
+        ScalarCodec<?> codec = CODECS.get(type);
+        if (codec == null && type.isEnum()) {
+            codec = CODECS.computeIfAbsent(type, t -> new EnumCodec(t));
+        } else if (codec == null && type.getSuperclass() != null && type.getSuperclass().isEnum()) {
+            // Constants with a body are subclasses of their enum
+            return get(type.getSuperclass());
+        }
+        return (ScalarCodec<Object>) codec;
+    }
+
+    private record SimpleCodec<T>(@NotNull Function<String, T> parser, @NotNull Function<T, String> formatter) implements ScalarCodec<T> {
+        SimpleCodec(@NotNull Function<String, T> parser) {
+            this(parser, Object::toString);
+        }
+
+        @Override
+        public @NotNull T parse(@NotNull String value) throws IllegalArgumentException {
+            try {
+                return parser.apply(value.trim());
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid value: " + value, e);
+            }
+        }
+
+        @Override
+        public @NotNull String format(@NotNull T value) {
+            return formatter.apply(value);
+        }
+    }
+
+    private static class EnumCodec<E extends Enum<E>> implements ScalarCodec<E> {
+        private final Class<E> type;
+        private final Map<String, E> constants = new HashMap<>();
+
+        EnumCodec(@NotNull Class<E> type) {
+            this.type = type;
+            for (E constant : type.getEnumConstants()) {
+                constants.put(constant.name(), constant);
+                constants.putIfAbsent(constant.name().toUpperCase(Locale.ROOT), constant);
+            }
+        }
+
+        @Override
+        public @NotNull E parse(@NotNull String value) throws IllegalArgumentException {
+            String name = value.trim();
+            E constant = constants.get(name);
+            if (constant == null) constant = constants.get(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+            if (constant == null) {
+                throw new IllegalArgumentException("No constant " + value + " in " + type.getName() + "!");
+            }
+            return constant;
+        }
+
+        @Override
+        public @NotNull String format(@NotNull E value) {
+            return value.name();
+        }
+    }
+
+    /**
+     * Accepts ISO-8601 durations ({@code PT1M30S}) and a single amount with a unit: {@code ms}, {@code s}, {@code m}, {@code h} or {@code d}.
+     */
+    private static class DurationCodec implements ScalarCodec<Duration> {
+        private static final String[] SUFFIXES = {"ms", "s", "m", "h", "d"};
+        private static final ChronoUnit[] UNITS = {ChronoUnit.MILLIS, ChronoUnit.SECONDS, ChronoUnit.MINUTES, ChronoUnit.HOURS, ChronoUnit.DAYS};
+
+        @Override
+        public @NotNull Duration parse(@NotNull String value) throws IllegalArgumentException {
+            String s = value.trim().toLowerCase(Locale.ROOT);
+            if (s.startsWith("p") || s.startsWith("-p")) {
+                try {
+                    return Duration.parse(s);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid duration: " + value, e);
+                }
+            }
+
+            for (int i = 0; i < SUFFIXES.length; i++) {
+                if (s.endsWith(SUFFIXES[i])) {
+                    String amount = s.substring(0, s.length() - SUFFIXES[i].length()).trim();
+                    try {
+                        return Duration.of(Long.parseLong(amount), UNITS[i]);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid duration: " + value, e);
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Invalid duration: " + value);
+        }
+
+        @Override
+        public @NotNull String format(@NotNull Duration value) {
+            if (value.isZero()) return "0s";
+            for (int i = UNITS.length - 1; i >= 0; i--) {
+                Duration unit = UNITS[i].getDuration();
+                if (value.toNanos() % unit.toNanos() == 0 && value.abs().compareTo(unit) >= 0) {
+                    return value.dividedBy(unit) + SUFFIXES[i];
+                }
+            }
+            return value.toString();
+        }
+    }
+
+    /**
+     * {@code host:port}, IPv6 hosts in brackets. Addresses are left unresolved to avoid name lookups while binding.
+     */
+    private static class SocketAddressCodec implements ScalarCodec<InetSocketAddress> {
+        @Override
+        public @NotNull InetSocketAddress parse(@NotNull String value) throws IllegalArgumentException {
+            String s = value.trim();
+            int colon = s.lastIndexOf(':');
+            if (colon <= 0 || colon == s.length() - 1) {
+                throw new IllegalArgumentException("Invalid socket address, expected host:port: " + value);
+            }
+
+            String host = s.substring(0, colon);
+            if (host.startsWith("[") && host.endsWith("]")) host = host.substring(1, host.length() - 1);
+            try {
+                return InetSocketAddress.createUnresolved(host, Integer.parseInt(s.substring(colon + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid port in socket address: " + value, e);
+            }
+        }
+
+        @Override
+        public @NotNull String format(@NotNull InetSocketAddress value) {
+            String host = value.getHostString();
+            return (host.indexOf(':') >= 0 ? "[" + host + "]" : host) + ":" + value.getPort();
+        }
+    }
+
+    /**
+     * Compiles every distinct expression once, so reloading the same value reuses the compiled pattern.
+     */
+    private static class PatternCodec implements ScalarCodec<Pattern> {
+        private final ConcurrentHashMap<String, Pattern> compiled = new ConcurrentHashMap<>();
+
+        @Override
+        public @NotNull Pattern parse(@NotNull String value) throws IllegalArgumentException {
+            return compiled.computeIfAbsent(value, Pattern::compile);
+        }
+
+        @Override
+        public @NotNull String format(@NotNull Pattern value) {
+            return value.pattern();
+        }
+    }
+}
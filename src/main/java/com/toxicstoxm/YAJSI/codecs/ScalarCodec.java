@@ -0,0 +1,14 @@
+package com.toxicstoxm.YAJSI.codecs;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Converts a value type from and to a single scalar string, so it can be stored as a plain YAML value
+ * and overwritten from an environment variable. See {@link Codecs} for the built-in codecs.
+ * @param <T> the value type
+ */
+public interface ScalarCodec<T> {
+    @NotNull T parse(@NotNull String value) throws IllegalArgumentException;
+
+    @NotNull String format(@NotNull T value);
+}
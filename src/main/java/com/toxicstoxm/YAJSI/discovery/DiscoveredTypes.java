@@ -0,0 +1,19 @@
+package com.toxicstoxm.YAJSI.discovery;
+
+import com.toxicstoxm.YAJSI.SettingsBundle;
+
+import java.util.List;
+
+/**
+ * Types found by {@link Discovery}.
+ * @param bundles concrete {@link SettingsBundle} subclasses
+ * @param upgraderBundles bundles annotated with {@link com.toxicstoxm.YAJSI.upgrading.UpgraderBundle}
+ * @param serializables types annotated with {@link com.toxicstoxm.YAJSI.serializing.SerializableWith}
+ * @param indexed {@code true} if the types were only read from a build time index, {@code false} if the classpath was scanned
+ */
+public record DiscoveredTypes(
+        List<Class<? extends SettingsBundle>> bundles,
+        List<Class<? extends SettingsBundle>> upgraderBundles,
+        List<Class<?>> serializables,
+        boolean indexed
+) {}
@@ -0,0 +1,159 @@
+package com.toxicstoxm.YAJSI.discovery;
+
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.serializing.SerializableWith;
+import com.toxicstoxm.YAJSI.upgrading.UpgraderBundle;
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ScanResult;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Finds bundles, upgrader bundles and externally serialized types.
+ * The index generated by {@link DiscoveryIndexProcessor} is used for the requested packages it covers, all other packages
+ * are scanned on the classpath. An index only covers the packages compiled with the processor, an index shipped in a
+ * dependency says nothing about the classes of the application.
+ */
+public class Discovery {
+    public static final String INDEX = "META-INF/yajsi/index";
+
+    public static final String BUNDLE = "bundle";
+    public static final String UPGRADER_BUNDLE = "upgraders";
+    public static final String SERIALIZABLE = "serializable";
+    public static final String PACKAGE = "package";
+
+    public static @NotNull DiscoveredTypes discover(@NotNull ClassLoader loader, @NotNull String... packages) {
+        return discover(loader, false, packages);
+    }
+
+    /**
+     * @param indexOnly {@code true} to trust the index for all packages and never scan if one exists
+     * @param packages the packages to limit discovery to, all packages if none are specified
+     */
+    public static @NotNull DiscoveredTypes discover(@NotNull ClassLoader loader, boolean indexOnly, @NotNull String... packages) {
+        Map<String, Set<String>> index = readIndex(loader);
+        if (index == null) return scan(loader, packages);
+        if (indexOnly) return fromIndex(index, loader, packages);
+
+        // All packages can only be discovered by scanning
+        if (packages.length == 0 || Arrays.asList(packages).contains("")) return scan(loader, packages);
+
+        Set<String> covered = index.getOrDefault(PACKAGE, Set.of());
+        List<String> indexed = new ArrayList<>();
+        List<String> uncovered = new ArrayList<>();
+        for (String pkg : packages) {
+            (covered.contains(pkg) ? indexed : uncovered).add(pkg);
+        }
+        if (uncovered.isEmpty()) return fromIndex(index, loader, packages);
+        if (indexed.isEmpty()) return scan(loader, packages);
+
+        DiscoveredTypes fromIndex = fromIndex(index, loader, indexed.toArray(String[]::new));
+        DiscoveredTypes scanned = scan(loader, uncovered.toArray(String[]::new));
+        return new DiscoveredTypes(
+                merge(fromIndex.bundles(), scanned.bundles()),
+                merge(fromIndex.upgraderBundles(), scanned.upgraderBundles()),
+                merge(fromIndex.serializables(), scanned.serializables()),
+                false
+        );
+    }
+
+    private static <T> @NotNull List<T> merge(@NotNull List<T> first, @NotNull List<T> second) {
+        Set<T> merged = new LinkedHashSet<>(first);
+        merged.addAll(second);
+        return List.copyOf(merged);
+    }
+
+    private static Map<String, Set<String>> readIndex(@NotNull ClassLoader loader) {
+        Enumeration<URL> resources;
+        try {
+            resources = loader.getResources(INDEX);
+        } catch (IOException e) {
+            return null;
+        }
+        if (!resources.hasMoreElements()) return null;
+
+        Map<String, Set<String>> index = new HashMap<>();
+        while (resources.hasMoreElements()) {
+            URL url = resources.nextElement();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+
+                    int split = line.indexOf(' ');
+                    if (split < 0) continue;
+                    index.computeIfAbsent(line.substring(0, split), _ -> new LinkedHashSet<>()).add(line.substring(split + 1).trim());
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read discovery index: " + url, e);
+            }
+        }
+        return index;
+    }
+
+    private static @NotNull DiscoveredTypes fromIndex(@NotNull Map<String, Set<String>> index, @NotNull ClassLoader loader, @NotNull String[] packages) {
+        return new DiscoveredTypes(
+                load(index.get(BUNDLE), loader, packages, SettingsBundle.class),
+                load(index.get(UPGRADER_BUNDLE), loader, packages, SettingsBundle.class),
+                load(index.get(SERIALIZABLE), loader, packages, Object.class),
+                true
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> @NotNull List<Class<? extends T>> load(Set<String> names, @NotNull ClassLoader loader, @NotNull String[] packages, @NotNull Class<T> type) {
+        if (names == null) return List.of();
+
+        List<Class<? extends T>> classes = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (!isAccepted(name, packages)) continue;
+            try {
+                Class<?> clazz = Class.forName(name, false, loader);
+                if (type.isAssignableFrom(clazz)) {
+                    classes.add((Class<? extends T>) clazz);
+                }
+            } catch (ClassNotFoundException | LinkageError ignored) {
+                // Stale index entries are skipped
+            }
+        }
+        return List.copyOf(classes);
+    }
+
+    private static boolean isAccepted(@NotNull String name, @NotNull String[] packages) {
+        if (packages.length == 0) return true;
+        for (String pkg : packages) {
+            if (pkg.isEmpty() || name.startsWith(pkg + ".")) return true;
+        }
+        return false;
+    }
+
+    private static @NotNull DiscoveredTypes scan(@NotNull ClassLoader loader, @NotNull String[] packages) {
+        ClassGraph classGraph = new ClassGraph()
+                .enableClassInfo()
+                .enableAnnotationInfo()
+                .overrideClassLoaders(loader);
+        if (packages.length > 0) {
+            classGraph.acceptPackages(packages);
+        }
+
+        try (ScanResult scan = classGraph.scan()) {
+            return new DiscoveredTypes(
+                    List.copyOf(scan.getSubclasses(SettingsBundle.class.getName())
+                            .filter(ci -> !ci.isAbstract())
+                            .loadClasses(SettingsBundle.class)),
+                    List.copyOf(scan.getClassesWithAnnotation(UpgraderBundle.class.getName())
+                            .filter(ci -> !ci.isAbstract() && ci.extendsSuperclass(SettingsBundle.class.getName()))
+                            .loadClasses(SettingsBundle.class)),
+                    List.copyOf(scan.getClassesWithAnnotation(SerializableWith.class.getName()).loadClasses()),
+                    false
+            );
+        }
+    }
+}
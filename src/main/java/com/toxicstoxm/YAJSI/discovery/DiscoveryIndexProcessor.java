@@ -0,0 +1,137 @@
+package com.toxicstoxm.YAJSI.discovery;
+
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.serializing.SerializableWith;
+import com.toxicstoxm.YAJSI.upgrading.UpgraderBundle;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates the index read by {@link Discovery} at build time, so the compiled packages do not have to be scanned at startup.
+ * The main jar does not register it, enable it by adding the {@code processor} classifier jar of YAJSI to the annotation
+ * processor path, e.g. {@code annotationProcessor("com.toxicstoxm:YAJSI:<version>:processor")}, or by naming it with
+ * {@code -processor}. Incremental compiles only see the changed types, their entries are merged into the index of the previous compile.
+ */
+@SupportedAnnotationTypes("*")
+public class DiscoveryIndexProcessor extends AbstractProcessor {
+    private final Map<String, Set<String>> index = new TreeMap<>();
+    // Top level types compiled this time, their entries in the previous index are replaced
+    private final Set<String> processed = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, @NotNull RoundEnvironment round) {
+        if (round.processingOver()) {
+            writeIndex();
+            return false;
+        }
+
+        TypeElement bundleElement = processingEnv.getElementUtils().getTypeElement(SettingsBundle.class.getCanonicalName());
+        TypeMirror bundleType = bundleElement == null ? null : processingEnv.getTypeUtils().erasure(bundleElement.asType());
+
+        for (TypeElement type : ElementFilter.typesIn(round.getRootElements())) {
+            String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+            if (!pkg.isEmpty()) add(Discovery.PACKAGE, pkg);
+            processed.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+            collect(type, bundleType);
+        }
+        return false;
+    }
+
+    private void collect(@NotNull TypeElement type, TypeMirror bundleType) {
+        String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+        boolean concrete = !type.getModifiers().contains(Modifier.ABSTRACT);
+
+        if (concrete && bundleType != null
+                && !name.equals(SettingsBundle.class.getName())
+                && processingEnv.getTypeUtils().isSubtype(processingEnv.getTypeUtils().erasure(type.asType()), bundleType)) {
+            add(Discovery.BUNDLE, name);
+            if (type.getAnnotation(UpgraderBundle.class) != null) {
+                add(Discovery.UPGRADER_BUNDLE, name);
+            }
+        }
+
+        if (type.getAnnotation(SerializableWith.class) != null) {
+            add(Discovery.SERIALIZABLE, name);
+        }
+
+        for (Element enclosed : type.getEnclosedElements()) {
+            if (enclosed instanceof TypeElement nested) {
+                collect(nested, bundleType);
+            }
+        }
+    }
+
+    private void add(@NotNull String kind, @NotNull String name) {
+        index.computeIfAbsent(kind, _ -> new TreeSet<>()).add(name);
+    }
+
+    private void writeIndex() {
+        readPreviousIndex();
+        if (index.isEmpty()) return;
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", Discovery.INDEX);
+            try (Writer writer = file.openWriter()) {
+                writer.write("# Generated by " + DiscoveryIndexProcessor.class.getName() + "\n");
+                for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+                    for (String name : entry.getValue()) {
+                        writer.write(entry.getKey() + " " + name + "\n");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write YAJSI discovery index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Keeps the entries of types not compiled this time, entries of deleted types are skipped by {@link Discovery}.
+     */
+    private void readPreviousIndex() {
+        String previous;
+        try {
+            previous = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", Discovery.INDEX).getCharContent(true).toString();
+        } catch (IOException | IllegalArgumentException e) {
+            // No previous index
+            return;
+        }
+
+        for (String line : previous.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int split = line.indexOf(' ');
+            if (split < 0) continue;
+            String kind = line.substring(0, split);
+            String name = line.substring(split + 1).trim();
+            int nested = name.indexOf('$');
+            if (kind.equals(Discovery.PACKAGE) || !processed.contains(nested < 0 ? name : name.substring(0, nested))) {
+                add(kind, name);
+            }
+        }
+    }
+}
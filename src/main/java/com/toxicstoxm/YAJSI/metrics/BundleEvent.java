@@ -0,0 +1,30 @@
+package com.toxicstoxm.YAJSI.metrics;
+
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Base of the JFR events emitted for a bundle. Thresholds and enablement can be configured per event name
+ * through the usual JFR settings, e.g. {@code -XX:StartFlightRecording:settings=my.jfc}.
+ */
+@Category("YAJSI")
+@StackTrace(false)
+public abstract class BundleEvent extends jdk.jfr.Event {
+    @Label("Bundle Class")
+    public Class<?> bundleClass;
+
+    @Label("Bundle Id")
+    public String bundleId;
+
+    @Label("File")
+    public String file;
+
+    public void setBundle(@NotNull SettingsBundle bundle) {
+        bundleClass = bundle.getClass();
+        bundleId = bundle.getId().toString();
+        file = bundle.getFile() == null ? null : bundle.getFile().getPath();
+    }
+}
@@ -0,0 +1,18 @@
+package com.toxicstoxm.YAJSI.metrics;
+
+public enum Counter {
+    BYTES_READ,
+    BYTES_WRITTEN,
+    /** Number of tree keys available when binding a bundle. */
+    KEYS,
+    /** Number of tree keys not used by any field of a bundle. */
+    UNUSED_KEYS,
+    /** Number of fields whose value was replaced by an overwriter. */
+    OVERWRITER_HITS,
+    /** Number of cached bundles accessed while loaded. */
+    CACHE_HITS,
+    /** Number of cached bundles registered again on access after being unloaded. */
+    CACHE_MISSES,
+    /** Number of cached bundles unloaded. */
+    CACHE_EVICTIONS
+}
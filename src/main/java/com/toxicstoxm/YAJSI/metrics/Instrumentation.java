@@ -0,0 +1,45 @@
+package com.toxicstoxm.YAJSI.metrics;
+
+import com.toxicstoxm.YAJSI.upgrading.Version;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Receives timings and counters of the config pipeline, reported per bundle class and bundle id.
+ * Timings are reported as single raw samples, so they can be fed directly into histograms.
+ * <p>
+ * Implementations are called from the registering or saving thread and must be thread safe if bundles are
+ * processed concurrently or object lists are processed in parallel. Configure them through {@link com.toxicstoxm.YAJSI.SettingsManager#configure()}.
+ */
+public interface Instrumentation {
+    Instrumentation NOOP = new Instrumentation() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @return {@code false} to skip taking timestamps entirely
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @param phase the finished phase
+     * @param bundle the bundle class
+     * @param id the bundle id, {@code null} if the phase did not run for a registered bundle
+     * @param nanos the duration of the phase
+     */
+    default void recordTiming(@NotNull Phase phase, @NotNull Class<?> bundle, @Nullable UUID id, long nanos) {}
+
+    default void recordCount(@NotNull Counter counter, @NotNull Class<?> bundle, @Nullable UUID id, long amount) {}
+
+    /**
+     * Called for every upgrade callback, in addition to {@link #recordTiming} with {@link Phase#UPGRADE_STEP}.
+     */
+    default void recordUpgradeStep(@NotNull Class<?> bundle, @Nullable UUID id, @NotNull Version from, @NotNull Version to, long nanos) {}
+}
@@ -0,0 +1,26 @@
+package com.toxicstoxm.YAJSI.metrics;
+
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Shortcuts for reporting to the configured {@link Instrumentation}, which skip the clock if it is disabled.
+ */
+public class Metrics {
+    public static long start() {
+        return SettingsManager.getInstrumentation().isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    public static void stop(@NotNull Phase phase, @NotNull Object root, long start) {
+        Instrumentation instrumentation = SettingsManager.getInstrumentation();
+        if (!instrumentation.isEnabled()) return;
+        instrumentation.recordTiming(phase, root.getClass(), root instanceof SettingsBundle bundle ? bundle.getId() : null, System.nanoTime() - start);
+    }
+
+    public static void count(@NotNull Counter counter, @NotNull Object root, long amount) {
+        Instrumentation instrumentation = SettingsManager.getInstrumentation();
+        if (!instrumentation.isEnabled()) return;
+        instrumentation.recordCount(counter, root.getClass(), root instanceof SettingsBundle bundle ? bundle.getId() : null, amount);
+    }
+}
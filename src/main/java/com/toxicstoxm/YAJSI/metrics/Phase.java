@@ -0,0 +1,20 @@
+package com.toxicstoxm.YAJSI.metrics;
+
+public enum Phase {
+    /** Reading the raw source (file or stream) into memory. */
+    FILE_READ,
+    /** Parsing the raw source into a tree. */
+    PARSE,
+    /** A single upgrade callback invocation. */
+    UPGRADE_STEP,
+    /** Binding the upgraded tree to the fields of a bundle. */
+    BINDING,
+    /** Resolving a field through the configured overwriters. */
+    OVERWRITER_LOOKUP,
+    /** A single call to a {@link com.toxicstoxm.YAJSI.serializing.YAMLSerializable} or {@link com.toxicstoxm.YAJSI.serializing.ExternalYAMLSerializer}. */
+    SERIALIZER_CALL,
+    /** Copying the field values of a bundle into its tree and rendering it. */
+    SERIALIZATION,
+    /** Writing the rendered tree to the file. */
+    FILE_WRITE
+}
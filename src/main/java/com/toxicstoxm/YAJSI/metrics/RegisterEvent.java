@@ -0,0 +1,27 @@
+package com.toxicstoxm.YAJSI.metrics;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.toxicstoxm.YAJSI.Register")
+@Label("Bundle Register")
+@Description("Upgrading, binding and writing a bundle during registration")
+public class RegisterEvent extends BundleEvent {
+    @Label("Version From")
+    public String versionFrom;
+
+    @Label("Version To")
+    public String versionTo;
+
+    @Label("Key Count")
+    public int keyCount;
+
+    @Label("Unused Key Count")
+    public int unusedKeyCount;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+}
@@ -0,0 +1,10 @@
+package com.toxicstoxm.YAJSI.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.toxicstoxm.YAJSI.Reload")
+@Label("Bundle Reload")
+@Description("Upgrading, binding and writing a registered bundle when reloading it from its source")
+public class ReloadEvent extends RegisterEvent {}
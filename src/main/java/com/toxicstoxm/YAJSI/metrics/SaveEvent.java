@@ -0,0 +1,21 @@
+package com.toxicstoxm.YAJSI.metrics;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.toxicstoxm.YAJSI.Save")
+@Label("Bundle Save")
+@Description("Copying the field values of a bundle into its tree and writing it")
+public class SaveEvent extends BundleEvent {
+    @Label("Version")
+    public String version;
+
+    @Label("Key Count")
+    public int keyCount;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+}
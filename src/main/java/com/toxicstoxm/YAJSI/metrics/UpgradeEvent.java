@@ -0,0 +1,16 @@
+package com.toxicstoxm.YAJSI.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.toxicstoxm.YAJSI.Upgrade")
+@Label("Bundle Upgrade Step")
+@Description("A single upgrade callback invocation")
+public class UpgradeEvent extends BundleEvent {
+    @Label("Version From")
+    public String versionFrom;
+
+    @Label("Version To")
+    public String versionTo;
+}
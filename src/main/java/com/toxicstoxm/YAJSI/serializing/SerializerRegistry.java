@@ -0,0 +1,117 @@
+package com.toxicstoxm.YAJSI.serializing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of {@link ExternalYAMLSerializer}s. Serializers are either registered programmatically, e.g. for third-party
+ * types that cannot be annotated, or declared with {@link SerializableWith} on the type itself.
+ * <p>
+ * A type resolves to the first serializer found on the type, its superclasses and then its interfaces.
+ * Programmatic registrations take precedence over annotations on the same type. Lookups, including misses, are cached
+ * until the registrations change.
+ */
+public class SerializerRegistry {
+    /**
+     * Result of a lookup, only valid while the registrations are still at the generation the lookup started at.
+     */
+    private record Resolved(long generation, @Nullable ExternalYAMLSerializer<Object> serializer) {}
+
+    private static final ConcurrentHashMap<Class<?>, ExternalYAMLSerializer<Object>> REGISTERED = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, Resolved> RESOLVED = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, ExternalYAMLSerializer<Object>> ANNOTATED = new ConcurrentHashMap<>();
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /**
+     * Registers a serializer for the specified type and all of its subtypes that do not declare their own.
+     * @param type the type to serialize
+     * @param serializer the serializer
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void register(@NotNull Class<T> type, @NotNull ExternalYAMLSerializer<? super T> serializer) {
+        REGISTERED.put(type, (ExternalYAMLSerializer<Object>) serializer);
+        GENERATION.incrementAndGet();
+        RESOLVED.clear();
+    }
+
+    /**
+     * @param type the type to remove the programmatic registration of
+     * @return {@code true} if a serializer was registered for the type
+     */
+    public static boolean unregister(@NotNull Class<?> type) {
+        boolean removed = REGISTERED.remove(type) != null;
+        if (removed) {
+            GENERATION.incrementAndGet();
+            RESOLVED.clear();
+        }
+        return removed;
+    }
+
+    public static boolean hasSerializer(@NotNull Class<?> type) throws UnsupportedOperationException {
+        return resolve(type) != null;
+    }
+
+    /**
+     * Resolves the serializer of the specified type through its type hierarchy.
+     * @param type the type to resolve
+     * @return the serializer or {@code null} if the type has none
+     * @throws UnsupportedOperationException if a serializer declared with {@link SerializableWith} cannot be instantiated
+     */
+    public static @Nullable ExternalYAMLSerializer<Object> resolve(@NotNull Class<?> type) throws UnsupportedOperationException {
+        // Read before the lookup, a lookup overlapping a registration change is cached with the old generation and never used
+        long generation = GENERATION.get();
+        Resolved resolved = RESOLVED.get(type);
+        if (resolved != null && resolved.generation() == generation) return resolved.serializer();
+
+        ExternalYAMLSerializer<Object> serializer = lookup(type);
+        RESOLVED.put(type, new Resolved(generation, serializer));
+        return serializer;
+    }
+
+    private static @Nullable ExternalYAMLSerializer<Object> lookup(@NotNull Class<?> type) {
+        if (type.isPrimitive() || type.isArray()) return null;
+
+        List<Class<?>> interfaces = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            ExternalYAMLSerializer<Object> serializer = declared(c);
+            if (serializer != null) return serializer;
+            interfaces.addAll(List.of(c.getInterfaces()));
+        }
+
+        Set<Class<?>> visited = new HashSet<>();
+        Deque<Class<?>> queue = new ArrayDeque<>(interfaces);
+        while (!queue.isEmpty()) {
+            Class<?> c = queue.poll();
+            if (!visited.add(c)) continue;
+            ExternalYAMLSerializer<Object> serializer = declared(c);
+            if (serializer != null) return serializer;
+            queue.addAll(List.of(c.getInterfaces()));
+        }
+        return null;
+    }
+
+    private static @Nullable ExternalYAMLSerializer<Object> declared(@NotNull Class<?> type) {
+        ExternalYAMLSerializer<Object> registered = REGISTERED.get(type);
+        if (registered != null) return registered;
+
+        if (!type.isAnnotationPresent(SerializableWith.class)) return null;
+        return ANNOTATED.computeIfAbsent(type, SerializerRegistry::instantiate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static @NotNull ExternalYAMLSerializer<Object> instantiate(@NotNull Class<?> type) throws UnsupportedOperationException {
+        Class<? extends ExternalYAMLSerializer<?>> serializerClazz = type.getAnnotation(SerializableWith.class).serializer();
+        try {
+            Constructor<? extends ExternalYAMLSerializer<?>> constructor = serializerClazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return (ExternalYAMLSerializer<Object>) constructor.newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new UnsupportedOperationException("Serializer " + serializerClazz.getName() + " declared on " + type.getName() + " could not be instantiated!", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.toxicstoxm.YAJSI.upgrading;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+
+import java.util.List;
+
+public record MigrationResult(YamlConfiguration yaml, List<String> unusedKeys, int keyCount, boolean initial, boolean upgraded) {}
@@ -0,0 +1,82 @@
+package com.toxicstoxm.YAJSI.upgrading;
+
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Local cache for upgraded config trees of bundles whose source cannot be written back (e.g. bundled resources).
+ * Entries are keyed by the content hash of the source, the bundle class and the target version.
+ */
+public class UpgradeCache {
+    private final Path directory;
+
+    public UpgradeCache(@NotNull File directory) {
+        this.directory = directory.toPath();
+    }
+
+    public @NotNull String key(@NotNull byte[] source, @NotNull Class<?> bundle, @NotNull Version target) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source);
+            digest.update((byte) 0);
+            digest.update(bundle.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(target.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available!", e);
+        }
+    }
+
+    /**
+     * Loads a previously stored upgraded tree.
+     * @param key the cache key, see {@link #key(byte[], Class, Version)}
+     * @return the cached tree or {@code null} if there is no usable entry
+     */
+    public @Nullable YamlConfiguration load(@NotNull String key) {
+        File entry = resolve(key).toFile();
+        if (!entry.isFile()) return null;
+
+        try {
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.load(entry);
+            return yaml;
+        } catch (Exception e) {
+            // Corrupt or unreadable entries are treated as a cache miss
+            return null;
+        }
+    }
+
+    /**
+     * Stores an upgraded tree. Failing to write the cache never fails the registration, the entry is simply skipped.
+     * @param key the cache key, see {@link #key(byte[], Class, Version)}
+     * @param yaml the upgraded tree
+     */
+    public void store(@NotNull String key, @NotNull YamlConfiguration yaml) {
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, key, ".tmp");
+            try {
+                Files.writeString(tmp, yaml.saveToString(), StandardCharsets.UTF_8);
+                Files.move(tmp, resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException | UnsupportedOperationException ignored) {}
+    }
+
+    private @NotNull Path resolve(@NotNull String key) {
+        return directory.resolve(key + ".yaml");
+    }
+}
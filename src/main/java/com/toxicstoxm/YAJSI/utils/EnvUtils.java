@@ -13,22 +13,27 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
-import static com.toxicstoxm.YAJSI.utils.TypeUtils.PARSERS;
-
 public class EnvUtils {
     private static final Pattern CAMEL_CASE = Pattern.compile("([a-z0-9])([A-Z])");
     private static final Pattern SPACES_DASHES = Pattern.compile("[\\s\\-]+");
 
     private static final ConcurrentHashMap<Field, String> ENV_NAME_CACHE = new ConcurrentHashMap<>();
 
-    private static @Nullable String getReplacement(Field field) {
-        String envName = ENV_NAME_CACHE.computeIfAbsent(field, f -> {
+    private static @NotNull String getEnvName(@NotNull Field field) {
+        return ENV_NAME_CACHE.computeIfAbsent(field, f -> {
             if (f.isAnnotationPresent(YAMLSetting.class)) {
                 String env = f.getAnnotation(YAMLSetting.class).env();
                 if (!env.isBlank()) return env;
             }
             return toScreamingSnakeCase(f.getName());
         });
+    }
+
+    private static @Nullable String getReplacement(Field field) {
+        return getReplacement(getEnvName(field));
+    }
+
+    private static @Nullable String getReplacement(@NotNull String envName) {
         List<Overwriter> overwriters = SettingsManager.getSettings().getOverwriters();
         if (overwriters != null) {
             for (Overwriter overwriter : overwriters) {
@@ -58,7 +63,7 @@ public class EnvUtils {
         if (val == null)
             return fieldValue;
 
-        Function<String, ?> parser = PARSERS.get(field.getType());
+        Function<String, ?> parser = TypeUtils.getParser(field.getType());
         if (parser == null) return fieldValue;
 
         try {
@@ -68,6 +73,24 @@ public class EnvUtils {
         }
     }
 
+    /**
+     * Checks for an overwrite of a single map entry. The variable name is the one of the map field followed by the
+     * entry key in screaming snake case, e.g. {@code LIMITS_MAX_USERS} for the entry {@code maxUsers} of {@code limits}.
+     */
+    public static @Nullable Object checkForEnvMapEntry(@NotNull Field field, @NotNull String key, @NotNull Class<?> type, @Nullable Object value) {
+        String val = getReplacement(getEnvName(field) + "_" + toScreamingSnakeCase(key));
+        if (val == null) return value;
+
+        Function<String, ?> parser = TypeUtils.getParser(type);
+        if (parser == null) return value;
+
+        try {
+            return parser.apply(val);
+        } catch (Exception ignored) {
+            return value;
+        }
+    }
+
     public static @NotNull List<?> checkForEnvPrimitiveList(@NotNull Field field, @NotNull List<?> value) {
         String val = getReplacement(field);
         if (val == null) return value;
@@ -75,7 +98,8 @@ public class EnvUtils {
 
         Class<?> elementType = TypeUtils.getGenericTypeClass(field);
 
-        Function<String, ?> parser = PARSERS.getOrDefault(elementType, s -> s);
+        Function<String, ?> parser = TypeUtils.getParser(elementType);
+        if (parser == null) parser = s -> s;
 
         String[] parts = val.split("\\s*,\\s*");
         List<Object> parsedList = new ArrayList<>(parts.length);
@@ -99,7 +123,8 @@ public class EnvUtils {
         if (val == null || val.isEmpty()) return array;
 
         Class<?> componentType = array.getClass().getComponentType();
-        Function<String, ?> parser = PARSERS.getOrDefault(componentType, s -> s);
+        Function<String, ?> parser = TypeUtils.getParser(componentType);
+        if (parser == null) parser = s -> s;
 
         String[] parts = val.split("\\s*,\\s*");
         Object newArray = java.lang.reflect.Array.newInstance(componentType, parts.length);
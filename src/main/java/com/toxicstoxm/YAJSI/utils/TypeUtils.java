@@ -1,12 +1,18 @@
 package com.toxicstoxm.YAJSI.utils;
 
+import com.toxicstoxm.YAJSI.codecs.Codecs;
+import com.toxicstoxm.YAJSI.codecs.ScalarCodec;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -59,17 +65,17 @@ public class TypeUtils {
         DEFAULT_SUPPLIERS.put(Boolean.class, () -> false);
     }
 
-    private static final HashMap<Field, Class<?>> GENERIC_TYPE_CACHE = new HashMap<>();
+    private static final ConcurrentHashMap<Field, Class<?>> GENERIC_TYPE_CACHE = new ConcurrentHashMap<>();
 
     public static @Nullable Class<?> getGenericTypeClass(@NotNull Field field) {
-        if (!GENERIC_TYPE_CACHE.containsKey(field)) {
-            if (field.getGenericType() instanceof ParameterizedType pt) {
+        return GENERIC_TYPE_CACHE.computeIfAbsent(field, f -> {
+            if (f.getGenericType() instanceof ParameterizedType pt) {
                 Type[] args = pt.getActualTypeArguments();
                 if (args.length == 1 && args[0] instanceof Class<?> c)
-                    GENERIC_TYPE_CACHE.put(field, c);
+                    return c;
             }
-        }
-        return GENERIC_TYPE_CACHE.get(field);
+            return null;
+        });
     }
 
     /**
@@ -79,7 +85,21 @@ public class TypeUtils {
      */
     public static boolean isCustomObject(@NotNull Object object) {
         Class<?> clazz = object.getClass();
-        return !clazz.isPrimitive() && !PARSERS.containsKey(clazz);
+        return !clazz.isPrimitive() && !PARSERS.containsKey(clazz) && !Codecs.has(clazz);
+    }
+
+    /**
+     * Returns the parser for the specified type, falling back to the scalar {@link Codecs}.
+     * @param type the type to parse
+     * @return the parser or {@code null} if the type cannot be parsed from a string
+     */
+    public static @Nullable Function<String, ?> getParser(@Nullable Class<?> type) {
+        if (type == null) return null;
+        Function<String, ?> parser = PARSERS.get(type);
+        if (parser != null) return parser;
+
+        ScalarCodec<Object> codec = Codecs.get(type);
+        return codec == null ? null : codec::parse;
     }
 
     /**
@@ -101,6 +121,91 @@ public class TypeUtils {
         return false;
     }
 
+    /**
+     * Checks if the specified type is stored as a single YAML scalar, either a primitive, its wrapper, {@link String} or a type with a codec.
+     */
+    public static boolean isScalar(@NotNull Class<?> type) {
+        return type.isPrimitive() || PARSERS.containsKey(type) || Codecs.has(type);
+    }
+
+    /**
+     * Converts a raw YAML scalar to the specified scalar type, e.g. an {@link Integer} to a {@link Long}.
+     * Numbers are only converted to integer types if they fit without losing a fraction or overflowing.
+     * @param type the scalar type
+     * @param raw the value as loaded from YAML
+     * @return the converted value, {@code null} if {@code raw} is {@code null}
+     * @throws IllegalArgumentException if the value cannot be converted
+     */
+    public static @Nullable Object convert(@NotNull Class<?> type, @Nullable Object raw) throws IllegalArgumentException {
+        if (raw == null || type.isInstance(raw)) return raw;
+
+        if (raw instanceof Number n) {
+            if (type == double.class || type == Double.class) return n.doubleValue();
+            if (type == float.class || type == Float.class) return n.floatValue();
+            if (type == long.class || type == Long.class) return exactLong(n, type);
+
+            if (type == int.class || type == Integer.class) {
+                long value = exactLong(n, type);
+                if ((int) value != value) throw notExact(n, type);
+                return (int) value;
+            }
+            if (type == short.class || type == Short.class) {
+                long value = exactLong(n, type);
+                if ((short) value != value) throw notExact(n, type);
+                return (short) value;
+            }
+            if (type == byte.class || type == Byte.class) {
+                long value = exactLong(n, type);
+                if ((byte) value != value) throw notExact(n, type);
+                return (byte) value;
+            }
+        }
+        if (raw instanceof Boolean && (type == boolean.class || type == Boolean.class)) return raw;
+
+        Function<String, ?> parser = getParser(type);
+        if (parser == null) {
+            throw new IllegalArgumentException("Cannot convert " + raw.getClass().getName() + " to " + type.getName() + "!");
+        }
+        return parser.apply(raw instanceof Date date ? date.toInstant().toString() : raw.toString());
+    }
+
+    private static long exactLong(@NotNull Number n, @NotNull Class<?> type) throws IllegalArgumentException {
+        try {
+            return switch (n) {
+                case Long l -> l;
+                case Integer i -> i;
+                case Short s -> s;
+                case Byte b -> b;
+                case BigInteger bi -> bi.longValueExact();
+                case BigDecimal bd -> bd.longValueExact();
+                default -> {
+                    double d = n.doubleValue();
+                    if (d != Math.rint(d) || d < -0x1p63 || d >= 0x1p63) throw notExact(n, type);
+                    yield (long) d;
+                }
+            };
+        } catch (ArithmeticException e) {
+            throw notExact(n, type);
+        }
+    }
+
+    private static @NotNull IllegalArgumentException notExact(@NotNull Number n, @NotNull Class<?> type) {
+        return new IllegalArgumentException("Cannot convert " + n + " to " + type.getName() + " without losing precision!");
+    }
+
+    /**
+     * @param type a class, parameterized type or wildcard
+     * @return the raw class of the specified type, {@link Object} if it cannot be determined
+     */
+    public static @NotNull Class<?> rawClass(@Nullable Type type) {
+        return switch (type) {
+            case Class<?> c -> c;
+            case ParameterizedType pt -> rawClass(pt.getRawType());
+            case WildcardType wt -> rawClass(wt.getUpperBounds()[0]);
+            case null, default -> Object.class;
+        };
+    }
+
     public static boolean isArrayOfPrimitives(@Nullable Object object) {
         if (object == null) return false;
         Class<?> clazz = object.getClass();
@@ -0,0 +1,204 @@
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the bytes allocated per operation for registering, saving and overlaying a representative bundle
+ * against the budgets checked in at {@code allocation-budgets.properties}.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class AllocationBudgetTests {
+    private static final int WARMUP = 200;
+    private static final int MEASURED = 50;
+
+    private static final Map<String, String> OVERLAY = Map.of(
+            "BUDGET_NAME", "overlay",
+            "BUDGET_LIMIT", "99",
+            "BUDGET_RATIO", "0.25",
+            "BUDGET_ENABLED", "false",
+            "BUDGET_PORTS", "1, 2, 3"
+    );
+
+    // Set by ./gradlew test --tests AllocationBudgetTests -PcalibrateAllocationBudgets, rewrites the budgets instead of checking them
+    private static final String CALIBRATE = System.getProperty("yajsi.allocationBudgets.calibrate");
+    private static final double HEADROOM = 1.1;
+
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        Allocations.assumeSupported();
+        tmp = Files.createTempDirectory("yajsi-allocation-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Item {
+        public String name = "item";
+        public int weight = 1;
+        public boolean enabled = true;
+    }
+
+    public static class Connection {
+        public String host = "localhost";
+        public int port = 8080;
+        public double timeout = 2.5;
+        public List<String> tags = new ArrayList<>(List.of("a", "b", "c"));
+    }
+
+    public static class BudgetBundle extends SettingsBundle {
+        public BudgetBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        @YAMLSetting(name = "name", env = "BUDGET_NAME")
+        public String name = "budget";
+
+        @YAMLSetting(name = "limit", env = "BUDGET_LIMIT")
+        public int limit = 10;
+
+        @YAMLSetting(name = "ratio", env = "BUDGET_RATIO")
+        public double ratio = 0.75;
+
+        @YAMLSetting(name = "enabled", env = "BUDGET_ENABLED")
+        public boolean enabled = true;
+
+        @YAMLSetting(name = "ports", env = "BUDGET_PORTS")
+        public int[] ports = {80, 443, 8080, 8443};
+
+        public long counter = 1L;
+        public float scale = 1.5F;
+        public String description = "A representative bundle";
+
+        public Connection connection = new Connection();
+
+        public List<Item> items = items();
+
+        private static List<Item> items() {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Item item = new Item();
+                item.name = "item-" + i;
+                item.weight = i;
+                items.add(item);
+            }
+            return items;
+        }
+    }
+
+    @Test
+    public void registerConfig() throws Exception {
+        File cfg = materialize();
+        SettingsManager.configure().enableOverwriters(false).done();
+
+        assertWithinBudget("registerConfig", () -> SettingsManager.getInstance().registerConfig(new BudgetBundle(cfg)));
+    }
+
+    @Test
+    public void save() throws Exception {
+        File cfg = materialize();
+        SettingsManager.configure().enableOverwriters(false).done();
+
+        BudgetBundle bundle = new BudgetBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertWithinBudget("save", () -> assertTrue(SettingsManager.getInstance().save(bundle)));
+    }
+
+    @Test
+    public void envOverlay() throws Exception {
+        File cfg = materialize();
+        SettingsManager.configure()
+                .enableOverwriters(true)
+                .overwriters(List.of(OVERLAY::get))
+                .done();
+
+        BudgetBundle probe = new BudgetBundle(cfg);
+        SettingsManager.getInstance().registerConfig(probe);
+        assertEquals("overlay", probe.name, "Overlay must be applied for the measurement to be meaningful");
+
+        assertWithinBudget("envOverlay", () -> SettingsManager.getInstance().registerConfig(new BudgetBundle(cfg)));
+    }
+
+    private File materialize() {
+        File cfg = tmp.resolve("budget.yaml").toFile();
+        SettingsManager.configure().done();
+        SettingsManager.getInstance().registerConfig(new BudgetBundle(cfg));
+        try {
+            resetSettingsManagerSingleton();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return cfg;
+    }
+
+    private void assertWithinBudget(String operation, Allocations.Operation op) throws Exception {
+        if (CALIBRATE != null) {
+            calibrate(operation, Allocations.min(WARMUP, MEASURED, op));
+            return;
+        }
+
+        long budget = budget(operation);
+        long allocated = Allocations.min(WARMUP, MEASURED, op);
+        assertTrue(allocated <= budget, operation + " allocated " + allocated + " bytes, over its budget of " + budget + " bytes");
+    }
+
+    private static long budget(String operation) throws IOException {
+        Properties budgets = new Properties();
+        try (InputStream is = AllocationBudgetTests.class.getResourceAsStream("/allocation-budgets.properties")) {
+            assertNotNull(is, "allocation-budgets.properties is missing");
+            budgets.load(is);
+        }
+        String budget = budgets.getProperty(operation);
+        Assumptions.assumeTrue(budget != null, "No allocation budget recorded for " + operation + ", calibrate with -PcalibrateAllocationBudgets");
+        return Long.parseLong(budget.trim());
+    }
+
+    /**
+     * Replaces the budget of the operation with the measured allocation plus headroom, rounded up to KiB.
+     */
+    private static synchronized void calibrate(String operation, long allocated) throws IOException {
+        Path file = Path.of(CALIBRATE);
+        List<String> comments = new ArrayList<>();
+        Map<String, String> budgets = new TreeMap<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                comments.add(line);
+            } else {
+                int split = line.indexOf('=');
+                budgets.put(line.substring(0, split).trim(), line.substring(split + 1).trim());
+            }
+        }
+        budgets.put(operation, String.valueOf((long) Math.ceil(allocated * HEADROOM / 1024) * 1024));
+
+        List<String> lines = new ArrayList<>(comments);
+        budgets.forEach((key, value) -> lines.add(key + "=" + value));
+        Files.write(file, lines);
+    }
+}
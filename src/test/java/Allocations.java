@@ -0,0 +1,41 @@
+import org.junit.jupiter.api.Assumptions;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by an operation on all threads, including the common pool workers binding and saving
+ * object lists in parallel.
+ */
+final class Allocations {
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    private Allocations() {}
+
+    static void assumeSupported() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported(), "Thread allocation measurement is not supported by this JVM");
+    }
+
+    /**
+     * @return the least bytes allocated by a single run of the operation, so JIT and class loading noise is excluded
+     */
+    static long min(int warmup, int runs, Operation operation) throws Exception {
+        assumeSupported();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long before = threads.getTotalThreadAllocatedBytes();
+            operation.run();
+            min = Math.min(min, threads.getTotalThreadAllocatedBytes() - before);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,170 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.BundleCache;
+import com.toxicstoxm.YAJSI.EvictionPolicy;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unloading cached bundles and registering them again on access.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class BundleCacheTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-cache-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class TenantBundle extends SettingsBundle {
+        public TenantBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public String plan = "free";
+        public int seats = 1;
+    }
+
+    private UUID register(String tenant) {
+        File file = tmp.resolve(tenant + ".yaml").toFile();
+        return SettingsManager.getInstance().registerCached(() -> new TenantBundle(file));
+    }
+
+    private static TenantBundle get(UUID id) {
+        return SettingsManager.getInstance().getSettingsBundleInstance(TenantBundle.class, id);
+    }
+
+    @Test
+    public void evictedBundlesAreSavedAndReloadedWithTheirId() throws Exception {
+        SettingsManager.configure().maxCachedBundles(2).done();
+
+        UUID a = register("a");
+        get(a).seats = 5;
+        UUID b = register("b");
+        UUID c = register("c");
+
+        BundleCache.Stats stats = SettingsManager.getInstance().getCacheStats();
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.loaded());
+        assertEquals(5, YamlConfiguration.loadConfiguration(tmp.resolve("a.yaml").toFile()).getInt("seats"), "Evicted bundles are saved first");
+
+        TenantBundle reloaded = get(a);
+        assertEquals(a, reloaded.getId());
+        assertEquals(5, reloaded.seats);
+        assertEquals(1, SettingsManager.getInstance().getCacheStats().misses());
+        assertEquals(2, SettingsManager.getInstance().getCacheStats().evictions(), "Reloading a unloads b");
+
+        assertSame(reloaded, get(a));
+        assertNotNull(get(c));
+        assertEquals(3, SettingsManager.getInstance().getCacheStats().hits());
+        assertEquals(b, get(b).getId());
+    }
+
+    @Test
+    public void evictingUntouchedBundlesLeavesTheirFiles() throws Exception {
+        SettingsManager.configure().maxCachedBundles(1).done();
+
+        UUID a = register("a");
+        get(a).seats = 5;
+        Path file = tmp.resolve("a.yaml");
+        UUID b = register("b");
+        assertEquals(5, YamlConfiguration.loadConfiguration(file.toFile()).getInt("seats"), "Changed bundles are still saved");
+
+        get(a);
+        FileTime modified = FileTime.fromMillis(1_000_000_000_000L);
+        Files.setLastModifiedTime(file, modified);
+        byte[] bytes = Files.readAllBytes(file);
+
+        get(b);
+        assertEquals(3, SettingsManager.getInstance().getCacheStats().evictions());
+        assertEquals(modified, Files.getLastModifiedTime(file));
+        assertArrayEquals(bytes, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void idleBundlesAreUnloaded() throws Exception {
+        SettingsManager.configure().bundleIdleTimeout(Duration.ofMillis(50)).done();
+
+        UUID a = register("a");
+        UUID b = register("b");
+        Thread.sleep(100);
+
+        // Accessing b unloads a on the way
+        assertNotNull(get(b));
+        assertEquals(1, SettingsManager.getInstance().getCacheStats().loaded());
+
+        Thread.sleep(100);
+        assertEquals(1, SettingsManager.getInstance().evictIdle());
+        assertEquals(0, SettingsManager.getInstance().getCacheStats().loaded());
+
+        assertEquals("free", get(a).plan);
+        assertEquals(1, SettingsManager.getInstance().getCacheStats().misses());
+    }
+
+    @Test
+    public void sizeBudgetLimitsTheLoadedBytes() throws Exception {
+        UUID first = register("first");
+        long size = Files.size(tmp.resolve("first.yaml"));
+        SettingsManager.configure().maxCachedBytes(size * 3).done();
+
+        for (int i = 0; i < 10; i++) {
+            register("tenant-" + i);
+        }
+        BundleCache.Stats stats = SettingsManager.getInstance().getCacheStats();
+        assertTrue(stats.loadedBytes() <= size * 3);
+        assertEquals(3, stats.loaded());
+        assertEquals(first, get(first).getId());
+    }
+
+    @Test
+    public void tinyLfuKeepsFrequentlyUsedBundles() throws Exception {
+        for (EvictionPolicy policy : EvictionPolicy.values()) {
+            resetSettingsManagerSingleton();
+            SettingsManager.configure().maxCachedBundles(3).evictionPolicy(policy).done();
+
+            UUID hot = register(policy + "-hot");
+            UUID warm = register(policy + "-warm");
+            UUID cold = register(policy + "-cold");
+            for (int i = 0; i < 10; i++) get(hot);
+            get(warm);
+            get(warm);
+            get(cold);
+
+            // hot is the least recently used bundle, but the most frequently used one
+            register(policy + "-new");
+            long missesBefore = SettingsManager.getInstance().getCacheStats().misses();
+            get(hot);
+            boolean hotStayedLoaded = SettingsManager.getInstance().getCacheStats().misses() == missesBefore;
+
+            assertEquals(policy == EvictionPolicy.TINY_LFU, hotStayedLoaded, policy.name());
+        }
+    }
+}
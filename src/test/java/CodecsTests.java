@@ -0,0 +1,144 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.codecs.ByteSize;
+import com.toxicstoxm.YAJSI.codecs.Codecs;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the built-in scalar codecs, standalone and when binding, saving and overwriting bundle fields.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class CodecsTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-codecs-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public enum Mode {
+        FAST,
+        SAFE_MODE
+    }
+
+    public static class CodecBundle extends SettingsBundle {
+        public CodecBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public Mode mode = Mode.FAST;
+        public Duration timeout = Duration.ofSeconds(30);
+        public ByteSize maxUpload = ByteSize.ofMegabytes(10);
+        public Pattern allowed = Pattern.compile("[a-z]+");
+        public InetSocketAddress bind = InetSocketAddress.createUnresolved("0.0.0.0", 8080);
+        public UUID owner = null;
+
+        @YAMLSetting(name = "retry-delay", env = "CODEC_RETRY_DELAY")
+        public Duration retryDelay = Duration.ofMillis(250);
+    }
+
+    @Test
+    public void builtInCodecsRoundTrip() {
+        assertEquals(Duration.ofMinutes(5), Codecs.get(Duration.class).parse("5m"));
+        assertEquals(Duration.ofMillis(1500), Codecs.get(Duration.class).parse("PT1.5S"));
+        assertEquals("90s", Codecs.get(Duration.class).format(Duration.ofSeconds(90)));
+        assertEquals("2h", Codecs.get(Duration.class).format(Duration.ofHours(2)));
+
+        assertEquals(new ByteSize(64 * 1024), ByteSize.parse("64KB"));
+        assertEquals(new ByteSize(10L << 20), ByteSize.parse("10 MiB"));
+        assertEquals(new ByteSize(512), ByteSize.parse("512"));
+        assertEquals("10MB", ByteSize.ofMegabytes(10).toString());
+        assertThrows(IllegalArgumentException.class, () -> ByteSize.parse("ten"));
+
+        assertEquals(Mode.SAFE_MODE, Codecs.get(Mode.class).parse("safe-mode"));
+        assertSame(Codecs.get(Mode.class), Codecs.get(Mode.class));
+        assertThrows(IllegalArgumentException.class, () -> Codecs.get(Mode.class).parse("slow"));
+
+        InetSocketAddress v6 = (InetSocketAddress) Codecs.get(InetSocketAddress.class).parse("[::1]:25565");
+        assertEquals("::1", v6.getHostString());
+        assertEquals(25565, v6.getPort());
+        assertEquals("[::1]:25565", Codecs.get(InetSocketAddress.class).format(v6));
+
+        Object first = Codecs.get(Pattern.class).parse("a+b");
+        assertSame(first, Codecs.get(Pattern.class).parse("a+b"), "Patterns are compiled once per value");
+
+        assertEquals(new BigDecimal("1E+3").toPlainString(), Codecs.get(BigDecimal.class).format(new BigDecimal("1E+3")));
+        assertEquals(URI.create("https://example.com"), Codecs.get(URI.class).parse(" https://example.com "));
+        assertEquals(Instant.EPOCH, Codecs.get(Instant.class).parse("1970-01-01T00:00:00Z"));
+        assertNull(Codecs.get(Object.class));
+    }
+
+    @Test
+    public void fieldsAreBoundSavedAndOverwritten() throws Exception {
+        File cfg = tmp.resolve("codecs.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        yaml.set("mode", "safe_mode");
+        yaml.set("timeout", "2m");
+        yaml.set("maxUpload", "1GB");
+        yaml.set("bind", "localhost:9000");
+        yaml.save(cfg);
+
+        SettingsManager.configure()
+                .enableOverwriters(true)
+                .overwriters(List.of(Map.of("CODEC_RETRY_DELAY", "5s")::get))
+                .done();
+
+        CodecBundle bundle = new CodecBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals(Mode.SAFE_MODE, bundle.mode);
+        assertEquals(Duration.ofMinutes(2), bundle.timeout);
+        assertEquals(new ByteSize(1L << 30), bundle.maxUpload);
+        assertEquals("localhost", bundle.bind.getHostString());
+        assertEquals(9000, bundle.bind.getPort());
+        assertEquals("[a-z]+", bundle.allowed.pattern());
+        assertNull(bundle.owner);
+        assertEquals(Duration.ofSeconds(5), bundle.retryDelay, "Env overrides use the codecs as well");
+
+        bundle.timeout = Duration.ofHours(1);
+        bundle.owner = new UUID(1, 2);
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(cfg);
+        assertEquals("SAFE_MODE", saved.getString("mode"));
+        assertEquals("1h", saved.getString("timeout"));
+        assertEquals("1GB", saved.getString("maxUpload"));
+        assertEquals("[a-z]+", saved.getString("allowed"));
+        assertEquals(new UUID(1, 2).toString(), saved.getString("owner"));
+        assertEquals("250ms", saved.getString("retry-delay"), "Overwritten values are not persisted");
+    }
+}
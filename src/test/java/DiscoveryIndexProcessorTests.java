@@ -0,0 +1,175 @@
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.discovery.DiscoveredTypes;
+import com.toxicstoxm.YAJSI.discovery.Discovery;
+import com.toxicstoxm.YAJSI.discovery.DiscoveryIndexProcessor;
+import org.junit.jupiter.api.*;
+
+import javax.tools.*;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the discovery index generated at compile time, including incremental compiles of single types.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class DiscoveryIndexProcessorTests {
+    private Path tmp;
+    private Path out;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-discovery-processor-");
+        out = Files.createDirectories(tmp.resolve("classes"));
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    private static final String BUNDLE = """
+            package app;
+
+            import com.toxicstoxm.YAJSI.SettingsBundle;
+            import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+            import com.toxicstoxm.YAJSI.upgrading.UpgraderBundle;
+
+            @UpgraderBundle(upgraderBundle = AppBundle.Upgraders.class)
+            public class AppBundle extends SettingsBundle {
+                public AppBundle(java.io.File f) {
+                    super(new ConfigVersion(1, 0, 0), f);
+                }
+
+                public int value = 1;
+
+                public static class Upgraders {}
+
+                public static class Nested extends SettingsBundle {
+                    public Nested(java.io.File f) {
+                        super(new ConfigVersion(1, 0, 0), f);
+                    }
+                }
+            }
+            """;
+    private static final String ABSTRACT = """
+            package app;
+
+            public abstract class AbstractBundle extends com.toxicstoxm.YAJSI.SettingsBundle {
+                protected AbstractBundle(java.io.File f) {
+                    super(new com.toxicstoxm.YAJSI.upgrading.ConfigVersion(1, 0, 0), f);
+                }
+            }
+            """;
+    private static final String SERIALIZABLE = """
+            package app.model;
+
+            import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+            import com.toxicstoxm.YAJSI.serializing.ExternalYAMLSerializer;
+            import com.toxicstoxm.YAJSI.serializing.SerializableWith;
+
+            @SerializableWith(serializer = Point.Serializer.class)
+            public class Point {
+                public static class Serializer implements ExternalYAMLSerializer<Point> {
+                    public Point deserialize(ConfigurationSection yaml) {
+                        return new Point();
+                    }
+
+                    public ConfigurationSection serialize(Point o) {
+                        return emptyConfigSection();
+                    }
+                }
+            }
+            """;
+
+    private void compile(String... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assumptions.assumeTrue(compiler != null, "No system Java compiler available");
+
+        List<File> files = new ArrayList<>();
+        for (String source : sources) {
+            String pkg = source.substring("package ".length(), source.indexOf(';'));
+            String name = source.substring(source.indexOf("class ") + "class ".length()).split("[ <{]")[0];
+            Path file = tmp.resolve("src").resolve(pkg.replace('.', '/')).resolve(name + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source);
+            files.add(file.toFile());
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            List<String> options = List.of("-d", out.toString(), "-classpath", System.getProperty("java.class.path") + File.pathSeparator + out);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(List.of(new DiscoveryIndexProcessor()));
+            assertTrue(task.call(), diagnostics.getDiagnostics().toString());
+        }
+    }
+
+    private Set<String> index() throws Exception {
+        Set<String> lines = new TreeSet<>(Files.readAllLines(out.resolve(Discovery.INDEX)));
+        lines.removeIf(line -> line.startsWith("#"));
+        return lines;
+    }
+
+    private static List<String> names(List<? extends Class<?>> classes) {
+        return classes.stream().map(Class::getName).sorted().toList();
+    }
+
+    @Test
+    public void compiledTypesAreIndexed() throws Exception {
+        compile(BUNDLE, ABSTRACT, SERIALIZABLE);
+
+        assertEquals(new TreeSet<>(List.of(
+                "bundle app.AppBundle",
+                "bundle app.AppBundle$Nested",
+                "upgraders app.AppBundle",
+                "serializable app.model.Point",
+                "package app",
+                "package app.model"
+        )), index());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{out.toUri().toURL()}, getClass().getClassLoader())) {
+            DiscoveredTypes types = Discovery.discover(loader, "app", "app.model");
+
+            assertTrue(types.indexed());
+            assertEquals(List.of("app.AppBundle", "app.AppBundle$Nested"), names(types.bundles()));
+            assertEquals(List.of("app.AppBundle"), names(types.upgraderBundles()));
+            assertEquals(List.of("app.model.Point"), names(types.serializables()));
+        }
+    }
+
+    @Test
+    public void incrementalCompilesKeepTheEntriesOfOtherTypes() throws Exception {
+        compile(BUNDLE, SERIALIZABLE);
+
+        // Only the changed type is compiled, it no longer is a bundle
+        compile("""
+                package app;
+
+                public class AppBundle {}
+                """);
+
+        assertEquals(new TreeSet<>(List.of(
+                "serializable app.model.Point",
+                "package app",
+                "package app.model"
+        )), index());
+    }
+}
@@ -0,0 +1,146 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.discovery.DiscoveredTypes;
+import com.toxicstoxm.YAJSI.discovery.Discovery;
+import com.toxicstoxm.YAJSI.serializing.ExternalYAMLSerializer;
+import com.toxicstoxm.YAJSI.serializing.SerializableWith;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import com.toxicstoxm.YAJSI.upgrading.Upgrader;
+import com.toxicstoxm.YAJSI.upgrading.UpgraderBundle;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests discovery of bundles, upgrader bundles and serializable types from the build time index and the classpath scan fallback.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class DiscoveryTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-discovery-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Upgraders {
+        @Upgrader(base = "1.0.0", factory = ConfigVersion.Factory.class)
+        public YamlConfiguration upgrade1_0_0(YamlConfiguration old, UUID id) {
+            old.set(SettingsManager.getSettings().getVersionKey(), "2.0.0");
+            old.set("value", 2);
+            return old;
+        }
+    }
+
+    @UpgraderBundle(upgraderBundle = Upgraders.class)
+    public static class DiscoverableBundle extends SettingsBundle {
+        public DiscoverableBundle(File f) {
+            super(new ConfigVersion(2, 0, 0), f);
+        }
+
+        public int value = 1;
+    }
+
+    public static class PointSerializer implements ExternalYAMLSerializer<Point> {
+        @Override
+        public Point deserialize(@NotNull ConfigurationSection yaml) {
+            return new Point();
+        }
+
+        @Override
+        public @NotNull ConfigurationSection serialize(Point o) {
+            return emptyConfigSection();
+        }
+    }
+
+    @SerializableWith(serializer = PointSerializer.class)
+    public static class Point {}
+
+    private ClassLoader indexedLoader() throws Exception {
+        Path index = tmp.resolve(Discovery.INDEX);
+        Files.createDirectories(index.getParent());
+        Files.writeString(index, """
+                # test index
+                bundle DiscoveryTests$DiscoverableBundle
+                upgraders DiscoveryTests$DiscoverableBundle
+                serializable DiscoveryTests$Point
+                bundle does.not.Exist
+                """);
+        return new URLClassLoader(new URL[]{tmp.toUri().toURL()}, getClass().getClassLoader());
+    }
+
+    @Test
+    public void index_isPreferred_andStaleEntriesAreSkipped() throws Exception {
+        DiscoveredTypes types = Discovery.discover(indexedLoader(), true);
+
+        assertTrue(types.indexed());
+        assertEquals(1, types.bundles().size());
+        assertEquals(DiscoverableBundle.class, types.bundles().getFirst());
+        assertEquals(DiscoverableBundle.class, types.upgraderBundles().getFirst());
+        assertEquals(Point.class, types.serializables().getFirst());
+    }
+
+    @Test
+    public void packagesNotCoveredByTheIndex_areScanned() throws Exception {
+        // e.g. an index shipped in a dependency, while the application was compiled without the processor
+        DiscoveredTypes types = Discovery.discover(indexedLoader());
+
+        assertFalse(types.indexed());
+        assertTrue(types.bundles().contains(DiscoverableBundle.class));
+        assertTrue(types.serializables().contains(Point.class));
+    }
+
+    @Test
+    public void discoveredUpgraderBundle_isRegisteredBeforeFirstConfig() throws Exception {
+        File cfg = tmp.resolve("discovered.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        yaml.set("value", 1);
+        yaml.save(cfg);
+
+        SettingsManager.configure().discoveryIndexOnly(true).done();
+        SettingsManager.getInstance().discover(indexedLoader());
+
+        DiscoverableBundle bundle = new DiscoverableBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+        assertEquals(2, bundle.value);
+    }
+
+    @Test
+    public void classpathScan_isUsedWithoutIndex() {
+        DiscoveredTypes types = Discovery.discover(getClass().getClassLoader());
+
+        assertFalse(types.indexed());
+        assertTrue(types.bundles().contains(DiscoverableBundle.class));
+        assertTrue(types.upgraderBundles().contains(DiscoverableBundle.class));
+        assertTrue(types.serializables().contains(Point.class));
+    }
+}
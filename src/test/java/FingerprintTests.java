@@ -0,0 +1,127 @@
+import com.toxicstoxm.YAJSI.Fingerprint;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests fingerprinting retained trees and diffing the fingerprints.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class FingerprintTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-fingerprint-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Connection {
+        public String host = "localhost";
+        public int port = 8080;
+    }
+
+    public static class NodeBundle extends SettingsBundle {
+        public NodeBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public String name = "node";
+        public List<String> regions = new ArrayList<>(List.of("eu", "us", "ap"));
+        public Connection primary = new Connection();
+        public Connection fallback = new Connection();
+    }
+
+    private NodeBundle register(String name) {
+        NodeBundle bundle = new NodeBundle(tmp.resolve(name + ".yaml").toFile());
+        SettingsManager.getInstance().registerConfig(bundle);
+        return bundle;
+    }
+
+    @Test
+    public void equalBundlesHaveEqualFingerprints() {
+        NodeBundle a = register("a");
+        NodeBundle b = register("b");
+
+        assertEquals(SettingsManager.getInstance().fingerprint(a).getHash(), SettingsManager.getInstance().fingerprint(b).getHash());
+        assertTrue(SettingsManager.getInstance().diff(a, b).isEmpty());
+
+        b.primary.port = 9090;
+        b.regions.set(1, "sa");
+        assertTrue(SettingsManager.getInstance().diff(a, b).isEmpty(), "Unsaved changes are not fingerprinted");
+
+        SettingsManager.getInstance().save(b);
+        assertNotEquals(SettingsManager.getInstance().fingerprint(a).getHash(), SettingsManager.getInstance().fingerprint(b).getHash());
+        assertEquals(List.of("regions.1", "primary.port"), SettingsManager.getInstance().diff(a, b));
+
+        b.regions.add("af");
+        SettingsManager.getInstance().save(b);
+        assertEquals(List.of("regions.1", "regions.3", "primary.port"), SettingsManager.getInstance().diff(a, b));
+    }
+
+    @Test
+    public void keyOrderDoesNotMatter() throws Exception {
+        Files.writeString(tmp.resolve("a.yaml"), """
+                Version: 1.0.0
+                name: edge
+                primary:
+                  host: upstream
+                  port: 1
+                """);
+        Files.writeString(tmp.resolve("b.yaml"), """
+                primary:
+                  port: 1
+                  host: upstream
+                name: edge
+                Version: 1.0.0
+                """);
+
+        NodeBundle a = register("a");
+        NodeBundle b = register("b");
+        assertEquals(SettingsManager.getInstance().fingerprint(a), SettingsManager.getInstance().fingerprint(b));
+    }
+
+    @Test
+    public void unchangedSubtreesAreReusedOnSave() {
+        NodeBundle bundle = register("node");
+        Fingerprint before = SettingsManager.getInstance().fingerprint(bundle);
+
+        SettingsManager.getInstance().save(bundle);
+        assertSame(before, SettingsManager.getInstance().fingerprint(bundle));
+
+        bundle.fallback.host = "backup";
+        SettingsManager.getInstance().save(bundle);
+        Fingerprint after = SettingsManager.getInstance().fingerprint(bundle);
+
+        assertNotSame(before, after);
+        assertSame(before.child("primary"), after.child("primary"));
+        assertSame(before.child("regions"), after.child("regions"));
+        assertSame(before.child("fallback.port"), after.child("fallback.port"));
+        assertNotEquals(before.child("fallback.host"), after.child("fallback.host"));
+        assertEquals(List.of("fallback.host"), Fingerprint.diff(before, after));
+    }
+}
@@ -0,0 +1,69 @@
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests creating the files of bundles registered without one.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class FreshFileTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-fresh-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Limits {
+        public int requests = 100;
+        public List<String> regions = new ArrayList<>(List.of("eu"));
+    }
+
+    public static class TenantBundle extends SettingsBundle {
+        public TenantBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        @YAMLSetting(comments = "Display name of the tenant")
+        public String name = "tenant";
+        public boolean enabled = true;
+        public Limits limits = new Limits();
+    }
+
+    @Test
+    public void missingFilesAreOnlyCreatedByRegistering() throws Exception {
+        Path file = tmp.resolve("nested").resolve("tenant.yaml");
+
+        TenantBundle bundle = new TenantBundle(file.toFile());
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertTrue(Files.exists(file));
+        assertTrue(Files.readString(file).contains("requests: 100"));
+    }
+}
@@ -0,0 +1,170 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests mounting included fragments into the tree of a bundle.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class IncludeTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-includes-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Database {
+        public String host = "localhost";
+        public int port = 5432;
+    }
+
+    public static class IncludingBundle extends SettingsBundle {
+        public IncludingBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public String name = "app";
+        public int workers = 1;
+        public List<String> tags = new ArrayList<>();
+        public Database db = new Database();
+    }
+
+    private void write(String path, String content) throws Exception {
+        Path file = tmp.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    @Test
+    public void fragmentsAreMountedBelowTheIncludingFile() throws Exception {
+        write("main.yaml", """
+                Version: 1.0.0
+                $include:
+                  - common.yaml
+                  - db: db/*.yaml
+                name: main
+                """);
+        write("common.yaml", """
+                $include: nested.yaml
+                name: common
+                workers: 4
+                """);
+        write("nested.yaml", """
+                workers: 2
+                tags: [x, y]
+                """);
+        write("db/a.yaml", "host: db.example.com\n");
+        write("db/b.yaml", "port: 7000\n");
+
+        SettingsManager.configure().done();
+        IncludingBundle bundle = new IncludingBundle(tmp.resolve("main.yaml").toFile());
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals("main", bundle.name);
+        assertEquals(4, bundle.workers, "Fragments take precedence over the fragments they include");
+        assertEquals(List.of("x", "y"), bundle.tags);
+        assertEquals("db.example.com", bundle.db.host);
+        assertEquals(7000, bundle.db.port);
+
+        assertEquals("common.yaml", bundle.getOrigin("workers"));
+        assertEquals("nested.yaml", bundle.getOrigin("tags"));
+        assertEquals("db/b.yaml", bundle.getOrigin("db.port").replace('\\', '/'));
+
+        bundle.workers = 8;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(tmp.resolve("main.yaml").toFile());
+        assertTrue(saved.contains("$include"), "The directive must be kept");
+        assertEquals(8, saved.getInt("workers"));
+        assertFalse(saved.contains("db.port"), "Included values must not be copied to the including file");
+    }
+
+    @Test
+    public void changedFragmentsAreParsedAgain() throws Exception {
+        write("main.yaml", """
+                Version: 1.0.0
+                $include: [a.yaml, b.yaml]
+                """);
+        write("a.yaml", "name: first\n");
+        write("b.yaml", "workers: 3\n");
+
+        SettingsManager.configure().done();
+        IncludingBundle first = new IncludingBundle(tmp.resolve("main.yaml").toFile());
+        SettingsManager.getInstance().registerConfig(first);
+        assertEquals("first", first.name);
+
+        write("a.yaml", "name: second-value\n");
+        Files.setLastModifiedTime(tmp.resolve("a.yaml"), java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        IncludingBundle second = new IncludingBundle(tmp.resolve("main.yaml").toFile());
+        SettingsManager.getInstance().registerConfig(second);
+        assertEquals("second-value", second.name);
+        assertEquals(3, second.workers);
+    }
+
+    @Test
+    public void valuesBoundFromAFragmentAreNotShared() throws Exception {
+        for (String name : List.of("a.yaml", "b.yaml")) {
+            write(name, """
+                    Version: 1.0.0
+                    $include: shared.yaml
+                    """);
+        }
+        write("shared.yaml", "tags: [x, y]\n");
+
+        SettingsManager.configure().done();
+        IncludingBundle first = new IncludingBundle(tmp.resolve("a.yaml").toFile());
+        SettingsManager.getInstance().registerConfig(first);
+        first.tags.add("z");
+
+        IncludingBundle second = new IncludingBundle(tmp.resolve("b.yaml").toFile());
+        SettingsManager.getInstance().registerConfig(second);
+        assertEquals(List.of("x", "y"), second.tags);
+
+        // The cached fragment is unchanged for reloads of the mutating bundle as well
+        SettingsManager.getInstance().reload(first);
+        assertEquals(List.of("x", "y"), first.tags);
+    }
+
+    @Test
+    public void cyclesAreRejected() throws Exception {
+        write("main.yaml", """
+                Version: 1.0.0
+                $include: a.yaml
+                """);
+        write("a.yaml", "$include: b.yaml\n");
+        write("b.yaml", "$include: a.yaml\n");
+
+        SettingsManager.configure().done();
+        IncludingBundle bundle = new IncludingBundle(tmp.resolve("main.yaml").toFile());
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> SettingsManager.getInstance().registerConfig(bundle));
+        assertTrue(String.valueOf(e.getMessage()).contains("cycle") || String.valueOf(e.getCause()).contains("cycle"));
+    }
+}
@@ -0,0 +1,167 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests patching changed scalars into the saved file instead of rewriting it.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class IncrementalSaveTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-incremental-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Database {
+        public String host = "localhost";
+        public int port = 5432;
+    }
+
+    public static class PatchedBundle extends SettingsBundle {
+        public PatchedBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public String name = "app";
+        public int workers = 1;
+        public boolean debug = false;
+        public Database db = new Database();
+        public List<String> tags = new ArrayList<>(List.of("a"));
+    }
+
+    private PatchedBundle register(Path file) {
+        SettingsManager.configure().incrementalSave(true).done();
+        PatchedBundle bundle = new PatchedBundle(file.toFile());
+        SettingsManager.getInstance().registerConfig(bundle);
+        return bundle;
+    }
+
+    private static Object fileKey(Path file) throws Exception {
+        Object key = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        Assumptions.assumeTrue(key != null, "The file system does not identify files");
+        return key;
+    }
+
+    @Test
+    public void changedScalarsArePatchedInPlace() throws Exception {
+        Path file = tmp.resolve("config.yaml");
+        PatchedBundle bundle = register(file);
+        String before = Files.readString(file);
+
+        // The comment changes the size, the index no longer matches the file even though the modification time is kept
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.writeString(file, before.replace("workers:", "# tuned for production\nworkers:"));
+        Files.setLastModifiedTime(file, modified);
+        bundle.workers = 2;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertFalse(Files.readString(file).contains("# tuned"), "A file changed by someone else must be rewritten");
+        assertEquals(before.replace("workers: 1", "workers: 2"), Files.readString(file));
+
+        Object key = fileKey(file);
+        bundle.workers = 7;
+        bundle.debug = true;
+        bundle.db.port = 80;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        String patched = Files.readString(file);
+        assertEquals(key, fileKey(file), "Values that fit are patched into the same file");
+        assertEquals(before.replace("workers: 1", "workers: 7").replace("debug: false", "debug: true ").replace("port: 5432", "port: 80  "), patched);
+
+        bundle.debug = false;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertEquals(key, fileKey(file));
+        assertEquals(patched.replace("debug: true ", "debug: false"), Files.readString(file));
+
+        // Longer values are not moved in place, the file is replaced by a full rewrite
+        bundle.name = "a-much-longer-name";
+        bundle.db.host = "db";
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertNotEquals(key, fileKey(file));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(file.toFile());
+        assertEquals("a-much-longer-name", saved.getString("name"));
+        assertFalse(saved.getBoolean("debug"));
+        assertEquals(80, saved.getInt("db.port"));
+        assertEquals("db", saved.getString("db.host"));
+        assertEquals(7, saved.getInt("workers"));
+        assertEquals(List.of("a"), saved.getStringList("tags"));
+    }
+
+    @Test
+    public void unchangedValuesDoNotTouchTheFile() throws Exception {
+        Path file = tmp.resolve("config.yaml");
+        PatchedBundle bundle = register(file);
+
+        FileTime modified = FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60_000);
+        Files.setLastModifiedTime(file, modified);
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertNotEquals(modified, Files.getLastModifiedTime(file), "The index was built for the old modification time, the first save rewrites");
+
+        modified = Files.getLastModifiedTime(file);
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertEquals(modified, Files.getLastModifiedTime(file));
+    }
+
+    @Test
+    public void structuralChangesFallBackToAFullRewrite() throws Exception {
+        Path file = tmp.resolve("config.yaml");
+        PatchedBundle bundle = register(file);
+
+        bundle.tags.add("b");
+        bundle.name = "needs: quoting";
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(file.toFile());
+        assertEquals(List.of("a", "b"), saved.getStringList("tags"));
+        assertEquals("needs: quoting", saved.getString("name"));
+
+        bundle.workers = 3;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertEquals(3, YamlConfiguration.loadConfiguration(file.toFile()).getInt("workers"));
+    }
+
+    @Test
+    public void disabledIncrementalSavesAlwaysRewrite() throws Exception {
+        Path file = tmp.resolve("config.yaml");
+        SettingsManager.configure().incrementalSave(false).done();
+        PatchedBundle bundle = new PatchedBundle(file.toFile());
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        String text = Files.readString(file).replace("workers:", "# tuned for production\nworkers:");
+        Files.writeString(file, text);
+
+        bundle.workers = 2;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertFalse(Files.readString(file).contains("# tuned"));
+    }
+}
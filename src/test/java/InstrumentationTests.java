@@ -0,0 +1,127 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.metrics.Counter;
+import com.toxicstoxm.YAJSI.metrics.Instrumentation;
+import com.toxicstoxm.YAJSI.metrics.Phase;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import com.toxicstoxm.YAJSI.upgrading.Upgrader;
+import com.toxicstoxm.YAJSI.upgrading.Version;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the configured instrumentation receives timings and counters for every pipeline phase.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class InstrumentationTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-instrumentation-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        System.clearProperty("INSTRUMENTED_VALUE");
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class RecordingInstrumentation implements Instrumentation {
+        final Map<Phase, Integer> timings = new ConcurrentHashMap<>();
+        final Map<Counter, Long> counts = new ConcurrentHashMap<>();
+        final List<String> upgradeSteps = Collections.synchronizedList(new ArrayList<>());
+        final Set<UUID> ids = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void recordTiming(@NotNull Phase phase, @NotNull Class<?> bundle, @Nullable UUID id, long nanos) {
+            assertTrue(nanos >= 0);
+            assertEquals(InstrumentedBundle.class, bundle);
+            timings.merge(phase, 1, Integer::sum);
+            if (id != null) ids.add(id);
+        }
+
+        @Override
+        public void recordCount(@NotNull Counter counter, @NotNull Class<?> bundle, @Nullable UUID id, long amount) {
+            counts.merge(counter, amount, Long::sum);
+        }
+
+        @Override
+        public void recordUpgradeStep(@NotNull Class<?> bundle, @Nullable UUID id, @NotNull Version from, @NotNull Version to, long nanos) {
+            upgradeSteps.add(from + "->" + to);
+        }
+    }
+
+    public static class InstrumentedBundle extends SettingsBundle {
+        public InstrumentedBundle(File f) {
+            super(new ConfigVersion(1, 1, 0), f);
+        }
+
+        @YAMLSetting(name = "value", env = "INSTRUMENTED_VALUE")
+        public int value = 1;
+
+        @Upgrader(base = "1.0.0", factory = ConfigVersion.Factory.class)
+        private YamlConfiguration upgrade1_0_0(YamlConfiguration old, UUID id) {
+            old.set(SettingsManager.getSettings().getVersionKey(), "1.1.0");
+            return old;
+        }
+    }
+
+    @Test
+    public void allPhasesAreReported() throws Exception {
+        File cfg = tmp.resolve("instrumented.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        yaml.set("value", 5);
+        yaml.set("unused", true);
+        yaml.save(cfg);
+
+        System.setProperty("INSTRUMENTED_VALUE", "7");
+
+        RecordingInstrumentation instrumentation = new RecordingInstrumentation();
+        SettingsManager.configure()
+                .instrumentation(instrumentation)
+                .enableOverwriters(true)
+                .overwriters(List.of(System::getProperty))
+                .done();
+
+        InstrumentedBundle bundle = new InstrumentedBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+        SettingsManager.getInstance().save(bundle);
+
+        assertEquals(7, bundle.value);
+        for (Phase phase : List.of(Phase.FILE_READ, Phase.PARSE, Phase.UPGRADE_STEP, Phase.BINDING,
+                Phase.OVERWRITER_LOOKUP, Phase.SERIALIZATION, Phase.FILE_WRITE)) {
+            assertTrue(instrumentation.timings.containsKey(phase), "Missing phase " + phase);
+        }
+        assertEquals(List.of("1.0.0->1.1.0"), instrumentation.upgradeSteps);
+        assertEquals(Set.of(bundle.getId()), instrumentation.ids);
+
+        assertTrue(instrumentation.counts.get(Counter.BYTES_WRITTEN) > Files.size(cfg.toPath()), "Registration and save both write the file");
+        assertEquals(1L, (long) instrumentation.counts.get(Counter.OVERWRITER_HITS));
+        assertEquals(1L, (long) instrumentation.counts.get(Counter.UNUSED_KEYS));
+    }
+}
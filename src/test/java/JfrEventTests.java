@@ -0,0 +1,153 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import com.toxicstoxm.YAJSI.upgrading.Upgrader;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that registering, upgrading and saving a bundle emits the YAJSI JFR events.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class JfrEventTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-jfr-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class RecordedBundle extends SettingsBundle {
+        public RecordedBundle(File f) {
+            super(new ConfigVersion(1, 1, 0), f);
+        }
+
+        @YAMLSetting(name = "value")
+        public int value = 1;
+
+        @Upgrader(base = "1.0.0", factory = ConfigVersion.Factory.class)
+        private YamlConfiguration upgrade1_0_0(YamlConfiguration old, UUID id) {
+            old.set(SettingsManager.getSettings().getVersionKey(), "1.1.0");
+            return old;
+        }
+    }
+
+    @Test
+    public void registerUpgradeAndSaveAreRecorded() throws Exception {
+        File cfg = tmp.resolve("recorded.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        yaml.set("value", 5);
+        yaml.set("unused", true);
+        yaml.save(cfg);
+
+        SettingsManager.configure().done();
+
+        Path dump = tmp.resolve("recording.jfr");
+        RecordedBundle bundle = new RecordedBundle(cfg);
+        try (Recording recording = new Recording()) {
+            recording.enable("com.toxicstoxm.YAJSI.Register");
+            recording.enable("com.toxicstoxm.YAJSI.Upgrade");
+            recording.enable("com.toxicstoxm.YAJSI.Save");
+            recording.start();
+
+            SettingsManager.getInstance().registerConfig(bundle);
+            bundle.value = 6;
+            SettingsManager.getInstance().save(bundle);
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        Map<String, RecordedEvent> events = new HashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            events.put(event.getEventType().getName(), event);
+        }
+
+        RecordedEvent register = events.get("com.toxicstoxm.YAJSI.Register");
+        assertNotNull(register);
+        assertEquals(RecordedBundle.class.getName(), register.getClass("bundleClass").getName());
+        assertEquals(bundle.getId().toString(), register.getString("bundleId"));
+        assertEquals(cfg.getPath(), register.getString("file"));
+        assertEquals("1.0.0", register.getString("versionFrom"));
+        assertEquals("1.1.0", register.getString("versionTo"));
+        assertEquals(2, register.getInt("keyCount"));
+        assertEquals(1, register.getInt("unusedKeyCount"));
+        assertTrue(register.getLong("bytesWritten") > 0);
+
+        RecordedEvent upgrade = events.get("com.toxicstoxm.YAJSI.Upgrade");
+        assertNotNull(upgrade);
+        assertEquals("1.0.0", upgrade.getString("versionFrom"));
+        assertEquals("1.1.0", upgrade.getString("versionTo"));
+
+        RecordedEvent save = events.get("com.toxicstoxm.YAJSI.Save");
+        assertNotNull(save);
+        assertEquals(Files.size(cfg.toPath()), save.getLong("bytesWritten"));
+        assertFalse(save.getDuration().isNegative());
+    }
+
+    @Test
+    public void reloadsAreRecordedSeparately() throws Exception {
+        File cfg = tmp.resolve("reloaded.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.1.0");
+        yaml.set("value", 5);
+        yaml.save(cfg);
+
+        SettingsManager.configure().done();
+        RecordedBundle bundle = new RecordedBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        yaml.set("value", 7);
+        yaml.save(cfg);
+
+        Path dump = tmp.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.toxicstoxm.YAJSI.Register");
+            recording.enable("com.toxicstoxm.YAJSI.Reload");
+            recording.start();
+
+            bundle.reload();
+
+            recording.stop();
+            recording.dump(dump);
+        }
+        assertEquals(7, bundle.value);
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertEquals(List.of("com.toxicstoxm.YAJSI.Reload"), events.stream().map(e -> e.getEventType().getName()).toList());
+        RecordedEvent reload = events.getFirst();
+        assertEquals(bundle.getId().toString(), reload.getString("bundleId"));
+        assertEquals("1.1.0", reload.getString("versionFrom"));
+        assertEquals("1.1.0", reload.getString("versionTo"));
+        assertEquals(1, reload.getInt("keyCount"));
+    }
+}
@@ -0,0 +1,197 @@
+import com.toxicstoxm.YAJSI.KeyedStore;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests storing many instances of a bundle class in one keyed store.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class KeyedStoreTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-store-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Notifications {
+        public boolean email = true;
+        public boolean push = false;
+    }
+
+    public static class UserSettings extends SettingsBundle {
+        public UserSettings(String user) {
+            super(new ConfigVersion(1, 0, 0), new File(user + ".yaml"));
+        }
+
+        public String theme = "light";
+        public int pageSize = 20;
+        public List<String> pinned = new ArrayList<>();
+        public Notifications notifications = new Notifications();
+    }
+
+    private KeyedStore<UserSettings> open(KeyedStore.Options options) {
+        return KeyedStore.open(tmp.resolve("users"), UserSettings.class, UserSettings::new, options);
+    }
+
+    private static UserSettings settings(String user, int pageSize) {
+        UserSettings settings = new UserSettings(user);
+        settings.theme = "dark-" + user;
+        settings.pageSize = pageSize;
+        settings.pinned.add("home");
+        settings.notifications.push = true;
+        return settings;
+    }
+
+    private static List<Path> segments(Path dir) throws Exception {
+        try (var s = Files.list(dir)) {
+            return s.filter(p -> p.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    @Test
+    public void valuesAreBoundThroughTheBundleClass() throws Exception {
+        try (KeyedStore<UserSettings> store = open(KeyedStore.Options.DEFAULT)) {
+            assertNull(store.get("alice"));
+
+            store.put("alice", settings("alice", 50));
+            store.put("bob", settings("bob", 10));
+
+            UserSettings alice = store.get("alice");
+            assertNotNull(alice);
+            assertEquals("dark-alice", alice.theme);
+            assertEquals(50, alice.pageSize);
+            assertEquals(List.of("home"), alice.pinned);
+            assertTrue(alice.notifications.push);
+            assertTrue(alice.notifications.email);
+
+            assertTrue(store.delete("bob"));
+            assertFalse(store.delete("bob"));
+            assertNull(store.get("bob"));
+            assertEquals(Set.of("alice"), store.keys());
+        }
+
+        try (KeyedStore<UserSettings> store = open(KeyedStore.Options.DEFAULT)) {
+            assertEquals(1, store.size());
+            assertEquals(50, store.get("alice").pageSize);
+            assertFalse(store.contains("bob"));
+        }
+    }
+
+    @Test
+    public void writesAfterTheLastCheckpointAreReplayed() throws Exception {
+        KeyedStore<UserSettings> store = open(KeyedStore.Options.DEFAULT);
+        store.put("alice", settings("alice", 1));
+        store.close();
+
+        // Not closed, so the index on disk does not cover the following writes
+        KeyedStore<UserSettings> crashed = open(KeyedStore.Options.DEFAULT);
+        crashed.put("alice", settings("alice", 2));
+        crashed.put("carol", settings("carol", 3));
+        crashed.delete("alice");
+        crashed.put("dave", settings("dave", 4));
+
+        Path segment = segments(tmp.resolve("users")).getLast();
+        long intact = Files.size(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // A record torn in the middle of being appended
+            file.seek(intact);
+            file.writeInt(4096);
+            file.write(new byte[]{1, 0, 0});
+        }
+
+        try (KeyedStore<UserSettings> store2 = open(KeyedStore.Options.DEFAULT)) {
+            assertEquals(Set.of("carol", "dave"), store2.keys());
+            assertEquals(3, store2.get("carol").pageSize);
+            assertEquals(intact, Files.size(segment), "The torn record is truncated");
+
+            store2.put("erin", settings("erin", 5));
+            assertEquals(5, store2.get("erin").pageSize);
+        }
+    }
+
+    @Test
+    public void compactionDropsOverwrittenRecords() throws Exception {
+        KeyedStore.Options options = new KeyedStore.Options(4096, 0.5, Long.MAX_VALUE, false);
+        try (KeyedStore<UserSettings> store = open(options)) {
+            for (int round = 0; round < 20; round++) {
+                for (int user = 0; user < 10; user++) {
+                    store.put("user-" + user, settings("user-" + user, round));
+                }
+            }
+            store.delete("user-9");
+
+            long before = store.diskSize();
+            assertTrue(segments(tmp.resolve("users")).size() > 1);
+            store.compact();
+
+            assertTrue(store.diskSize() < before / 5, "Compacted from " + before + " to " + store.diskSize());
+            assertEquals(9, store.size());
+            for (int user = 0; user < 9; user++) {
+                assertEquals(19, store.get("user-" + user).pageSize);
+            }
+            store.put("user-0", settings("user-0", 100));
+        }
+
+        try (KeyedStore<UserSettings> store = open(options)) {
+            assertEquals(9, store.size());
+            assertEquals(100, store.get("user-0").pageSize);
+            assertEquals(19, store.get("user-8").pageSize);
+            assertNull(store.get("user-9"));
+        }
+    }
+
+    @Test
+    public void backgroundCompactionKeepsTheStoreSmall() throws Exception {
+        KeyedStore.Options options = new KeyedStore.Options(8192, 0.5, 16 * 1024, false);
+        try (KeyedStore<UserSettings> store = open(options)) {
+            UserSettings settings = settings("alice", 0);
+            for (int i = 0; i < 2000; i++) {
+                settings.pageSize = i;
+                store.put("alice", settings);
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (store.diskSize() > 64 * 1024 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(store.diskSize() <= 64 * 1024, "Store grew to " + store.diskSize() + " bytes");
+            assertEquals(1999, store.get("alice").pageSize);
+        }
+    }
+
+    @Test
+    public void closedStoresRejectAccess() {
+        KeyedStore<UserSettings> store = open(KeyedStore.Options.DEFAULT);
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.get("alice"));
+        assertThrows(IllegalStateException.class, () -> store.put("alice", settings("alice", 1)));
+    }
+}
@@ -0,0 +1,162 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.ConfigLayer;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests resolving values through the layers of a bundle and saving to the own source only.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class LayeredConfigTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-layers-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Database {
+        public String host = "localhost";
+        public int port = 5432;
+    }
+
+    public static class LayeredBundle extends SettingsBundle {
+        public LayeredBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public String name = "app";
+        public int workers = 1;
+        public Database db = new Database();
+        public List<String> tags = new ArrayList<>(List.of("default"));
+    }
+
+    @Test
+    public void valuesResolveFromTheHighestLayerDefiningThem() throws Exception {
+        File base = tmp.resolve("base.yaml").toFile();
+        YamlConfiguration baseYaml = new YamlConfiguration();
+        baseYaml.set("name", "base-app");
+        baseYaml.set("workers", 4);
+        baseYaml.set("db.host", "db.base");
+        baseYaml.set("tags", List.of("a", "b"));
+        baseYaml.save(base);
+
+        File profile = tmp.resolve("prod.yaml").toFile();
+        YamlConfiguration profileYaml = new YamlConfiguration();
+        profileYaml.set("workers", 8);
+        profileYaml.set("db.port", 6000);
+        profileYaml.save(profile);
+
+        File local = tmp.resolve("local.yaml").toFile();
+        YamlConfiguration localYaml = new YamlConfiguration();
+        localYaml.set("Version", "1.0.0");
+        localYaml.set("db.host", "db.local");
+        localYaml.save(local);
+
+        SettingsManager.configure().done();
+        LayeredBundle bundle = new LayeredBundle(local);
+        bundle.addLayer(ConfigLayer.of("prod", profile)).addLayer(ConfigLayer.of("base", base));
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals("base-app", bundle.name);
+        assertEquals(8, bundle.workers);
+        assertEquals("db.local", bundle.db.host);
+        assertEquals(6000, bundle.db.port);
+        assertEquals(List.of("a", "b"), bundle.tags);
+
+        assertEquals("base", bundle.getOrigin("name"));
+        assertEquals("prod", bundle.getOrigin("workers"));
+        assertEquals(SettingsBundle.TOP_LAYER, bundle.getOrigin("db.host"));
+        assertEquals("prod", bundle.getOrigin("db.port"));
+
+        YamlConfiguration written = YamlConfiguration.loadConfiguration(local);
+        assertFalse(written.contains("workers"), "Inherited values must not be copied to the own source");
+        assertFalse(written.contains("name"));
+
+        bundle.workers = 16;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(local);
+        assertEquals(16, saved.getInt("workers"));
+        assertEquals("db.local", saved.getString("db.host"));
+        assertFalse(saved.contains("name"), "Unchanged inherited values must not be saved");
+        assertFalse(saved.contains("db.port"));
+        assertFalse(saved.contains("tags"));
+
+        assertEquals(8, YamlConfiguration.loadConfiguration(profile).getInt("workers"), "Lower layers are never written");
+    }
+
+    @Test
+    public void defaultsAreOnlyWrittenForKeysMissingInAllLayers() throws Exception {
+        File local = tmp.resolve("local.yaml").toFile();
+        File missing = tmp.resolve("missing.yaml").toFile();
+
+        SettingsManager.configure().done();
+        LayeredBundle bundle = new LayeredBundle(local);
+        bundle.addLayer(ConfigLayer.of(missing))
+                .addLayer(ConfigLayer.of("base", new ByteArrayInputStream("name: streamed\n".getBytes(StandardCharsets.UTF_8))));
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals("streamed", bundle.name);
+        assertEquals(1, bundle.workers);
+        assertNull(bundle.getOrigin("workers"));
+
+        YamlConfiguration written = YamlConfiguration.loadConfiguration(local);
+        assertFalse(written.contains("name"));
+        assertEquals(1, written.getInt("workers"));
+        assertEquals("localhost", written.getString("db.host"));
+    }
+
+    @Test
+    public void changedInheritedValuesAreSavedEvenWithEqualHashCodes() throws Exception {
+        File base = tmp.resolve("base.yaml").toFile();
+        YamlConfiguration baseYaml = new YamlConfiguration();
+        baseYaml.set("name", "Aa");
+        baseYaml.set("tags", List.of("a", "b"));
+        baseYaml.save(base);
+
+        File local = tmp.resolve("local.yaml").toFile();
+        SettingsManager.configure().done();
+        LayeredBundle bundle = new LayeredBundle(local);
+        bundle.addLayer(ConfigLayer.of("base", base));
+        SettingsManager.getInstance().registerConfig(bundle);
+        assertEquals("base", bundle.getOrigin("name"));
+
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        bundle.name = "BB";
+        bundle.tags.add("c");
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(local);
+        assertEquals("BB", saved.getString("name"));
+        assertEquals(List.of("a", "b", "c"), saved.getStringList("tags"), "Lists changed in place must be saved");
+    }
+}
@@ -0,0 +1,201 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.ConfigType;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsBundleManager;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests retaining registered trees in compact form and dropping the trees of read-only bundles.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class LowMemoryTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-low-memory-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SettingsBundleManager bundleManager(Class<?> bundle) throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("registeredBundles");
+        f.setAccessible(true);
+        return ((Map<String, SettingsBundleManager>) f.get(SettingsManager.getInstance())).get(bundle.getTypeName());
+    }
+
+    public static class Connection {
+        @YAMLSetting(comments = "Host of the upstream service")
+        public String host = "localhost";
+        @YAMLSetting(comments = "Port of the upstream service")
+        public int port = 8080;
+        @YAMLSetting(comments = "Request timeout in milliseconds")
+        public long timeout = 30_000;
+        public boolean tls = true;
+    }
+
+    public static class TenantBundle extends SettingsBundle {
+        public TenantBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public TenantBundle(File f, ConfigType type) {
+            super(new ConfigVersion(1, 0, 0), f, type);
+        }
+
+        @YAMLSetting(comments = {"Display name of the tenant", "Shown in the dashboard"})
+        public String name = "tenant";
+        @YAMLSetting(comments = "Number of request workers")
+        public int workers = 4;
+        public List<String> regions = new ArrayList<>(List.of("eu", "us"));
+        public Connection primary = new Connection();
+        public Connection fallback = new Connection();
+    }
+
+    @Test
+    public void compactTreesAreSavedWithCommentsAndUnusedKeys() throws Exception {
+        SettingsManager.configure().lowMemory(true).done();
+
+        Path file = tmp.resolve("tenant.yaml");
+        Files.writeString(file, """
+                Version: 1.0.0
+                # kept by the user
+                legacy: true
+                name: acme
+                """);
+
+        TenantBundle bundle = new TenantBundle(file.toFile());
+        SettingsManager.getInstance().registerConfig(bundle);
+        assertEquals("acme", bundle.name);
+
+        bundle.workers = 12;
+        bundle.primary.host = "upstream";
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        String text = Files.readString(file);
+        assertTrue(text.contains("Display name of the tenant"));
+        assertTrue(text.contains("Host of the upstream service"));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(file.toFile());
+        assertTrue(saved.getBoolean("legacy"), "Unused keys are retained in compact form as well");
+        assertEquals(12, saved.getInt("workers"));
+        assertEquals("upstream", saved.getString("primary.host"));
+        assertEquals(List.of("eu", "us"), saved.getStringList("regions"));
+
+        bundle.workers = 16;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertEquals(16, YamlConfiguration.loadConfiguration(file.toFile()).getInt("workers"));
+        assertTrue(YamlConfiguration.loadConfiguration(file.toFile()).getBoolean("legacy"));
+    }
+
+    @Test
+    public void droppedReadOnlyTreesAreRebuiltOnDemand() throws Exception {
+        SettingsManager.configure().retainReadOnlyTrees(false).done();
+
+        Path file = tmp.resolve("readonly.yaml");
+        Files.writeString(file, """
+                Version: 1.0.0
+                name: frozen
+                primary:
+                  port: 9000
+                """);
+
+        TenantBundle bundle = new TenantBundle(file.toFile(), ConfigType.READONLY);
+        SettingsManager.getInstance().registerConfig(bundle);
+        assertEquals("frozen", bundle.name);
+        assertEquals(9000, bundle.primary.port);
+
+        YamlConfiguration rebuilt = bundleManager(TenantBundle.class).retained(bundle);
+        assertEquals("1.0.0", rebuilt.getString("Version"));
+        assertEquals("frozen", rebuilt.getString("name"));
+        assertEquals(9000, rebuilt.getInt("primary.port"));
+        assertEquals("localhost", rebuilt.getString("fallback.host"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Map<SettingsBundle, T> retainedMap(SettingsBundleManager manager, String name) throws Exception {
+        Field f = SettingsBundleManager.class.getDeclaredField(name);
+        f.setAccessible(true);
+        return (Map<SettingsBundle, T>) f.get(manager);
+    }
+
+    private static Object shapeOf(Object compactTree) throws Exception {
+        Field f = compactTree.getClass().getDeclaredField("shape");
+        f.setAccessible(true);
+        return f.get(compactTree);
+    }
+
+    private List<TenantBundle> registerTenants(String dir, int count) throws Exception {
+        Path directory = Files.createDirectories(tmp.resolve(dir));
+        List<TenantBundle> bundles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TenantBundle bundle = new TenantBundle(directory.resolve("tenant-" + i + ".yaml").toFile(), i % 2 == 0 ? ConfigType.SETTINGS : ConfigType.READONLY);
+            SettingsManager.getInstance().registerConfig(bundle);
+            bundles.add(bundle);
+        }
+        return bundles;
+    }
+
+    @Test
+    public void lowMemoryModeSharesShapesAndDropsReadOnlyTrees() throws Exception {
+        SettingsManager.configure().lowMemory(true).retainReadOnlyTrees(false).done();
+        List<TenantBundle> bundles = registerTenants("compact", 20);
+
+        SettingsBundleManager manager = bundleManager(TenantBundle.class);
+        Map<SettingsBundle, YamlConfiguration> trees = retainedMap(manager, "registeredConfigs");
+        Map<SettingsBundle, Object> compacted = retainedMap(manager, "compacted");
+
+        Set<Object> shapes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TenantBundle bundle : bundles) {
+            assertTrue(trees.containsKey(bundle));
+            assertNull(trees.get(bundle), "No full tree is retained in low-memory mode");
+            if (bundle.isReadonly()) {
+                assertFalse(compacted.containsKey(bundle), "The tree of a read-only bundle is dropped");
+            } else {
+                shapes.add(shapeOf(compacted.get(bundle)));
+            }
+        }
+        assertEquals(1, shapes.size(), "Trees with the same layout share a single shape");
+    }
+
+    @Test
+    public void fullTreesAreRetainedByDefault() throws Exception {
+        SettingsManager.configure().done();
+        List<TenantBundle> bundles = registerTenants("full", 4);
+
+        SettingsBundleManager manager = bundleManager(TenantBundle.class);
+        Map<SettingsBundle, YamlConfiguration> trees = retainedMap(manager, "registeredConfigs");
+        Map<SettingsBundle, Object> compacted = retainedMap(manager, "compacted");
+
+        for (TenantBundle bundle : bundles) {
+            assertNotNull(trees.get(bundle));
+        }
+        assertTrue(compacted.isEmpty());
+    }
+}
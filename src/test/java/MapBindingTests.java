@@ -0,0 +1,200 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests binding, saving and overwriting Map<String, V> fields.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class MapBindingTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-maps-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Server {
+        public String host = "localhost";
+        public int port = 80;
+    }
+
+    public static class MapBundle extends SettingsBundle {
+        public MapBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        @YAMLSetting(name = "limits", env = "LIMITS")
+        public Map<String, Long> limits = new LinkedHashMap<>(Map.of("users", 10L));
+
+        public Map<String, Server> servers = new LinkedHashMap<>();
+
+        public Map<String, Map<String, String>> regions = new LinkedHashMap<>();
+
+        public Map<String, Duration> timeouts = new LinkedHashMap<>(Map.of("read", Duration.ofSeconds(5)));
+
+        public SortedMap<String, Double> weights = new TreeMap<>();
+
+        @YAMLSetting.Immutable
+        public Map<String, String> aliases = Map.of();
+    }
+
+    @Test
+    public void defaultsAreWrittenWhenMissing() throws Exception {
+        File cfg = tmp.resolve("defaults.yaml").toFile();
+        SettingsManager.configure().done();
+
+        MapBundle bundle = new MapBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        YamlConfiguration written = YamlConfiguration.loadConfiguration(cfg);
+        assertEquals(10, written.getInt("limits.users"));
+        assertEquals("5s", written.getString("timeouts.read"));
+        assertEquals(Map.of("users", 10L), bundle.limits);
+    }
+
+    @Test
+    public void entriesAreBoundInOrderAndSavedInOrder() throws Exception {
+        File cfg = tmp.resolve("maps.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        yaml.set("limits.zeta", 3);
+        yaml.set("limits.alpha", 5000000000L);
+        yaml.set("limits.mid", 1);
+        yaml.set("servers.eu.host", "eu.example.com");
+        yaml.set("servers.eu.port", 8443);
+        yaml.set("servers.us.host", "us.example.com");
+        yaml.set("regions.eu.primary", "fra");
+        yaml.set("regions.eu.fallback", "ams");
+        yaml.set("timeouts.read", "2m");
+        yaml.set("weights.b", 0.5);
+        yaml.set("weights.a", 1.5);
+        yaml.set("aliases.prod", "production");
+        yaml.save(cfg);
+
+        SettingsManager.configure().done();
+        MapBundle bundle = new MapBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals(List.of("zeta", "alpha", "mid"), List.copyOf(bundle.limits.keySet()));
+        assertEquals(Long.valueOf(5000000000L), bundle.limits.get("alpha"));
+        assertEquals(Long.valueOf(3L), bundle.limits.get("zeta"), "Integers must be widened to the value type");
+
+        assertEquals("eu.example.com", bundle.servers.get("eu").host);
+        assertEquals(8443, bundle.servers.get("eu").port);
+        assertEquals("us.example.com", bundle.servers.get("us").host);
+        assertEquals(80, bundle.servers.get("us").port);
+
+        assertEquals("ams", bundle.regions.get("eu").get("fallback"));
+        assertEquals(Duration.ofMinutes(2), bundle.timeouts.get("read"));
+
+        assertTrue(bundle.weights instanceof TreeMap);
+        assertEquals("a", bundle.weights.firstKey());
+
+        assertEquals("production", bundle.aliases.get("prod"));
+        assertThrows(UnsupportedOperationException.class, () -> bundle.aliases.put("dev", "development"));
+
+        bundle.limits.put("added", 7L);
+        bundle.servers.get("us").port = 9000;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(cfg);
+        assertEquals(List.of("zeta", "alpha", "mid", "added"), List.copyOf(saved.getConfigurationSection("limits").getKeys(false)));
+        assertEquals(9000, saved.getInt("servers.us.port"));
+        assertEquals("fra", saved.getString("regions.eu.primary"));
+        assertEquals("2m", saved.getString("timeouts.read"));
+    }
+
+    @Test
+    public void envOverridesApplyPerEntryAndAreNotPersisted() throws Exception {
+        File cfg = tmp.resolve("env.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        yaml.set("limits.maxUsers", 10);
+        yaml.set("limits.maxRooms", 2);
+        yaml.save(cfg);
+
+        SettingsManager.configure()
+                .enableOverwriters(true)
+                .overwriters(List.of(Map.of("LIMITS_MAX_USERS", "500")::get))
+                .done();
+
+        MapBundle bundle = new MapBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals(Long.valueOf(500L), bundle.limits.get("maxUsers"));
+        assertEquals(Long.valueOf(2L), bundle.limits.get("maxRooms"));
+
+        bundle.limits.put("maxRooms", 4L);
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(cfg);
+        assertEquals(10, saved.getInt("limits.maxUsers"), "Overwritten entries are not persisted");
+        assertEquals(4, saved.getInt("limits.maxRooms"));
+    }
+
+    public static class NumericBundle extends SettingsBundle {
+        public NumericBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public Map<String, Integer> counts = new LinkedHashMap<>();
+
+        public Map<String, List<Long>> ids = new LinkedHashMap<>();
+    }
+
+    private NumericBundle registerNumeric(String name, Map<String, Object> values) throws Exception {
+        File cfg = tmp.resolve(name + ".yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        values.forEach(yaml::set);
+        yaml.save(cfg);
+
+        resetSettingsManagerSingleton();
+        SettingsManager.configure().done();
+        NumericBundle bundle = new NumericBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+        return bundle;
+    }
+
+    @Test
+    public void numbersAreConvertedExactly() throws Exception {
+        NumericBundle bundle = registerNumeric("exact", Map.of("counts.whole", 2.0, "ids.users", List.of(1, 5000000000L)));
+
+        assertEquals(Integer.valueOf(2), bundle.counts.get("whole"));
+        assertEquals(List.of(1L, 5000000000L), bundle.ids.get("users"));
+        assertEquals(Long.valueOf(1L), bundle.ids.get("users").getFirst(), "Integers must be widened to the element type");
+
+        assertThrows(IllegalStateException.class, () -> registerNumeric("fraction", Map.of("counts.half", 1.7)));
+        assertThrows(IllegalStateException.class, () -> registerNumeric("overflow", Map.of("counts.large", 3000000000L)));
+        assertThrows(IllegalStateException.class, () -> registerNumeric("element", Map.of("ids.users", List.of(1, 2.5))));
+    }
+}
@@ -0,0 +1,184 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests binding and saving large object lists in parallel chunks.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class ParallelListTests {
+    private static final int SIZE = 2000;
+    private static final Set<String> THREADS = ConcurrentHashMap.newKeySet();
+
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-parallel-");
+        resetSettingsManagerSingleton();
+        THREADS.clear();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Server {
+        public String host = "localhost";
+        public int port = 25565;
+        public List<String> tags = new ArrayList<>();
+
+        public Server() {
+            THREADS.add(Thread.currentThread().getName());
+        }
+    }
+
+    public static class ServerBundle extends SettingsBundle {
+        public ServerBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public List<Server> servers = new ArrayList<>();
+        @YAMLSetting.Parallel(threshold = 0)
+        public List<Server> backups = new ArrayList<>();
+    }
+
+    private static String servers(int size, int bad) {
+        StringBuilder text = new StringBuilder("Version: 1.0.0\nservers:\n");
+        for (int i = 0; i < size; i++) {
+            if (i == bad) {
+                text.append("- broken\n");
+                continue;
+            }
+            text.append("- host: host-").append(i).append("\n  port: ").append(i).append("\n  tags:\n  - t").append(i).append('\n');
+        }
+        return text.toString();
+    }
+
+    private ServerBundle register(String name, String text, int threshold) throws Exception {
+        resetSettingsManagerSingleton();
+        SettingsManager.configure().parallelListThreshold(threshold).done();
+        Path file = tmp.resolve(name + ".yaml");
+        Files.writeString(file, text);
+        ServerBundle bundle = new ServerBundle(file.toFile());
+        bundle.register();
+        return bundle;
+    }
+
+    @Test
+    public void parallelListsKeepTheirOrder() throws Exception {
+        ServerBundle bundle = register("parallel", servers(SIZE, -1), 100);
+
+        assertEquals(SIZE, bundle.servers.size());
+        for (int i = 0; i < SIZE; i++) {
+            Server server = bundle.servers.get(i);
+            assertEquals("host-" + i, server.host);
+            assertEquals(i, server.port);
+            assertEquals(List.of("t" + i), server.tags);
+        }
+
+        bundle.servers.get(SIZE - 1).host = "last";
+        bundle.servers.getFirst().port = -1;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        // Saved the same way without parallelism
+        ServerBundle serial = register("serial", Files.readString(tmp.resolve("parallel.yaml")), 0);
+        assertEquals("last", serial.servers.get(SIZE - 1).host);
+        assertTrue(SettingsManager.getInstance().save(serial));
+        assertEquals(Files.readString(tmp.resolve("serial.yaml")), Files.readString(tmp.resolve("parallel.yaml")));
+        assertEquals(SIZE, YamlConfiguration.loadConfiguration(tmp.resolve("parallel.yaml").toFile()).getList("servers").size());
+    }
+
+    @Test
+    public void theFirstFailingElementIsReported() throws Exception {
+        String text = servers(SIZE, 1500).replace("- host: host-1700\n", "- broken-later\n- host: host-1700\n");
+
+        RuntimeException serial = assertThrows(RuntimeException.class, () -> register("serial", text, 0));
+        RuntimeException parallel = assertThrows(RuntimeException.class, () -> register("parallel", text, 100));
+
+        assertEquals(serial.getClass(), parallel.getClass());
+        assertEquals(serial.getMessage(), parallel.getMessage());
+    }
+
+    @Test
+    public void fieldsOptOutOfParallelBinding() throws Exception {
+        Assumptions.assumeTrue(ForkJoinPool.getCommonPoolParallelism() > 1, "The common pool has a single worker");
+
+        register("optOut", servers(SIZE, -1).replace("servers:", "backups:"), 100);
+        assertEquals(Set.of(Thread.currentThread().getName()), THREADS);
+
+        THREADS.clear();
+        register("parallel", servers(SIZE, -1), 100);
+        assertTrue(THREADS.size() > 1, "Bound on " + THREADS);
+    }
+
+    public static class Team {
+        public String name = "ops";
+    }
+
+    public static class Member {
+        public String name = "member";
+        public Team team;
+    }
+
+    public static class TeamBundle extends SettingsBundle {
+        public TeamBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+            Team team = new Team();
+            for (int i = 0; i < SIZE; i++) {
+                Member member = new Member();
+                member.name = "member-" + i;
+                member.team = team;
+                members.add(member);
+            }
+        }
+
+        public List<Member> members = new ArrayList<>();
+    }
+
+    private String saveTeam(String name, int threshold) throws Exception {
+        resetSettingsManagerSingleton();
+        SettingsManager.configure().parallelListThreshold(threshold).done();
+        Path file = tmp.resolve(name + ".yaml");
+        TeamBundle bundle = new TeamBundle(file.toFile());
+        bundle.register();
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        return Files.readString(file);
+    }
+
+    @Test
+    public void objectsSharedByElementsAreSavedOnce() throws Exception {
+        String serial = saveTeam("serial", 0);
+        String parallel = saveTeam("parallel", 100);
+
+        assertEquals(serial, parallel);
+        List<Map<?, ?>> members = YamlConfiguration.loadConfiguration(tmp.resolve("parallel.yaml").toFile()).getMapList("members");
+        assertEquals(SIZE, members.size());
+        assertTrue(members.getFirst().containsKey("team"));
+        assertFalse(members.getLast().containsKey("team"), "The shared team is only saved for the first member");
+    }
+}
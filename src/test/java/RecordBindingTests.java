@@ -0,0 +1,171 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests binding records and classes with an annotated constructor.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class RecordBindingTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-records-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public record Endpoint(String host, int port, Duration timeout) {}
+
+    public record Pool(@YAMLSetting(name = "max-size") int maxSize, Endpoint endpoint) {}
+
+    public static final class Credentials {
+        private final String user;
+        private final String role;
+
+        @YAMLSetting.Constructor
+        public Credentials(@YAMLSetting(name = "user") String user, @YAMLSetting(name = "role") String role) {
+            this.user = user;
+            this.role = role;
+        }
+    }
+
+    public static class RecordBundle extends SettingsBundle {
+        public RecordBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public Endpoint primary = new Endpoint("localhost", 80, Duration.ofSeconds(5));
+
+        public Pool pool = new Pool(4, new Endpoint("db", 5432, Duration.ofSeconds(1)));
+
+        public Credentials credentials = new Credentials("admin", "owner");
+
+        public Map<String, Endpoint> mirrors = new LinkedHashMap<>();
+
+        public List<Endpoint> replicas = new ArrayList<>(List.of(new Endpoint("replica", 5433, Duration.ofSeconds(2))));
+    }
+
+    @Test
+    public void defaultsAreWrittenThroughAccessors() throws Exception {
+        File cfg = tmp.resolve("defaults.yaml").toFile();
+        SettingsManager.configure().done();
+
+        RecordBundle bundle = new RecordBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        YamlConfiguration written = YamlConfiguration.loadConfiguration(cfg);
+        assertEquals("localhost", written.getString("primary.host"));
+        assertEquals("5s", written.getString("primary.timeout"));
+        assertEquals(4, written.getInt("pool.max-size"));
+        assertEquals(5432, written.getInt("pool.endpoint.port"));
+        assertEquals("admin", written.getString("credentials.user"));
+        assertEquals(1, written.getList("replicas").size());
+    }
+
+    @Test
+    public void valuesAreConstructedInOneCall() throws Exception {
+        File cfg = tmp.resolve("records.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        yaml.set("primary.host", "example.com");
+        yaml.set("pool.max-size", 16);
+        yaml.set("pool.endpoint.host", "db.example.com");
+        yaml.set("pool.endpoint.timeout", "1m");
+        yaml.set("credentials.user", "service");
+        yaml.set("credentials.role", "reader");
+        yaml.set("mirrors.eu.host", "eu.example.com");
+        yaml.set("mirrors.eu.port", 8443);
+        yaml.set("replicas", List.of(Map.of("host", "r1", "port", 1, "timeout", "3s"), Map.of("host", "r2", "port", 2)));
+        yaml.save(cfg);
+
+        SettingsManager.configure().done();
+        RecordBundle bundle = new RecordBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals(new Endpoint("example.com", 80, Duration.ofSeconds(5)), bundle.primary, "Missing components fall back to the defaults");
+        assertEquals(new Pool(16, new Endpoint("db.example.com", 5432, Duration.ofMinutes(1))), bundle.pool);
+        assertEquals("service", bundle.credentials.user);
+        assertEquals("reader", bundle.credentials.role);
+        assertEquals(new Endpoint("eu.example.com", 8443, null), bundle.mirrors.get("eu"));
+        assertEquals(List.of(new Endpoint("r1", 1, Duration.ofSeconds(3)), new Endpoint("r2", 2, null)), bundle.replicas);
+
+        bundle.primary = new Endpoint("changed.example.com", 443, Duration.ofSeconds(10));
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(cfg);
+        assertEquals("changed.example.com", saved.getString("primary.host"));
+        assertEquals(443, saved.getInt("primary.port"));
+        assertEquals("10s", saved.getString("primary.timeout"));
+        assertEquals(16, saved.getInt("pool.max-size"));
+        assertEquals("reader", saved.getString("credentials.role"));
+    }
+
+    @Test
+    public void envOverridesApplyPerComponentAndAreNotPersisted() throws Exception {
+        File cfg = tmp.resolve("env.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        yaml.set("primary.host", "example.com");
+        yaml.set("primary.port", 80);
+        yaml.save(cfg);
+
+        SettingsManager.configure()
+                .enableOverwriters(true)
+                .overwriters(List.of(Map.of("PRIMARY_PORT", "9090")::get))
+                .done();
+
+        RecordBundle bundle = new RecordBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals(9090, bundle.primary.port());
+        assertEquals("example.com", bundle.primary.host());
+
+        bundle.primary = new Endpoint("other.example.com", 9090, null);
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(cfg);
+        assertEquals(80, saved.getInt("primary.port"), "Overwritten components are not persisted");
+        assertEquals("other.example.com", saved.getString("primary.host"));
+    }
+
+    @Test
+    public void componentsAreIndexed() throws Exception {
+        File cfg = tmp.resolve("index.yaml").toFile();
+        SettingsManager.configure().done();
+
+        RecordBundle bundle = new RecordBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals(4, bundle.index().getInt(bundle.index().key("pool.max-size", int.class)));
+        assertEquals("db", bundle.index().get(bundle.index().key("pool.endpoint.host", String.class)));
+        assertEquals(5433, bundle.index().getInt(bundle.index().key("replicas.0.port", Integer.class)));
+    }
+}
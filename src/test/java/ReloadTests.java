@@ -0,0 +1,195 @@
+import com.toxicstoxm.YAJSI.ConfigLayer;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests reloading registered bundles into the existing object graph.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class ReloadTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-reload-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Server {
+        public String host = "localhost";
+        public int port = 25565;
+
+        public Server() {}
+
+        public Server(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+    }
+
+    public static class Limits {
+        public int max = 5;
+    }
+
+    public static class ReloadBundle extends SettingsBundle {
+        public ReloadBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public String name = "default";
+        public List<String> tags = new ArrayList<>(List.of("a", "b"));
+        public int[] ports = {80, 443};
+        public Limits limits = new Limits();
+        public List<Server> servers = new ArrayList<>(List.of(new Server("one", 1), new Server("two", 2)));
+        public Map<String, Integer> weights = new LinkedHashMap<>(Map.of("a", 1));
+    }
+
+    private ReloadBundle register() {
+        ReloadBundle bundle = new ReloadBundle(tmp.resolve("reload.yaml").toFile());
+        bundle.register();
+        return bundle;
+    }
+
+    @Test
+    public void reloadKeepsObjectIdentity() throws Exception {
+        ReloadBundle bundle = register();
+        List<String> tags = bundle.tags;
+        int[] ports = bundle.ports;
+        Limits limits = bundle.limits;
+        List<Server> servers = bundle.servers;
+        Server first = servers.get(0);
+        Server second = servers.get(1);
+        Map<String, Integer> weights = bundle.weights;
+
+        Files.writeString(tmp.resolve("reload.yaml"), """
+                Version: 1.0.0
+                name: changed
+                tags:
+                - a
+                - z
+                ports:
+                - 8080
+                - 8443
+                limits:
+                  max: 10
+                servers:
+                - host: one
+                  port: 1
+                - host: two
+                  port: 99
+                weights:
+                  a: 1
+                  c: 3
+                """);
+        bundle.reload();
+
+        assertEquals("changed", bundle.name);
+        assertSame(tags, bundle.tags);
+        assertEquals(List.of("a", "z"), bundle.tags);
+        assertSame(ports, bundle.ports);
+        assertArrayEquals(new int[]{8080, 8443}, bundle.ports);
+        assertSame(limits, bundle.limits);
+        assertEquals(10, bundle.limits.max);
+        assertSame(servers, bundle.servers);
+        assertSame(first, bundle.servers.get(0));
+        assertSame(second, bundle.servers.get(1));
+        assertEquals(99, second.port);
+        assertSame(weights, bundle.weights);
+        assertEquals(Map.of("a", 1, "c", 3), bundle.weights);
+    }
+
+    @Test
+    public void resizedValuesKeepWhatCanBeReused() throws Exception {
+        ReloadBundle bundle = register();
+        List<String> tags = bundle.tags;
+        int[] ports = bundle.ports;
+        Server first = bundle.servers.get(0);
+
+        Files.writeString(tmp.resolve("reload.yaml"), """
+                Version: 1.0.0
+                tags:
+                - a
+                - b
+                - c
+                ports:
+                - 80
+                servers:
+                - host: one
+                  port: 1
+                - host: two
+                  port: 2
+                - host: three
+                  port: 3
+                """);
+        bundle.reload();
+
+        assertSame(tags, bundle.tags);
+        assertEquals(List.of("a", "b", "c"), bundle.tags);
+        assertNotSame(ports, bundle.ports, "Arrays cannot grow or shrink");
+        assertArrayEquals(new int[]{80}, bundle.ports);
+        assertEquals(3, bundle.servers.size());
+        assertSame(first, bundle.servers.get(0));
+        assertEquals("three", bundle.servers.get(2).host);
+    }
+
+    @Test
+    public void streamLayersAreBoundAgainOnReload() throws Exception {
+        ReloadBundle bundle = new ReloadBundle(tmp.resolve("reload.yaml").toFile());
+        bundle.addLayer(ConfigLayer.of("base", new ByteArrayInputStream("""
+                Version: 1.0.0
+                limits:
+                  max: 20
+                """.getBytes(StandardCharsets.UTF_8))));
+        bundle.register();
+        assertEquals(20, bundle.limits.max);
+
+        Files.writeString(tmp.resolve("reload.yaml"), """
+                Version: 1.0.0
+                name: changed
+                """);
+        bundle.reload();
+
+        assertEquals("changed", bundle.name);
+        assertEquals(20, bundle.limits.max, "The layer is not consumed by the registration");
+        assertEquals("base", bundle.getOrigin("limits.max"));
+        bundle.reload();
+        assertEquals(20, bundle.limits.max);
+        assertFalse(Files.readString(tmp.resolve("reload.yaml")).contains("max: 5"), "Defaults are not written below the layer");
+    }
+
+    @Test
+    public void onlyRegisteredFileBundlesCanBeReloaded() {
+        ReloadBundle unregistered = new ReloadBundle(tmp.resolve("unregistered.yaml").toFile());
+        assertThrows(IllegalStateException.class, unregistered::reload);
+
+        SettingsBundle stream = new SettingsBundle(new ConfigVersion(1, 0, 0), new ByteArrayInputStream("Version: 1.0.0".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(UnsupportedOperationException.class, stream::reload);
+    }
+}
@@ -0,0 +1,108 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.serializing.ExternalYAMLSerializer;
+import com.toxicstoxm.YAJSI.serializing.SerializableWith;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that saving a bundle writes every field, including the fields declared after serialized, list and nested object fields.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class SaveValuesTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-save-values-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class ColorSerializer implements ExternalYAMLSerializer<Color> {
+        @Override
+        public Color deserialize(@NotNull ConfigurationSection yaml) {
+            Color color = new Color();
+            color.rgb = yaml.getInt("rgb");
+            return color;
+        }
+
+        @Override
+        public @NotNull ConfigurationSection serialize(Color o) {
+            ConfigurationSection section = new YamlConfiguration();
+            section.set("rgb", o.rgb);
+            return section;
+        }
+    }
+
+    @SerializableWith(serializer = ColorSerializer.class)
+    public static class Color {
+        public int rgb = 0xFFFFFF;
+    }
+
+    public static class Point {
+        public int x = 1;
+        public int y = 2;
+    }
+
+    public static class OrderedBundle extends SettingsBundle {
+        public OrderedBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public Color color = new Color();
+        public int afterSerialized = 1;
+        public List<Point> points = new ArrayList<>(List.of(new Point()));
+        public int afterList = 1;
+        public Point origin = new Point();
+        public int afterNested = 1;
+    }
+
+    @Test
+    public void fieldsAfterSerializedListAndNestedFieldsAreSaved() throws Exception {
+        Path file = tmp.resolve("ordered.yaml");
+        SettingsManager.configure().done();
+        OrderedBundle bundle = new OrderedBundle(file.toFile());
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        bundle.color.rgb = 0x00FF00;
+        bundle.afterSerialized = 2;
+        bundle.points.getFirst().x = 5;
+        bundle.afterList = 3;
+        bundle.origin.y = 7;
+        bundle.afterNested = 4;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(file.toFile());
+        assertEquals(0x00FF00, saved.getInt("color.rgb"));
+        assertEquals(2, saved.getInt("afterSerialized"));
+        assertEquals(3, saved.getInt("afterList"));
+        assertEquals(7, saved.getInt("origin.y"));
+        assertEquals(4, saved.getInt("afterNested"));
+    }
+}
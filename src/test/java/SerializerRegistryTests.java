@@ -0,0 +1,209 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.StormYAML.yaml.ConfigurationSection;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.serializing.ExternalYAMLSerializer;
+import com.toxicstoxm.YAJSI.serializing.SerializableWith;
+import com.toxicstoxm.YAJSI.serializing.SerializerRegistry;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests programmatic serializer registration and resolution through the type hierarchy.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class SerializerRegistryTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-registry-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        SerializerRegistry.unregister(Shape.class);
+        SerializerRegistry.unregister(ThirdPartyPoint.class);
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    /** Stands in for a library type that cannot be annotated. */
+    public static class ThirdPartyPoint {
+        public final int x;
+        public final int y;
+
+        public ThirdPartyPoint(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static class PointSerializer implements ExternalYAMLSerializer<ThirdPartyPoint> {
+        @Override
+        public ThirdPartyPoint deserialize(@NotNull ConfigurationSection yaml) {
+            return new ThirdPartyPoint(yaml.getInt("x"), yaml.getInt("y"));
+        }
+
+        @Override
+        public @NotNull ConfigurationSection serialize(ThirdPartyPoint o) {
+            ConfigurationSection section = new YamlConfiguration();
+            section.set("x", o.x);
+            section.set("y", o.y);
+            return section;
+        }
+    }
+
+    public interface Shape {
+        double area();
+    }
+
+    public static class Square implements Shape {
+        final double side;
+
+        public Square(double side) {
+            this.side = side;
+        }
+
+        @Override
+        public double area() {
+            return side * side;
+        }
+    }
+
+    public static class SpecialSquare extends Square {
+        public SpecialSquare() {
+            super(1);
+        }
+    }
+
+    public static class ShapeSerializer implements ExternalYAMLSerializer<Shape> {
+        @Override
+        public Shape deserialize(@NotNull ConfigurationSection yaml) {
+            return new Square(yaml.getDouble("side"));
+        }
+
+        @Override
+        public @NotNull ConfigurationSection serialize(Shape o) {
+            ConfigurationSection section = new YamlConfiguration();
+            section.set("side", Math.sqrt(o.area()));
+            return section;
+        }
+    }
+
+    public static class BrokenSerializer implements ExternalYAMLSerializer<Object> {
+        public BrokenSerializer() {
+            throw new IllegalStateException("broken");
+        }
+
+        @Override
+        public Object deserialize(@NotNull ConfigurationSection yaml) {
+            return null;
+        }
+
+        @Override
+        public @NotNull ConfigurationSection serialize(Object o) {
+            return new YamlConfiguration();
+        }
+    }
+
+    @SerializableWith(serializer = BrokenSerializer.class)
+    public static class BrokenType {}
+
+    public static class PointBundle extends SettingsBundle {
+        public PointBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public ThirdPartyPoint point = new ThirdPartyPoint(1, 2);
+    }
+
+    @Test
+    public void resolvesThroughSuperclassesAndInterfaces() {
+        assertNull(SerializerRegistry.resolve(SpecialSquare.class));
+
+        ShapeSerializer serializer = new ShapeSerializer();
+        SerializerRegistry.register(Shape.class, serializer);
+
+        assertSame(serializer, SerializerRegistry.resolve(Shape.class));
+        assertSame(serializer, SerializerRegistry.resolve(Square.class));
+        assertSame(serializer, SerializerRegistry.resolve(SpecialSquare.class), "Cached misses must be invalidated by registrations");
+
+        assertTrue(SerializerRegistry.unregister(Shape.class));
+        assertFalse(SerializerRegistry.hasSerializer(SpecialSquare.class));
+        assertNull(SerializerRegistry.resolve(String.class));
+        assertNull(SerializerRegistry.resolve(int.class));
+    }
+
+    @Test
+    public void registrationsAreSeenDespiteConcurrentMisses() throws Exception {
+        ShapeSerializer serializer = new ShapeSerializer();
+        for (int round = 0; round < 200; round++) {
+            SerializerRegistry.unregister(Shape.class);
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread resolver = new Thread(() -> {
+                while (running.get()) SerializerRegistry.resolve(SpecialSquare.class);
+            });
+            resolver.start();
+
+            SerializerRegistry.register(Shape.class, serializer);
+            Thread.onSpinWait();
+            running.set(false);
+            resolver.join();
+
+            // A miss computed while registering must not be cached past the registration
+            assertSame(serializer, SerializerRegistry.resolve(SpecialSquare.class), "Round " + round);
+        }
+    }
+
+    @Test
+    public void failingAnnotatedSerializerIsReported() {
+        assertThrows(UnsupportedOperationException.class, () -> SerializerRegistry.resolve(BrokenType.class));
+    }
+
+    @Test
+    public void registeredSerializerIsUsedForBinding() throws Exception {
+        SerializerRegistry.register(ThirdPartyPoint.class, new PointSerializer());
+
+        File cfg = tmp.resolve("point.yaml").toFile();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("Version", "1.0.0");
+        yaml.set("point.x", 5);
+        yaml.set("point.y", 6);
+        yaml.save(cfg);
+
+        SettingsManager.configure().done();
+        PointBundle bundle = new PointBundle(cfg);
+        SettingsManager.getInstance().registerConfig(bundle);
+
+        assertEquals(5, bundle.point.x);
+        assertEquals(6, bundle.point.y);
+
+        bundle.point = new ThirdPartyPoint(7, 8);
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(cfg);
+        assertEquals(7, saved.getInt("point.x"));
+        assertEquals(8, saved.getInt("point.y"));
+    }
+}
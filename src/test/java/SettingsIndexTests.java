@@ -0,0 +1,137 @@
+import com.toxicstoxm.YAJSI.SettingKey;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsIndex;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the compiled key index and reads through precompiled setting handles.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class SettingsIndexTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-index-");
+        resetSettingsManagerSingleton();
+        SettingsManager.configure().done();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class Server {
+        public String host = "localhost";
+        public int port = 25565;
+    }
+
+    public static class Limits {
+        public long maxBytes = 1024L;
+        public float ratio = 0.5F;
+    }
+
+    public static class IndexedBundle extends SettingsBundle {
+        public IndexedBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        @YAMLSetting(name = "Name")
+        public String name = "rules";
+
+        public int threshold = 7;
+        public double weight = 1.25;
+        public boolean enabled = true;
+        public int[] ports = {80, 443};
+        public Limits limits = new Limits();
+        public List<Server> servers = new ArrayList<>(List.of(new Server(), new Server()));
+    }
+
+    @Test
+    public void readsThroughHandles() {
+        IndexedBundle bundle = new IndexedBundle(tmp.resolve("index.yaml").toFile());
+        bundle.register();
+        SettingsIndex index = bundle.index();
+
+        assertEquals(7, index.getInt(index.key("threshold", int.class)));
+        assertEquals(1.25, index.getDouble(index.key("weight", Double.class)));
+        assertTrue(index.getBoolean(index.key("enabled", boolean.class)));
+        assertEquals("rules", index.get(index.key("Name", String.class)));
+        assertEquals(443, index.getInt(index.key("ports.1", int.class)));
+        assertEquals(1024L, index.getLong(index.key("limits.maxBytes", long.class)));
+        assertEquals(0.5F, index.getFloat(index.key("limits.ratio", float.class)));
+        assertEquals("localhost", index.get(index.key("servers.1.host", String.class)));
+        assertEquals(25565, index.getInt(index.key("servers.0.port", int.class)));
+        assertEquals(2, index.get(index.key("servers", List.class)).size());
+        assertEquals(Integer.valueOf(7), index.get(index.key("threshold", Integer.class)));
+    }
+
+    @Test
+    public void rejectsUnknownPathsAndTypes() {
+        IndexedBundle bundle = new IndexedBundle(tmp.resolve("index.yaml").toFile());
+        bundle.register();
+        SettingsIndex index = bundle.index();
+
+        assertThrows(IllegalArgumentException.class, () -> index.key("missing", int.class));
+        assertThrows(IllegalArgumentException.class, () -> index.key("threshold", long.class));
+        assertThrows(IllegalArgumentException.class, () -> index.key("Name", Integer.class));
+
+        IndexedBundle other = new IndexedBundle(tmp.resolve("other.yaml").toFile());
+        other.register();
+        SettingKey<Integer> foreign = other.index().key("threshold", int.class);
+        assertThrows(IllegalArgumentException.class, () -> index.getInt(foreign));
+
+        assertThrows(IllegalStateException.class, () -> new IndexedBundle(tmp.resolve("unregistered.yaml").toFile()).index());
+    }
+
+    @Test
+    public void handlesSurviveRefreshAndLayoutChanges() {
+        IndexedBundle bundle = new IndexedBundle(tmp.resolve("index.yaml").toFile());
+        bundle.register();
+        SettingsIndex index = bundle.index();
+
+        SettingKey<Integer> threshold = index.key("threshold", int.class);
+        SettingKey<Integer> secondPort = index.key("servers.1.port", int.class);
+
+        bundle.threshold = 42;
+        assertEquals(7, index.getInt(threshold), "The index is a snapshot until refreshed");
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertEquals(42, index.getInt(threshold), "Saving refreshes the index");
+
+        Server added = new Server();
+        added.port = 1;
+        bundle.servers.addFirst(added);
+        index.refresh();
+
+        assertEquals(42, index.getInt(threshold));
+        assertEquals(25565, index.getInt(secondPort));
+        assertEquals(1, index.getInt(index.key("servers.0.port", int.class)));
+        assertTrue(index.contains("servers.2.port"));
+
+        bundle.servers.clear();
+        index.refresh();
+        assertThrows(IllegalStateException.class, () -> index.getInt(secondPort));
+    }
+}
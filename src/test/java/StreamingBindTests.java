@@ -0,0 +1,207 @@
+import com.toxicstoxm.YAJSI.ConfigType;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests binding read-only bundles while parsing their files, without building a tree.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class StreamingBindTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-streaming-bind-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public record Endpoint(String host, int port) {}
+
+    public static class Server {
+        public String host = "localhost";
+        public int port = 25565;
+        public List<String> tags = new ArrayList<>();
+    }
+
+    public static class Limits {
+        public long maxBytes = 1024L;
+        public float ratio = 0.5F;
+    }
+
+    public static class DataBundle extends SettingsBundle {
+        public DataBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f, ConfigType.READONLY);
+        }
+
+        @YAMLSetting(name = "Name")
+        public String name = "default";
+        public String quoted = "default";
+        public int count = 0;
+        public double weight = 0;
+        public boolean enabled = false;
+        public String missing = "kept";
+        public int[] ports = {};
+        public List<String> regions = new ArrayList<>();
+        public Duration timeout = Duration.ZERO;
+        public Endpoint primary = new Endpoint("none", 0);
+        public Limits limits = new Limits();
+        public List<Server> servers = new ArrayList<>();
+        public Map<String, Integer> weights = new LinkedHashMap<>();
+    }
+
+    private static final String DATA = """
+            # Data set
+            Version: 1.0.0
+            Name: streamed # trailing comment
+            quoted: "yes: \\"really\\""
+            count: 42
+            weight: -1.5
+            enabled: true
+            ports: [80, 443]
+            regions:
+            - eu
+            - 'us'
+            timeout: 30s
+            primary:
+              host: upstream
+              port: 8080
+            limits:
+              maxBytes: 12345678901
+            servers:
+            - host: one
+              port: 1
+              tags: []
+            - host: two
+              port: 2
+              tags:
+              - primary
+            weights:
+              a: 1
+              b: 2
+            """;
+
+    private DataBundle register(String name, String text, boolean streaming) throws Exception {
+        resetSettingsManagerSingleton();
+        SettingsManager.configure().streamingBind(streaming).done();
+        Path file = tmp.resolve(name + ".yaml");
+        Files.writeString(file, text);
+        DataBundle bundle = new DataBundle(file.toFile());
+        bundle.register();
+        return bundle;
+    }
+
+    @Test
+    public void streamedFilesBindTheSameValuesAsTheTree() throws Exception {
+        DataBundle tree = register("tree", DATA, false);
+        long treeHash = SettingsManager.getInstance().fingerprint(tree).getHash();
+        DataBundle streamed = register("streamed", DATA, true);
+
+        for (DataBundle bundle : List.of(tree, streamed)) {
+            assertEquals("streamed", bundle.name);
+            assertEquals("yes: \"really\"", bundle.quoted);
+            assertEquals(42, bundle.count);
+            assertEquals(-1.5, bundle.weight);
+            assertTrue(bundle.enabled);
+            assertEquals("kept", bundle.missing);
+            assertArrayEquals(new int[]{80, 443}, bundle.ports);
+            assertEquals(List.of("eu", "us"), bundle.regions);
+            assertEquals(Duration.ofSeconds(30), bundle.timeout);
+            assertEquals(new Endpoint("upstream", 8080), bundle.primary);
+            assertEquals(12345678901L, bundle.limits.maxBytes);
+            assertEquals(0.5F, bundle.limits.ratio);
+            assertEquals(2, bundle.servers.size());
+            assertEquals(1, bundle.servers.get(0).port);
+            assertEquals(2, bundle.servers.get(1).port);
+            assertEquals(List.of("primary"), bundle.servers.get(1).tags);
+            assertEquals(Map.of("a", 1, "b", 2), bundle.weights);
+        }
+
+        // The tree of the streamed bundle is rebuilt from the fields
+        assertEquals(treeHash, SettingsManager.getInstance().fingerprint(streamed).getHash());
+    }
+
+    @Test
+    public void unsupportedYamlFallsBackToTheTree() throws Exception {
+        DataBundle bundle = register("fallback", """
+                Version: 1.0.0
+                Name: &name anchored
+                quoted: *name
+                enabled: yes
+                regions:
+                - eu
+                """, true);
+
+        assertEquals("anchored", bundle.name);
+        assertEquals("anchored", bundle.quoted);
+        assertTrue(bundle.enabled);
+        assertEquals(List.of("eu"), bundle.regions);
+    }
+
+    @Test
+    public void olderFilesAreUpgradedThroughTheTree() throws Exception {
+        resetSettingsManagerSingleton();
+        SettingsManager.configure().streamingBind(true).autoUpgrade(true).done();
+        Path file = tmp.resolve("old.yaml");
+        Files.writeString(file, """
+                Version: 0.9.0
+                count: 7
+                """);
+
+        DataBundle bundle = new DataBundle(file.toFile());
+        bundle.register();
+
+        assertEquals(7, bundle.count);
+        assertTrue(Files.readString(file).contains("Version: 1.0.0"), "Upgraded read-only files are written through the tree");
+    }
+
+    private long allocatedPerRegistration(boolean streaming) throws Exception {
+        StringBuilder text = new StringBuilder("Version: 1.0.0\nservers:\n");
+        for (int i = 0; i < 5000; i++) {
+            text.append("- host: host-").append(i).append("\n  port: ").append(i).append("\n  tags:\n  - t").append(i).append('\n');
+        }
+        register(String.valueOf(streaming), text.toString(), streaming);
+
+        return Allocations.min(2, 5, () -> {
+            DataBundle bundle = new DataBundle(tmp.resolve(streaming + ".yaml").toFile());
+            bundle.register();
+            assertEquals(5000, bundle.servers.size());
+        });
+    }
+
+    @Test
+    public void streamingAllocatesLessThanTheTree() throws Exception {
+        Allocations.assumeSupported();
+
+        long tree = allocatedPerRegistration(false);
+        long streamed = allocatedPerRegistration(true);
+
+        assertTrue(streamed * 2 < tree, "Streamed " + streamed + " bytes, tree " + tree + " bytes");
+    }
+}
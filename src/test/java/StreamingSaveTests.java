@@ -0,0 +1,232 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests saving bundles by streaming their fields to the file without a tree.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class StreamingSaveTests {
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-streaming-");
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public record Endpoint(String host, int port) {}
+
+    public static class Server {
+        public String host = "localhost";
+        public int port = 25565;
+        public List<String> tags = new ArrayList<>();
+    }
+
+    public static class Limits {
+        @YAMLSetting(comments = "Maximum request size")
+        public long maxBytes = 1024L;
+        public float ratio = 0.5F;
+    }
+
+    public static class StreamedBundle extends SettingsBundle {
+        public StreamedBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        @YAMLSetting(name = "Name", comments = {"Display name", "Shown in the dashboard"})
+        public String name = "streamed";
+        public String quoted = "yes";
+        public String special = "a: b # not a comment";
+        public String multiline = "first\nsecond \"quoted\"\ttab";
+        public String empty = "";
+        public String unicode = "grüße ✓";
+        public char separator = ';';
+        public int count = 7;
+        public double weight = 1.25;
+        public boolean enabled = true;
+        public int[] ports = {80, 443};
+        public List<String> regions = new ArrayList<>(List.of("eu", "us"));
+        public List<String> none = new ArrayList<>();
+        public Duration timeout = Duration.ofSeconds(30);
+        public Endpoint primary = new Endpoint("upstream", 8080);
+        public Limits limits = new Limits();
+        public List<Server> servers = new ArrayList<>(List.of(new Server(), new Server()));
+        public Map<String, Integer> weights = new LinkedHashMap<>(Map.of("a", 1));
+        public Map<String, Endpoint> replicas = new LinkedHashMap<>(Map.of("backup", new Endpoint("backup", 9090)));
+    }
+
+    @Test
+    public void streamedFilesBindToTheSameValues() throws Exception {
+        SettingsManager.configure().streamingSave(true).done();
+
+        Path file = tmp.resolve("streamed.yaml");
+        StreamedBundle bundle = new StreamedBundle(file.toFile());
+        bundle.register();
+
+        bundle.name = "- dash";
+        bundle.count = 42;
+        bundle.weight = Double.NaN;
+        bundle.ports = new int[]{1, 2, 3};
+        bundle.regions.add("true");
+        bundle.limits.maxBytes = 4096L;
+        bundle.servers.get(1).host = "second";
+        bundle.servers.get(1).tags.add("primary");
+        bundle.weights.put("b", 2);
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        String text = Files.readString(file);
+        assertTrue(text.contains("# Display name\n# Shown in the dashboard\nName:"), text);
+        assertTrue(text.contains("  # Maximum request size\n  maxBytes: 4096"), text);
+
+        resetSettingsManagerSingleton();
+        StreamedBundle reloaded = new StreamedBundle(file.toFile());
+        reloaded.register();
+
+        assertEquals("- dash", reloaded.name);
+        assertEquals("yes", reloaded.quoted);
+        assertEquals("a: b # not a comment", reloaded.special);
+        assertEquals("first\nsecond \"quoted\"\ttab", reloaded.multiline);
+        assertEquals("", reloaded.empty);
+        assertEquals("grüße ✓", reloaded.unicode);
+        assertEquals(';', reloaded.separator);
+        assertEquals(42, reloaded.count);
+        assertTrue(Double.isNaN(reloaded.weight));
+        assertTrue(reloaded.enabled);
+        assertArrayEquals(new int[]{1, 2, 3}, reloaded.ports);
+        assertEquals(List.of("eu", "us", "true"), reloaded.regions);
+        assertEquals(List.of(), reloaded.none);
+        assertEquals(Duration.ofSeconds(30), reloaded.timeout);
+        assertEquals(new Endpoint("upstream", 8080), reloaded.primary);
+        assertEquals(4096L, reloaded.limits.maxBytes);
+        assertEquals(0.5F, reloaded.limits.ratio);
+        assertEquals(2, reloaded.servers.size());
+        assertEquals("second", reloaded.servers.get(1).host);
+        assertEquals(List.of("primary"), reloaded.servers.get(1).tags);
+        assertEquals(Map.of("a", 1, "b", 2), reloaded.weights);
+        assertEquals(new Endpoint("backup", 9090), reloaded.replicas.get("backup"));
+    }
+
+    @Test
+    public void unusedKeysAreDroppedAndUnsupportedValuesFallBackToTheTree() throws Exception {
+        SettingsManager.configure().streamingSave(true).done();
+
+        Path file = tmp.resolve("streamed.yaml");
+        Files.writeString(file, """
+                Version: 1.0.0
+                legacy: true
+                count: 3
+                """);
+        StreamedBundle bundle = new StreamedBundle(file.toFile());
+        bundle.register();
+        assertEquals(3, bundle.count);
+
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertFalse(YamlConfiguration.loadConfiguration(file.toFile()).contains("legacy"));
+
+        // Exponents are written differently through the tree
+        bundle.weight = 1.0E20;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+        assertEquals(1.0E20, YamlConfiguration.loadConfiguration(file.toFile()).getDouble("weight"));
+        assertFalse(Files.exists(tmp.resolve("streamed.yaml.tmp")));
+    }
+
+    public static class SharedBundle extends SettingsBundle {
+        public SharedBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        @YAMLSetting(comments = "Display name")
+        public String name = "shared";
+        public Limits primary = new Limits();
+        public Limits secondary = primary;
+    }
+
+    @Test
+    public void savesFallingBackToTheTreeKeepCommentsAndUnusedKeys() throws Exception {
+        SettingsManager.configure().streamingSave(true).done();
+
+        Path file = tmp.resolve("shared.yaml");
+        Files.writeString(file, """
+                Version: 1.0.0
+                legacy: true
+                """);
+        SharedBundle bundle = new SharedBundle(file.toFile());
+        bundle.register();
+
+        // The limits are referenced twice, they cannot be streamed
+        bundle.name = "changed";
+        bundle.primary.maxBytes = 2048L;
+        assertTrue(SettingsManager.getInstance().save(bundle));
+
+        String text = Files.readString(file);
+        assertTrue(text.contains("# Display name\nname: changed"), text);
+        assertTrue(text.contains("  # Maximum request size\n  maxBytes: 2048"), text);
+        assertTrue(text.contains("# " + SettingsManager.getSettings().getUnusedWarning() + "\nlegacy: true"), text);
+    }
+
+    public static class LargeBundle extends SettingsBundle {
+        public LargeBundle(File f) {
+            super(new ConfigVersion(1, 0, 0), f);
+        }
+
+        public int revision = 0;
+        public List<Server> servers = new ArrayList<>();
+    }
+
+    private long allocatedPerSave(boolean streaming) throws Exception {
+        resetSettingsManagerSingleton();
+        SettingsManager.configure().streamingSave(streaming).incrementalSave(false).done();
+
+        LargeBundle bundle = new LargeBundle(tmp.resolve(streaming + ".yaml").toFile());
+        for (int i = 0; i < 5000; i++) {
+            Server server = new Server();
+            server.host = "host-" + i;
+            server.port = i;
+            bundle.servers.add(server);
+        }
+        bundle.register();
+
+        return Allocations.min(5, 5, () -> {
+            bundle.revision++;
+            SettingsManager.getInstance().save(bundle);
+        });
+    }
+
+    @Test
+    public void streamingAllocatesLessThanTheTree() throws Exception {
+        Allocations.assumeSupported();
+
+        long tree = allocatedPerSave(false);
+        long streamed = allocatedPerSave(true);
+
+        assertTrue(streamed * 2 < tree, "Streamed " + streamed + " bytes, tree " + tree + " bytes");
+    }
+}
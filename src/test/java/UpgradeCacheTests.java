@@ -0,0 +1,116 @@
+import com.toxicstoxm.StormYAML.file.YamlConfiguration;
+import com.toxicstoxm.YAJSI.SettingsBundle;
+import com.toxicstoxm.YAJSI.SettingsManager;
+import com.toxicstoxm.YAJSI.YAMLSetting;
+import com.toxicstoxm.YAJSI.upgrading.ConfigVersion;
+import com.toxicstoxm.YAJSI.upgrading.Upgrader;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that upgraded trees of stream backed bundles are cached and reused on the next registration.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class UpgradeCacheTests {
+    private static final String SOURCE = """
+            Version: 1.0.0
+            old-value: 17
+            """;
+
+    private static int upgraderCalls = 0;
+
+    private Path tmp;
+
+    @BeforeEach
+    public void before() throws Exception {
+        tmp = Files.createTempDirectory("yajsi-upgrade-cache-");
+        upgraderCalls = 0;
+        resetSettingsManagerSingleton();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        if (tmp != null && Files.exists(tmp)) {
+            try (var s = Files.walk(tmp)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        resetSettingsManagerSingleton();
+    }
+
+    private static void resetSettingsManagerSingleton() throws Exception {
+        Field f = SettingsManager.class.getDeclaredField("instance");
+        f.setAccessible(true);
+        f.set(null, null);
+    }
+
+    public static class StreamBundle extends SettingsBundle {
+        public StreamBundle(InputStream is) {
+            super(new ConfigVersion(2, 0, 0), is);
+        }
+
+        @YAMLSetting(name = "new-value")
+        public int value = 0;
+
+        @Upgrader(base = "1.0.0", factory = ConfigVersion.Factory.class)
+        private YamlConfiguration upgrade1_0_0(YamlConfiguration old, UUID id) {
+            upgraderCalls++;
+            YamlConfiguration updated = new YamlConfiguration();
+            updated.set(SettingsManager.getSettings().getVersionKey(), new ConfigVersion(2, 0, 0).toString());
+            updated.set("new-value", old.getInt("old-value"));
+            return updated;
+        }
+    }
+
+    private static InputStream source() {
+        return new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void secondRegistration_usesCachedUpgrade() throws Exception {
+        SettingsManager.configure().upgradeCacheDirectory(tmp.toFile()).done();
+
+        StreamBundle first = new StreamBundle(source());
+        SettingsManager.getInstance().registerConfig(first);
+        assertEquals(17, first.value);
+        assertEquals(1, upgraderCalls);
+
+        try (var s = Files.list(tmp)) {
+            assertEquals(1, s.filter(p -> p.toString().endsWith(".yaml")).count(), "Upgraded tree must be cached");
+        }
+
+        // Simulate a restart
+        resetSettingsManagerSingleton();
+        SettingsManager.configure().upgradeCacheDirectory(tmp.toFile()).done();
+
+        StreamBundle second = new StreamBundle(source());
+        SettingsManager.getInstance().registerConfig(second);
+        assertEquals(17, second.value);
+        assertEquals(1, upgraderCalls, "Upgrade chain must not run again for unchanged source");
+    }
+
+    @Test
+    public void changedSource_missesCache() throws Exception {
+        SettingsManager.configure().upgradeCacheDirectory(tmp.toFile()).done();
+
+        SettingsManager.getInstance().registerConfig(new StreamBundle(source()));
+
+        resetSettingsManagerSingleton();
+        SettingsManager.configure().upgradeCacheDirectory(tmp.toFile()).done();
+
+        StreamBundle changed = new StreamBundle(new ByteArrayInputStream(SOURCE.replace("17", "18").getBytes(StandardCharsets.UTF_8)));
+        SettingsManager.getInstance().registerConfig(changed);
+        assertEquals(18, changed.value);
+        assertEquals(2, upgraderCalls);
+    }
+}